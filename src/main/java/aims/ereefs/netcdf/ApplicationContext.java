@@ -1,6 +1,12 @@
 package aims.ereefs.netcdf;
 
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
+import aims.ereefs.netcdf.input.netcdf.InputDataset;
 import aims.ereefs.netcdf.input.netcdf.InputDatasetCache;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
+import aims.ereefs.netcdf.util.file.cache.ArtefactCache;
+import aims.ereefs.netcdf.util.file.cache.FileCache;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
 import au.gov.aims.ereefs.pojo.definition.product.ProductDefinitionDao;
@@ -11,9 +17,13 @@ import au.gov.aims.ereefs.pojo.task.Task;
 import au.gov.aims.ereefs.pojo.task.TaskDao;
 import com.mongodb.client.MongoClient;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A global context for immutable application-wide settings and references, mostly populated at
@@ -95,6 +105,61 @@ public class ApplicationContext {
         }
     }
 
+    /**
+     * Cached reference to the {@link FileCache} for downloading and caching files. This can be
+     * shared by multiple {@code ApplicationContexts} when executing {@code Tasks} in batch.
+     */
+    protected FileCache fileCache = null;
+
+    public FileCache getFileCache() {
+        return this.fileCache;
+    }
+
+    public void setFileCache(FileCache fileCache) {
+        if (this.fileCache == null) {
+            this.fileCache = fileCache;
+        } else {
+            throw new RuntimeException("Immutable properties may not be modified.");
+        }
+    }
+
+    /**
+     * Cached reference to the {@link ArtefactCache} for persisting artefacts derived from the
+     * grid between executions. This can be shared by multiple {@code ApplicationContexts} when
+     * executing {@code Tasks} in batch.
+     */
+    protected ArtefactCache artefactCache = null;
+
+    public ArtefactCache getArtefactCache() {
+        return this.artefactCache;
+    }
+
+    public void setArtefactCache(ArtefactCache artefactCache) {
+        if (this.artefactCache == null) {
+            this.artefactCache = artefactCache;
+        } else {
+            throw new RuntimeException("Immutable properties may not be modified.");
+        }
+    }
+
+    /**
+     * Cached reference to the {@link MetadataCache} holding the {@code Metadata} of every dataset
+     * referenced by the {@link #task}, prefetched from the {@link #metadataDao}.
+     */
+    protected MetadataCache metadataCache = null;
+
+    public MetadataCache getMetadataCache() {
+        return this.metadataCache;
+    }
+
+    public void setMetadataCache(MetadataCache metadataCache) {
+        if (this.metadataCache == null) {
+            this.metadataCache = metadataCache;
+        } else {
+            throw new RuntimeException("Immutable properties may not be modified.");
+        }
+    }
+
     /**
      * Cached reference to the {@link InputDatasetCache} for application-wide download and caching
      * of input datasets.
@@ -113,6 +178,36 @@ public class ApplicationContext {
         }
     }
 
+    /**
+     * The {@link GridGeometry} of the reference dataset, built on first use by
+     * {@link #getGridGeometry()}.
+     */
+    protected GridGeometry gridGeometry = null;
+
+    /**
+     * Lock guarding the lazy initialisation of {@link #gridGeometry}, separate from the cache so
+     * reading the coordinates does not block other {@code PreProcessingTasks}.
+     */
+    final protected Object gridGeometryLock = new Object();
+
+    /**
+     * Returns the {@link GridGeometry} of the reference dataset, reading it from the
+     * {@link #getInputDatasetCache() InputDatasetCache} on first use.
+     */
+    public GridGeometry getGridGeometry() {
+        synchronized (this.gridGeometryLock) {
+            if (this.gridGeometry == null) {
+                try (InputDataset referenceDataset = this.inputDatasetCache.getReferenceDataset()) {
+                    if (referenceDataset == null) {
+                        throw new RuntimeException("No reference dataset available for the grid geometry.");
+                    }
+                    this.gridGeometry = GridGeometry.make(referenceDataset);
+                }
+            }
+            return this.gridGeometry;
+        }
+    }
+
     /**
      * A list of MetadataIds for each InputSourceId.
      */
@@ -136,11 +231,12 @@ public class ApplicationContext {
     // ---------------------------------------------------------------------------------------------
 
     /**
-     * Generic cache which references can be bound to.
+     * Generic cache which references can be bound to. Access is synchronised, as
+     * {@code PreProcessingTasks} may populate the cache concurrently.
      */
     protected Map<String, Object> cache = new TreeMap<>();
 
-    public void putInCache(String key, Object object) {
+    synchronized public void putInCache(String key, Object object) {
         if (this.cache.containsKey(key)) {
             throw new RuntimeException("The key \"" + key + "\" already exists in cache.");
         } else {
@@ -148,10 +244,52 @@ public class ApplicationContext {
         }
     }
 
-    public Object getFromCache(String key) {
+    synchronized public Object getFromCache(String key) {
         return this.cache.get(key);
     }
 
+    /**
+     * Returns a snapshot of the keys bound to the cache.
+     */
+    synchronized public Set<String> getCacheKeys() {
+        return Collections.unmodifiableSet(new TreeSet<>(this.cache.keySet()));
+    }
+
+
+    // ---------------------------------------------------------------------------------------------
+    // Wet-cell masks
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * The wet-cell masks of single layers of the input grids of the {@link #task}, by a key
+     * identifying the {@code Input}, variables, grid shape and depth. Held per {@code Task}, and
+     * not copied with the {@link #cache generic cache}, as {@code Tasks} executed in a batch may
+     * use different grids.
+     */
+    final protected Map<String, boolean[]> layerMaskCache = new ConcurrentHashMap<>();
+
+    public Map<String, boolean[]> getLayerMaskCache() {
+        return this.layerMaskCache;
+    }
+
+
+    // ---------------------------------------------------------------------------------------------
+    // Tracing
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * The {@link Tracer.Recorder} of the {@code Task} while it is executed, or {@code null} if
+     * tracing is disabled.
+     */
+    protected Tracer.Recorder traceRecorder = null;
+
+    public Tracer.Recorder getTraceRecorder() {
+        return this.traceRecorder;
+    }
+
+    public void setTraceRecorder(Tracer.Recorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
 
     // ---------------------------------------------------------------------------------------------
     // Outputs
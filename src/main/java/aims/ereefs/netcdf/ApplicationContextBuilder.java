@@ -6,14 +6,17 @@ import aims.ereefs.netcdf.input.extraction.ExtractionSitesBuilderTask;
 import aims.ereefs.netcdf.input.geojson.GeoJsonCachePopulatorTask;
 import aims.ereefs.netcdf.input.netcdf.InputDatasetCache;
 import aims.ereefs.netcdf.input.netcdf.InputDatasetCacheFactory;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
 import aims.ereefs.netcdf.regrid.RegularGridMapperCachePopulatorTask;
 import aims.ereefs.netcdf.task.aggregation.DatasetMetadataIdsByInputIdBuilder;
 import aims.ereefs.netcdf.task.aggregation.InputDefinitionByVariableNameMapBuilder;
 import aims.ereefs.netcdf.task.aggregation.InputIdToInputDefinitionMapBuilder;
 import aims.ereefs.netcdf.tasks.PreProcessingTask;
+import aims.ereefs.netcdf.tasks.PreProcessingTaskExecutor;
 import aims.ereefs.netcdf.util.EnvironmentVariableReader;
 import aims.ereefs.netcdf.util.ParameterStoreReader;
 import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.file.cache.ArtefactCache;
 import aims.ereefs.netcdf.util.file.cache.FileCache;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
@@ -77,6 +80,27 @@ public class ApplicationContextBuilder {
         // Instantiate the DAO layer.
         populateDao(applicationContext);
 
+        // Populate the Task and ProductDefinition.
+        populateTask(applicationContext, taskId);
+
+        // Populate the ApplicationContext with other generic references.
+        populateApplicationContext(
+            applicationContext,
+            applicationContext.getTask(),
+            (NcAggregateProductDefinition) applicationContext.getProductDefinition()
+        );
+
+        return applicationContext;
+    }
+
+    /**
+     * Populate the {@link ApplicationContext} with the {@link NcAggregateTask} identified by the
+     * {@code taskId}, and the corresponding {@link NcAggregateProductDefinition}. The {@code DAO}
+     * objects must already be populated.
+     */
+    static public void populateTask(ApplicationContext applicationContext,
+                                    String taskId) {
+
         // Populate the Task.
         final Task tempTask = applicationContext.getTaskDao().getById(taskId);
         if (tempTask == null) {
@@ -112,11 +136,6 @@ public class ApplicationContextBuilder {
         logger.debug("ProductId: " + productDefinition.getId());
         logger.debug("MetadataId: " + task.getMetadataId());
         applicationContext.setProductDefinition(productDefinition);
-
-        // Populate the ApplicationContext with other generic references.
-        populateApplicationContext(applicationContext, task, productDefinition);
-
-        return applicationContext;
     }
 
     /**
@@ -125,6 +144,20 @@ public class ApplicationContextBuilder {
     static public void populateApplicationContext(ApplicationContext applicationContext,
                                                   NcAggregateTask task,
                                                   NcAggregateProductDefinition productDefinition) {
+        populateApplicationContext(applicationContext, task, productDefinition, null);
+    }
+
+    /**
+     * Populate the {@link ApplicationContext} with generic references. If a
+     * {@code preProcessedApplicationContext} is specified, the results of the
+     * {@link PreProcessingTask}s are copied from it instead of executing the
+     * {@link PreProcessingTask}s again. It must have been populated for the same
+     * {@link NcAggregateProductDefinition}.
+     */
+    static public void populateApplicationContext(ApplicationContext applicationContext,
+                                                  NcAggregateTask task,
+                                                  NcAggregateProductDefinition productDefinition,
+                                                  ApplicationContext preProcessedApplicationContext) {
 
         // Set Temp directory if not already set. This allows Temp directory to be set in other
         // use cases as a work around. Not great, but more elegant than alternatives.
@@ -134,23 +167,39 @@ public class ApplicationContextBuilder {
         final String tempPathname = applicationContext.getTempPathname();
 
         // Central download file cache. This provides seamless download of files on demand, and
-        // automated disk space control (ie: delete files when space is required).
-        final String downloadPathname = tempPathname + "downloads" + File.separator;
-        final String maxFileCacheSizeStr = EnvironmentVariableReader.getInstance().optByKey("MAX_FILE_CACHE_SIZE_GB");
-        final int maxFileCacheSize = maxFileCacheSizeStr != null ?
-            Integer.parseInt(maxFileCacheSizeStr) : DEFAULT_MAX_FILE_CACHE_SIZE_GB;
-        final FileCache fileCache = new FileCache(downloadPathname, maxFileCacheSize);
+        // automated disk space control (ie: delete files when space is required). The cache may
+        // already be set if it is shared between ApplicationContexts.
+        if (applicationContext.getFileCache() == null) {
+            applicationContext.setFileCache(makeFileCache(tempPathname));
+        }
+        final FileCache fileCache = applicationContext.getFileCache();
+
+        // Persistent cache of artefacts derived from the grid (eg: zone maps), so they are only
+        // built once for a grid. The cache may already be set if it is shared between
+        // ApplicationContexts.
+        if (applicationContext.getArtefactCache() == null) {
+            applicationContext.setArtefactCache(makeArtefactCache());
+        }
 
         // Build a list of MetadataIds for each InputId.
         applicationContext.setDatasetMetadataIdsByInputIdMap(
             DatasetMetadataIdsByInputIdBuilder.build(task, productDefinition)
         );
 
+        // Prefetch the Metadata of every dataset referenced by the Task, so each record is
+        // retrieved from the database once, rather than each time it is used.
+        applicationContext.setMetadataCache(
+            MetadataCache.prefetch(
+                applicationContext.getMetadataDao(),
+                applicationContext.getDatasetMetadataIdsByInputIdMap()
+            )
+        );
+
         // Provide seamless access to input datasets. The InputDatasetCache uses the FileCache to
         // download datasets on demand.
         final InputDatasetCache inputDatasetCache = InputDatasetCacheFactory.make(
             fileCache,
-            applicationContext.getMetadataDao(),
+            applicationContext.getMetadataCache(),
             productDefinition,
             applicationContext.getDatasetMetadataIdsByInputIdMap()
         );
@@ -160,25 +209,13 @@ public class ApplicationContextBuilder {
         // require a reference dataset do not have access to any of the MetadataIds to determine
         // the reference datasets.
 
-        // Pre Processing Tasks.
-        List<PreProcessingTask> supportedPreProcessingTasks = new ArrayList<PreProcessingTask>() {{
-            add(new CsvDatasetCachePopulatorTask(tempPathname));
-            add(new ExtractionSitesBuilderTask(tempPathname));
-            add(new GeoJsonCachePopulatorTask(tempPathname));
-            add(new RegularGridMapperCachePopulatorTask(tempPathname));
-            add(new ThresholdCachePopulatorTask(tempPathname));
-        }};
-        for (final NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn : productDefinition.getPreProcessingTasks()) {
-            boolean isHandled = false;
-            for (PreProcessingTask preProcessingTaskImpl : supportedPreProcessingTasks) {
-                if (preProcessingTaskImpl.supports(preProcessingTaskDefn)) {
-                    isHandled = true;
-                    preProcessingTaskImpl.process(preProcessingTaskDefn, applicationContext);
-                }
-            }
-            if (!isHandled) {
-                throw new RuntimeException("\"" + preProcessingTaskDefn.getType() + "\" not supported.");
+        // Pre Processing Tasks. If already executed for the ProductDefinition, copy the results.
+        if (preProcessedApplicationContext != null) {
+            for (String key : preProcessedApplicationContext.getCacheKeys()) {
+                applicationContext.putInCache(key, preProcessedApplicationContext.getFromCache(key));
             }
+        } else {
+            executePreProcessingTasks(applicationContext, productDefinition, tempPathname);
         }
 
         // A ProductDefinition supports multiple Input Sources, which are defined as an array.
@@ -200,6 +237,67 @@ public class ApplicationContextBuilder {
 
     }
 
+    /**
+     * Instantiate the {@link FileCache} in the {@code downloads} directory of the
+     * {@code tempPathname}, sized by the {@code MAX_FILE_CACHE_SIZE_GB} environment variable.
+     */
+    static public FileCache makeFileCache(String tempPathname) {
+        final String downloadPathname = tempPathname + "downloads" + File.separator;
+        final String maxFileCacheSizeStr = EnvironmentVariableReader.getInstance().optByKey("MAX_FILE_CACHE_SIZE_GB");
+        final int maxFileCacheSize = maxFileCacheSizeStr != null ?
+            Integer.parseInt(maxFileCacheSizeStr) : DEFAULT_MAX_FILE_CACHE_SIZE_GB;
+        return new FileCache(downloadPathname, maxFileCacheSize);
+    }
+
+    /**
+     * Instantiate the {@link ArtefactCache} in the directory specified by the
+     * {@code ARTEFACT_CACHE_PATH} environment variable, or the {@code artefacts} directory of the
+     * application within the system temp directory, which is kept between executions. Artefacts
+     * are written through to the {@code ARTEFACT_CACHE_URL} environment variable if specified.
+     */
+    static public ArtefactCache makeArtefactCache() {
+        String artefactCachePathname = EnvironmentVariableReader.getInstance().optByKey("ARTEFACT_CACHE_PATH");
+        if (artefactCachePathname == null) {
+            artefactCachePathname = System.getProperty("java.io.tmpdir") + File.separator +
+                TempDirectoryInitialiser.APP_NAME + File.separator + "artefacts" + File.separator;
+        }
+        return new ArtefactCache(
+            artefactCachePathname,
+            EnvironmentVariableReader.getInstance().optByKey("ARTEFACT_CACHE_URL")
+        );
+    }
+
+    /**
+     * Execute the {@link PreProcessingTask}s declared by the {@link NcAggregateProductDefinition},
+     * which populate the cache of the {@link ApplicationContext}. The {@link PreProcessingTask}s
+     * are executed by a {@link PreProcessingTaskExecutor} in the order of their dependencies.
+     */
+    static protected void executePreProcessingTasks(ApplicationContext applicationContext,
+                                                    NcAggregateProductDefinition productDefinition,
+                                                    String tempPathname) {
+        List<PreProcessingTask> supportedPreProcessingTasks = new ArrayList<PreProcessingTask>() {{
+            add(new CsvDatasetCachePopulatorTask(tempPathname));
+            add(new ExtractionSitesBuilderTask(tempPathname));
+            add(new GeoJsonCachePopulatorTask(tempPathname));
+            add(new RegularGridMapperCachePopulatorTask(tempPathname));
+            add(new ThresholdCachePopulatorTask(tempPathname));
+        }};
+        final PreProcessingTaskExecutor preProcessingTaskExecutor = new PreProcessingTaskExecutor();
+        for (final NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn : productDefinition.getPreProcessingTasks()) {
+            boolean isHandled = false;
+            for (PreProcessingTask preProcessingTaskImpl : supportedPreProcessingTasks) {
+                if (preProcessingTaskImpl.supports(preProcessingTaskDefn)) {
+                    isHandled = true;
+                    preProcessingTaskExecutor.add(preProcessingTaskDefn, preProcessingTaskImpl);
+                }
+            }
+            if (!isHandled) {
+                throw new RuntimeException("\"" + preProcessingTaskDefn.getType() + "\" not supported.");
+            }
+        }
+        preProcessingTaskExecutor.execute(applicationContext);
+    }
+
     /**
      * Helper method to populate the {@link ApplicationContext} with references to the {@code DAO}
      * objects.
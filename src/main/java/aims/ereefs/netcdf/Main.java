@@ -3,6 +3,9 @@ package aims.ereefs.netcdf;
 import aims.ereefs.netcdf.metadata.populate.PopulateMetadataOperationModeExecutor;
 import aims.ereefs.netcdf.regrid.RegridOperationModeExecutor;
 import aims.ereefs.netcdf.task.aggregation.AggregationOperationModeExecutor;
+import aims.ereefs.netcdf.task.aggregation.BatchOperationModeExecutor;
+import aims.ereefs.netcdf.task.aggregation.PlanOperationModeExecutor;
+import aims.ereefs.netcdf.tasks.PrecomputeArtefactsOperationModeExecutor;
 import aims.ereefs.netcdf.util.metrics.MetricsPushThread;
 import aims.ereefs.netcdf.util.metrics.MetricsPushThreadFactory;
 import org.slf4j.Logger;
@@ -17,7 +20,10 @@ import java.util.TimeZone;
  *
  * @see AggregationOperationModeExecutor
  * @see RegridOperationModeExecutor
+ * @see BatchOperationModeExecutor
  * @see PopulateMetadataOperationModeExecutor
+ * @see PrecomputeArtefactsOperationModeExecutor
+ * @see PlanOperationModeExecutor
  *
  * @author Greg Coleman
  * @author Aaron Smith
@@ -51,6 +57,9 @@ public class Main {
                 final OperationModeExecutor[] executors = new OperationModeExecutor[]{
                     new PopulateMetadataOperationModeExecutor(),
                     new RegridOperationModeExecutor(),
+                    new BatchOperationModeExecutor(),
+                    new PrecomputeArtefactsOperationModeExecutor(),
+                    new PlanOperationModeExecutor(),
                     new AggregationOperationModeExecutor()
                 };
                 boolean isHandled = false;
@@ -2,6 +2,7 @@ package aims.ereefs.netcdf.aggregator;
 
 import aims.ereefs.netcdf.aggregator.operators.factory.PipelineFactory;
 import aims.ereefs.netcdf.aggregator.operators.pipeline.BasicPipeline;
+import aims.ereefs.netcdf.aggregator.operators.pipeline.PartialState;
 import aims.ereefs.netcdf.aggregator.operators.pipeline.Pipeline;
 import aims.ereefs.netcdf.aggregator.time.TimeAggregatorHelper;
 import org.slf4j.Logger;
@@ -94,11 +95,66 @@ public abstract class AbstractAggregator implements Aggregator {
 
     }
 
+    @Override
+    public void addFloat(double time, List<float[]> variableDataArrayList) {
+
+        // Verify that an Operator has been specified.
+        if (this.pipeline == null) {
+            throw new RuntimeException("No operator specified.");
+        }
+
+        // Pass the variable data to the operator.
+        this.pipeline.executeFloat(variableDataArrayList);
+
+    }
+
+    @Override
+    public void add(double time, List<Double[]> variableDataArrayList, int weight) {
+
+        // Verify that an Operator has been specified.
+        if (this.pipeline == null) {
+            throw new RuntimeException("No operator specified.");
+        }
+
+        // Pass the variable data to the operator.
+        this.pipeline.executeWeighted(variableDataArrayList, weight);
+
+    }
+
+    @Override
+    public void addFloat(double time, List<float[]> variableDataArrayList, int weight) {
+
+        // Verify that an Operator has been specified.
+        if (this.pipeline == null) {
+            throw new RuntimeException("No operator specified.");
+        }
+
+        // Pass the variable data to the operator.
+        this.pipeline.executeFloatWeighted(variableDataArrayList, weight);
+
+    }
+
     @Override
     public List<Double[]> getAggregatedData() {
         return this.pipeline.getResults();
     }
 
+    @Override
+    public PartialState getPartialState() {
+        if (this.pipeline == null) {
+            throw new RuntimeException("No operator specified.");
+        }
+        return this.pipeline.getPartialState();
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        if (this.pipeline == null) {
+            throw new RuntimeException("No operator specified.");
+        }
+        this.pipeline.merge(partialState);
+    }
+
     @Override
     public void reset() {
         if (this.pipeline != null) {
@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf.aggregator;
 
 import aims.ereefs.netcdf.aggregator.operators.factory.PipelineFactory;
+import aims.ereefs.netcdf.aggregator.operators.pipeline.PartialState;
 import ucar.ma2.DataType;
 
 import java.util.List;
@@ -41,6 +42,33 @@ public interface Aggregator {
      */
     void add(double time, List<Double[]> variableDataList);
 
+    /**
+     * Add single precision data to the underlying {@code Operator}. Equivalent to
+     * {@link #add(double, List)}, but without boxing each value.
+     *
+     * @param time             the time corresponding to the variable data.
+     * @param variableDataList a list of input arrays ({@code float[]}) where each array represents
+     *                         a single time slice of data for a single variable.
+     */
+    void addFloat(double time, List<float[]> variableDataList);
+
+    /**
+     * Add the data to the underlying {@code Operator} as {@code weight} accumulations. Equivalent
+     * to invoking {@link #add(double, List)} {@code weight} times, but the data is only processed
+     * once by {@code Operators} that support weighting.
+     *
+     * @param time             the time corresponding to the variable data.
+     * @param variableDataList a list of input arrays ({@code Double[]}) where each array
+     *                         represents a single time slice of data for a single variable.
+     * @param weight           the number of accumulations represented by the data.
+     */
+    void add(double time, List<Double[]> variableDataList, int weight);
+
+    /**
+     * Single precision equivalent of {@link #add(double, List, int)}.
+     */
+    void addFloat(double time, List<float[]> variableDataList, int weight);
+
     /**
      * Returns the results of the aggregation. Each array ({@code Double[]}) in the returned list
      * represents an output variable.
@@ -49,6 +77,20 @@ public interface Aggregator {
      */
     List<Double[]> getAggregatedData();
 
+    /**
+     * Returns the intermediate state of the aggregation, allowing the aggregation to be split
+     * across multiple {@code Aggregators} and then {@link #merge(PartialState) merged}.
+     *
+     * @see aims.ereefs.netcdf.aggregator.operators.pipeline.Pipeline#isMergeable()
+     */
+    PartialState getPartialState();
+
+    /**
+     * Merge the intermediate state of another {@code Aggregator} of the same type into this
+     * {@code Aggregator}.
+     */
+    void merge(PartialState partialState);
+
     /**
      * Instruct the {@code Aggregator} that processing for an aggregation period has completed, and
      * the next aggregation period is about to start.
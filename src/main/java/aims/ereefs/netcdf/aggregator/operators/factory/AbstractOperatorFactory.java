@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf.aggregator.operators.factory;
 
 import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +16,13 @@ abstract public class AbstractOperatorFactory implements PipelineFactory {
 
     final protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * Cached flag from the {@code PIPELINE_FUSION} environment variable.
+     *
+     * @see #isFusionEnabled()
+     */
+    static protected Boolean isFusionEnabled = null;
+
     protected ApplicationContext applicationContext;
 
     protected NcAggregateProductDefinition.SummaryOperator summaryOperator;
@@ -33,4 +41,19 @@ abstract public class AbstractOperatorFactory implements PipelineFactory {
     public String getDescriptor() {
         return this.summaryOperator.getName();
     }
+
+    /**
+     * Returns {@code true} unless the {@code PIPELINE_FUSION} environment variable is
+     * {@code false}. If enabled, factories build a fused {@code Stage} for the chains of
+     * {@code Stages} they recognise (eg: speed, mean and threshold comparison), calculating each
+     * cell in a single loop. Other chains always use the generic {@code Stages}.
+     */
+    synchronized static public boolean isFusionEnabled() {
+        if (isFusionEnabled == null) {
+            final String value = EnvironmentVariableReader.getInstance().optByKey("PIPELINE_FUSION");
+            isFusionEnabled = (value == null) || Boolean.parseBoolean(value);
+        }
+        return isFusionEnabled;
+    }
+
 }
@@ -15,6 +15,7 @@ import java.util.ArrayList;
  * @see MeanCollectorStage
  * @see MaxCollectorStage
  * @see CombiningPipeline
+ * @see SpeedMeanCollectorStage
  */
 public class SpeedMeanOperatorFactory extends AbstractOperatorFactory {
 
@@ -29,10 +30,16 @@ public class SpeedMeanOperatorFactory extends AbstractOperatorFactory {
     }
 
     /**
-     * Factory method for instantiating the {@link Pipeline} class.
+     * Factory method for instantiating the {@link Pipeline} class. If
+     * {@link #isFusionEnabled() fusion} is enabled, the speed is calculated and accumulated by a
+     * single {@link SpeedMeanCollectorStage}.
      */
     @Override
     public Pipeline make() {
+        if (isFusionEnabled()) {
+            final SpeedMeanCollectorStage speedMeanCollectorStage = new SpeedMeanCollectorStage();
+            return new BasicPipeline(speedMeanCollectorStage, speedMeanCollectorStage);
+        }
         final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
         final SpeedTransformerStage speedTransformerStage = new SpeedTransformerStage(
             new ArrayList<Stage>() {{
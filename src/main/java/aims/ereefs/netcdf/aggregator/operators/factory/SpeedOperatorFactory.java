@@ -14,6 +14,7 @@ import java.util.ArrayList;
  * @see MinCollectorStage
  * @see MeanCollectorStage
  * @see MaxCollectorStage
+ * @see MomentsCollectorStage
  * @see CombiningPipeline
  */
 public class SpeedOperatorFactory extends AbstractOperatorFactory {
@@ -29,30 +30,30 @@ public class SpeedOperatorFactory extends AbstractOperatorFactory {
     }
 
     /**
-     * Factory method for instantiating the {@link Pipeline} class.
+     * Factory method for instantiating the {@link Pipeline} class. The {@code MIN}, {@code MEAN}
+     * and {@code MAX} are views over a single {@link MomentsCollectorStage}, so each speed is
+     * visited once.
      */
     @Override
     public Pipeline make() {
-        final MinCollectorStage minCollectorStage = new MinCollectorStage();
-        final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
-        final MaxCollectorStage maxCollectorStage = new MaxCollectorStage();
+        final MomentsCollectorStage momentsCollectorStage = new MomentsCollectorStage(
+            MomentsCollectorStage.Statistic.MIN,
+            MomentsCollectorStage.Statistic.MEAN,
+            MomentsCollectorStage.Statistic.MAX
+        );
         final SpeedTransformerStage speedTransformerStage = new SpeedTransformerStage(
             new ArrayList<Stage>() {{
-                add(minCollectorStage);
-                add(meanCollectorStage);
-                add(maxCollectorStage);
+                add(momentsCollectorStage);
             }}
         );
         return new CombiningPipeline(
             speedTransformerStage,
             new ArrayList<Collector>() {{
-                add(minCollectorStage);
-                add(meanCollectorStage);
-                add(maxCollectorStage);
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MIN));
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MEAN));
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MAX));
             }}
         );
-
-
     }
 
 }
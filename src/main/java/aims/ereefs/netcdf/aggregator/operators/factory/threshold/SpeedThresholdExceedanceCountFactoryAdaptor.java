@@ -1,5 +1,6 @@
 package aims.ereefs.netcdf.aggregator.operators.factory.threshold;
 
+import aims.ereefs.netcdf.aggregator.operators.factory.AbstractOperatorFactory;
 import aims.ereefs.netcdf.aggregator.operators.pipeline.*;
 
 import java.util.ArrayList;
@@ -41,6 +42,19 @@ public class SpeedThresholdExceedanceCountFactoryAdaptor implements ThresholdExc
                          Map<String, Double[]> zoneIdToThresholdMap,
                          BiPredicate<Double, Double> thresholdComparator) {
         final SumCollectorStage sumCollectorStage = new SumCollectorStage();
+        if (AbstractOperatorFactory.isFusionEnabled()) {
+            return new BasicPipeline(
+                new FusedThresholdExceedanceCountStage(
+                    true,
+                    maxAccumulationTimeSlices,
+                    indexToZoneIdMap,
+                    zoneIdToThresholdMap,
+                    thresholdComparator,
+                    sumCollectorStage
+                ),
+                sumCollectorStage
+            );
+        }
         final ThresholdExceedanceCountStage thresholdExceedanceCountStage = new ThresholdExceedanceCountStage(
             indexToZoneIdMap,
             zoneIdToThresholdMap,
@@ -68,6 +82,18 @@ public class SpeedThresholdExceedanceCountFactoryAdaptor implements ThresholdExc
                          double threshold,
                          BiPredicate<Double, Double> thresholdComparator) {
         final SumCollectorStage sumCollectorStage = new SumCollectorStage();
+        if (AbstractOperatorFactory.isFusionEnabled()) {
+            return new BasicPipeline(
+                new FusedThresholdExceedanceCountStage(
+                    true,
+                    maxAccumulationTimeSlices,
+                    threshold,
+                    thresholdComparator,
+                    sumCollectorStage
+                ),
+                sumCollectorStage
+            );
+        }
         final ThresholdExceedanceCountStage thresholdExceedanceCountStage = new ThresholdExceedanceCountStage(
             threshold,
             thresholdComparator,
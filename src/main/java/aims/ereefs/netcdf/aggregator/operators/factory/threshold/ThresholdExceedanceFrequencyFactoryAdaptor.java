@@ -1,5 +1,6 @@
 package aims.ereefs.netcdf.aggregator.operators.factory.threshold;
 
+import aims.ereefs.netcdf.aggregator.operators.factory.AbstractOperatorFactory;
 import aims.ereefs.netcdf.aggregator.operators.pipeline.*;
 
 import java.util.ArrayList;
@@ -41,6 +42,19 @@ public class ThresholdExceedanceFrequencyFactoryAdaptor implements ThresholdExce
                          Map<String, Double[]> zoneIdToThresholdMap,
                          BiPredicate<Double, Double> thresholdComparator) {
         final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        if (AbstractOperatorFactory.isFusionEnabled()) {
+            return new BasicPipeline(
+                new FusedThresholdExceedanceCountStage(
+                    false,
+                    maxAccumulationTimeSlices,
+                    indexToZoneIdMap,
+                    zoneIdToThresholdMap,
+                    thresholdComparator,
+                    meanCollectorStage
+                ),
+                meanCollectorStage
+            );
+        }
         final ThresholdExceedanceCountStage thresholdExceedanceCountStage = new ThresholdExceedanceCountStage(
             indexToZoneIdMap,
             zoneIdToThresholdMap,
@@ -63,6 +77,18 @@ public class ThresholdExceedanceFrequencyFactoryAdaptor implements ThresholdExce
                          double threshold,
                          BiPredicate<Double, Double> thresholdComparator) {
         final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        if (AbstractOperatorFactory.isFusionEnabled()) {
+            return new BasicPipeline(
+                new FusedThresholdExceedanceCountStage(
+                    false,
+                    maxAccumulationTimeSlices,
+                    threshold,
+                    thresholdComparator,
+                    meanCollectorStage
+                ),
+                meanCollectorStage
+            );
+        }
         final ThresholdExceedanceCountStage thresholdExceedanceCountStage = new ThresholdExceedanceCountStage(
             threshold,
             thresholdComparator,
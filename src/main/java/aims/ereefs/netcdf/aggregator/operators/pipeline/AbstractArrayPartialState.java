@@ -0,0 +1,169 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Convenient base class for {@link PartialState} implementations that hold one array of cell
+ * values per variable. Cells without a value are represented by {@code NaN}.
+ *
+ * @author Aaron Smith
+ */
+abstract public class AbstractArrayPartialState implements PartialState {
+
+    final static protected String EXCEPTION_MESSAGE_TYPE = "Incompatible partial state type.";
+    final static protected String EXCEPTION_MESSAGE_SIZE = "Partial states have different sizes.";
+
+    /**
+     * The cell values, one array per variable. An empty list signifies no data has been
+     * collected.
+     */
+    protected List<double[]> arrays;
+
+    /**
+     * Constructor to capture the {@link #arrays}.
+     */
+    public AbstractArrayPartialState(List<double[]> arrays) {
+        this.arrays = arrays;
+    }
+
+    public List<double[]> getArrays() {
+        return this.arrays;
+    }
+
+    /**
+     * Merge the {@link #arrays} of the {@code other} state into this state, using
+     * {@link #mergeValue(double, double)} for cells where both states hold a value.
+     */
+    protected void mergeArrays(AbstractArrayPartialState other) {
+        if (other.arrays.isEmpty()) {
+            return;
+        }
+        if (this.arrays.isEmpty()) {
+            for (double[] array : other.arrays) {
+                this.arrays.add(array.clone());
+            }
+            return;
+        }
+        if (this.arrays.size() != other.arrays.size()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_SIZE);
+        }
+        for (int arrayIndex = 0; arrayIndex < this.arrays.size(); arrayIndex++) {
+            final double[] array = this.arrays.get(arrayIndex);
+            final double[] otherArray = other.arrays.get(arrayIndex);
+            if (array.length != otherArray.length) {
+                throw new RuntimeException(EXCEPTION_MESSAGE_SIZE);
+            }
+            for (int dataIndex = 0; dataIndex < array.length; dataIndex++) {
+                final double otherValue = otherArray[dataIndex];
+                if (!Double.isNaN(otherValue)) {
+                    array[dataIndex] = Double.isNaN(array[dataIndex]) ?
+                        otherValue :
+                        this.mergeValue(array[dataIndex], otherValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Template method to combine two (2) valid values of the same cell.
+     */
+    abstract protected double mergeValue(double value, double otherValue);
+
+    /**
+     * Verify the {@code other} state is the same type as this state.
+     */
+    protected void validateType(PartialState other) {
+        if ((other == null) || (other.getType() != this.getType())) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_TYPE);
+        }
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        writeArrays(output, this.arrays);
+    }
+
+    /**
+     * Write the {@code arrays} to the {@code output}.
+     */
+    static protected void writeArrays(DataOutput output, List<double[]> arrays) throws IOException {
+        output.writeInt(arrays.size());
+        for (double[] array : arrays) {
+            output.writeInt(array.length);
+            for (double value : array) {
+                output.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Read arrays written by {@link #writeArrays(DataOutput, List)} from the {@code input}.
+     */
+    static protected List<double[]> readArrays(DataInput input) throws IOException {
+        final int arrayCount = input.readInt();
+        final List<double[]> arrays = new ArrayList<>(arrayCount);
+        for (int arrayIndex = 0; arrayIndex < arrayCount; arrayIndex++) {
+            final double[] array = new double[input.readInt()];
+            for (int dataIndex = 0; dataIndex < array.length; dataIndex++) {
+                array[dataIndex] = input.readDouble();
+            }
+            arrays.add(array);
+        }
+        return arrays;
+    }
+
+    /**
+     * Copy the cached data of a {@link Collector}, so the state is not affected by further
+     * executions of the {@link Collector}. A {@code null} list results in an empty list.
+     */
+    static public List<double[]> copyOf(List<double[]> data) {
+        final List<double[]> arrays = new ArrayList<>();
+        if (data != null) {
+            for (double[] array : data) {
+                arrays.add(array.clone());
+            }
+        }
+        return arrays;
+    }
+
+    /**
+     * Returns the cached data of a {@link Collector} for merging in place. A {@code null} list
+     * results in an empty list.
+     */
+    static public List<double[]> fromCachedData(List<double[]> data) {
+        return data != null ? data : new ArrayList<>();
+    }
+
+    /**
+     * Returns merged arrays in the form cached by a {@link Collector}. An empty list results in
+     * {@code null}, matching a {@link Collector} that has not been executed.
+     */
+    static public List<double[]> toCachedData(List<double[]> arrays) {
+        return arrays.isEmpty() ? null : arrays;
+    }
+
+    /**
+     * Copy primitive arrays to the form returned by {@link Collector#getResults()}. A
+     * {@code null} or empty list results in {@code null}, matching a {@link Collector} that has
+     * not been executed.
+     */
+    static public List<Double[]> toBoxed(List<double[]> arrays) {
+        if ((arrays == null) || arrays.isEmpty()) {
+            return null;
+        }
+        final List<Double[]> data = new ArrayList<>();
+        for (double[] array : arrays) {
+            final Double[] boxedArray = new Double[array.length];
+            for (int index = 0; index < array.length; index++) {
+                boxedArray[index] = array[index];
+            }
+            data.add(boxedArray);
+        }
+        return data;
+    }
+
+}
@@ -8,18 +8,20 @@ import java.util.function.BiPredicate;
 /**
  * An abstract base {@link Collector} {@link Stage} that caches values that pass the
  * {@link #comparator} test. Since this is a {@link Collector}, this is a {@code Terminal}
- * {@code stage}.
+ * {@code stage}. The intermediate state is exposed as a {@link ComparisonPartialState}. Values are
+ * held as primitive {@code double} values, and single precision inputs can be compared without
+ * boxing via {@link #executeFloat(List)}.
  *
  * @author Aaron Smith
  */
-public class AbstractComparisonCollectorStage implements Stage, Collector {
+public class AbstractComparisonCollectorStage implements Stage, FloatStage, MergeableCollector {
 
     final static protected String EXCEPTION_MESSAGE = "No input data specified.";
 
     /**
      * Cached data updated when the {@link #comparator} test is passed.
      */
-    protected List<Double[]> cachedData;
+    protected List<double[]> cachedData;
 
     /**
      * Cached comparator function used by {@link #execute(List)} to determine if the value should
@@ -44,30 +46,55 @@ public class AbstractComparisonCollectorStage implements Stage, Collector {
 
         // Instantiate the internal arrays if not already done.
         if (this.cachedData == null) {
-            this.cachedData = new ArrayList<>();
-            for (final Double[] input : inputs) {
-                final int inputLength = input.length;
-                final Double[] cacheArray = new Double[inputLength];
-                this.cachedData.add(cacheArray);
-                Arrays.fill(cacheArray, Double.NaN);
-            }
+            this.initialiseCachedData(inputs.stream().mapToInt(input -> input.length).toArray());
         }
 
         // Test each cached value against the corresponding input value..
         for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
             final Double[] inputArray = inputs.get(inputIndex);
-            final Double[] cachedArray = this.cachedData.get(inputIndex);
+            final double[] cachedArray = this.cachedData.get(inputIndex);
             for (int dataIndex = 0; dataIndex < inputArray.length; dataIndex++) {
                 final Double inputValue = inputArray[dataIndex];
-                final Double cachedValue = cachedArray[dataIndex];
+                final double cachedValue = cachedArray[dataIndex];
 
                 // Only compare if the input value is a valid number.
                 if ((inputValue != null) && !Double.isNaN(inputValue)) {
 
                     // Cache if the current value is not a number, or the input value passes the
                     // comparison test.
-                    if ((cachedValue == null) || Double.isNaN(cachedValue) ||
-                        this.comparator.test(inputValue, cachedValue)) {
+                    if (Double.isNaN(cachedValue) || this.comparator.test(inputValue, cachedValue)) {
+                        cachedArray[dataIndex] = inputValue;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Equivalent to {@link #execute(List)} for single precision inputs.
+     */
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+
+        // Validate inputs.
+        if (inputs.size() == 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+
+        // Instantiate the internal arrays if not already done.
+        if (this.cachedData == null) {
+            this.initialiseCachedData(inputs.stream().mapToInt(input -> input.length).toArray());
+        }
+
+        // Test each cached value against the corresponding input value.
+        for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+            final float[] inputArray = inputs.get(inputIndex);
+            final double[] cachedArray = this.cachedData.get(inputIndex);
+            for (int dataIndex = 0; dataIndex < inputArray.length; dataIndex++) {
+                final double inputValue = inputArray[dataIndex];
+                if (!Double.isNaN(inputValue)) {
+                    final double cachedValue = cachedArray[dataIndex];
+                    if (Double.isNaN(cachedValue) || this.comparator.test(inputValue, cachedValue)) {
                         cachedArray[dataIndex] = inputValue;
                     }
                 }
@@ -75,6 +102,18 @@ public class AbstractComparisonCollectorStage implements Stage, Collector {
         }
     }
 
+    /**
+     * Instantiate the {@link #cachedData} for inputs of the specified lengths.
+     */
+    protected void initialiseCachedData(int[] inputLengths) {
+        this.cachedData = new ArrayList<>();
+        for (final int inputLength : inputLengths) {
+            final double[] cacheArray = new double[inputLength];
+            this.cachedData.add(cacheArray);
+            Arrays.fill(cacheArray, Double.NaN);
+        }
+    }
+
     @Override
     public void reset() {
         // Drop the cached data so it will be re-initialised the next time execute() is invoked.
@@ -86,7 +125,25 @@ public class AbstractComparisonCollectorStage implements Stage, Collector {
 
     @Override
     public List<Double[]> getResults() {
-        return this.cachedData;
+        return AbstractArrayPartialState.toBoxed(this.cachedData);
+    }
+
+    @Override
+    public PartialState getPartialState() {
+        return new ComparisonPartialState(
+            this.comparator,
+            AbstractArrayPartialState.copyOf(this.cachedData)
+        );
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        final ComparisonPartialState currentPartialState = new ComparisonPartialState(
+            this.comparator,
+            AbstractArrayPartialState.fromCachedData(this.cachedData)
+        );
+        currentPartialState.merge(partialState);
+        this.cachedData = AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
     }
 
 }
@@ -10,6 +10,11 @@ import java.util.List;
  */
 public class BasicPipeline implements Pipeline {
 
+    final static protected String EXCEPTION_MESSAGE_NOT_MERGEABLE = "Pipeline does not support partial state.";
+    final static protected String EXCEPTION_MESSAGE_WEIGHT = "Weight must be positive.";
+    final static protected String EXCEPTION_MESSAGE_ACCUMULATING =
+        "Partial state is not available while time slices are being accumulated.";
+
     protected Stage initialStage;
     protected Collector finalCollector;
 
@@ -24,6 +29,47 @@ public class BasicPipeline implements Pipeline {
         this.initialStage.execute(inputs);
     }
 
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        if (this.initialStage instanceof FloatStage) {
+            ((FloatStage) this.initialStage).executeFloat(inputs);
+        } else {
+            this.initialStage.execute(FloatStage.toBoxed(inputs));
+        }
+    }
+
+    /**
+     * Passes the {@code weight} to an initial {@link WeightedStage}, otherwise executes the
+     * initial {@link Stage} {@code weight} times.
+     */
+    @Override
+    public void executeWeighted(List<Double[]> inputs, int weight) {
+        if (weight < 1) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_WEIGHT);
+        }
+        if (this.initialStage instanceof WeightedStage) {
+            ((WeightedStage) this.initialStage).executeWeighted(inputs, weight);
+        } else {
+            for (int count = 0; count < weight; count++) {
+                this.execute(inputs);
+            }
+        }
+    }
+
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+        if (weight < 1) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_WEIGHT);
+        }
+        if (this.initialStage instanceof WeightedStage) {
+            ((WeightedStage) this.initialStage).executeFloatWeighted(inputs, weight);
+        } else {
+            for (int count = 0; count < weight; count++) {
+                this.executeFloat(inputs);
+            }
+        }
+    }
+
     @Override
     public void reset() {
         this.initialStage.reset();
@@ -34,4 +80,34 @@ public class BasicPipeline implements Pipeline {
         return this.finalCollector.getResults();
     }
 
+    @Override
+    public boolean isMergeable() {
+        return this.finalCollector instanceof MergeableCollector;
+    }
+
+    /**
+     * Returns the {@link PartialState} of the {@link #finalCollector}. An {@link Stage initial
+     * stage} that accumulates time slices must not hold a partial accumulation, as that data is
+     * not part of the {@link PartialState}.
+     */
+    @Override
+    public PartialState getPartialState() {
+        if (!this.isMergeable()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NOT_MERGEABLE);
+        }
+        if ((this.initialStage instanceof SumAccumulatorStage) &&
+            ((SumAccumulatorStage) this.initialStage).isAccumulating()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_ACCUMULATING);
+        }
+        return ((MergeableCollector) this.finalCollector).getPartialState();
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        if (!this.isMergeable()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NOT_MERGEABLE);
+        }
+        ((MergeableCollector) this.finalCollector).merge(partialState);
+    }
+
 }
\ No newline at end of file
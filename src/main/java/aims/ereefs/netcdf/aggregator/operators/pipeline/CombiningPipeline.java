@@ -11,6 +11,9 @@ import java.util.List;
  */
 public class CombiningPipeline implements Pipeline {
 
+    final static protected String EXCEPTION_MESSAGE_NOT_MERGEABLE = "Pipeline does not support partial state.";
+    final static protected String EXCEPTION_MESSAGE_WEIGHT = "Weight must be positive.";
+
     protected Stage initialStage;
     protected List<Collector> collectors;
 
@@ -25,6 +28,47 @@ public class CombiningPipeline implements Pipeline {
         this.initialStage.execute(inputs);
     }
 
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        if (this.initialStage instanceof FloatStage) {
+            ((FloatStage) this.initialStage).executeFloat(inputs);
+        } else {
+            this.initialStage.execute(FloatStage.toBoxed(inputs));
+        }
+    }
+
+    /**
+     * Passes the {@code weight} to an initial {@link WeightedStage}, otherwise executes the
+     * initial {@link Stage} {@code weight} times.
+     */
+    @Override
+    public void executeWeighted(List<Double[]> inputs, int weight) {
+        if (weight < 1) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_WEIGHT);
+        }
+        if (this.initialStage instanceof WeightedStage) {
+            ((WeightedStage) this.initialStage).executeWeighted(inputs, weight);
+        } else {
+            for (int count = 0; count < weight; count++) {
+                this.execute(inputs);
+            }
+        }
+    }
+
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+        if (weight < 1) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_WEIGHT);
+        }
+        if (this.initialStage instanceof WeightedStage) {
+            ((WeightedStage) this.initialStage).executeFloatWeighted(inputs, weight);
+        } else {
+            for (int count = 0; count < weight; count++) {
+                this.executeFloat(inputs);
+            }
+        }
+    }
+
     @Override
     public void reset() {
         this.initialStage.reset();
@@ -39,4 +83,40 @@ public class CombiningPipeline implements Pipeline {
         return results;
     }
 
+    @Override
+    public boolean isMergeable() {
+        return this.collectors.stream().allMatch(collector -> collector instanceof MergeableCollector);
+    }
+
+    /**
+     * Returns a {@link CompositePartialState} of the {@link PartialState}s of the
+     * {@link #collectors}, in the same order.
+     */
+    @Override
+    public PartialState getPartialState() {
+        if (!this.isMergeable()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NOT_MERGEABLE);
+        }
+        final List<PartialState> partialStates = new ArrayList<>();
+        for (Collector collector : this.collectors) {
+            partialStates.add(((MergeableCollector) collector).getPartialState());
+        }
+        return new CompositePartialState(partialStates);
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        if (!this.isMergeable()) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NOT_MERGEABLE);
+        }
+        if (!(partialState instanceof CompositePartialState) ||
+            (((CompositePartialState) partialState).getPartialStates().size() != this.collectors.size())) {
+            throw new RuntimeException(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
+        }
+        final List<PartialState> partialStates = ((CompositePartialState) partialState).getPartialStates();
+        for (int index = 0; index < this.collectors.size(); index++) {
+            ((MergeableCollector) this.collectors.get(index)).merge(partialStates.get(index));
+        }
+    }
+
 }
\ No newline at end of file
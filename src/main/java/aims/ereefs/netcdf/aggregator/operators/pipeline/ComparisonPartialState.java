@@ -0,0 +1,90 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * {@link PartialState} of an {@link AbstractComparisonCollectorStage}, being the value of each cell
+ * that passed the comparison (ie: the {@code MIN} or {@code MAX}). Merging is exact.
+ *
+ * @author Aaron Smith
+ */
+public class ComparisonPartialState extends AbstractArrayPartialState {
+
+    final static protected String EXCEPTION_MESSAGE_COMPARATOR = "Comparator not supported.";
+
+    /**
+     * Type identifier of a state holding {@code MIN} values.
+     */
+    final static protected byte TYPE_MIN = PartialStateSerialiser.TYPE_MIN;
+
+    /**
+     * Type identifier of a state holding {@code MAX} values.
+     */
+    final static protected byte TYPE_MAX = PartialStateSerialiser.TYPE_MAX;
+
+    /**
+     * Either {@link #TYPE_MIN} or {@link #TYPE_MAX}.
+     */
+    protected byte type;
+
+    /**
+     * The comparator corresponding to the {@link #type}.
+     */
+    protected BiPredicate<Double, Double> comparator;
+
+    public ComparisonPartialState(byte type, List<double[]> values) {
+        super(values);
+        this.type = type;
+        this.comparator = type == TYPE_MIN ?
+            Comparators.LESS_THAN_COMPARATOR :
+            Comparators.GREATER_THAN_COMPARATOR;
+    }
+
+    /**
+     * Convenience constructor identifying the {@link #type} from the {@code comparator} used by
+     * the {@link AbstractComparisonCollectorStage}.
+     */
+    public ComparisonPartialState(BiPredicate<Double, Double> comparator, List<double[]> values) {
+        this(typeOf(comparator), values);
+    }
+
+    @Override
+    public byte getType() {
+        return this.type;
+    }
+
+    @Override
+    public void merge(PartialState other) {
+        this.validateType(other);
+        this.mergeArrays((ComparisonPartialState) other);
+    }
+
+    @Override
+    protected double mergeValue(double value, double otherValue) {
+        return this.comparator.test(otherValue, value) ? otherValue : value;
+    }
+
+    /**
+     * Identify the {@link #type} of a supported {@code comparator}.
+     */
+    static protected byte typeOf(BiPredicate<Double, Double> comparator) {
+        if (comparator == Comparators.LESS_THAN_COMPARATOR) {
+            return TYPE_MIN;
+        }
+        if (comparator == Comparators.GREATER_THAN_COMPARATOR) {
+            return TYPE_MAX;
+        }
+        throw new RuntimeException(EXCEPTION_MESSAGE_COMPARATOR);
+    }
+
+    /**
+     * Read a state of the specified {@code type} written by {@link #write(java.io.DataOutput)}.
+     */
+    static public ComparisonPartialState read(byte type, DataInput input) throws IOException {
+        return new ComparisonPartialState(type, readArrays(input));
+    }
+
+}
@@ -0,0 +1,64 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PartialState} of a {@link CombiningPipeline}, being an ordered list of the
+ * {@code PartialStates} of the individual {@link Collector}s.
+ *
+ * @author Aaron Smith
+ */
+public class CompositePartialState implements PartialState {
+
+    protected List<PartialState> partialStates;
+
+    public CompositePartialState(List<PartialState> partialStates) {
+        this.partialStates = partialStates;
+    }
+
+    public List<PartialState> getPartialStates() {
+        return this.partialStates;
+    }
+
+    @Override
+    public byte getType() {
+        return PartialStateSerialiser.TYPE_COMPOSITE;
+    }
+
+    @Override
+    public void merge(PartialState other) {
+        if (!(other instanceof CompositePartialState) ||
+            (((CompositePartialState) other).partialStates.size() != this.partialStates.size())) {
+            throw new RuntimeException(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
+        }
+        final List<PartialState> otherPartialStates = ((CompositePartialState) other).partialStates;
+        for (int index = 0; index < this.partialStates.size(); index++) {
+            this.partialStates.get(index).merge(otherPartialStates.get(index));
+        }
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(this.partialStates.size());
+        for (PartialState partialState : this.partialStates) {
+            PartialStateSerialiser.write(output, partialState);
+        }
+    }
+
+    /**
+     * Read a state written by {@link #write(DataOutput)}.
+     */
+    static public CompositePartialState read(DataInput input) throws IOException {
+        final int size = input.readInt();
+        final List<PartialState> partialStates = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            partialStates.add(PartialStateSerialiser.read(input));
+        }
+        return new CompositePartialState(partialStates);
+    }
+
+}
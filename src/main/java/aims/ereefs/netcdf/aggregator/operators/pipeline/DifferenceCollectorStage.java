@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf.aggregator.operators.pipeline;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -9,6 +10,15 @@ import java.util.List;
  *
  * <p>
  * The same variable from two inputs are compared by creating the difference as a new variable in the output.
+ * The result is the {@code MEAN} of the differences of each pair of aligned time slices.
+ * </p>
+ *
+ * <p>
+ * When each {@link #execute(List) execution} provides aligned minuend and subtrahend time slices
+ * together (the minuends followed by the subtrahends), the difference is calculated immediately
+ * and added to a running sum, so memory use does not depend on the number of time slices. When
+ * each execution provides a single time slice, the minuends are expected to precede the
+ * subtrahends, so the time slices are held until {@link #getResults()} is invoked.
  * </p>
  *
  * <p>While this class implements the {@link Stage} interface allowing it to be part of a
@@ -27,9 +37,20 @@ public class DifferenceCollectorStage implements Stage, Collector {
     final static protected String EXCEPTION_MESSAGE_ARRAY_LENGTH = "Both result arrays need to have the same length to calculate the difference.";
 
     /**
-     * Internal arrays for accumulating the data.
+     * Single time slices held until {@link #getResults()} is invoked, where the minuends and
+     * subtrahends are not provided together.
+     */
+    protected List<Double[]> pendingData = null;
+
+    /**
+     * The running sum of the differences for each output.
      */
-    protected List<Double[]> cachedData = null;
+    protected List<double[]> cachedData = null;
+
+    /**
+     * The number of aligned time slices added to {@link #cachedData}.
+     */
+    protected int accumulationCounter = 0;
 
     @Override
     public void execute(List<Double[]> inputs) {
@@ -39,82 +60,94 @@ public class DifferenceCollectorStage implements Stage, Collector {
             throw new RuntimeException(EXCEPTION_MESSAGE_NO_INPUT);
         }
 
-        // Instantiate the accumulation data if not already done.
-        if (this.cachedData == null) {
-            this.cachedData = new ArrayList<>();
+        // A single time slice can't be differenced until the corresponding time slice is known.
+        if (inputs.size() == 1) {
+            if (this.pendingData == null) {
+                this.pendingData = new ArrayList<>();
+            }
+            this.pendingData.add(inputs.get(0));
+            return;
         }
 
-        this.cachedData.addAll(inputs);
-    }
-
-    @Override
-    public List<Double[]> getResults() {
-
-        // Validate inputs.
-        if (this.cachedData.size() % 2 != 0) {
+        // Difference the aligned minuends and subtrahends.
+        if (inputs.size() % 2 != 0) {
             throw new RuntimeException(EXCEPTION_MESSAGE_RESULT_SIZE);
         }
+        final int pairCount = inputs.size() / 2;
+        for (int pairIndex = 0; pairIndex < pairCount; pairIndex++) {
+            this.accumulate(pairIndex, inputs.get(pairIndex), inputs.get(pairIndex + pairCount));
+        }
+        this.accumulationCounter++;
 
-        int arraySplitSize = this.cachedData.size() / 2;
-        List<Double[]> minuendArrayList = this.cachedData.subList(0, arraySplitSize);
-        List<Double[]> subtrahendArrayList = this.cachedData.subList(arraySplitSize, this.cachedData.size());
+    }
 
-        if (minuendArrayList.get(0).length != subtrahendArrayList.get(0).length) {
+    /**
+     * Add the difference of the minuend and subtrahend to the running sum of the specified output.
+     */
+    protected void accumulate(int outputIndex, Double[] minuendArray, Double[] subtrahendArray) {
+        if (minuendArray.length != subtrahendArray.length) {
             throw new RuntimeException(EXCEPTION_MESSAGE_ARRAY_LENGTH);
         }
+        if (this.cachedData == null) {
+            this.cachedData = new ArrayList<>();
+        }
+        if (this.cachedData.size() <= outputIndex) {
+            final double[] sumArray = new double[minuendArray.length];
+            Arrays.fill(sumArray, Double.NaN);
+            this.cachedData.add(sumArray);
+        }
+        final double[] sumArray = this.cachedData.get(outputIndex);
+        if (sumArray.length != minuendArray.length) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_ARRAY_LENGTH);
+        }
+        for (int dataIndex = 0; dataIndex < minuendArray.length; dataIndex++) {
+            if (this.isNumber(minuendArray[dataIndex]) && this.isNumber(subtrahendArray[dataIndex])) {
+                final double difference = minuendArray[dataIndex] - subtrahendArray[dataIndex];
 
-        final List<Double[]> difference = new ArrayList<>();
-        for (int i = 0; i < arraySplitSize; i++) {
-            final Double[] minuendArray = minuendArrayList.get(i);
-            final Double[] subtrahendArray = subtrahendArrayList.get(i);
-            final Double[] results = new Double[minuendArray.length];
-
-            for (int j = 0; j < minuendArray.length; j++) {
-                if (this.isNumber(minuendArray[j]) && this.isNumber(subtrahendArray[j])) {
-                    results[j] = minuendArray[j] - subtrahendArray[j];
-                } else {
-                    results[j] = Double.NaN;
-                }
+                // Convert the cached value to 0.0 if required before adding the difference.
+                sumArray[dataIndex] =
+                    (!Double.isNaN(sumArray[dataIndex]) ? sumArray[dataIndex] : 0.0) + difference;
             }
-            difference.add(results);
         }
+    }
+
+    /**
+     * Difference any {@link #pendingData}, where the first half of the time slices are the
+     * minuends and the second half the subtrahends.
+     */
+    protected void accumulatePendingData() {
+        if (this.pendingData == null) {
+            return;
+        }
+        if (this.pendingData.size() % 2 != 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_RESULT_SIZE);
+        }
+        final int arraySplitSize = this.pendingData.size() / 2;
+        for (int index = 0; index < arraySplitSize; index++) {
+            this.accumulate(0, this.pendingData.get(index), this.pendingData.get(index + arraySplitSize));
+            this.accumulationCounter++;
+        }
+        this.pendingData = null;
+    }
 
-        // calculate mean if multiple file input bounds
+    /**
+     * Returns the {@code MEAN} of the differences for each output. A cell is {@code NaN} if no
+     * aligned time slices had values for both the minuend and subtrahend.
+     */
+    @Override
+    public List<Double[]> getResults() {
+        this.accumulatePendingData();
+        if (this.cachedData == null) {
+            return null;
+        }
         final List<Double[]> results = new ArrayList<>();
-        if (difference.size() > 1) {
-            // get first array to add other array values to it
-            final Double[] resultArray = difference.get(0);
-
-            // iterate over remaining arrays in difference list (=> values for each input file bound)
-            for (int i = 1; i < arraySplitSize; i++) {
-                Double[] differenceArray = difference.get(i);
-                for (int dataIndex = 0; dataIndex < differenceArray.length; dataIndex++) {
-                    final Double inputValue = differenceArray[dataIndex];
-
-                    // Sum up all values. Only process if the input is a valid number.
-                    if ((inputValue != null) && !Double.isNaN(inputValue)) {
-                        // Convert the cached value to 0.0 if required before adding the input value.
-                        if (!Double.isNaN(resultArray[dataIndex])) {
-                            resultArray[dataIndex] += inputValue;
-                        } else {
-                            resultArray[dataIndex] = inputValue;
-                        }
-                    }
-
-                    // is this differenceArray the last in the list and the value in the resultArray is not a NaN,
-                    // then calculate the mean
-                    if (i+1 == arraySplitSize && !Double.isNaN(resultArray[dataIndex])) {
-                        resultArray[dataIndex] = resultArray[dataIndex] / arraySplitSize;
-                    }
-                }
+        for (double[] sumArray : this.cachedData) {
+            final Double[] resultArray = new Double[sumArray.length];
+            for (int dataIndex = 0; dataIndex < sumArray.length; dataIndex++) {
+                resultArray[dataIndex] = sumArray[dataIndex] / this.accumulationCounter;
             }
-
             results.add(resultArray);
-            
-        } else {
-            results.add(difference.get(0));
         }
-
         return results;
     }
 
@@ -131,6 +164,8 @@ public class DifferenceCollectorStage implements Stage, Collector {
     @Override
     public void reset() {
         // Drop the cached data so that it will be re-initialised the next time execute() is invoked.
+        this.pendingData = null;
         this.cachedData = null;
+        this.accumulationCounter = 0;
     }
 }
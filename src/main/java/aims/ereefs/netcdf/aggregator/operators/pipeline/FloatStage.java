@@ -0,0 +1,42 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Public interface for a {@link Stage} that can process single precision ({@code float32}) data
+ * directly. Most input variables are stored as {@code float}, so presenting each time slice as a
+ * primitive {@code float[]} avoids widening every value to a boxed {@code Double}. Implementations
+ * accumulate in {@code double} where precision requires it, so a {@code float} input produces the
+ * same result as the equivalent {@code Double} input to {@link Stage#execute(List)}.
+ *
+ * @author Aaron Smith
+ */
+public interface FloatStage {
+
+    /**
+     * Perform the processing required for the {@link Stage}.
+     *
+     * @param inputs the input data to be processed, with one array of {@code float} values per
+     *               variable. {@code NaN} identifies a missing value.
+     * @see Stage#execute(List)
+     */
+    void executeFloat(List<float[]> inputs);
+
+    /**
+     * Convert the specified {@code float} arrays to the {@code Double} arrays expected by
+     * {@link Stage#execute(List)}, for a {@link Stage} that does not implement this interface.
+     */
+    static List<Double[]> toBoxed(List<float[]> inputs) {
+        final List<Double[]> boxedInputs = new ArrayList<>(inputs.size());
+        for (float[] input : inputs) {
+            final Double[] boxedInput = new Double[input.length];
+            for (int index = 0; index < input.length; index++) {
+                boxedInput[index] = (double) input[index];
+            }
+            boxedInputs.add(boxedInput);
+        }
+        return boxedInputs;
+    }
+
+}
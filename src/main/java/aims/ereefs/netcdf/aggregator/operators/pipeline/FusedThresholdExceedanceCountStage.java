@@ -0,0 +1,287 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * A fused equivalent of the {@link SpeedTransformerStage} (optional), {@link MeanAccumulatorStage}
+ * and {@link ThresholdExceedanceCountStage} chain, invoking a {@link SumCollectorStage} (or
+ * {@link MeanCollectorStage}) with the result.
+ *
+ * <p>
+ * Each {@link #execute(List) execution} makes a single pass over the cells, calculating the speed
+ * (if {@link #isSpeed}) and adding it to a primitive running sum, so no intermediate arrays are
+ * allocated per time slice. When {@link #maxAccumulationCount} time slices have been accumulated,
+ * a second pass calculates the {@code MEAN} of each cell, compares it to the threshold of the
+ * cell and passes the resulting count to the {@link #collectorStage}. The threshold of each cell
+ * is resolved from its {@code Zone} once, rather than for every accumulation.
+ * </p>
+ *
+ * <p>
+ * The results match those of the generic chain of {@link Stage}s.
+ * </p>
+ *
+ * @author Aaron Smith
+ */
+public class FusedThresholdExceedanceCountStage extends SumAccumulatorStage implements FloatStage {
+
+    final static protected String EXCEPTION_MESSAGE_SPEED = SpeedTransformerStage.EXCEPTION_MESSAGE;
+
+    /**
+     * Flag indicating if the inputs are the {@code u} and {@code v} components of a velocity
+     * vector to be transformed to a speed.
+     */
+    protected boolean isSpeed;
+
+    /**
+     * Mapping of each cell (index) to the corresponding {@code Zone}.
+     */
+    protected List<String> indexToZoneIdMap;
+
+    /**
+     * Mapping of a {@code Zone} to a threshold value.
+     */
+    protected Map<String, Double[]> zoneIdToThresholdMap;
+
+    /**
+     * Comparator for comparing a value against a threshold.
+     */
+    protected BiPredicate<Double, Double> thresholdComparator;
+
+    /**
+     * The terminal {@link Stage} receiving the counts.
+     */
+    protected SumCollectorStage collectorStage;
+
+    /**
+     * Running sums of each input (or the speed), initialised to {@code NaN}.
+     */
+    protected List<double[]> sums = null;
+
+    /**
+     * The threshold of each cell, resolved from {@link #indexToZoneIdMap} on first use.
+     */
+    protected double[] cellThresholds = null;
+
+    /**
+     * Flag for each cell indicating if the cell has a {@code Zone}, corresponding to
+     * {@link #cellThresholds}.
+     */
+    protected boolean[] isZonedCell = null;
+
+    public FusedThresholdExceedanceCountStage(boolean isSpeed,
+                                              int maxAccumulationCount,
+                                              List<String> indexToZoneIdMap,
+                                              Map<String, Double[]> zoneIdToThresholdMap,
+                                              BiPredicate<Double, Double> thresholdComparator,
+                                              SumCollectorStage collectorStage) {
+        super(
+            maxAccumulationCount,
+            new ArrayList<Stage>() {{
+                add(collectorStage);
+            }}
+        );
+        this.isSpeed = isSpeed;
+        this.indexToZoneIdMap = indexToZoneIdMap;
+        this.zoneIdToThresholdMap = zoneIdToThresholdMap;
+        this.thresholdComparator = thresholdComparator;
+        this.collectorStage = collectorStage;
+    }
+
+    /**
+     * Convenience constructor for a single threshold value applied to all cells.
+     */
+    public FusedThresholdExceedanceCountStage(boolean isSpeed,
+                                              int maxAccumulationCount,
+                                              Double thresholdValue,
+                                              BiPredicate<Double, Double> thresholdComparator,
+                                              SumCollectorStage collectorStage) {
+        this(
+            isSpeed,
+            maxAccumulationCount,
+            new ArrayList<String>() {{
+                add("singleZone");
+            }},
+            new HashMap<String, Double[]>() {{
+                put("singleZone", new Double[]{thresholdValue});
+            }},
+            thresholdComparator,
+            collectorStage
+        );
+    }
+
+    @Override
+    public void reset() {
+        this.sums = null;
+        super.reset();
+    }
+
+    @Override
+    public void execute(List<Double[]> inputs) {
+        this.validate(inputs.size());
+        if (this.isSpeed) {
+            final Double[] uArray = inputs.get(0);
+            final Double[] vArray = inputs.get(1);
+            final double[] sumArray = this.getSumArray(0, uArray.length);
+            for (int dataIndex = 0; dataIndex < uArray.length; dataIndex++) {
+                final Double u = uArray[dataIndex];
+                final Double v = vArray[dataIndex];
+                if ((u != null) && !u.isNaN() && (v != null) && !v.isNaN()) {
+                    add(sumArray, dataIndex, Math.sqrt(u * u + v * v));
+                }
+            }
+        } else {
+            for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+                final Double[] input = inputs.get(inputIndex);
+                final double[] sumArray = this.getSumArray(inputIndex, input.length);
+                for (int dataIndex = 0; dataIndex < input.length; dataIndex++) {
+                    final Double inputValue = input[dataIndex];
+                    if ((inputValue != null) && !inputValue.isNaN()) {
+                        add(sumArray, dataIndex, inputValue);
+                    }
+                }
+            }
+        }
+        this.completeAccumulation();
+    }
+
+    /**
+     * Single precision equivalent of {@link #execute(List)}. Each value is widened to
+     * {@code double} before any calculation, so the result matches {@link #execute(List)}.
+     */
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        this.validate(inputs.size());
+        if (this.isSpeed) {
+            final float[] uArray = inputs.get(0);
+            final float[] vArray = inputs.get(1);
+            final double[] sumArray = this.getSumArray(0, uArray.length);
+            for (int dataIndex = 0; dataIndex < uArray.length; dataIndex++) {
+                final double u = uArray[dataIndex];
+                final double v = vArray[dataIndex];
+                if (!Double.isNaN(u) && !Double.isNaN(v)) {
+                    add(sumArray, dataIndex, Math.sqrt(u * u + v * v));
+                }
+            }
+        } else {
+            for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+                final float[] input = inputs.get(inputIndex);
+                final double[] sumArray = this.getSumArray(inputIndex, input.length);
+                for (int dataIndex = 0; dataIndex < input.length; dataIndex++) {
+                    if (!Float.isNaN(input[dataIndex])) {
+                        add(sumArray, dataIndex, input[dataIndex]);
+                    }
+                }
+            }
+        }
+        this.completeAccumulation();
+    }
+
+    protected void validate(int inputCount) {
+        if (this.isSpeed && (inputCount != 2)) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_SPEED);
+        }
+        if (inputCount == 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+    }
+
+    /**
+     * Returns the running sum for the specified input, instantiating the {@link #sums} if not
+     * already done.
+     */
+    protected double[] getSumArray(int inputIndex, int dataLength) {
+        if (this.sums == null) {
+            this.sums = new ArrayList<>();
+        }
+        if (this.sums.size() <= inputIndex) {
+            final double[] sumArray = new double[dataLength];
+            Arrays.fill(sumArray, Double.NaN);
+            this.sums.add(sumArray);
+        }
+        return this.sums.get(inputIndex);
+    }
+
+    /**
+     * Add the value to the running sum of the cell, converting the sum to {@code 0.0} if required.
+     */
+    static protected void add(double[] sumArray, int dataIndex, double value) {
+        final double sum = sumArray[dataIndex];
+        sumArray[dataIndex] = (!Double.isNaN(sum) ? sum : 0.0) + value;
+    }
+
+    /**
+     * Increment the {@link #accumulationCounter}, and pass the counts to the
+     * {@link #collectorStage} once {@link #maxAccumulationCount} time slices have been accumulated.
+     */
+    protected void completeAccumulation() {
+        this.accumulationCounter++;
+        if (this.accumulationCounter < this.maxAccumulationCount) {
+            return;
+        }
+        final List<Double[]> results = new ArrayList<>();
+        for (double[] sumArray : this.sums) {
+            results.add(this.countExceedances(sumArray));
+        }
+        this.sums = null;
+        this.accumulationCounter = 0;
+        this.collectorStage.execute(results);
+    }
+
+    /**
+     * Calculate the {@code MEAN} of each cell and compare it to the threshold of the cell,
+     * returning {@code 1.0} if exceeded, {@code 0.0} if not, or {@code NaN} if the cell has no
+     * value or no {@code Zone}.
+     */
+    protected Double[] countExceedances(double[] sumArray) {
+        this.resolveCellThresholds(sumArray.length);
+        final boolean isGreaterThan = this.thresholdComparator == Comparators.GREATER_THAN_COMPARATOR;
+        final boolean isLessThan = this.thresholdComparator == Comparators.LESS_THAN_COMPARATOR;
+        final Double[] resultArray = new Double[sumArray.length];
+        for (int dataIndex = 0; dataIndex < sumArray.length; dataIndex++) {
+            final double mean = sumArray[dataIndex] / this.maxAccumulationCount;
+            if (!this.isZonedCell[dataIndex] || Double.isNaN(mean)) {
+                resultArray[dataIndex] = Double.NaN;
+                continue;
+            }
+            final double threshold = this.cellThresholds[dataIndex];
+            final boolean isExceeded;
+            if (isGreaterThan) {
+                isExceeded = mean > threshold;
+            } else if (isLessThan) {
+                isExceeded = mean < threshold;
+            } else {
+                isExceeded = this.thresholdComparator.test(mean, threshold);
+            }
+            resultArray[dataIndex] = isExceeded ? 1.0 : 0.0;
+        }
+        return resultArray;
+    }
+
+    /**
+     * Resolve the threshold of each cell from its {@code Zone}, if not already done for arrays of
+     * the specified length.
+     */
+    protected void resolveCellThresholds(int dataLength) {
+        if ((this.cellThresholds != null) && (this.cellThresholds.length == dataLength)) {
+            return;
+        }
+        this.cellThresholds = new double[dataLength];
+        this.isZonedCell = new boolean[dataLength];
+        for (int dataIndex = 0; dataIndex < dataLength; dataIndex++) {
+
+            // Use "mod" to seamlessly support a single zone.
+            final String zoneId = this.indexToZoneIdMap.get(dataIndex % this.indexToZoneIdMap.size());
+            final Double[] thresholds = (zoneId != null) ? this.zoneIdToThresholdMap.get(zoneId) : null;
+            if (thresholds != null) {
+                this.isZonedCell[dataIndex] = true;
+                this.cellThresholds[dataIndex] = thresholds[0];
+            }
+        }
+    }
+
+}
@@ -5,7 +5,9 @@ import java.util.List;
 
 /**
  * Extends the {@link SumCollectorStage} to convert the result to a {@code MEAN} when
- * {@link #getResults()} is invoked.
+ * {@link #getResults()} is invoked. The intermediate state is exposed as a
+ * {@link MeanPartialState}. A {@link #executeWeighted(List, int) weighted} time slice contributes
+ * to the {@code MEAN} as if it had been executed {@code weight} times.
  *
  * @author Aaron Smith
  */
@@ -23,14 +25,27 @@ public class MeanCollectorStage extends SumCollectorStage {
     }
 
     /**
-     * Increments {@link #accumulationCounter} on each execution.
+     * Increments {@link #accumulationCounter} by {@code weight} on each execution, so a weighted
+     * time slice counts as that many accumulations.
      */
     @Override
-    public void execute(List<Double[]> inputs) {
-        super.execute(inputs);
+    public void executeWeighted(List<Double[]> inputs, int weight) {
+        super.executeWeighted(inputs, weight);
 
         // Increment the accumulation counter.
-        this.accumulationCounter++;
+        this.accumulationCounter += weight;
+
+    }
+
+    /**
+     * Increments {@link #accumulationCounter} by {@code weight} on each execution.
+     */
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+        super.executeFloatWeighted(inputs, weight);
+
+        // Increment the accumulation counter.
+        this.accumulationCounter += weight;
 
     }
 
@@ -39,8 +54,11 @@ public class MeanCollectorStage extends SumCollectorStage {
      */
     @Override
     public List<Double[]> getResults() {
+        if (this.cachedData == null) {
+            return null;
+        }
         final List<Double[]> results = new ArrayList<>();
-        for (Double[] cachedArray : super.getResults()) {
+        for (double[] cachedArray : this.cachedData) {
             final Double[] resultArray = new Double[cachedArray.length];
             for (int index = 0; index < cachedArray.length; index++) {
                 resultArray[index] = cachedArray[index] / this.accumulationCounter;
@@ -51,4 +69,23 @@ public class MeanCollectorStage extends SumCollectorStage {
         return results;
     }
 
+    @Override
+    public PartialState getPartialState() {
+        return new MeanPartialState(
+            AbstractArrayPartialState.copyOf(this.cachedData),
+            this.accumulationCounter
+        );
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        final MeanPartialState currentPartialState = new MeanPartialState(
+            AbstractArrayPartialState.fromCachedData(this.cachedData),
+            this.accumulationCounter
+        );
+        currentPartialState.merge(partialState);
+        this.cachedData = AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
+        this.accumulationCounter = currentPartialState.getCount();
+    }
+
 }
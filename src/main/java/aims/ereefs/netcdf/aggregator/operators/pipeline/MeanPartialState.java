@@ -0,0 +1,63 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link PartialState} of a {@link MeanCollectorStage}, being the {@code SUM} of each cell and the
+ * number of accumulations (time slices) that contributed to the sums. Merging adds both the sums
+ * and the {@link #count}.
+ *
+ * @author Aaron Smith
+ */
+public class MeanPartialState extends AbstractArrayPartialState {
+
+    /**
+     * The number of accumulations that contributed to the sums.
+     */
+    protected int count;
+
+    public MeanPartialState(List<double[]> sums, int count) {
+        super(sums);
+        this.count = count;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    @Override
+    public byte getType() {
+        return PartialStateSerialiser.TYPE_MEAN;
+    }
+
+    @Override
+    public void merge(PartialState other) {
+        this.validateType(other);
+        final MeanPartialState otherMeanPartialState = (MeanPartialState) other;
+        this.mergeArrays(otherMeanPartialState);
+        this.count += otherMeanPartialState.count;
+    }
+
+    @Override
+    protected double mergeValue(double value, double otherValue) {
+        return value + otherValue;
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(this.count);
+        super.write(output);
+    }
+
+    /**
+     * Read a state written by {@link #write(DataOutput)}.
+     */
+    static public MeanPartialState read(DataInput input) throws IOException {
+        final int count = input.readInt();
+        return new MeanPartialState(readArrays(input), count);
+    }
+
+}
@@ -0,0 +1,25 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+/**
+ * Extends the {@link Collector} interface for {@code Collectors} that can expose their
+ * intermediate results as a {@link PartialState}, and can merge a {@link PartialState} from
+ * another instance of the same {@code Collector}.
+ *
+ * @author Aaron Smith
+ */
+public interface MergeableCollector extends Collector {
+
+    /**
+     * Returns a snapshot of the current state of the {@code Collector}. The returned state is
+     * independent of the {@code Collector}, so further executions do not modify it.
+     */
+    PartialState getPartialState();
+
+    /**
+     * Merge the specified {@code partialState} into the current state of the {@code Collector}.
+     * Merging into a {@code Collector} that has not been executed results in a {@code Collector}
+     * equivalent to the one that produced the {@code partialState}.
+     */
+    void merge(PartialState partialState);
+
+}
@@ -0,0 +1,429 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link Stage} that tracks the moments ({@code SUM}, number of accumulations, {@code MIN} and
+ * {@code MAX}) of each cell in a single loop over the inputs, rather than a separate loop for each
+ * statistic. The statistics are obtained from {@link #getView(Statistic) views}, each being a
+ * {@link MergeableCollector} equivalent to the corresponding individual {@link Collector}:
+ *
+ * <ul>
+ *     <li>{@link Statistic#SUM} - {@link SumCollectorStage}.</li>
+ *     <li>{@link Statistic#MEAN} - {@link MeanCollectorStage}.</li>
+ *     <li>{@link Statistic#MIN} - {@link MinCollectorStage}.</li>
+ *     <li>{@link Statistic#MAX} - {@link MaxCollectorStage}.</li>
+ *     <li>{@link Statistic#RANGE} - {@link RangeCollectorStage}.</li>
+ * </ul>
+ *
+ * <p>
+ * Only the moments required by the {@link Statistic}s specified in the constructor are tracked.
+ * The {@link PartialState} of each view is the same as that of the corresponding individual
+ * {@link Collector}. As views share the moments, a moment should only be exposed by a single
+ * view of a {@code Pipeline} that is {@link MergeableCollector#merge(PartialState) merged} (eg:
+ * {@code MIN}, {@code MEAN} and {@code MAX}, but not {@code SUM} and {@code MEAN}).
+ * </p>
+ *
+ * <p>While this class implements the {@link Stage} interface allowing it to be part of a
+ * multi-{@link Stage} {@code Pipeline}, it does not invoke any further {@link Stage} instances.
+ * </p>
+ *
+ * @author Aaron Smith
+ */
+public class MomentsCollectorStage implements Stage, FloatStage, WeightedStage {
+
+    final static protected String EXCEPTION_MESSAGE = "No input data specified.";
+    final static protected String EXCEPTION_MESSAGE_NOT_TRACKED = "Statistic not tracked by this stage.";
+
+    /**
+     * The statistics that can be obtained from a {@link MomentsCollectorStage}.
+     */
+    public enum Statistic {
+        SUM,
+        MEAN,
+        MIN,
+        MAX,
+        RANGE
+    }
+
+    /**
+     * Flag indicating if the {@link #sums} are tracked.
+     */
+    protected boolean isTrackingSums;
+
+    /**
+     * Flag indicating if the {@link #minimums} and {@link #maximums} are tracked.
+     */
+    protected boolean isTrackingExtremes;
+
+    /**
+     * The {@code SUM} of each cell, one array per input, initialised to {@code NaN}.
+     */
+    protected List<double[]> sums = null;
+
+    /**
+     * The {@code MIN} of each cell, one array per input, initialised to {@code NaN}.
+     */
+    protected List<double[]> minimums = null;
+
+    /**
+     * The {@code MAX} of each cell, one array per input, initialised to {@code NaN}.
+     */
+    protected List<double[]> maximums = null;
+
+    /**
+     * The number of accumulations performed since accumulating data.
+     */
+    protected int accumulationCounter = 0;
+
+    /**
+     * Constructor specifying the {@link Statistic}s to be obtained, which determines the moments
+     * to track.
+     */
+    public MomentsCollectorStage(Statistic... statistics) {
+        for (Statistic statistic : statistics) {
+            this.isTrackingSums |= (statistic == Statistic.SUM) || (statistic == Statistic.MEAN);
+            this.isTrackingExtremes |= (statistic == Statistic.MIN) || (statistic == Statistic.MAX) ||
+                (statistic == Statistic.RANGE);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the moments required by the specified {@link Statistic} are
+     * tracked.
+     */
+    public boolean isTracking(Statistic statistic) {
+        switch (statistic) {
+            case SUM:
+            case MEAN:
+                return this.isTrackingSums;
+            default:
+                return this.isTrackingExtremes;
+        }
+    }
+
+    /**
+     * Returns a {@link MergeableCollector} for the specified {@link Statistic}.
+     */
+    public MergeableCollector getView(Statistic statistic) {
+        if (!this.isTracking(statistic)) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NOT_TRACKED);
+        }
+        return new View(statistic);
+    }
+
+    @Override
+    public void execute(List<Double[]> inputs) {
+        this.executeWeighted(inputs, 1);
+    }
+
+    /**
+     * Equivalent to {@link #execute(List)} with the {@code SUM} of each input value multiplied by
+     * {@code weight}. The {@code MIN} and {@code MAX} are not affected by the {@code weight}.
+     */
+    @Override
+    public void executeWeighted(List<Double[]> inputs, int weight) {
+
+        // Validate inputs.
+        if (inputs.size() == 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+        this.initialiseMoments(inputs.stream().mapToInt(input -> input.length).toArray());
+
+        final boolean isTrackingSums = this.isTrackingSums;
+        final boolean isTrackingExtremes = this.isTrackingExtremes;
+        for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+            final Double[] input = inputs.get(inputIndex);
+            final double[] sumArray = isTrackingSums ? this.sums.get(inputIndex) : null;
+            final double[] minArray = isTrackingExtremes ? this.minimums.get(inputIndex) : null;
+            final double[] maxArray = isTrackingExtremes ? this.maximums.get(inputIndex) : null;
+            for (int dataIndex = 0; dataIndex < input.length; dataIndex++) {
+                final Double inputValue = input[dataIndex];
+
+                // Only process if the input is a valid number.
+                if ((inputValue != null) && !Double.isNaN(inputValue)) {
+                    if (isTrackingSums) {
+                        addToSum(sumArray, dataIndex, inputValue * weight);
+                    }
+                    if (isTrackingExtremes) {
+                        updateExtremes(minArray, maxArray, dataIndex, inputValue);
+                    }
+                }
+            }
+        }
+
+        // Increment the accumulation counter.
+        this.accumulationCounter += weight;
+
+    }
+
+    /**
+     * Equivalent to {@link #execute(List)} for single precision inputs. Each value is widened to
+     * {@code double} before being processed, so the result matches {@link #execute(List)}.
+     */
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        this.executeFloatWeighted(inputs, 1);
+    }
+
+    /**
+     * Equivalent to {@link #executeFloat(List)}, with the {@code SUM} of each input value
+     * multiplied by {@code weight}.
+     */
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+
+        // Validate inputs.
+        if (inputs.size() == 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+        this.initialiseMoments(inputs.stream().mapToInt(input -> input.length).toArray());
+
+        final boolean isTrackingSums = this.isTrackingSums;
+        final boolean isTrackingExtremes = this.isTrackingExtremes;
+        for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+            final float[] input = inputs.get(inputIndex);
+            final double[] sumArray = isTrackingSums ? this.sums.get(inputIndex) : null;
+            final double[] minArray = isTrackingExtremes ? this.minimums.get(inputIndex) : null;
+            final double[] maxArray = isTrackingExtremes ? this.maximums.get(inputIndex) : null;
+            for (int dataIndex = 0; dataIndex < input.length; dataIndex++) {
+                final double inputValue = input[dataIndex];
+                if (!Double.isNaN(inputValue)) {
+                    if (isTrackingSums) {
+                        addToSum(sumArray, dataIndex, inputValue * weight);
+                    }
+                    if (isTrackingExtremes) {
+                        updateExtremes(minArray, maxArray, dataIndex, inputValue);
+                    }
+                }
+            }
+        }
+
+        // Increment the accumulation counter.
+        this.accumulationCounter += weight;
+
+    }
+
+    /**
+     * Add the value to the {@code SUM} of the cell, converting the {@code SUM} to {@code 0.0} if
+     * required.
+     */
+    static protected void addToSum(double[] sumArray, int dataIndex, double value) {
+        final double sum = sumArray[dataIndex];
+        sumArray[dataIndex] = (!Double.isNaN(sum) ? sum : 0.0) + value;
+    }
+
+    /**
+     * Update the {@code MIN} and {@code MAX} of the cell with the value.
+     */
+    static protected void updateExtremes(double[] minArray, double[] maxArray, int dataIndex, double value) {
+        final double min = minArray[dataIndex];
+        if (Double.isNaN(min) || (value < min)) {
+            minArray[dataIndex] = value;
+        }
+        final double max = maxArray[dataIndex];
+        if (Double.isNaN(max) || (value > max)) {
+            maxArray[dataIndex] = value;
+        }
+    }
+
+    /**
+     * Instantiate the tracked moments for inputs of the specified lengths, if not already done.
+     */
+    protected void initialiseMoments(int[] inputLengths) {
+        if (this.isTrackingSums && (this.sums == null)) {
+            this.sums = makeArrays(inputLengths);
+        }
+        if (this.isTrackingExtremes && (this.minimums == null)) {
+            this.minimums = makeArrays(inputLengths);
+        }
+        if (this.isTrackingExtremes && (this.maximums == null)) {
+            this.maximums = makeArrays(inputLengths);
+        }
+    }
+
+    static protected List<double[]> makeArrays(int[] inputLengths) {
+        final List<double[]> arrays = new ArrayList<>();
+        for (int inputLength : inputLengths) {
+            final double[] array = new double[inputLength];
+            Arrays.fill(array, Double.NaN);
+            arrays.add(array);
+        }
+        return arrays;
+    }
+
+    @Override
+    public void reset() {
+        // Drop the moments so they will be re-initialised the next time execute() is invoked.
+        this.sums = null;
+        this.minimums = null;
+        this.maximums = null;
+        this.accumulationCounter = 0;
+    }
+
+    /**
+     * Returns the {@code MEAN} of each cell.
+     */
+    protected List<Double[]> getMeanResults() {
+        if (this.sums == null) {
+            return null;
+        }
+        final List<Double[]> results = new ArrayList<>();
+        for (double[] sumArray : this.sums) {
+            final Double[] resultArray = new Double[sumArray.length];
+            for (int index = 0; index < sumArray.length; index++) {
+                resultArray[index] = sumArray[index] / this.accumulationCounter;
+            }
+            results.add(resultArray);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the {@code MIN}, {@code MAX} and {@code RANGE} of each cell of a single input, as
+     * returned by {@link RangeCollectorStage#getResults()}.
+     */
+    protected List<Double[]> getRangeResults() {
+        final List<Double[]> minResults = AbstractArrayPartialState.toBoxed(this.minimums);
+        final List<Double[]> maxResults = AbstractArrayPartialState.toBoxed(this.maximums);
+        if ((minResults == null) || (minResults.size() != 1) || (maxResults.size() != 1)) {
+            throw new RuntimeException(RangeCollectorStage.EXCEPTION_MESSAGE);
+        }
+        final Double[] minResult = minResults.get(0);
+        final Double[] maxResult = maxResults.get(0);
+        final Double[] rangeResult = new Double[minResult.length];
+        for (int index = 0; index < minResult.length; index++) {
+            final double min = minResult[index];
+            final double max = maxResult[index];
+
+            // If either value is NaN, make the range value NaN.
+            rangeResult[index] = (!Double.isNaN(min) && !Double.isNaN(max)) ?
+                Math.abs(max - min) :
+                Double.NaN;
+        }
+        final List<Double[]> results = new ArrayList<>();
+        results.add(minResult);
+        results.add(maxResult);
+        results.add(rangeResult);
+        return results;
+    }
+
+    /**
+     * A {@link MergeableCollector} exposing a single {@link Statistic} of the enclosing
+     * {@link MomentsCollectorStage}.
+     */
+    protected class View implements MergeableCollector {
+
+        protected Statistic statistic;
+
+        protected View(Statistic statistic) {
+            this.statistic = statistic;
+        }
+
+        @Override
+        public List<Double[]> getResults() {
+            final MomentsCollectorStage stage = MomentsCollectorStage.this;
+            switch (this.statistic) {
+                case SUM:
+                    return AbstractArrayPartialState.toBoxed(stage.sums);
+                case MEAN:
+                    return stage.getMeanResults();
+                case MIN:
+                    return AbstractArrayPartialState.toBoxed(stage.minimums);
+                case MAX:
+                    return AbstractArrayPartialState.toBoxed(stage.maximums);
+                default:
+                    return stage.getRangeResults();
+            }
+        }
+
+        @Override
+        public PartialState getPartialState() {
+            final MomentsCollectorStage stage = MomentsCollectorStage.this;
+            switch (this.statistic) {
+                case SUM:
+                    return new SumPartialState(AbstractArrayPartialState.copyOf(stage.sums));
+                case MEAN:
+                    return new MeanPartialState(
+                        AbstractArrayPartialState.copyOf(stage.sums),
+                        stage.accumulationCounter
+                    );
+                case MIN:
+                    return this.makeMinPartialState(AbstractArrayPartialState.copyOf(stage.minimums));
+                case MAX:
+                    return this.makeMaxPartialState(AbstractArrayPartialState.copyOf(stage.maximums));
+                default:
+                    return new RangePartialState(
+                        this.makeMinPartialState(AbstractArrayPartialState.copyOf(stage.minimums)),
+                        this.makeMaxPartialState(AbstractArrayPartialState.copyOf(stage.maximums))
+                    );
+            }
+        }
+
+        @Override
+        public void merge(PartialState partialState) {
+            final MomentsCollectorStage stage = MomentsCollectorStage.this;
+            switch (this.statistic) {
+                case SUM: {
+                    final SumPartialState currentPartialState =
+                        new SumPartialState(AbstractArrayPartialState.fromCachedData(stage.sums));
+                    currentPartialState.merge(partialState);
+                    stage.sums = AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
+                    break;
+                }
+                case MEAN: {
+                    final MeanPartialState currentPartialState = new MeanPartialState(
+                        AbstractArrayPartialState.fromCachedData(stage.sums),
+                        stage.accumulationCounter
+                    );
+                    currentPartialState.merge(partialState);
+                    stage.sums = AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
+                    stage.accumulationCounter = currentPartialState.getCount();
+                    break;
+                }
+                case MIN:
+                    stage.minimums = this.mergeMin(partialState);
+                    break;
+                case MAX:
+                    stage.maximums = this.mergeMax(partialState);
+                    break;
+                default: {
+                    if (!(partialState instanceof RangePartialState)) {
+                        throw new RuntimeException(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
+                    }
+                    final RangePartialState rangePartialState = (RangePartialState) partialState;
+                    stage.minimums = this.mergeMin(rangePartialState.getMinPartialState());
+                    stage.maximums = this.mergeMax(rangePartialState.getMaxPartialState());
+                }
+            }
+        }
+
+        protected ComparisonPartialState makeMinPartialState(List<double[]> minimums) {
+            return new ComparisonPartialState(Comparators.LESS_THAN_COMPARATOR, minimums);
+        }
+
+        protected ComparisonPartialState makeMaxPartialState(List<double[]> maximums) {
+            return new ComparisonPartialState(Comparators.GREATER_THAN_COMPARATOR, maximums);
+        }
+
+        protected List<double[]> mergeMin(PartialState partialState) {
+            final ComparisonPartialState currentPartialState = this.makeMinPartialState(
+                AbstractArrayPartialState.fromCachedData(MomentsCollectorStage.this.minimums)
+            );
+            currentPartialState.merge(partialState);
+            return AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
+        }
+
+        protected List<double[]> mergeMax(PartialState partialState) {
+            final ComparisonPartialState currentPartialState = this.makeMaxPartialState(
+                AbstractArrayPartialState.fromCachedData(MomentsCollectorStage.this.maximums)
+            );
+            currentPartialState.merge(partialState);
+            return AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Public interface for the intermediate state of a {@link MergeableCollector}. Unlike the final
+ * results returned by {@link Collector#getResults()}, a {@code PartialState} retains the
+ * information required to combine the results of separate aggregations, such as the {@code SUM}
+ * and the number of accumulations for a {@code MEAN}. This allows a single aggregation to be split
+ * across {@code Threads}, processes or time ranges, and the results merged afterwards.
+ * <p>
+ * Merging is exact for comparison-based states (eg: {@code MIN}, {@code MAX}). For states based on
+ * summation, the merged result is identical to a single pass except for differences in floating
+ * point rounding caused by the changed order of the additions.
+ *
+ * @author Aaron Smith
+ * @see PartialStateSerialiser
+ */
+public interface PartialState {
+
+    /**
+     * Returns the type identifier of the implementing class, used by
+     * {@link PartialStateSerialiser} to deserialise the state.
+     */
+    byte getType();
+
+    /**
+     * Merge the {@code other} state into this state. The {@code other} state must be of the same
+     * type, and must describe the same cells.
+     */
+    void merge(PartialState other);
+
+    /**
+     * Write the contents of the state, excluding the {@link #getType() type}, to the
+     * {@code output}.
+     */
+    void write(DataOutput output) throws IOException;
+
+}
@@ -0,0 +1,99 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Utility class for the compact binary serialisation of {@link PartialState}s, allowing the state
+ * of an aggregation to be persisted or transferred between processes. Each state is written as a
+ * single type byte followed by the content written by {@link PartialState#write(DataOutput)}.
+ * Cell values are written as raw {@code doubles}, so a deserialised state is bitwise-identical to
+ * the original.
+ *
+ * @author Aaron Smith
+ */
+public class PartialStateSerialiser {
+
+    final static protected String EXCEPTION_MESSAGE_VERSION = "Unsupported partial state version.";
+    final static protected String EXCEPTION_MESSAGE_TYPE = "Unknown partial state type.";
+
+    /**
+     * Version of the serialised format, written as the first byte.
+     */
+    final static protected byte VERSION = 1;
+
+    /**
+     * Type identifiers of the supported {@link PartialState} implementations.
+     */
+    final static public byte TYPE_SUM = 1;
+    final static public byte TYPE_MEAN = 2;
+    final static public byte TYPE_MIN = 3;
+    final static public byte TYPE_MAX = 4;
+    final static public byte TYPE_RANGE = 5;
+    final static public byte TYPE_COMPOSITE = 6;
+
+    /**
+     * Serialise the {@code partialState} to a byte array.
+     */
+    static public byte[] serialise(PartialState partialState) {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(byteArrayOutputStream)) {
+            output.writeByte(VERSION);
+            write(output, partialState);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialise partial state.", e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Deserialise a {@link PartialState} from a byte array created by
+     * {@link #serialise(PartialState)}.
+     */
+    static public PartialState deserialise(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (input.readByte() != VERSION) {
+                throw new RuntimeException(EXCEPTION_MESSAGE_VERSION);
+            }
+            return read(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to deserialise partial state.", e);
+        }
+    }
+
+    /**
+     * Write the type and content of the {@code partialState} to the {@code output}.
+     */
+    static protected void write(DataOutput output, PartialState partialState) throws IOException {
+        output.writeByte(partialState.getType());
+        partialState.write(output);
+    }
+
+    /**
+     * Read a {@link PartialState} written by {@link #write(DataOutput, PartialState)}.
+     */
+    static protected PartialState read(DataInput input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+            case TYPE_SUM:
+                return SumPartialState.read(input);
+            case TYPE_MEAN:
+                return MeanPartialState.read(input);
+            case TYPE_MIN:
+            case TYPE_MAX:
+                return ComparisonPartialState.read(type, input);
+            case TYPE_RANGE:
+                return RangePartialState.read(input);
+            case TYPE_COMPOSITE:
+                return CompositePartialState.read(input);
+            default:
+                throw new RuntimeException(EXCEPTION_MESSAGE_TYPE);
+        }
+    }
+
+}
@@ -1,12 +1,25 @@
 package aims.ereefs.netcdf.aggregator.operators.pipeline;
 
+import java.util.List;
+
 /**
  * Public interface for a class that wraps a multi-{@link Stage} {@code Pipeline}, the starts with
  * a {@link Stage} implementation and completes with one or more {@link Collector} implementations,
- * simplifying handling. This interface merely combines the {@link Stage} and {@link Collector}
- * interfaces.
+ * simplifying handling. This interface combines the {@link Stage} and {@link MergeableCollector}
+ * interfaces. Only a {@code Pipeline} whose {@link Collector}s are all {@link MergeableCollector}s
+ * supports {@link PartialState}s. Single precision inputs are passed to the initial {@link Stage}
+ * via {@link FloatStage#executeFloat(List)}, and are only boxed if that {@link Stage} does not
+ * implement {@link FloatStage}. Likewise, a weighted time slice is passed to an initial
+ * {@link WeightedStage} once, and otherwise executed repeatedly.
  *
  * @author Aaron Smith
  */
-public interface Pipeline extends Stage, Collector {
-}
\ No newline at end of file
+public interface Pipeline extends Stage, FloatStage, WeightedStage, MergeableCollector {
+
+    /**
+     * Returns {@code true} if the {@code Pipeline} supports {@link #getPartialState()} and
+     * {@link #merge(PartialState)}.
+     */
+    boolean isMergeable();
+
+}
@@ -1,13 +1,12 @@
 package aims.ereefs.netcdf.aggregator.operators.pipeline;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A composite {@link Collector} that uses a {@link MinCollectorStage} and a
- * {@link MaxCollectorStage} to track the {@code minimum} and {@code maximum} values for each cell,
- * and then calculates the {@code Range} when the results are requested. Note that this class
- * supports only a single input variable (size of {@code inputs} is 1).
+ * A {@link Collector} that tracks the {@code minimum} and {@code maximum} values for each cell in a
+ * single loop via a {@link MomentsCollectorStage}, and then calculates the {@code Range} when the
+ * results are requested. Note that this class supports only a single input variable (size of
+ * {@code inputs} is 1). The intermediate state is exposed as a {@link RangePartialState}.
  *
  * <p>While this class implements the {@link Stage} interface allowing it to be part of a
  * multi-{@link Stage} {@code Pipeline}, implementation of the {@link Collector} interface marks
@@ -17,20 +16,29 @@ import java.util.List;
  *
  * @author Aaron Smith
  */
-public class RangeCollectorStage implements Collector, Stage {
+public class RangeCollectorStage implements MergeableCollector, Stage, FloatStage {
 
     final static protected String EXCEPTION_MESSAGE = "Only single variable input supported.";
 
-    protected MinCollectorStage minCollectorStage = new MinCollectorStage();
-    protected MaxCollectorStage maxCollectorStage = new MaxCollectorStage();
+    protected MomentsCollectorStage momentsCollectorStage =
+        new MomentsCollectorStage(MomentsCollectorStage.Statistic.RANGE);
+    protected MergeableCollector rangeView =
+        this.momentsCollectorStage.getView(MomentsCollectorStage.Statistic.RANGE);
 
     @Override
     public void execute(List<Double[]> inputs) {
         if (inputs.size() != 1) {
             throw new RuntimeException(EXCEPTION_MESSAGE);
         }
-        this.minCollectorStage.execute(inputs);
-        this.maxCollectorStage.execute(inputs);
+        this.momentsCollectorStage.execute(inputs);
+    }
+
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        if (inputs.size() != 1) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+        this.momentsCollectorStage.executeFloat(inputs);
     }
 
     @Override
@@ -40,33 +48,20 @@ public class RangeCollectorStage implements Collector, Stage {
 
     @Override
     public List<Double[]> getResults() {
-        final List<Double[]> minResults = this.minCollectorStage.getResults();
-        if (minResults.size() != 1) {
-            throw new RuntimeException(EXCEPTION_MESSAGE);
-        }
-        final List<Double[]> maxResults = this.maxCollectorStage.getResults();
-        if (maxResults.size() != 1) {
-            throw new RuntimeException(EXCEPTION_MESSAGE);
-        }
-        final Double[] minResult = minResults.get(0);
-        final Double[] maxResult = maxResults.get(0);
-        final Double[] rangeResult = new Double[minResult.length];
-        for (int index = 0; index < minResult.length; index++) {
-            final Double min = minResult[index];
-            final Double max = maxResult[index];
+        return this.rangeView.getResults();
+    }
 
-            // If either value is null or NaN, make the range value NaN.
-            if ((min != null) && !Double.isNaN(min) && (max != null) && !Double.isNaN(max)) {
-                rangeResult[index] = Math.abs(max - min);
-            } else {
-                rangeResult[index] = Double.NaN;
-            }
+    @Override
+    public PartialState getPartialState() {
+        return this.rangeView.getPartialState();
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        if (!(partialState instanceof RangePartialState)) {
+            throw new RuntimeException(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
         }
-        final List<Double[]> results = new ArrayList<>();
-        results.add(minResult);
-        results.add(maxResult);
-        results.add(rangeResult);
-        return results;
+        this.rangeView.merge(partialState);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link PartialState} of a {@link RangeCollectorStage}, being the {@code MIN} and {@code MAX} of
+ * each cell. Merging is exact.
+ *
+ * @author Aaron Smith
+ */
+public class RangePartialState implements PartialState {
+
+    protected ComparisonPartialState minPartialState;
+    protected ComparisonPartialState maxPartialState;
+
+    public RangePartialState(ComparisonPartialState minPartialState,
+                             ComparisonPartialState maxPartialState) {
+        this.minPartialState = minPartialState;
+        this.maxPartialState = maxPartialState;
+    }
+
+    public ComparisonPartialState getMinPartialState() {
+        return this.minPartialState;
+    }
+
+    public ComparisonPartialState getMaxPartialState() {
+        return this.maxPartialState;
+    }
+
+    @Override
+    public byte getType() {
+        return PartialStateSerialiser.TYPE_RANGE;
+    }
+
+    @Override
+    public void merge(PartialState other) {
+        if (!(other instanceof RangePartialState)) {
+            throw new RuntimeException(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
+        }
+        this.minPartialState.merge(((RangePartialState) other).minPartialState);
+        this.maxPartialState.merge(((RangePartialState) other).maxPartialState);
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        this.minPartialState.write(output);
+        this.maxPartialState.write(output);
+    }
+
+    /**
+     * Read a state written by {@link #write(DataOutput)}.
+     */
+    static public RangePartialState read(DataInput input) throws IOException {
+        final ComparisonPartialState minPartialState =
+            ComparisonPartialState.read(PartialStateSerialiser.TYPE_MIN, input);
+        final ComparisonPartialState maxPartialState =
+            ComparisonPartialState.read(PartialStateSerialiser.TYPE_MAX, input);
+        return new RangePartialState(minPartialState, maxPartialState);
+    }
+
+}
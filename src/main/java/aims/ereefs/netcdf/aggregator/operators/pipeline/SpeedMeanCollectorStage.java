@@ -0,0 +1,79 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.util.List;
+
+/**
+ * A fused equivalent of a {@link SpeedTransformerStage} followed by a {@link MeanCollectorStage}.
+ * The speed of each cell is calculated from the two dimensional velocity vector (u and v) and
+ * added directly to the running sum, so no intermediate speed array is allocated per time slice.
+ * The intermediate state is the same {@link MeanPartialState} as the {@link MeanCollectorStage}.
+ *
+ * @author Aaron Smith
+ */
+public class SpeedMeanCollectorStage extends MeanCollectorStage {
+
+    final static protected String EXCEPTION_MESSAGE_SPEED = SpeedTransformerStage.EXCEPTION_MESSAGE;
+
+    @Override
+    public void executeWeighted(List<Double[]> inputs, int weight) {
+
+        // Validate inputs.
+        if (inputs.size() != 2) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_SPEED);
+        }
+
+        final Double[] uArray = inputs.get(0);
+        final Double[] vArray = inputs.get(1);
+        if (this.cachedData == null) {
+            this.initialiseCachedData(new int[]{uArray.length});
+        }
+        final double[] cachedDataArray = this.cachedData.get(0);
+        for (int dataIndex = 0; dataIndex < uArray.length; dataIndex++) {
+            final Double u = uArray[dataIndex];
+            final Double v = vArray[dataIndex];
+            if ((u != null) && !u.isNaN() && (v != null) && !v.isNaN()) {
+                final double cachedValue = cachedDataArray[dataIndex];
+                cachedDataArray[dataIndex] = (!Double.isNaN(cachedValue) ? cachedValue : 0.0) +
+                    Math.sqrt(u * u + v * v) * weight;
+            }
+        }
+
+        // Increment the accumulation counter.
+        this.accumulationCounter += weight;
+
+    }
+
+    /**
+     * Single precision equivalent of {@link #executeWeighted(List, int)}. Each value is widened to
+     * {@code double} before calculating the speed, so the result matches the {@code Double} path.
+     */
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+
+        // Validate inputs.
+        if (inputs.size() != 2) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_SPEED);
+        }
+
+        final float[] uArray = inputs.get(0);
+        final float[] vArray = inputs.get(1);
+        if (this.cachedData == null) {
+            this.initialiseCachedData(new int[]{uArray.length});
+        }
+        final double[] cachedDataArray = this.cachedData.get(0);
+        for (int dataIndex = 0; dataIndex < uArray.length; dataIndex++) {
+            final double u = uArray[dataIndex];
+            final double v = vArray[dataIndex];
+            if (!Double.isNaN(u) && !Double.isNaN(v)) {
+                final double cachedValue = cachedDataArray[dataIndex];
+                cachedDataArray[dataIndex] = (!Double.isNaN(cachedValue) ? cachedValue : 0.0) +
+                    Math.sqrt(u * u + v * v) * weight;
+            }
+        }
+
+        // Increment the accumulation counter.
+        this.accumulationCounter += weight;
+
+    }
+
+}
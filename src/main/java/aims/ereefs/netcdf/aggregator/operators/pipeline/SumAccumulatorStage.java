@@ -38,6 +38,14 @@ public class SumAccumulatorStage extends AbstractIntermediateStage {
         this.maxAccumulationCount = maxAccumulationCount;
     }
 
+    /**
+     * Returns {@code true} if input data has been accumulated but not yet passed to the
+     * {@link #nextStages}.
+     */
+    public boolean isAccumulating() {
+        return this.accumulationCounter > 0;
+    }
+
     @Override
     public void reset() {
         this.cachedData = null;
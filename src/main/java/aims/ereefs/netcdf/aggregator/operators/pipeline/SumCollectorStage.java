@@ -15,6 +15,13 @@ import java.util.List;
  * added to a single {@link #cachedData} array, resulting in a single output array.
  * </p>
  *
+ * <p>
+ * The intermediate state is exposed as a {@link SumPartialState}. Sums are held as primitive
+ * {@code double} values, and single precision inputs can be accumulated without boxing via
+ * {@link #executeFloat(List)}. A time slice representing multiple accumulations can be added once
+ * via {@link #executeWeighted(List, int)}.
+ * </p>
+ *
  * <p>While this class implements the {@link Stage} interface allowing it to be part of a
  * multi-{@link Stage} {@code Pipeline}, implementation of the {@link Collector} interface marks
  * this class as a terminal operation, which means it will not invoke any further {@link Stage}
@@ -23,14 +30,14 @@ import java.util.List;
  *
  * @author Aaron Smith
  */
-public class SumCollectorStage implements Stage, Collector {
+public class SumCollectorStage implements Stage, FloatStage, WeightedStage, MergeableCollector {
 
     final static protected String EXCEPTION_MESSAGE = "No input data specified.";
 
     /**
      * Internal arrays for accumulating the data.
      */
-    protected List<Double[]> cachedData = null;
+    protected List<double[]> cachedData = null;
 
     /**
      * Flag that determines if input arrays are reduced to a single output array (if {@code true}).
@@ -54,6 +61,14 @@ public class SumCollectorStage implements Stage, Collector {
 
     @Override
     public void execute(List<Double[]> inputs) {
+        this.executeWeighted(inputs, 1);
+    }
+
+    /**
+     * Equivalent to {@link #execute(List)}, with each input value multiplied by {@code weight}.
+     */
+    @Override
+    public void executeWeighted(List<Double[]> inputs, int weight) {
 
         // Validate inputs.
         if (inputs.size() == 0) {
@@ -62,21 +77,7 @@ public class SumCollectorStage implements Stage, Collector {
 
         // Instantiate the accumulation data if not already done.
         if (this.cachedData == null) {
-            this.cachedData = new ArrayList<>();
-
-            // If isReduced is set, then reducing to a single output variable, otherwise maintain
-            // separation of input variables. Create cache accordingly.
-            if (this.isReduced) {
-                final Double[] accumulationDataArray = new Double[inputs.get(0).length];
-                Arrays.fill(accumulationDataArray, Double.NaN);
-                this.cachedData.add(accumulationDataArray);
-            } else {
-                for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
-                    final Double[] accumulationDataArray = new Double[inputs.get(inputIndex).length];
-                    Arrays.fill(accumulationDataArray, Double.NaN);
-                    this.cachedData.add(accumulationDataArray);
-                }
-            }
+            this.initialiseCachedData(inputs.stream().mapToInt(input -> input.length).toArray());
         }
 
         // Loop through each input array in the inputs list.
@@ -86,7 +87,7 @@ public class SumCollectorStage implements Stage, Collector {
 
             // If isReduced is set, then reducing to a single output variable, otherwise maintain
             // separation of input variables.
-            final Double[] cachedDataArray = this.isReduced ?
+            final double[] cachedDataArray = this.isReduced ?
                     this.cachedData.get(0) :
                     this.cachedData.get(inputIndex);
 
@@ -103,13 +104,72 @@ public class SumCollectorStage implements Stage, Collector {
                             !Double.isNaN(cachedDataArray[dataIndex]) ?
                                 cachedDataArray[dataIndex] :
                                 0.0
-                        ) + inputValue;
+                        ) + inputValue * weight;
                 }
             }
         }
 
     }
 
+    /**
+     * Equivalent to {@link #execute(List)} for single precision inputs. Each value is widened to
+     * {@code double} before being added, so the result matches {@link #execute(List)}.
+     */
+    @Override
+    public void executeFloat(List<float[]> inputs) {
+        this.executeFloatWeighted(inputs, 1);
+    }
+
+    /**
+     * Equivalent to {@link #executeFloat(List)}, with each input value multiplied by
+     * {@code weight}.
+     */
+    @Override
+    public void executeFloatWeighted(List<float[]> inputs, int weight) {
+
+        // Validate inputs.
+        if (inputs.size() == 0) {
+            throw new RuntimeException(EXCEPTION_MESSAGE);
+        }
+
+        // Instantiate the accumulation data if not already done.
+        if (this.cachedData == null) {
+            this.initialiseCachedData(inputs.stream().mapToInt(input -> input.length).toArray());
+        }
+
+        // Loop through each input array in the inputs list.
+        for (int inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+            final float[] input = inputs.get(inputIndex);
+            final double[] cachedDataArray = this.isReduced ?
+                this.cachedData.get(0) :
+                this.cachedData.get(inputIndex);
+            for (int dataIndex = 0; dataIndex < input.length; dataIndex++) {
+                final float inputValue = input[dataIndex];
+                if (!Float.isNaN(inputValue)) {
+                    final double cachedValue = cachedDataArray[dataIndex];
+                    cachedDataArray[dataIndex] = (!Double.isNaN(cachedValue) ? cachedValue : 0.0) + (double) inputValue * weight;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Instantiate the {@link #cachedData} for inputs of the specified lengths.
+     */
+    protected void initialiseCachedData(int[] inputLengths) {
+        this.cachedData = new ArrayList<>();
+
+        // If isReduced is set, then reducing to a single output variable, otherwise maintain
+        // separation of input variables. Create cache accordingly.
+        final int arrayCount = this.isReduced ? 1 : inputLengths.length;
+        for (int inputIndex = 0; inputIndex < arrayCount; inputIndex++) {
+            final double[] accumulationDataArray = new double[inputLengths[inputIndex]];
+            Arrays.fill(accumulationDataArray, Double.NaN);
+            this.cachedData.add(accumulationDataArray);
+        }
+    }
+
     @Override
     public void reset() {
         // Drop the cached data so it will be re-initialised the next time execute() is invoked.
@@ -118,7 +178,20 @@ public class SumCollectorStage implements Stage, Collector {
 
     @Override
     public List<Double[]> getResults() {
-        return this.cachedData;
+        return AbstractArrayPartialState.toBoxed(this.cachedData);
+    }
+
+    @Override
+    public PartialState getPartialState() {
+        return new SumPartialState(AbstractArrayPartialState.copyOf(this.cachedData));
+    }
+
+    @Override
+    public void merge(PartialState partialState) {
+        final SumPartialState currentPartialState =
+            new SumPartialState(AbstractArrayPartialState.fromCachedData(this.cachedData));
+        currentPartialState.merge(partialState);
+        this.cachedData = AbstractArrayPartialState.toCachedData(currentPartialState.getArrays());
     }
 
 }
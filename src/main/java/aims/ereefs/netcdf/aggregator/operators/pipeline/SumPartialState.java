@@ -0,0 +1,41 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link PartialState} of a {@link SumCollectorStage}, being the {@code SUM} of each cell.
+ *
+ * @author Aaron Smith
+ */
+public class SumPartialState extends AbstractArrayPartialState {
+
+    public SumPartialState(List<double[]> sums) {
+        super(sums);
+    }
+
+    @Override
+    public byte getType() {
+        return PartialStateSerialiser.TYPE_SUM;
+    }
+
+    @Override
+    public void merge(PartialState other) {
+        this.validateType(other);
+        this.mergeArrays((SumPartialState) other);
+    }
+
+    @Override
+    protected double mergeValue(double value, double otherValue) {
+        return value + otherValue;
+    }
+
+    /**
+     * Read a state written by {@link #write(java.io.DataOutput)}.
+     */
+    static public SumPartialState read(DataInput input) throws IOException {
+        return new SumPartialState(readArrays(input));
+    }
+
+}
@@ -0,0 +1,30 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import java.util.List;
+
+/**
+ * Public interface for a {@link Stage} that can accept a time slice representing multiple
+ * accumulations in a single execution. For example, a {@code MONTHLY} {@code MEAN} contributes
+ * to an {@code ANNUAL} {@code MEAN} once for each day of the month. Executing with a
+ * {@code weight} is equivalent to executing the same inputs {@code weight} times.
+ *
+ * @author Aaron Smith
+ */
+public interface WeightedStage {
+
+    /**
+     * Perform the processing required for the {@link Stage}, treating the inputs as
+     * {@code weight} accumulations.
+     *
+     * @see Stage#execute(List)
+     */
+    void executeWeighted(List<Double[]> inputs, int weight);
+
+    /**
+     * Single precision equivalent of {@link #executeWeighted(List, int)}.
+     *
+     * @see FloatStage#executeFloat(List)
+     */
+    void executeFloatWeighted(List<float[]> inputs, int weight);
+
+}
@@ -8,7 +8,8 @@ import java.util.*;
 
 /**
  * Abstract implementation of the {@link TimeAggregatorHelper} interface to implement the common
- * {@link #buildAggregatedTimeMap(Double[], int)} method.
+ * {@link #buildAggregatedTimeMap(Double[], int)} method. Implementations aggregating to calendar
+ * periods provide a {@link TimeAxisIndex} so the time values of a dataset are decoded once.
  *
  * @author Aaron Smith
  */
@@ -16,32 +17,46 @@ public abstract class AbstractTimeAggregatorHelper implements TimeAggregatorHelp
 
     protected Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * Builds the map using the {@link TimeAxisIndex} from {@link #buildTimeAxisIndex(Double[], int)}
+     * if supported by the implementation, otherwise {@link #aggregateTime(double)} is invoked for
+     * each time value.
+     */
     public Map<Double, List<Double>> buildAggregatedTimeMap(Double[] timeIndexes,
                                                             int maxExpectedTimeIndexes) {
         Map<Double, List<Double>> aggregatedTimeMap = new TreeMap<>();
 
-        long maxTimeIndexes = (
+        int maxTimeIndexes = (
             maxExpectedTimeIndexes < timeIndexes.length ?
                 maxExpectedTimeIndexes :
                 timeIndexes.length
         );
+        final TimeAxisIndex timeAxisIndex = this.buildTimeAxisIndex(timeIndexes, maxTimeIndexes);
+
+        // Track the times already grouped, so uniqueness is not checked with a linear search of
+        // each group.
+        final Set<Double> groupedTimeSet = new HashSet<>();
 
         // Loop through every value in the time array.
         for (int index = 0; index < maxTimeIndexes; index++) {
             double time = timeIndexes[index];
 
             // Calculate the corresponding aggregate time.
-            double aggregatedTime = this.aggregateTime(time);
+            double aggregatedTime = timeAxisIndex != null ?
+                timeAxisIndex.getAggregatedTime(index) :
+                this.aggregateTime(time);
 
             // The map is used to bind a list of corresponding time slices to the aggregated time
             // for simple reference. If this is the first time for this aggregatedTime, bind an
             // empty list to the aggregated time so we can add to it next.
-            aggregatedTimeMap.putIfAbsent(aggregatedTime, new ArrayList<>());
+            List<Double> groupedTimes = aggregatedTimeMap.computeIfAbsent(
+                aggregatedTime,
+                key -> new ArrayList<>()
+            );
 
             // Add this time slice to the list if it is not already. Checking first ensures each
             // time slice is unique.
-            List<Double> groupedTimes = aggregatedTimeMap.get(aggregatedTime);
-            if (!groupedTimes.contains(time)) {
+            if (groupedTimeSet.add(time)) {
                 groupedTimes.add(time);
             }
 
@@ -50,5 +65,13 @@ public abstract class AbstractTimeAggregatorHelper implements TimeAggregatorHelp
         return aggregatedTimeMap;
     }
 
+    /**
+     * Build a {@link TimeAxisIndex} for the first {@code count} time values. Returns {@code null}
+     * by default, indicating the implementation does not use calendar periods and
+     * {@link #aggregateTime(double)} is cheap enough to invoke for each time value.
+     */
+    protected TimeAxisIndex buildTimeAxisIndex(Double[] timeIndexes, int count) {
+        return null;
+    }
 
 }
@@ -6,6 +6,7 @@ import ucar.nc2.units.DateUnit;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
 
 /**
  * Concrete implementation of the {@link TimeAggregatorHelper} interface to support
@@ -35,6 +36,19 @@ public class AnnualTimeAggregatorHelper extends AbstractTimeAggregatorHelper imp
         return NetcdfDateUtils.fromLocalDateTime(dateUnit, startOfYear);
     }
 
+    /**
+     * Index the time values against the first day of each year.
+     */
+    @Override
+    protected TimeAxisIndex buildTimeAxisIndex(Double[] timeIndexes, int count) {
+        return new TimeAxisIndex(
+            this.dateUnit,
+            timeIndexes,
+            count,
+            year -> Collections.singletonList(LocalDateTime.of(year, 1, 1, 0, 0))
+        );
+    }
+
     @Override
     public String getDescriptor() {
         return "Annual";
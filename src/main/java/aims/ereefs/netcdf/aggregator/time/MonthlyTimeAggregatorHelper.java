@@ -6,6 +6,8 @@ import ucar.nc2.units.DateUnit;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Concrete implementation of the {@link TimeAggregatorHelper} interface to support
@@ -35,6 +37,20 @@ public class MonthlyTimeAggregatorHelper extends AbstractTimeAggregatorHelper im
         return NetcdfDateUtils.fromLocalDateTime(dateUnit, startOfMonth);
     }
 
+    /**
+     * Index the time values against the first day of each month.
+     */
+    @Override
+    protected TimeAxisIndex buildTimeAxisIndex(Double[] timeIndexes, int count) {
+        return new TimeAxisIndex(this.dateUnit, timeIndexes, count, year -> {
+            final List<LocalDateTime> monthStarts = new ArrayList<>();
+            for (int month = 1; month <= 12; month++) {
+                monthStarts.add(LocalDateTime.of(year, month, 1, 0, 0));
+            }
+            return monthStarts;
+        });
+    }
+
     @Override
     public String getDescriptor() {
         return "Monthly";
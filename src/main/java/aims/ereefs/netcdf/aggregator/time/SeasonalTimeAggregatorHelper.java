@@ -43,7 +43,7 @@ public class SeasonalTimeAggregatorHelper extends AbstractTimeAggregatorHelper i
     /**
      * Internal cache of the years for which {@link #seasonStarts} have been calculated.
      */
-    private List<Integer> seasonStartYearsCovered = new ArrayList<>();
+    private Set<Integer> seasonStartYearsCovered = new HashSet<>();
 
     public SeasonalTimeAggregatorHelper(DateUnit dateUnit, List<SeasonConfig> seasonConfigs) {
         super();
@@ -97,18 +97,12 @@ public class SeasonalTimeAggregatorHelper extends AbstractTimeAggregatorHelper i
             this.addSeasonStartsForYear(nextYear);
         }
 
-        // Find the latest season start which is less than the current date/time.
-        LocalDateTime latestSeasonStart = null;
-        for (LocalDateTime seasonStart : this.seasonStarts) {
-            if (latestSeasonStart == null) {
-                latestSeasonStart = seasonStart;
-            }
-            boolean isLaterOrOn = localDateTime.isAfter(seasonStart) || localDateTime.isEqual(seasonStart);
-            if (isLaterOrOn && seasonStart.isAfter(latestSeasonStart)) {
-                latestSeasonStart = seasonStart;
-            }
+        // Find the latest season start which is less than or equal to the current date/time.
+        final int index = Collections.binarySearch(this.seasonStarts, localDateTime);
+        if (index >= 0) {
+            return this.seasonStarts.get(index);
         }
-        return latestSeasonStart;
+        return this.seasonStarts.get(Math.max(0, -(index + 1) - 1));
     }
 
     /**
@@ -147,15 +141,38 @@ public class SeasonalTimeAggregatorHelper extends AbstractTimeAggregatorHelper i
      * @param year the <code>year</code> of interest.
      */
     protected void addSeasonStartsForYear(int year) {
+        for (LocalDateTime seasonStart : this.makeSeasonStartsForYear(year)) {
+            this.seasonStarts.add(seasonStart);
+        }
+        Collections.sort(this.seasonStarts);
+    }
+
+    /**
+     * Utility method to build the list of season starts (see {@link #seasonConfigs}) for the
+     * specified year, binding each to its {@link SeasonConfig} in
+     * {@link #seasonStartToSeasonConfigMap}.
+     *
+     * @param year the <code>year</code> of interest.
+     */
+    protected List<LocalDateTime> makeSeasonStartsForYear(int year) {
+        final List<LocalDateTime> seasonStartsForYear = new ArrayList<>();
         for (SeasonConfig seasonConfig : this.seasonConfigs) {
             LocalDateTime seasonStart = LocalDateTime.parse(
                 year + "-" + seasonConfig.getStart() + " 0:0",
                 dateFormatter
             );
-            this.seasonStarts.add(seasonStart);
+            seasonStartsForYear.add(seasonStart);
             this.seasonStartToSeasonConfigMap.put(seasonStart, seasonConfig);
         }
-        Collections.sort(this.seasonStarts);
+        return seasonStartsForYear;
+    }
+
+    /**
+     * Index the time values against the start of each season.
+     */
+    @Override
+    protected TimeAxisIndex buildTimeAxisIndex(Double[] timeIndexes, int count) {
+        return new TimeAxisIndex(this.dateUnit, timeIndexes, count, this::makeSeasonStartsForYear);
     }
 
     @Override
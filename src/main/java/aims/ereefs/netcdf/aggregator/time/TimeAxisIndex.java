@@ -0,0 +1,117 @@
+package aims.ereefs.netcdf.aggregator.time;
+
+import aims.ereefs.netcdf.util.netcdf.NetcdfDateUtils;
+import ucar.nc2.units.DateUnit;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * Index of the time axis of a single dataset, allowing each time value to be mapped to the start
+ * of its aggregation period without converting through {@code DateUnit} for every value.
+ * <p>
+ * All time values are decoded to epoch milliseconds once. The starts of the periods (eg: months
+ * or seasons) that cover the time values are then calculated once per period, and kept as a
+ * sorted array that is searched with a binary search.
+ *
+ * @author Aaron Smith
+ */
+public class TimeAxisIndex {
+
+    /**
+     * The time values of the dataset, decoded to epoch milliseconds.
+     */
+    protected long[] epochMillis;
+
+    /**
+     * The starts of the aggregation periods, in epoch milliseconds and sorted ascending.
+     */
+    protected long[] periodStartEpochMillis;
+
+    /**
+     * The starts of the aggregation periods, as time values in the units of the dataset,
+     * corresponding to {@link #periodStartEpochMillis}.
+     */
+    protected double[] periodStartTimes;
+
+    /**
+     * Constructor to decode the time values and calculate the period starts.
+     *
+     * @param dateUnit            the units of the time values.
+     * @param times               the time values of the dataset.
+     * @param count               the number of {@code times} to index.
+     * @param periodStartsForYear function returning the start of each aggregation period in the
+     *                            specified year.
+     */
+    public TimeAxisIndex(DateUnit dateUnit,
+                         Double[] times,
+                         int count,
+                         IntFunction<List<LocalDateTime>> periodStartsForYear) {
+        final ZoneId zoneId = NetcdfDateUtils.timeZoneOf(dateUnit);
+
+        // Decode the time values.
+        this.epochMillis = new long[count];
+        long minEpochMillis = Long.MAX_VALUE;
+        long maxEpochMillis = Long.MIN_VALUE;
+        for (int index = 0; index < count; index++) {
+            this.epochMillis[index] = dateUnit.makeDate(times[index]).getTime();
+            minEpochMillis = Math.min(minEpochMillis, this.epochMillis[index]);
+            maxEpochMillis = Math.max(maxEpochMillis, this.epochMillis[index]);
+        }
+        if (count == 0) {
+            this.periodStartEpochMillis = new long[0];
+            this.periodStartTimes = new double[0];
+            return;
+        }
+
+        // Calculate the period starts for the years covered, plus the year either side so every
+        // time value has a preceding period start.
+        final int minYear = LocalDateTime.ofInstant(Instant.ofEpochMilli(minEpochMillis), zoneId).getYear();
+        final int maxYear = LocalDateTime.ofInstant(Instant.ofEpochMilli(maxEpochMillis), zoneId).getYear();
+        final TreeSet<LocalDateTime> periodStarts = new TreeSet<>();
+        for (int year = minYear - 1; year <= maxYear + 1; year++) {
+            periodStarts.addAll(periodStartsForYear.apply(year));
+        }
+        this.periodStartEpochMillis = new long[periodStarts.size()];
+        this.periodStartTimes = new double[periodStarts.size()];
+        int periodIndex = 0;
+        for (LocalDateTime periodStart : periodStarts) {
+            this.periodStartEpochMillis[periodIndex] = periodStart.atZone(zoneId).toInstant().toEpochMilli();
+            this.periodStartTimes[periodIndex] = NetcdfDateUtils.fromLocalDateTime(dateUnit, periodStart);
+            periodIndex++;
+        }
+    }
+
+    /**
+     * Returns the number of time values indexed.
+     */
+    public int size() {
+        return this.epochMillis.length;
+    }
+
+    /**
+     * Returns the start of the aggregation period containing the time value at the specified
+     * index, in the units of the dataset.
+     */
+    public double getAggregatedTime(int index) {
+        return this.periodStartTimes[findFloorIndex(this.periodStartEpochMillis, this.epochMillis[index])];
+    }
+
+    /**
+     * Returns the index of the last value in the {@code sorted} array that is less than or equal
+     * to {@code value}, or {@code 0} if {@code value} precedes every value.
+     */
+    static public int findFloorIndex(long[] sorted, long value) {
+        final int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return index;
+        }
+        return Math.max(0, -(index + 1) - 1);
+    }
+
+}
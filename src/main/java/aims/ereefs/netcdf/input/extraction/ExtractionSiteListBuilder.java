@@ -1,6 +1,6 @@
 package aims.ereefs.netcdf.input.extraction;
 
-import aims.ereefs.netcdf.regrid.Coordinate;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.regrid.IndexWithDistance;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
@@ -43,61 +43,57 @@ public class ExtractionSiteListBuilder {
 
     /**
      * Convenience method when searching for closest neighbours. This method invokes
-     * {@link #build(JsonNode, Map, int)} with {@link #DEFAULT_MINIMUM_NEIGHBOURS}.
+     * {@link #build(JsonNode, GridGeometry, int)} with {@link #DEFAULT_MINIMUM_NEIGHBOURS}.
      */
     static public List<ExtractionSite> build(JsonNode rootNode,
-                                             Map<Integer, Coordinate> indexToCoordinateMap) {
+                                             GridGeometry gridGeometry) {
         return ExtractionSiteListBuilder.build(
             rootNode,
-            indexToCoordinateMap,
+            gridGeometry,
             DEFAULT_MINIMUM_NEIGHBOURS
         );
     }
 
     static public List<ExtractionSite> build(JsonNode rootNode,
-                                             Map<Integer, Coordinate> indexToCoordinateMap,
+                                             GridGeometry gridGeometry,
                                              int minimumNeighbours) {
 
-        // Build a navigable set of longitude values.
+        // Build a navigable set of latitude and longitude values of the cells with valid
+        // coordinates.
         final NavigableMap<Double, List<Integer>> latToIndexesMap = new TreeMap<>();
         final NavigableMap<Double, List<Integer>> lonToIndexesMap = new TreeMap<>();
-        int latNanCount = 0;
-        int lonNanCount = 0;
-        for (int index : indexToCoordinateMap.keySet()) {
-            final Coordinate coordinate = indexToCoordinateMap.get(index);
-            final Double latitude = coordinate.getLatitude();
-            if (Double.isNaN(latitude)) {
-                latNanCount++;
+        int invalidCount = 0;
+        final int cellCount = gridGeometry.getCellCount();
+        for (int cellIndex = 0; cellIndex < cellCount; cellIndex++) {
+            if (!gridGeometry.isWet(cellIndex)) {
+                invalidCount++;
+                continue;
+            }
+            final int index = cellIndex;
+            final Double latitude = gridGeometry.getCellLatitude(index);
+            if (!latToIndexesMap.containsKey(latitude)) {
+                latToIndexesMap.put(
+                    latitude,
+                    new ArrayList<Integer>() {{
+                        add(index);
+                    }}
+                );
             } else {
-                if (!latToIndexesMap.containsKey(latitude)) {
-                    latToIndexesMap.put(
-                        latitude,
-                        new ArrayList<Integer>() {{
-                            add(index);
-                        }}
-                    );
-                } else {
-                    latToIndexesMap.get(latitude).add(index);
-                }
+                latToIndexesMap.get(latitude).add(index);
             }
-            final Double longitude = coordinate.getLongitude();
-            if (Double.isNaN(longitude)) {
-                lonNanCount++;
+            final Double longitude = gridGeometry.getCellLongitude(index);
+            if (!lonToIndexesMap.containsKey(longitude)) {
+                lonToIndexesMap.put(
+                    longitude,
+                    new ArrayList<Integer>() {{
+                        add(index);
+                    }}
+                );
             } else {
-                if (!lonToIndexesMap.containsKey(longitude)) {
-                    lonToIndexesMap.put(
-                        longitude,
-                        new ArrayList<Integer>() {{
-                            add(index);
-                        }}
-                    );
-                } else {
-                    lonToIndexesMap.get(longitude).add(index);
-                }
+                lonToIndexesMap.get(longitude).add(index);
             }
         }
-        logger.debug("NaNs in latitude array: " + latNanCount);
-        logger.debug("NaNs in longitude array: " + lonNanCount);
+        logger.debug("Cells without valid coordinates: " + invalidCount);
 
         // Determine the bounds of the dataset.
         double latBound1 = latToIndexesMap.firstKey();
@@ -159,10 +155,8 @@ public class ExtractionSiteListBuilder {
 
             List<IndexWithDistance> neighbours = new ArrayList<>();
             for (int index : indexesWithinBox) {
-                Coordinate neighbour = indexToCoordinateMap.get(index);
-
-                double distance = Math.sqrt(Math.pow((latitude - neighbour.getLatitude()), 2) +
-                    Math.pow((longitude - neighbour.getLongitude()), 2));
+                double distance = Math.sqrt(Math.pow((latitude - gridGeometry.getCellLatitude(index)), 2) +
+                    Math.pow((longitude - gridGeometry.getCellLongitude(index)), 2));
                 neighbours.add(new IndexWithDistance(index, distance));
             }
 
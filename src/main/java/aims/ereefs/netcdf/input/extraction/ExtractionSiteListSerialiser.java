@@ -0,0 +1,70 @@
+package aims.ereefs.netcdf.input.extraction;
+
+import aims.ereefs.netcdf.regrid.IndexWithDistance;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for writing/reading the list of {@link ExtractionSite}s built by
+ * {@link ExtractionSiteListBuilder} in a compact binary format.
+ *
+ * @author Aaron Smith
+ */
+public class ExtractionSiteListSerialiser {
+
+    // The version of the format supported by this class.
+    static final public int FORMAT_VERSION = 1;
+
+    /**
+     * Write the list to the specified stream.
+     */
+    static public void write(List<ExtractionSite> extractionSites,
+                             DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(FORMAT_VERSION);
+        outputStream.writeInt(extractionSites.size());
+        for (ExtractionSite extractionSite : extractionSites) {
+            outputStream.writeUTF(extractionSite.getId());
+            outputStream.writeUTF(extractionSite.getSiteName());
+            outputStream.writeDouble(extractionSite.getLatitude());
+            outputStream.writeDouble(extractionSite.getLongitude());
+            outputStream.writeInt(extractionSite.getNeighbours().size());
+            for (IndexWithDistance neighbour : extractionSite.getNeighbours()) {
+                outputStream.writeInt(neighbour.getIndex());
+                outputStream.writeDouble(neighbour.getDistance());
+            }
+        }
+    }
+
+    /**
+     * Read a list written by {@link #write(List, DataOutputStream)} from the specified stream.
+     */
+    static public List<ExtractionSite> read(DataInputStream inputStream) throws IOException {
+        final int version = inputStream.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new RuntimeException(
+                "Version not supported. Expected \"" + FORMAT_VERSION + "\" but found \"" + version + "\".");
+        }
+        final int size = inputStream.readInt();
+        final List<ExtractionSite> extractionSites = new ArrayList<>(size);
+        for (int siteIndex = 0; siteIndex < size; siteIndex++) {
+            final String id = inputStream.readUTF();
+            final String siteName = inputStream.readUTF();
+            final double latitude = inputStream.readDouble();
+            final double longitude = inputStream.readDouble();
+            final int neighbourCount = inputStream.readInt();
+            final List<IndexWithDistance> neighbours = new ArrayList<>(neighbourCount);
+            for (int neighbourIndex = 0; neighbourIndex < neighbourCount; neighbourIndex++) {
+                final int index = inputStream.readInt();
+                final double distance = inputStream.readDouble();
+                neighbours.add(new IndexWithDistance(index, distance));
+            }
+            extractionSites.add(new ExtractionSite(id, siteName, latitude, longitude, neighbours));
+        }
+        return extractionSites;
+    }
+
+}
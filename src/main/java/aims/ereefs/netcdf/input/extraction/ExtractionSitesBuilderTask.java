@@ -1,18 +1,15 @@
 package aims.ereefs.netcdf.input.extraction;
 
 import aims.ereefs.netcdf.ApplicationContext;
-import aims.ereefs.netcdf.input.netcdf.InputDataset;
-import aims.ereefs.netcdf.regrid.Coordinate;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.tasks.PreProcessingTask;
+import aims.ereefs.netcdf.util.file.cache.ArtefactCache;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ucar.ma2.Array;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 /**
  * {@link PreProcessingTask} implementation for populating the
@@ -30,7 +27,6 @@ public class ExtractionSitesBuilderTask implements PreProcessingTask {
     /**
      * Constants identifying the properties in the JSON configuration.
      */
-    static final protected String IS_RECTILINEAR_GRID_PROPERTY = "isRectilinearGrid";
     static final protected String SITES_PROPERTY = "sites";
 
     /**
@@ -38,6 +34,11 @@ public class ExtractionSitesBuilderTask implements PreProcessingTask {
      */
     static final public String EXTRACTION_SITES_BIND_NAME = "extractionSites";
 
+    /**
+     * The type of the artefact in the {@link ArtefactCache}.
+     */
+    static final protected String ARTEFACT_TYPE = "extractionSites";
+
     /**
      * Cached reference to the location where files will be downloaded to.
      */
@@ -57,31 +58,23 @@ public class ExtractionSitesBuilderTask implements PreProcessingTask {
                         ApplicationContext applicationContext) {
 
         final JsonNode rootNode = taskDefn.getJson();
-        final boolean isRectilinearGrid = rootNode.has(IS_RECTILINEAR_GRID_PROPERTY) &&
-            rootNode.get(IS_RECTILINEAR_GRID_PROPERTY).asBoolean();
-
-        // Use the reference dataset to build a map of pixel/cell index (with a data array) to the
-        // corresponding lat/lon coordinate.
-        InputDataset referenceDataset = applicationContext.getInputDatasetCache().getReferenceDataset();
-        final Array longitudeArray;
-        final Array latitudeArray;
-        final Map<Integer, Coordinate> indexToCoordinateMap;
-        try {
-            latitudeArray = referenceDataset.getLatitudeVariable().read();
-            longitudeArray = referenceDataset.getLongitudeVariable().read();
-            indexToCoordinateMap = CoordinateMapBuilder.build(
-                latitudeArray,
-                longitudeArray,
-                isRectilinearGrid
-            );
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to build coordinate map.", e);
-        }
 
-        // Build the list of ExtractionSites.
-        final List<ExtractionSite> extractionSiteList = ExtractionSiteListBuilder.build(
-            rootNode.get(SITES_PROPERTY),
-            indexToCoordinateMap
+        // Retrieve the list of ExtractionSites from the artefact cache, building it from the
+        // shared grid geometry of the reference dataset if not already built for the grid and
+        // sites.
+        final GridGeometry gridGeometry = applicationContext.getGridGeometry();
+        final List<ExtractionSite> extractionSiteList = applicationContext.getArtefactCache().retrieveOrBuild(
+            ArtefactCache.makeKey(
+                ARTEFACT_TYPE,
+                gridGeometry.getContentHash(),
+                rootNode.get(SITES_PROPERTY).toString()
+            ),
+            ExtractionSiteListSerialiser::read,
+            ExtractionSiteListSerialiser::write,
+            () -> ExtractionSiteListBuilder.build(
+                rootNode.get(SITES_PROPERTY),
+                gridGeometry
+            )
         );
         applicationContext.putInCache(EXTRACTION_SITES_BIND_NAME, extractionSiteList);
     }
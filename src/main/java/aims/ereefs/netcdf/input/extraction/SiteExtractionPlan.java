@@ -0,0 +1,288 @@
+package aims.ereefs.netcdf.input.extraction;
+
+import aims.ereefs.netcdf.regrid.IndexWithDistance;
+import aims.ereefs.netcdf.util.netcdf.ReadUtils;
+import ucar.ma2.Array;
+import ucar.ma2.IndexIterator;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Variable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan for reading only the cells used by a list of {@link ExtractionSite}s, rather than entire
+ * time slices. The neighbours of each site are covered by a bounding {@link Box}, and boxes that
+ * are close together are merged so nearby sites share a single read (see
+ * {@link #MAX_MERGE_OVERHEAD_CELLS}). The cells of the boxes are packed into a compact layer, box
+ * after box, and the {@link #getExtractionSites() extraction sites} are remapped so their
+ * neighbour indexes refer to the compact layer instead of the full grid.
+ * <p>
+ * The data read by {@link #read(Variable, int, int, int, int[])} has the same layout as a full
+ * time slice, (depth, compact layer), so it can be passed to a {@code SummaryAccumulator} with a
+ * layer size of {@link #getCompactLayerSize()}.
+ *
+ * @author Aaron Smith
+ */
+public class SiteExtractionPlan {
+
+    /**
+     * The maximum number of cells not used by any site that may be read to merge two boxes into
+     * one.
+     */
+    final static protected int MAX_MERGE_OVERHEAD_CELLS = 64;
+
+    /**
+     * A rectangular region of a layer of the grid.
+     */
+    static public class Box {
+
+        protected int row;
+        protected int column;
+        protected int rowCount;
+        protected int columnCount;
+
+        /**
+         * The index of the first cell of the {@code Box} in the compact layer.
+         */
+        protected int compactOffset;
+
+        public Box(int row, int column, int rowCount, int columnCount) {
+            this.row = row;
+            this.column = column;
+            this.rowCount = rowCount;
+            this.columnCount = columnCount;
+        }
+
+        public int getRow() {
+            return this.row;
+        }
+
+        public int getColumn() {
+            return this.column;
+        }
+
+        public int getRowCount() {
+            return this.rowCount;
+        }
+
+        public int getColumnCount() {
+            return this.columnCount;
+        }
+
+        public int getSize() {
+            return this.rowCount * this.columnCount;
+        }
+
+        /**
+         * Returns the smallest {@code Box} containing both this {@code Box} and the
+         * {@code other}.
+         */
+        public Box union(Box other) {
+            final int row = Math.min(this.row, other.row);
+            final int column = Math.min(this.column, other.column);
+            return new Box(
+                row,
+                column,
+                Math.max(this.row + this.rowCount, other.row + other.rowCount) - row,
+                Math.max(this.column + this.columnCount, other.column + other.columnCount) - column
+            );
+        }
+
+    }
+
+    /**
+     * The number of columns in a layer of the grid.
+     */
+    protected int columnCount;
+
+    protected List<Box> boxes;
+
+    protected int compactLayerSize;
+
+    /**
+     * The sites, with neighbour indexes remapped to the compact layer.
+     */
+    protected List<ExtractionSite> extractionSites;
+
+    protected SiteExtractionPlan() {
+    }
+
+    public List<Box> getBoxes() {
+        return this.boxes;
+    }
+
+    /**
+     * Returns the number of cells in a single depth of the data read.
+     */
+    public int getCompactLayerSize() {
+        return this.compactLayerSize;
+    }
+
+    /**
+     * Returns the {@link ExtractionSite}s, with neighbour indexes referring to the compact layer.
+     */
+    public List<ExtractionSite> getExtractionSites() {
+        return this.extractionSites;
+    }
+
+    /**
+     * Factory method to build the {@link SiteExtractionPlan} for the {@code extractionSites} on a
+     * grid with layers of {@code rowCount} x {@code columnCount} cells.
+     */
+    static public SiteExtractionPlan make(List<ExtractionSite> extractionSites,
+                                          int rowCount,
+                                          int columnCount) {
+        final SiteExtractionPlan siteExtractionPlan = new SiteExtractionPlan();
+        siteExtractionPlan.columnCount = columnCount;
+
+        // Start with a box bounding the neighbours of each site.
+        final List<Box> boxes = new ArrayList<>();
+        for (ExtractionSite extractionSite : extractionSites) {
+            Box siteBox = null;
+            for (IndexWithDistance neighbour : extractionSite.getNeighbours()) {
+                final int index = neighbour.getIndex();
+                if ((index < 0) || (index >= rowCount * columnCount)) {
+                    throw new RuntimeException("Neighbour index " + index + " of site \"" +
+                        extractionSite.getId() + "\" is outside the grid.");
+                }
+                final Box cellBox = new Box(index / columnCount, index % columnCount, 1, 1);
+                siteBox = siteBox == null ? cellBox : siteBox.union(cellBox);
+            }
+            if (siteBox != null) {
+                boxes.add(siteBox);
+            }
+        }
+
+        // Merge boxes while merging reads few cells that are not used.
+        boolean isMerged = true;
+        while (isMerged) {
+            isMerged = false;
+            for (int index = 0; index < boxes.size(); index++) {
+                for (int otherIndex = index + 1; otherIndex < boxes.size(); otherIndex++) {
+                    final Box box = boxes.get(index);
+                    final Box otherBox = boxes.get(otherIndex);
+                    final Box unionBox = box.union(otherBox);
+                    if (unionBox.getSize() <= box.getSize() + otherBox.getSize() + MAX_MERGE_OVERHEAD_CELLS) {
+                        boxes.set(index, unionBox);
+                        boxes.remove(otherIndex);
+                        otherIndex = index;
+                        isMerged = true;
+                    }
+                }
+            }
+        }
+        siteExtractionPlan.boxes = boxes;
+
+        // Pack the boxes into the compact layer, binding each cell of the grid to its first
+        // position in the compact layer.
+        final Map<Integer, Integer> compactIndexByIndex = new HashMap<>();
+        int compactLayerSize = 0;
+        for (Box box : boxes) {
+            box.compactOffset = compactLayerSize;
+            for (int row = 0; row < box.rowCount; row++) {
+                for (int column = 0; column < box.columnCount; column++) {
+                    compactIndexByIndex.putIfAbsent(
+                        (box.row + row) * columnCount + box.column + column,
+                        compactLayerSize + row * box.columnCount + column
+                    );
+                }
+            }
+            compactLayerSize += box.getSize();
+        }
+        siteExtractionPlan.compactLayerSize = compactLayerSize;
+
+        // Remap the neighbours of each site to the compact layer.
+        siteExtractionPlan.extractionSites = new ArrayList<>();
+        for (ExtractionSite extractionSite : extractionSites) {
+            final List<IndexWithDistance> neighbours = new ArrayList<>();
+            for (IndexWithDistance neighbour : extractionSite.getNeighbours()) {
+                neighbours.add(new IndexWithDistance(
+                    compactIndexByIndex.get(neighbour.getIndex()),
+                    neighbour.getDistance()
+                ));
+            }
+            siteExtractionPlan.extractionSites.add(new ExtractionSite(
+                extractionSite.getId(),
+                extractionSite.getSiteName(),
+                extractionSite.getLatitude(),
+                extractionSite.getLongitude(),
+                neighbours
+            ));
+        }
+
+        return siteExtractionPlan;
+    }
+
+    /**
+     * Read the {@link #boxes} of a single time slice of the {@code variable}, for each of the
+     * {@code depthIndexes} in order. The last two (2) dimensions of the {@code variable} must be
+     * the rows and columns of the grid. Each box is read once for the span of the depths.
+     *
+     * @param depthDimensionIndex the index of the depth dimension, or {@code -1} if the variable
+     *                            does not have a depth dimension.
+     * @param depthIndexes        the index within the depth dimension of each depth to read,
+     *                            ignored if the variable does not have a depth dimension.
+     * @return the data of each depth, in the layout of the compact layer.
+     */
+    public Double[] read(Variable variable,
+                         int timeDimensionIndex,
+                         int depthDimensionIndex,
+                         int timeIndex,
+                         int[] depthIndexes) {
+        final boolean hasDepthDimension = depthDimensionIndex != -1;
+        final int[] readDepthIndexes = hasDepthDimension ? depthIndexes : new int[]{0};
+        int minDepthIndex = Integer.MAX_VALUE;
+        int maxDepthIndex = Integer.MIN_VALUE;
+        for (int depthIndex : readDepthIndexes) {
+            minDepthIndex = Math.min(minDepthIndex, depthIndex);
+            maxDepthIndex = Math.max(maxDepthIndex, depthIndex);
+        }
+
+        final int rank = variable.getRank();
+        final Double[] compactArray = new Double[this.compactLayerSize * readDepthIndexes.length];
+        for (Box box : this.boxes) {
+
+            // Read the box for the span of the depths.
+            final int[] shape = variable.getShape();
+            final int[] offset = new int[rank];
+            shape[timeDimensionIndex] = 1;
+            offset[timeDimensionIndex] = timeIndex;
+            if (hasDepthDimension) {
+                shape[depthDimensionIndex] = maxDepthIndex - minDepthIndex + 1;
+                offset[depthDimensionIndex] = minDepthIndex;
+            }
+            shape[rank - 2] = box.rowCount;
+            shape[rank - 1] = box.columnCount;
+            offset[rank - 2] = box.row;
+            offset[rank - 1] = box.column;
+            final Array boxArray = ReadUtils.readData(variable, shape, offset);
+
+            // Copy each depth of the box to its position in the compact layer.
+            final int[] depthSliceShape = boxArray.getShape();
+            if (hasDepthDimension) {
+                depthSliceShape[depthDimensionIndex] = 1;
+            }
+            for (int index = 0; index < readDepthIndexes.length; index++) {
+                final int[] depthOffset = new int[rank];
+                if (hasDepthDimension) {
+                    depthOffset[depthDimensionIndex] = readDepthIndexes[index] - minDepthIndex;
+                }
+                int compactIndex = index * this.compactLayerSize + box.compactOffset;
+                try {
+                    final IndexIterator iterator = boxArray.section(depthOffset, depthSliceShape).getIndexIterator();
+                    while (iterator.hasNext()) {
+                        compactArray[compactIndex] = iterator.getDoubleNext();
+                        compactIndex++;
+                    }
+                } catch (InvalidRangeException e) {
+                    throw new RuntimeException("Failed to read depth index " + readDepthIndexes[index] + ".", e);
+                }
+            }
+        }
+        return compactArray;
+    }
+
+}
@@ -2,9 +2,10 @@ package aims.ereefs.netcdf.input.geojson;
 
 
 import aims.ereefs.netcdf.ApplicationContext;
-import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.tasks.PreProcessingTask;
 import aims.ereefs.netcdf.util.file.ReadUtils;
+import aims.ereefs.netcdf.util.file.cache.ArtefactCache;
 import aims.ereefs.netcdf.util.file.download.FileDownloadManager;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -37,7 +38,11 @@ public class GeoJsonCachePopulatorTask implements PreProcessingTask {
     static final protected String FILES_PROPERTY = "files";
     static final protected String URL_PROPERTY = "url";
     static final protected String BIND_NAME_PROPERTY = "bindName";
-    static final protected String IS_RECTILINEAR_GRID_PROPERTY = "isRectilinearGrid";
+
+    /**
+     * The type of the artefact in the {@link ArtefactCache}.
+     */
+    static final protected String ARTEFACT_TYPE = "zones";
 
     /**
      * Cached reference to the location where files will be downloaded to.
@@ -57,14 +62,13 @@ public class GeoJsonCachePopulatorTask implements PreProcessingTask {
     public void process(NcAggregateProductDefinition.PreProcessingTaskDefn taskDefn,
                         ApplicationContext applicationContext) {
 
-        // Obtain the reference dataset.
-        final InputDataset referenceDataset = applicationContext.getInputDatasetCache().getReferenceDataset();
+        // Obtain the shared grid geometry of the reference dataset.
+        final GridGeometry gridGeometry = applicationContext.getGridGeometry();
 
         // Loop through each file defined.
         for (JsonNode fileNode : taskDefn.getJson().get(FILES_PROPERTY)) {
             final String url = fileNode.get(URL_PROPERTY).asText();
             final String bindName = fileNode.get(BIND_NAME_PROPERTY).asText();
-            final boolean isRectilinearGrid = fileNode.get(IS_RECTILINEAR_GRID_PROPERTY).asBoolean();
             logger.debug("file: " + bindName);
 
             // Download the file to the local temp directory using a randomly generated filename.
@@ -73,14 +77,23 @@ public class GeoJsonCachePopulatorTask implements PreProcessingTask {
             if ((downloadedFile != null) && (downloadedFile.exists())) {
 
                 try {
-                    // Download successful, to parse the file.
-                    final JSONObject json = new JSONObject(ReadUtils.readTextFileAsString(downloadedFile));
-
-                    // Generate the IndexToZoneId map.
-                    final List<String> indexToZoneIdMap = IndexToZoneIdMapBuilder.build(
-                        referenceDataset,
-                        json,
-                        Boolean.valueOf(isRectilinearGrid)
+                    // Download successful, to read the file.
+                    final String geoJson = ReadUtils.readTextFileAsString(downloadedFile);
+
+                    // Retrieve the IndexToZoneId map from the artefact cache, generating it if
+                    // not already built for the grid and GeoJSON.
+                    final List<String> indexToZoneIdMap = applicationContext.getArtefactCache().retrieveOrBuild(
+                        ArtefactCache.makeKey(
+                            ARTEFACT_TYPE,
+                            gridGeometry.getContentHash(),
+                            geoJson
+                        ),
+                        IndexToZoneIdMapSerialiser::read,
+                        IndexToZoneIdMapSerialiser::write,
+                        () -> IndexToZoneIdMapBuilder.build(
+                            gridGeometry,
+                            new JSONObject(geoJson)
+                        )
                     );
 
                     // Bind it to the cache.
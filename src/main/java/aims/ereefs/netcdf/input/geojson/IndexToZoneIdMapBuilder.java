@@ -1,11 +1,10 @@
 package aims.ereefs.netcdf.input.geojson;
 
-import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ucar.ma2.Array;
 
 import java.awt.*;
 import java.awt.geom.Path2D;
@@ -27,9 +26,8 @@ public class IndexToZoneIdMapBuilder {
     /**
      * Perform the function of the {@code Task}.
      */
-    static public List<String> build(InputDataset referenceDataset,
-                                     JSONObject zonesGeoJson,
-                                     boolean isRectilinearGrid) throws RuntimeException {
+    static public List<String> build(GridGeometry gridGeometry,
+                                     JSONObject zonesGeoJson) throws RuntimeException {
 
         // The GEOJson file contains a list of zones, with each zone defined by a further list of
         // polygons. Build the map that binds the ZoneId to every polygon defined within that Zone.
@@ -38,24 +36,6 @@ public class IndexToZoneIdMapBuilder {
         // Using the polygons, map each lat/lon from the reference dataset to a zone.
         ZoneLookUp zoneLookUp = new ZoneLookUp(zoneIdToPolygonsMap);
 
-        // Obtain the references to the lat/lon data.
-        logger.debug("Reading latitude variable.");
-        Array latitudeArray = null;
-        try {
-            latitudeArray = referenceDataset.getLatitudeVariable().read();
-        } catch (Throwable throwable) {
-            throw new RuntimeException("Failed to read latitude data from reference dataset.",
-                throwable);
-        }
-        logger.debug("Reading longitude variable.");
-        Array longitudeArray = null;
-        try {
-            longitudeArray = referenceDataset.getLongitudeVariable().read();
-        } catch (Throwable throwable) {
-            throw new RuntimeException("Failed to read longitude data from reference dataset.",
-                throwable);
-        }
-
         // Define the output variable that will map the index of the point to the corresponding
         // zone/region. Since we are using a List, the order of the list becomes the 'index', which
         // makes it vital that the order of the list does not change.
@@ -66,75 +46,39 @@ public class IndexToZoneIdMapBuilder {
         int inZoneCount = 0;
 
         logger.debug("Map to lat/lon - start");
-        // How we build the list depends on whether the grid is curvilinear or rectilinear.
-        if (isRectilinearGrid) {
-
-            logger.debug("Treating as a rectilinear grid.");
-
-            long latSize = latitudeArray.getSize();
-            logger.debug("latSize: " + latSize);
-            long lonSize = longitudeArray.getSize();
-            logger.debug("lonSize: " + lonSize);
-            final long total = latSize * lonSize;
-            logger.debug("total: " + total);
-            int index = 0;
-            for (int latIndex = 0; latIndex < latSize; latIndex++) {
-                double latitude = latitudeArray.getDouble(latIndex);
-                for (int lonIndex = 0; lonIndex < lonSize; lonIndex++) {
-                    double longitude = longitudeArray.getDouble(lonIndex);
-
-                    // Identify the zoneId for the lon/lat and add it to the output variable.
-                    String zoneId = zoneLookUp.findZoneId(longitude, latitude);
-                    indexToZoneIdMap.add(zoneId);
-
-                    // Calculate the statistics.
-                    if (zoneId == null) {
-                        noZoneCount++;
-                    } else {
-                        inZoneCount++;
-                    }
-
-                    // Write to logs for every 10,000 points.
-                    if (index % 10000 == 0) {
-                        logger.debug(index + " out of " + total + "; inZone: " + inZoneCount +
-                            "; noZone: " + noZoneCount);
-                    }
-                    index++;
-                }
+        logger.debug("Treating as a " + (gridGeometry.isRectilinear() ? "rectilinear" : "curvilinear") +
+            " grid.");
+
+        // Loop through every cell in the grid, identifying the zone the cell belongs to. The
+        // output is a List, but the order of the list identifying the order of the data points,
+        // so it is vital that the order is preserved. Cells without valid coordinates are outside
+        // of all zones.
+        final int total = gridGeometry.getCellCount();
+        logger.debug("total: " + total);
+        for (int index = 0; index < total; index++) {
+
+            // Identify the zoneId for the lon/lat of the cell and add it to the output variable.
+            String zoneId = null;
+            if (gridGeometry.isWet(index)) {
+                zoneId = zoneLookUp.findZoneId(
+                    gridGeometry.getCellLongitude(index),
+                    gridGeometry.getCellLatitude(index)
+                );
             }
+            indexToZoneIdMap.add(zoneId);
 
-        } else {
-
-            logger.debug("Treating as a curvilinear grid.");
-
-            // Loop through every point in the lat/lon arrays, identifying the zone the point belongs
-            // to. The output is a List, but the order of the list identifying the order of the
-            // data points, so it is vital that the order is preserved.
-            long size = longitudeArray.getSize();
-            for (int index = 0; index < size; index++) {
-
-                // Identify the longitude/latitude for the specific index.
-                double longitude = longitudeArray.getDouble(index);
-                double latitude = latitudeArray.getDouble(index);
-
-                // Identify the zoneId for the lon/lat and add it to the output variable.
-                String zoneId = zoneLookUp.findZoneId(longitude, latitude);
-                indexToZoneIdMap.add(zoneId);
-
-                // Calculate the statistics.
-                if (zoneId == null) {
-                    noZoneCount++;
-                } else {
-                    inZoneCount++;
-                }
-
-                // Write to logs for every 10,000 points.
-                if (index % 10000 == 0) {
-                    logger.debug(index + " out of " + size + "; inZone: " + inZoneCount +
-                        "; noZone: " + noZoneCount);
-                }
+            // Calculate the statistics.
+            if (zoneId == null) {
+                noZoneCount++;
+            } else {
+                inZoneCount++;
             }
 
+            // Write to logs for every 10,000 points.
+            if (index % 10000 == 0) {
+                logger.debug(index + " out of " + total + "; inZone: " + inZoneCount +
+                    "; noZone: " + noZoneCount);
+            }
         }
         logger.debug("Map to lat/lon - end");
         logger.debug("indexToZoneIdMap.size: " + indexToZoneIdMap.size());
@@ -0,0 +1,71 @@
+package aims.ereefs.netcdf.input.geojson;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class for writing/reading the map of cell index to zone built by
+ * {@link IndexToZoneIdMapBuilder} in a compact binary format. The distinct zone ids are written
+ * once, followed by the position of the zone id of each cell ({@code -1} for a cell outside all
+ * zones).
+ *
+ * @author Aaron Smith
+ */
+public class IndexToZoneIdMapSerialiser {
+
+    // The version of the format supported by this class.
+    static final public int FORMAT_VERSION = 1;
+
+    /**
+     * Write the map to the specified stream.
+     */
+    static public void write(List<String> indexToZoneIdMap,
+                             DataOutputStream outputStream) throws IOException {
+
+        // Identify the distinct zone ids.
+        final Map<String, Integer> zoneIdPositions = new LinkedHashMap<>();
+        for (String zoneId : indexToZoneIdMap) {
+            if (zoneId != null) {
+                zoneIdPositions.putIfAbsent(zoneId, zoneIdPositions.size());
+            }
+        }
+
+        outputStream.writeInt(FORMAT_VERSION);
+        outputStream.writeInt(zoneIdPositions.size());
+        for (String zoneId : zoneIdPositions.keySet()) {
+            outputStream.writeUTF(zoneId);
+        }
+        outputStream.writeInt(indexToZoneIdMap.size());
+        for (String zoneId : indexToZoneIdMap) {
+            outputStream.writeInt(zoneId != null ? zoneIdPositions.get(zoneId) : -1);
+        }
+    }
+
+    /**
+     * Read a map written by {@link #write(List, DataOutputStream)} from the specified stream.
+     */
+    static public List<String> read(DataInputStream inputStream) throws IOException {
+        final int version = inputStream.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new RuntimeException(
+                "Version not supported. Expected \"" + FORMAT_VERSION + "\" but found \"" + version + "\".");
+        }
+        final String[] zoneIds = new String[inputStream.readInt()];
+        for (int position = 0; position < zoneIds.length; position++) {
+            zoneIds[position] = inputStream.readUTF();
+        }
+        final int size = inputStream.readInt();
+        final List<String> indexToZoneIdMap = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            final int position = inputStream.readInt();
+            indexToZoneIdMap.add(position != -1 ? zoneIds[position] : null);
+        }
+        return indexToZoneIdMap;
+    }
+
+}
@@ -0,0 +1,242 @@
+package aims.ereefs.netcdf.input.netcdf;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.nc2.Variable;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Immutable description of the horizontal grid of the reference dataset, being the
+ * {@code latitude} and {@code longitude} values held as primitive arrays, the shape of the
+ * coordinate variables, whether the grid is rectilinear, a mask of the cells with valid
+ * coordinates, and a hash of the content.
+ * <p>
+ * A single instance is built on first use and shared via
+ * {@link aims.ereefs.netcdf.ApplicationContext#getGridGeometry()}, so the coordinate variables of
+ * the reference dataset are read once, rather than by each consumer.
+ *
+ * @author Aaron Smith
+ */
+public class GridGeometry {
+
+    final static protected String EXCEPTION_MESSAGE_NO_COORDINATES =
+        "Reference dataset does not have latitude and longitude variables.";
+
+    /**
+     * The {@code latitude} values, in the order of the coordinate variable.
+     */
+    final protected double[] latitudes;
+
+    /**
+     * The {@code longitude} values, in the order of the coordinate variable.
+     */
+    final protected double[] longitudes;
+
+    /**
+     * The shape of the {@code latitude} coordinate variable.
+     */
+    final protected int[] shape;
+
+    /**
+     * {@code true} if the {@code latitude} and {@code longitude} are one (1) dimensional axes, so
+     * the cells are the product of the axes (latitude then longitude). {@code false} if there is
+     * a {@code latitude} and {@code longitude} for every cell.
+     */
+    final protected boolean isRectilinear;
+
+    /**
+     * Flag for each cell indicating if both coordinates of the cell are valid (ie: not
+     * {@code NaN}), identifying the cells that can hold data.
+     */
+    final protected boolean[] wetMask;
+
+    /**
+     * Hex encoded {@code SHA-256} hash of the shape and coordinates, identifying the grid
+     * independent of the dataset it was read from.
+     */
+    final protected String contentHash;
+
+    protected GridGeometry(double[] latitudes, double[] longitudes, int[] shape, boolean isRectilinear) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.shape = shape;
+        this.isRectilinear = isRectilinear;
+        this.wetMask = this.buildWetMask();
+        this.contentHash = this.buildContentHash();
+    }
+
+    /**
+     * Factory method to read the {@link GridGeometry} from the coordinate variables of the
+     * specified {@link InputDataset}.
+     */
+    static public GridGeometry make(InputDataset referenceDataset) {
+        final Variable latitudeVariable = referenceDataset.getLatitudeVariable();
+        final Variable longitudeVariable = referenceDataset.getLongitudeVariable();
+        if ((latitudeVariable == null) || (longitudeVariable == null)) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_NO_COORDINATES);
+        }
+        try {
+            return make(latitudeVariable.read(), longitudeVariable.read());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read coordinates from reference dataset.", e);
+        }
+    }
+
+    /**
+     * Factory method to build a {@link GridGeometry} from the specified coordinate arrays.
+     */
+    static public GridGeometry make(Array latitudeArray, Array longitudeArray) {
+        return new GridGeometry(
+            toDoubleArray(latitudeArray),
+            toDoubleArray(longitudeArray),
+            latitudeArray.getShape(),
+            latitudeArray.getRank() == 1 && longitudeArray.getRank() == 1
+        );
+    }
+
+    static protected double[] toDoubleArray(Array array) {
+        final double[] values = new double[(int) array.getSize()];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = array.getDouble(index);
+        }
+        return values;
+    }
+
+    /**
+     * The number of values in the {@code latitude} coordinate variable.
+     */
+    public int getLatitudeCount() {
+        return this.latitudes.length;
+    }
+
+    /**
+     * The number of values in the {@code longitude} coordinate variable.
+     */
+    public int getLongitudeCount() {
+        return this.longitudes.length;
+    }
+
+    /**
+     * Returns the value at the specified index of the {@code latitude} coordinate variable.
+     */
+    public double getLatitude(int index) {
+        return this.latitudes[index];
+    }
+
+    /**
+     * Returns the value at the specified index of the {@code longitude} coordinate variable.
+     */
+    public double getLongitude(int index) {
+        return this.longitudes[index];
+    }
+
+    /**
+     * Returns a copy of the {@code latitude} coordinate variable as an {@code Array}.
+     */
+    public Array getLatitudeArray() {
+        return Array.factory(DataType.DOUBLE, this.shape, this.latitudes.clone());
+    }
+
+    /**
+     * Returns a copy of the {@code longitude} coordinate variable as an {@code Array}.
+     */
+    public Array getLongitudeArray() {
+        final int[] longitudeShape = this.isRectilinear ? new int[]{this.longitudes.length} : this.shape;
+        return Array.factory(DataType.DOUBLE, longitudeShape, this.longitudes.clone());
+    }
+
+    /**
+     * Returns the {@code latitude} of the specified cell, in the order of the data arrays. For a
+     * rectilinear grid, the cells are ordered by latitude and then longitude.
+     */
+    public double getCellLatitude(int cellIndex) {
+        return this.isRectilinear ?
+            this.latitudes[cellIndex / this.longitudes.length] :
+            this.latitudes[cellIndex];
+    }
+
+    /**
+     * Returns the {@code longitude} of the specified cell, in the order of the data arrays. For a
+     * rectilinear grid, the cells are ordered by latitude and then longitude.
+     */
+    public double getCellLongitude(int cellIndex) {
+        return this.isRectilinear ?
+            this.longitudes[cellIndex % this.longitudes.length] :
+            this.longitudes[cellIndex];
+    }
+
+    public int[] getShape() {
+        return this.shape.clone();
+    }
+
+    public boolean isRectilinear() {
+        return this.isRectilinear;
+    }
+
+    /**
+     * Returns the number of cells in the grid.
+     */
+    public int getCellCount() {
+        return this.wetMask.length;
+    }
+
+    /**
+     * Returns {@code true} if both coordinates of the specified cell are valid.
+     */
+    public boolean isWet(int cellIndex) {
+        return this.wetMask[cellIndex];
+    }
+
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
+    protected boolean[] buildWetMask() {
+        if (this.isRectilinear) {
+            final boolean[] mask = new boolean[this.latitudes.length * this.longitudes.length];
+            int cellIndex = 0;
+            for (double latitude : this.latitudes) {
+                for (double longitude : this.longitudes) {
+                    mask[cellIndex++] = !Double.isNaN(latitude) && !Double.isNaN(longitude);
+                }
+            }
+            return mask;
+        }
+        final boolean[] mask = new boolean[this.latitudes.length];
+        for (int cellIndex = 0; cellIndex < mask.length; cellIndex++) {
+            mask[cellIndex] = !Double.isNaN(this.latitudes[cellIndex]) &&
+                !Double.isNaN(this.longitudes[cellIndex]);
+        }
+        return mask;
+    }
+
+    protected String buildContentHash() {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to hash grid geometry.", e);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(
+            Integer.BYTES * (this.shape.length + 1) +
+                Double.BYTES * (this.latitudes.length + this.longitudes.length)
+        );
+        buffer.putInt(this.shape.length);
+        for (int dimensionLength : this.shape) {
+            buffer.putInt(dimensionLength);
+        }
+        for (double latitude : this.latitudes) {
+            buffer.putDouble(latitude);
+        }
+        for (double longitude : this.longitudes) {
+            buffer.putDouble(longitude);
+        }
+        return DatatypeConverter.printHexBinary(messageDigest.digest(buffer.array())).toLowerCase();
+    }
+
+}
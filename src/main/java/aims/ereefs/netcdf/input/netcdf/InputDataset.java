@@ -145,6 +145,23 @@ public class InputDataset implements AutoCloseable {
         return null;
     }
 
+    /**
+     * Index of the {@link #getVariables() variables} by short name, used by
+     * {@link #findVariable(String)}. Where short names are repeated, the first variable is
+     * indexed.
+     */
+    protected Map<String, Variable> variablesByShortName = new HashMap<String, Variable>();
+
+    /**
+     * Optional callback invoked once the {@link #dataset} is closed (eg: to unpin the underlying
+     * file in the {@code FileCache}).
+     */
+    protected Runnable closeListener;
+
+    public void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
+    }
+
     /**
      * Constructor.
      */
@@ -168,12 +185,16 @@ public class InputDataset implements AutoCloseable {
         inputDataset.timeDimension = timeDimension;
         inputDataset.selectedDepthsByDimension.putAll(selectedDepthsByDimension);
         inputDataset.selectedDepthToIndexMapByDimension.putAll(selectedDepthToIndexMapByDimension);
+        for (Variable variable : dataset.getVariables()) {
+            inputDataset.variablesByShortName.putIfAbsent(variable.getShortName(), variable);
+        }
 
         return inputDataset;
     }
 
     /**
-     * Find the variable with a matching <code>shortName</code> from {@link #getVariables()}.
+     * Find the variable with a matching <code>shortName</code> from {@link #getVariables()}, using
+     * the {@link #variablesByShortName} index.
      * <p>
      * This method throws a RuntimeException if the variable is not found as that is an error
      * with the coding.
@@ -183,12 +204,7 @@ public class InputDataset implements AutoCloseable {
      * @throws RuntimeException if a <code>Variable</code> is not found.
      */
     public Variable findVariable(String shortName) throws RuntimeException {
-        for (Variable variable : this.getVariables()) {
-            if (variable.getShortName().equals(shortName)) {
-                return variable;
-            }
-        }
-        return null;
+        return this.variablesByShortName.get(shortName);
     }
 
     /**
@@ -254,7 +270,8 @@ public class InputDataset implements AutoCloseable {
     }
 
     /**
-     * Close the underlying {@link #dataset} and clear the reference.
+     * Close the underlying {@link #dataset} and clear the reference, then invoke the
+     * {@link #closeListener} if any.
      */
     public void close() {
         try {
@@ -262,6 +279,12 @@ public class InputDataset implements AutoCloseable {
             this.dataset = null;
         } catch (IOException e) {
             throw new RuntimeException("Failed to close dataset.", e);
+        } finally {
+            if (this.closeListener != null) {
+                final Runnable closeListener = this.closeListener;
+                this.closeListener = null;
+                closeListener.run();
+            }
         }
     }
 
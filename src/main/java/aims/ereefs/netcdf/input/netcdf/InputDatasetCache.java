@@ -3,7 +3,6 @@ package aims.ereefs.netcdf.input.netcdf;
 
 import aims.ereefs.netcdf.util.file.cache.FileCache;
 import au.gov.aims.ereefs.pojo.metadata.Metadata;
-import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
 import au.gov.aims.ereefs.pojo.metadata.NetCDFMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,13 +15,16 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@link InputDataset}-specific {@code proxy cache} of the {@link #fileCache central cache}.
  * Datasets are requested via their unique {@code metadataId}, which this {@code cache} uses to
- * retrieve the {@link Metadata} record via the {@link MetadataDao} interface to identify the
+ * retrieve the {@link Metadata} record from the {@link MetadataCache} to identify the
  * location of the dataset to be retrieved. Actual retrieval and caching is delegated to
- * {@link #fileCache}.
+ * {@link #fileCache}. The file of each {@link InputDataset} is pinned in the {@link #fileCache}
+ * until the {@link InputDataset} is closed, so it cannot be deleted while still being read.
  *
  * @author Aaron Smith
  */
@@ -30,7 +32,7 @@ public class InputDatasetCache {
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    protected MetadataDao metadataDao;
+    protected MetadataCache metadataCache;
     protected List<Double> specifiedDepths = new ArrayList<>();
 
     /**
@@ -47,19 +49,20 @@ public class InputDatasetCache {
 
     /**
      * Historical list of dataset {@code IDs} used to ensure the {@link InputDatasetBuilder} logs
-     * the dataset depths only once.
+     * the dataset depths only once. Concurrent, as datasets may be retrieved from several
+     * {@code Threads}.
      */
-    protected List<String> historicalIds = new ArrayList<>();
+    protected Set<String> historicalIds = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructor to capture the parameters.
      */
     public InputDatasetCache(FileCache fileCache,
-                             MetadataDao metdataDao,
+                             MetadataCache metadataCache,
                              double[] specifiedDepths,
                              Map<String, List<String>> datasetMetadataIdsByInputIdMap) {
         this.fileCache = fileCache;
-        this.metadataDao = metdataDao;
+        this.metadataCache = metadataCache;
         this.datasetMetadataIdsByInputIdMap = datasetMetadataIdsByInputIdMap;
 
         // Convert the depths from String to Double.
@@ -77,8 +80,8 @@ public class InputDatasetCache {
      */
     public InputDataset retrieve(String metadataId) {
 
-        // Retrieve the metadata record from the database.
-        final Metadata retrievedMetadata = this.metadataDao.getById(metadataId);
+        // Retrieve the metadata record prefetched from the database.
+        final Metadata retrievedMetadata = this.metadataCache.getById(metadataId);
         if (retrievedMetadata == null) {
             throw new RuntimeException("Metadata record not found for " + metadataId);
         }
@@ -86,13 +89,16 @@ public class InputDatasetCache {
         // Typecast to NetCDFMetadata, failing immediately if wrong type.
         final NetCDFMetadata metadata = (NetCDFMetadata) retrievedMetadata;
 
-        // Retrieve the file from the cache.
+        // Retrieve the file from the cache, pinning it until the InputDataset is closed.
         final String url = metadata.getFileURI();
-        File localFile = this.fileCache.retrieve(url, metadata.getChecksum());
+        File localFile = this.fileCache.retrieveAndPin(url, metadata.getChecksum());
 
         // Stop processing if the file was not downloaded, because we don't know what
         // impact a missing input file will have.
         if ((localFile == null) || !localFile.exists()) {
+            if (localFile != null) {
+                this.fileCache.unpin(url);
+            }
             throw new RuntimeException(
                 "Failed to download input file \"" + metadata.getFileURI() + "\".");
         } else {
@@ -119,23 +125,30 @@ public class InputDatasetCache {
                 );
                 NetcdfDataset.disableNetcdfFileCache();
             } catch (IOException e) {
+                this.fileCache.unpin(url);
                 String msg = "Failed to open the dataset \"" + metadataId + "\".";
                 this.logger.error(msg, e);
                 throw new RuntimeException(msg, e);
             }
 
             // Should the depths be listed when the dataset is built?
-            boolean showDepths = !this.historicalIds.contains(metadataId);
-            if (showDepths) {
-                this.historicalIds.add(metadataId);
-            }
+            boolean showDepths = this.historicalIds.add(metadataId);
 
-            // Wrap the NetCDF dataset as an InputDataset for additional functionality.
-            return InputDatasetBuilder.build(
-                dataset,
-                this.specifiedDepths,
-                showDepths
-            );
+            // Wrap the NetCDF dataset as an InputDataset for additional functionality, unpinning
+            // the file when it is closed.
+            final InputDataset inputDataset;
+            try {
+                inputDataset = InputDatasetBuilder.build(
+                    dataset,
+                    this.specifiedDepths,
+                    showDepths
+                );
+            } catch (RuntimeException e) {
+                this.fileCache.unpin(url);
+                throw e;
+            }
+            inputDataset.setCloseListener(() -> this.fileCache.unpin(url));
+            return inputDataset;
 
         }
 
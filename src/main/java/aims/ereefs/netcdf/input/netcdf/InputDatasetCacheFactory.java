@@ -19,16 +19,37 @@ public class InputDatasetCacheFactory {
 
     static protected Logger logger = LoggerFactory.getLogger(InputDatasetCacheFactory.class);
 
+    /**
+     * Instantiate a {@link InputDatasetCache} that retrieves the {@code Metadata} of each dataset
+     * from the {@link MetadataCache}.
+     */
     static public InputDatasetCache make(FileCache fileCache,
-                                         MetadataDao metadataDao,
+                                         MetadataCache metadataCache,
                                          NcAggregateProductDefinition productDefinition,
                                          Map<String, List<String>> datasetMetadataIdsByInputIdMap) {
 
         return new InputDatasetCache(
             fileCache,
-            metadataDao,
+            metadataCache,
             productDefinition.getAction().getDepths(),
             datasetMetadataIdsByInputIdMap
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Instantiate a {@link InputDatasetCache}, first prefetching the {@code Metadata} of each
+     * dataset from the {@link MetadataDao}.
+     */
+    static public InputDatasetCache make(FileCache fileCache,
+                                         MetadataDao metadataDao,
+                                         NcAggregateProductDefinition productDefinition,
+                                         Map<String, List<String>> datasetMetadataIdsByInputIdMap) {
+        return make(
+            fileCache,
+            MetadataCache.prefetch(metadataDao, datasetMetadataIdsByInputIdMap),
+            productDefinition,
+            datasetMetadataIdsByInputIdMap
+        );
+    }
+
+}
@@ -0,0 +1,185 @@
+package aims.ereefs.netcdf.input.netcdf;
+
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable, in-memory map of the {@link Metadata} records of every dataset referenced by a
+ * {@code Task}, {@link #prefetch(MetadataDao, Map) prefetched} from the {@link MetadataDao} when
+ * the {@code ApplicationContext} is built. Consumers (eg: {@link InputDatasetCache}) retrieve
+ * {@link Metadata} from this class rather than the {@link MetadataDao}, so each record is
+ * retrieved from the database once, rather than every time a dataset is opened.
+ * <p>
+ * The records are retrieved in batches, one (1) per {@code Thread}, with the number of
+ * {@code Threads} set by the {@code METADATA_PREFETCH_PARALLELISM} environment variable,
+ * defaulting to {@link #DEFAULT_PREFETCH_PARALLELISM}. A {@code metadataId} that was not
+ * prefetched is retrieved from the {@link MetadataDao}, but not added to the map.
+ *
+ * @author Aaron Smith
+ */
+public class MetadataCache {
+
+    static protected Logger logger = LoggerFactory.getLogger(MetadataCache.class);
+
+    final static protected int DEFAULT_PREFETCH_PARALLELISM = 1;
+
+    /**
+     * The prefetched {@link Metadata} records, by {@code metadataId}. A {@code null} value
+     * identifies a {@code metadataId} that does not exist in the database.
+     */
+    final protected Map<String, Metadata> metadataById;
+
+    /**
+     * The {@link MetadataDao} used for {@code metadataId}s that were not prefetched.
+     */
+    final protected MetadataDao metadataDao;
+
+    /**
+     * Constructor to capture the parameters.
+     */
+    public MetadataCache(MetadataDao metadataDao, Map<String, Metadata> metadataById) {
+        this.metadataDao = metadataDao;
+        this.metadataById = Collections.unmodifiableMap(new HashMap<>(metadataById));
+    }
+
+    /**
+     * Factory method to prefetch the {@link Metadata} of every {@code metadataId} in the
+     * {@code datasetMetadataIdsByInputIdMap}.
+     */
+    static public MetadataCache prefetch(MetadataDao metadataDao,
+                                         Map<String, List<String>> datasetMetadataIdsByInputIdMap) {
+        final Collection<String> metadataIds = new LinkedHashSet<>();
+        if (datasetMetadataIdsByInputIdMap != null) {
+            for (List<String> inputMetadataIds : datasetMetadataIdsByInputIdMap.values()) {
+                metadataIds.addAll(inputMetadataIds);
+            }
+        }
+        return prefetch(metadataDao, metadataIds, getPrefetchParallelism());
+    }
+
+    /**
+     * Factory method to prefetch the {@link Metadata} of the distinct {@code metadataIds},
+     * retrieving at most {@code parallelism} records concurrently.
+     */
+    static public MetadataCache prefetch(MetadataDao metadataDao,
+                                         Collection<String> metadataIds,
+                                         int parallelism) {
+        final List<String> distinctMetadataIds = new ArrayList<>(new LinkedHashSet<>(metadataIds));
+        final Map<String, Metadata> metadataById = new HashMap<>();
+        if (distinctMetadataIds.isEmpty()) {
+            return new MetadataCache(metadataDao, metadataById);
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final int threadCount = Math.max(1, Math.min(parallelism, distinctMetadataIds.size()));
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "MetadataCache.prefetch")) {
+            span.arg("count", distinctMetadataIds.size());
+            if (threadCount == 1) {
+                metadataById.putAll(fetch(metadataDao, distinctMetadataIds));
+            } else {
+
+                // Split the metadataIds into one (1) batch per Thread.
+                final int batchSize = (distinctMetadataIds.size() + threadCount - 1) / threadCount;
+                final AtomicInteger threadCounter = new AtomicInteger();
+                final ExecutorService executorService = Executors.newFixedThreadPool(
+                    threadCount,
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "metadata-prefetch-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                );
+                try {
+                    final List<Future<Map<String, Metadata>>> futures = new ArrayList<>();
+                    for (int fromIndex = 0; fromIndex < distinctMetadataIds.size(); fromIndex += batchSize) {
+                        final List<String> batch = distinctMetadataIds.subList(
+                            fromIndex,
+                            Math.min(fromIndex + batchSize, distinctMetadataIds.size())
+                        );
+                        futures.add(executorService.submit(() -> fetch(metadataDao, batch)));
+                    }
+                    for (Future<Map<String, Metadata>> future : futures) {
+                        metadataById.putAll(future.get());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while prefetching metadata.", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException("Failed to prefetch metadata.", e.getCause());
+                } finally {
+                    executorService.shutdownNow();
+                }
+            }
+        }
+        logger.info("Prefetched " + metadataById.size() + " metadata records in " +
+            (System.currentTimeMillis() - startTime) + " ms (parallelism: " + threadCount + ").");
+        return new MetadataCache(metadataDao, metadataById);
+    }
+
+    /**
+     * Retrieve the {@link Metadata} of each {@code metadataId} from the {@link MetadataDao}.
+     */
+    static protected Map<String, Metadata> fetch(MetadataDao metadataDao, List<String> metadataIds) {
+        final Map<String, Metadata> metadataById = new HashMap<>();
+        for (String metadataId : metadataIds) {
+            metadataById.put(metadataId, metadataDao.getById(metadataId));
+        }
+        return metadataById;
+    }
+
+    /**
+     * Returns the {@link Metadata} bound to the {@code metadataId}, retrieving it from the
+     * {@link MetadataDao} if it was not prefetched. Returns {@code null} if the {@link Metadata}
+     * does not exist.
+     */
+    public Metadata getById(String metadataId) {
+        if (this.metadataById.containsKey(metadataId)) {
+            return this.metadataById.get(metadataId);
+        }
+        logger.debug("Metadata \"" + metadataId + "\" not prefetched.");
+        return this.metadataDao != null ? this.metadataDao.getById(metadataId) : null;
+    }
+
+    /**
+     * Returns {@code true} if the {@link Metadata} of the {@code metadataId} was prefetched.
+     */
+    public boolean contains(String metadataId) {
+        return this.metadataById.containsKey(metadataId);
+    }
+
+    /**
+     * Returns the number of prefetched {@code metadataId}s.
+     */
+    public int size() {
+        return this.metadataById.size();
+    }
+
+    /**
+     * Returns the number of {@link Metadata} records that can be retrieved concurrently.
+     */
+    static protected int getPrefetchParallelism() {
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("METADATA_PREFETCH_PARALLELISM");
+        return parallelismStr != null ? Integer.parseInt(parallelismStr) : DEFAULT_PREFETCH_PARALLELISM;
+    }
+
+}
@@ -3,7 +3,12 @@ package aims.ereefs.netcdf.metadata.populate;
 import aims.ereefs.netcdf.ApplicationContext;
 import aims.ereefs.netcdf.ApplicationContextBuilder;
 import aims.ereefs.netcdf.OperationModeExecutor;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import au.gov.aims.ereefs.Utils;
 import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.metadata.NetCDFMetadata;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,11 +16,28 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Implements the {@link OperationModeExecutor} interface for populating the database with the
  * {@code Metadata} of specified NetCDF files from the command-line.
+ * <p>
+ * Files are scanned concurrently by a bounded pool of {@code Threads}
+ * ({@code --parallelism=<n>} or the {@code POPULATE_METADATA_PARALLELISM} environment variable,
+ * defaulting to {@link #DEFAULT_PARALLELISM}), while the resulting {@code Metadata} is persisted
+ * in batches ({@code --batch-size=<n>}) by the coordinating {@code Thread}, so the {@code DAO} is
+ * only used from a single {@code Thread}. A file is skipped if its {@code Metadata} already exists
+ * with the same checksum. Progress and throughput are logged periodically.
  *
  * @author Aaron Smith
  */
@@ -23,6 +45,48 @@ public class PopulateMetadataOperationModeExecutor implements OperationModeExecu
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    final static protected int DEFAULT_PARALLELISM = 1;
+
+    final static protected int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Minimum time between progress reports.
+     */
+    final static protected long PROGRESS_INTERVAL_MILLIS = 10 * 1000;
+
+    /**
+     * The outcome of scanning a single file.
+     */
+    static protected class Result {
+
+        protected File file;
+
+        /**
+         * The {@code Metadata} to persist, or {@code null} if the file was skipped or failed.
+         */
+        protected NetCDFMetadataBean metadata = null;
+
+        protected boolean isSkipped = false;
+
+        protected Result(File file) {
+            this.file = file;
+        }
+
+    }
+
+    /**
+     * The number of files persisted, skipped as unchanged, and failed.
+     */
+    static protected class Summary {
+
+        protected int persistedCount = 0;
+
+        protected int skippedCount = 0;
+
+        protected int failedCount = 0;
+
+    }
+
     /**
      * Return {@code true} if {@code args} contains {@code --populate-metadata}.
      */
@@ -41,6 +105,10 @@ public class PopulateMetadataOperationModeExecutor implements OperationModeExecu
         // Capture the command line arguments.
         String inputPath = null;
         String definitionId = null;
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("POPULATE_METADATA_PARALLELISM");
+        int parallelism = parallelismStr != null ?
+            Integer.parseInt(parallelismStr) : DEFAULT_PARALLELISM;
+        int batchSize = DEFAULT_BATCH_SIZE;
         for (final String arg : args) {
 
             if (arg.startsWith("--input=")) {
@@ -53,6 +121,14 @@ public class PopulateMetadataOperationModeExecutor implements OperationModeExecu
                 logger.debug("Found: \"definitionId\" : " + definitionId);
             }
 
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+
+            if (arg.startsWith("--batch-size=")) {
+                batchSize = Integer.parseInt(arg.substring("--batch-size=".length()));
+            }
+
         }
         if (inputPath == null) {
             throw new RuntimeException("Input path not specified. Use \"--input=<input path>\"");
@@ -60,6 +136,12 @@ public class PopulateMetadataOperationModeExecutor implements OperationModeExecu
         if (definitionId == null) {
             throw new RuntimeException("Definition Id not specified. Use \"--definitionId=<id>\"");
         }
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be at least 1.");
+        }
+        if (batchSize < 1) {
+            throw new RuntimeException("Batch size must be at least 1.");
+        }
 
         // Build the ApplicationContext, containing references to properties, helpers and utilities
         // that are static throughout the entire life of the application, but need to be accessed
@@ -72,29 +154,163 @@ public class PopulateMetadataOperationModeExecutor implements OperationModeExecu
         if (!path.exists()) {
             throw new RuntimeException("\"" + inputPath + "\" does not exist.");
         }
-        File[] files = path.listFiles();
-        logger.debug("\"" + inputPath + "\" has " + files.length + " files.");
+        final List<File> files = Arrays.stream(path.listFiles())
+            .filter(File::isFile)
+            .sorted(Comparator.comparing(File::getName))
+            .collect(Collectors.toList());
+        logger.info("\"" + inputPath + "\" has " + files.size() + " files. Parallelism: " + parallelism +
+            ", batch size: " + batchSize + ".");
 
-        // Process each file.
-        for (File file : files) {
-            logger.debug(file.getAbsolutePath());
-            String uriStr = "file:" + file.getPath().replace("\\", "/");
-            try {
+        try {
+            final Summary summary = this.populate(applicationContext, definitionId, files, parallelism, batchSize);
+            if (summary.failedCount > 0) {
+                throw new RuntimeException(summary.failedCount + " of " + files.size() + " files failed.");
+            }
+            logger.info("Metadata populated: " + summary.persistedCount + " persisted, " +
+                summary.skippedCount + " unchanged.");
+        } finally {
+
+            // Close the connection to the database.
+            if (applicationContext.getMongoClient() != null) {
+                applicationContext.getMongoClient().close();
+            }
+        }
+    }
 
-                // Use the library to populate the Metadata object.
-                NetCDFMetadataBean metadata = NetCDFMetadataBean.create(
+    /**
+     * Populate the {@code Metadata} of the files, skipping those whose existing {@code Metadata}
+     * has the same checksum.
+     */
+    protected Summary populate(ApplicationContext applicationContext,
+                               String definitionId,
+                               List<File> files,
+                               int parallelism,
+                               int batchSize) {
+
+        // Retrieve the existing Metadata of every file at once, to identify unchanged files.
+        final MetadataCache existingMetadataCache = MetadataCache.prefetch(
+            applicationContext.getMetadataDao(),
+            files.stream()
+                .map(file -> NetCDFMetadataBean.getUniqueDatasetId(definitionId, file.getName()))
+                .collect(Collectors.toList()),
+            parallelism
+        );
+
+        // Scan the files concurrently, persisting the Metadata in batches as files complete.
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            parallelism,
+            runnable -> {
+                final Thread thread = new Thread(runnable, "populate-metadata-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        final CompletionService<Result> completionService = new ExecutorCompletionService<>(executorService);
+        final List<NetCDFMetadataBean> batch = new ArrayList<>();
+        final Summary summary = new Summary();
+        long processedBytes = 0;
+        final long startTime = System.currentTimeMillis();
+        long lastProgressTime = startTime;
+        try {
+            for (final File file : files) {
+                completionService.submit(() -> this.scan(
                     definitionId,
-                    file.getName(),
-                    new URI(uriStr),
                     file,
-                    DateTime.now().getMillis()
-                );
+                    existingMetadataCache.getById(NetCDFMetadataBean.getUniqueDatasetId(definitionId, file.getName()))
+                ));
+            }
+            for (int completedCount = 1; completedCount <= files.size(); completedCount++) {
+                final Result result;
+                try {
+                    result = completionService.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Metadata population interrupted.", e);
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Metadata population failed.", e.getCause());
+                }
+                processedBytes += result.file.length();
+                if (result.isSkipped) {
+                    summary.skippedCount++;
+                } else if (result.metadata == null) {
+                    summary.failedCount++;
+                } else {
+                    batch.add(result.metadata);
+                    if (batch.size() >= batchSize) {
+                        summary.persistedCount += this.persist(applicationContext, batch);
+                    }
+                }
+
+                // Report progress periodically, and on completion.
+                final long now = System.currentTimeMillis();
+                if ((now - lastProgressTime >= PROGRESS_INTERVAL_MILLIS) || (completedCount == files.size())) {
+                    lastProgressTime = now;
+                    final double elapsedSeconds = Math.max(now - startTime, 1) / 1000.0;
+                    logger.info(String.format(
+                        "Processed %d of %d files (updated: %d, unchanged: %d, failed: %d) in %.1f s: " +
+                            "%.2f files/s, %.2f MB/s.",
+                        completedCount, files.size(), summary.persistedCount + batch.size(), summary.skippedCount,
+                        summary.failedCount, elapsedSeconds, completedCount / elapsedSeconds,
+                        processedBytes / (1024.0 * 1024.0) / elapsedSeconds
+                    ));
+                }
+            }
+            summary.persistedCount += this.persist(applicationContext, batch);
+        } finally {
+            executorService.shutdownNow();
+        }
+        return summary;
+    }
 
-                // Persist the Metadata object.
-                applicationContext.getMetadataDao().persist(metadata.toJSON());
-            } catch (URISyntaxException e) {
-                e.printStackTrace();
+    /**
+     * Build the {@code Metadata} of the file, unless the {@code existingMetadata} has the same
+     * checksum as the file. A failure is logged rather than thrown, so other files are still
+     * processed.
+     */
+    protected Result scan(String definitionId, File file, Metadata existingMetadata) {
+        final Result result = new Result(file);
+        try {
+            if (existingMetadata instanceof NetCDFMetadata) {
+                final String checksum = String.format("%s:%s", "MD5", Utils.checksum(file, "MD5"));
+                if (checksum.equalsIgnoreCase(((NetCDFMetadata) existingMetadata).getChecksum())) {
+                    logger.debug("Unchanged: " + file.getAbsolutePath());
+                    result.isSkipped = true;
+                    return result;
+                }
             }
+
+            // Use the library to populate the Metadata object.
+            logger.debug(file.getAbsolutePath());
+            result.metadata = NetCDFMetadataBean.create(
+                definitionId,
+                file.getName(),
+                new URI("file:" + file.getPath().replace("\\", "/")),
+                file,
+                DateTime.now().getMillis()
+            );
+        } catch (URISyntaxException e) {
+            logger.error("Invalid filename \"" + file.getAbsolutePath() + "\".", e);
+        } catch (Exception e) {
+            logger.error("Failed to populate metadata of \"" + file.getAbsolutePath() + "\".", e);
         }
+        return result;
     }
+
+    /**
+     * Persist the batch of {@code Metadata}, returning the number persisted and clearing the
+     * batch.
+     */
+    protected int persist(ApplicationContext applicationContext, List<NetCDFMetadataBean> batch) {
+        final int count = batch.size();
+        for (NetCDFMetadataBean metadata : batch) {
+            applicationContext.getMetadataDao().persist(metadata.toJSON());
+        }
+        batch.clear();
+        if (count > 0) {
+            logger.debug("Persisted " + count + " metadata records.");
+        }
+        return count;
+    }
+
 }
@@ -1,9 +1,9 @@
 package aims.ereefs.netcdf.output.netcdf;
 
 import aims.ereefs.netcdf.aggregator.AggregationPeriods;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.metadata.Metadata;
-import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
 import au.gov.aims.ereefs.pojo.metadata.NetCDFMetadata;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
 import au.gov.aims.ereefs.pojo.utils.DateTimeUtils;
@@ -51,7 +51,7 @@ public class GlobalAttributesPopulator {
                                 NcAggregateTask task,
                                 NcAggregateProductDefinition productDefinition,
                                 Map<String, List<String>> datasetMetadataIdsByInputIdMap,
-                                MetadataDao metadataDao,
+                                MetadataCache metadataCache,
                                 AggregationPeriods aggregationPeriod) {
 
         // The temporary cache for building the list of global attributes.
@@ -67,7 +67,7 @@ public class GlobalAttributesPopulator {
 
             // Loop through each dataset for the input type.
             for (final String metadataId : datasetMetadataIdsByInputIdMap.get(inputId)) {
-                final Metadata metadata = metadataDao.getById(metadataId);
+                final Metadata metadata = metadataCache.getById(metadataId);
 
                 // Add the dataset to the list if it represents a NetCDF file.
                 if (metadata instanceof NetCDFMetadata) {
@@ -96,7 +96,7 @@ public class GlobalAttributesPopulator {
 
                 // Use the first dataset for the input type.
                 final String datasetMetadataId = datasetMetadataIds.get(0);
-                final Metadata metadata = metadataDao.getById(datasetMetadataId);
+                final Metadata metadata = metadataCache.getById(datasetMetadataId);
                 if (metadata instanceof NetCDFMetadata) {
                     final NetCDFMetadata referenceDatasetMetadata = (NetCDFMetadata) metadata;
 
@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf.output.netcdf;
 
-import io.prometheus.client.Gauge;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.nc2.*;
@@ -10,6 +11,10 @@ import java.util.List;
 
 /**
  * A simplifying layer around the output Netcdf data file.
+ * <p>
+ * The underlying <code>NetcdfFileWriter</code> is not thread-safe, so the methods that access it
+ * after definition are synchronised on this instance. Callers needing several operations to occur
+ * without interleaving (eg: all variables of a time slice) can also synchronise on this instance.
  *
  * @see #writer
  *
@@ -17,13 +22,14 @@ import java.util.List;
  */
 public class OutputDataset {
 
-    protected static final Gauge apmDatasetWriteBytes = Gauge.build()
+    protected static final Counter apmDatasetWriteBytes = Counter.build()
         .name("ncaggregate_dataset_write_bytes")
         .help("Total size (bytes) of data written to a NetCDF dataset.")
         .register();
-    protected static final Gauge apmDatasetWriteDuration = Gauge.build()
+    protected static final Histogram apmDatasetWriteDuration = Histogram.build()
         .name("ncaggregate_dataset_write_duration_seconds")
         .help("Time taken (seconds) to write data to a NetCDF dataset.")
+        .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10)
         .register();
 
 
@@ -93,7 +99,7 @@ public class OutputDataset {
     /**
      * Wrap the <code>close</code> method of the {@link #writer}.
      */
-    public void close() {
+    synchronized public void close() {
         try {
             this.writer.close();
         } catch (IOException e) {
@@ -104,7 +110,7 @@ public class OutputDataset {
     /**
      * Wrap the <code>flush</code> method of the {@link #writer}.
      */
-    public void flush() {
+    synchronized public void flush() {
         try {
             this.writer.flush();
         } catch (IOException e) {
@@ -115,11 +121,11 @@ public class OutputDataset {
     /**
      * Wrap the <code>write</code> method of the {@link #writer}.
      */
-    public void write(Variable variable, Array array) {
+    synchronized public void write(Variable variable, Array array) {
         try {
-            Gauge.Timer durationTimer = apmDatasetWriteDuration.startTimer();
+            Histogram.Timer durationTimer = apmDatasetWriteDuration.startTimer();
             this.writer.write(variable, array);
-            durationTimer.setDuration();
+            durationTimer.observeDuration();
             apmDatasetWriteBytes.inc(array.getDataType().getSize() * array.getSize());
         } catch(Throwable t) {
             new RuntimeException("Failed to write the data for variable \"" +
@@ -130,11 +136,11 @@ public class OutputDataset {
     /**
      * Wrap the <code>write</code> method of the {@link #writer}.
      */
-    public void write(Variable variable, int[] offset, Array array) {
+    synchronized public void write(Variable variable, int[] offset, Array array) {
         try {
-            Gauge.Timer durationTimer = apmDatasetWriteDuration.startTimer();
+            Histogram.Timer durationTimer = apmDatasetWriteDuration.startTimer();
             this.writer.write(variable, offset, array);
-            durationTimer.setDuration();
+            durationTimer.observeDuration();
             apmDatasetWriteBytes.inc(array.getDataType().getSize() * array.getSize());
         } catch(Throwable t) {
             new RuntimeException("Failed to write the data for variable \"" +
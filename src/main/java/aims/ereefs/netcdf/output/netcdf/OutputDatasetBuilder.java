@@ -3,17 +3,19 @@ package aims.ereefs.netcdf.output.netcdf;
 import aims.ereefs.netcdf.ApplicationContext;
 import aims.ereefs.netcdf.aggregator.AggregationPeriods;
 import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
 import aims.ereefs.netcdf.regrid.RegularGridMapper;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
-import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.nc2.Dimension;
 import ucar.nc2.Group;
 import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -39,7 +41,7 @@ public class OutputDatasetBuilder {
                                       AggregationPeriods aggregationPeriods,
                                       List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorDefinitionList,
                                       Map<String, List<String>> datasetMetadataIdsByInputIdMap,
-                                      MetadataDao metadataDao) {
+                                      MetadataCache metadataCache) {
 
 
         // Grab a reference to the temporary "local" file.
@@ -96,7 +98,7 @@ public class OutputDatasetBuilder {
                 task,
                 productDefinition,
                 datasetMetadataIdsByInputIdMap,
-                metadataDao,
+                metadataCache,
                 aggregationPeriods
             );
 
@@ -142,13 +144,45 @@ public class OutputDatasetBuilder {
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to copy dimension variable data.", e);
-        }
+        } finally {
 
-        // Close the input dataset to free memory.
-        referenceDataset.close();
+            // Close the input dataset to free memory.
+            referenceDataset.close();
+        }
 
         return outputDataset;
 
     }
 
+    /**
+     * Open an output file previously created by
+     * {@link #build(String, NcAggregateTask, NcAggregateProductDefinition, ApplicationContext, AggregationPeriods, List, Map, MetadataCache)},
+     * such as one restored from a checkpoint, so that population of the file can continue. Only
+     * the information required for writing data is populated in the
+     * {@link OutputDataset#getOutputDatasetInfo()}.
+     */
+    static public OutputDataset open(String filename) {
+        logger.debug("filename: " + filename);
+
+        NetcdfFileWriter writer = null;
+        try {
+            writer = NetcdfFileWriter.openExisting(filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open the existing output dataset "" +
+                filename + "".", e);
+        }
+
+        final OutputDataset outputDataset = new OutputDataset(
+            writer,
+            writer.getNetcdfFile().getRootGroup()
+        );
+        for (Variable variable : writer.getNetcdfFile().getVariables()) {
+            outputDataset.getOutputDatasetInfo().outputVariableMap.put(
+                variable.getShortName(),
+                variable
+            );
+        }
+        return outputDataset;
+    }
+
 }
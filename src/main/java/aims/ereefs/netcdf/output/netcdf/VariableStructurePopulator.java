@@ -69,19 +69,18 @@ public class VariableStructurePopulator {
                 final String inputId = variableNameTokens[0];
                 final String shortInputVariableName = variableNameTokens[1];
 
-                // Retrieve a reference dataset for the input variable.
-                final InputDataset referenceDataset = inputDatasetCache.getReferenceDataset(inputId);
-
-                // Retrieve and cache the variable from the input dataset.
-                final Variable inputVariable = referenceDataset.findVariable(shortInputVariableName);
-                if (inputVariable == null) {
-                    throw new RuntimeException("Variable \"" + fullyQualifiedName +
-                        "\" not found in dataset (inputId: \"" + inputId + "\").");
+                // Retrieve a reference dataset for the input variable. The reference dataset is
+                // closed to free memory once the variable is cached.
+                try (InputDataset referenceDataset = inputDatasetCache.getReferenceDataset(inputId)) {
+
+                    // Retrieve and cache the variable from the input dataset.
+                    final Variable inputVariable = referenceDataset.findVariable(shortInputVariableName);
+                    if (inputVariable == null) {
+                        throw new RuntimeException("Variable \"" + fullyQualifiedName +
+                            "\" not found in dataset (inputId: \"" + inputId + "\").");
+                    }
+                    inputVariables.add(inputVariable);
                 }
-                inputVariables.add(inputVariable);
-
-                // Close the reference dataset to free memory.
-                referenceDataset.close();
             }
 
             // Determine if any of the input variables have a time dimension. If so, add an
@@ -24,9 +24,22 @@ abstract public class AbstractCsvFileOutputWriter implements OutputWriter {
      *                     {@link #fileWriter}.
      */
     public AbstractCsvFileOutputWriter(File outputFile) throws IOException {
+        this(outputFile, false);
+    }
+
+    /**
+     * Constructor to cache the properties to use for all writes to the single {@code OutputFile}.
+     *
+     * @param outputFile the file to write to, which will be wrapped by {@link #fileWriter}.
+     * @param append     {@code true} to append to an existing file, such as when resuming from a
+     *                   checkpoint. Subclasses should not write a header record when appending.
+     * @throws IOException thrown if the <code>outputFile</code> cannot be wrapped by the
+     *                     {@link #fileWriter}.
+     */
+    public AbstractCsvFileOutputWriter(File outputFile, boolean append) throws IOException {
 
         // Instantiate the writer for subclasses to use.
-        this.fileWriter = new FileWriter(outputFile);
+        this.fileWriter = new FileWriter(outputFile, append);
     }
 
     @Override
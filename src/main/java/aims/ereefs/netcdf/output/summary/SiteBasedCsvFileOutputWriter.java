@@ -16,7 +16,13 @@ public class SiteBasedCsvFileOutputWriter extends AbstractCsvFileOutputWriter {
 
     public SiteBasedCsvFileOutputWriter(File outputFile,
                                         List<ExtractionSite> extractionSiteList) throws IOException {
-        super(outputFile);
+        this(outputFile, extractionSiteList, false);
+    }
+
+    public SiteBasedCsvFileOutputWriter(File outputFile,
+                                        List<ExtractionSite> extractionSiteList,
+                                        boolean append) throws IOException {
+        super(outputFile, append);
 
         // Package the dataset for easy lookup.
         for (ExtractionSite extractionSite : extractionSiteList) {
@@ -31,22 +37,24 @@ public class SiteBasedCsvFileOutputWriter extends AbstractCsvFileOutputWriter {
             );
         }
 
-        // Add the header record.
-        this.fileWriter.write(
-            "\"Aggregated Date/Time\"," +
-                "\"Variable\"," +
-                "\"Depth\"," +
-                "\"Site Name\"," +
-                "\"Latitude\"," +
-                "\"Longitude\"," +
-                "\"mean\"," +
-                "\"median\"," +
-                "\"p5\"," +
-                "\"p95\"," +
-                "\"lowest\"," +
-                "\"highest\"" +
-                "\n"
-        );
+        // Add the header record, unless appending to an existing file.
+        if (!append) {
+            this.fileWriter.write(
+                "\"Aggregated Date/Time\"," +
+                    "\"Variable\"," +
+                    "\"Depth\"," +
+                    "\"Site Name\"," +
+                    "\"Latitude\"," +
+                    "\"Longitude\"," +
+                    "\"mean\"," +
+                    "\"median\"," +
+                    "\"p5\"," +
+                    "\"p95\"," +
+                    "\"lowest\"," +
+                    "\"highest\"" +
+                    "\n"
+            );
+        }
 
     }
 
@@ -22,6 +22,16 @@ public class SiteBasedSummaryAccumulatorImpl extends AbstractSummaryAccumulator
      */
     protected List<ExtractionSite> extractionSiteList;
 
+    /**
+     * The index of each neighbour of each site, in the order of {@link #extractionSiteList}.
+     */
+    protected int[][] neighbourIndexes;
+
+    /**
+     * The weight of each neighbour of each site, in the order of {@link #extractionSiteList}.
+     */
+    protected double[][] neighbourWeights;
+
     /**
      * Constructor to cache the parameters and instantiate the relevant
      * {@link #depthToAccumulationBucketsMap depth} buckets.
@@ -36,6 +46,20 @@ public class SiteBasedSummaryAccumulatorImpl extends AbstractSummaryAccumulator
         // Cache the values.
         this.extractionSiteList = extractionSiteList;
 
+        // Resolve the neighbours and their weights once, rather than for every time slice and
+        // depth.
+        this.neighbourIndexes = new int[extractionSiteList.size()][];
+        this.neighbourWeights = new double[extractionSiteList.size()][];
+        for (int siteIndex = 0; siteIndex < extractionSiteList.size(); siteIndex++) {
+            final List<IndexWithDistance> neighbours = extractionSiteList.get(siteIndex).getNeighbours();
+            this.neighbourIndexes[siteIndex] = new int[neighbours.size()];
+            this.neighbourWeights[siteIndex] = new double[neighbours.size()];
+            for (int neighbourIndex = 0; neighbourIndex < neighbours.size(); neighbourIndex++) {
+                this.neighbourIndexes[siteIndex][neighbourIndex] = neighbours.get(neighbourIndex).getIndex();
+                this.neighbourWeights[siteIndex][neighbourIndex] = neighbours.get(neighbourIndex).getWeight();
+            }
+        }
+
         // Instantiate the buckets for each Site.
         for (Double depth : this.selectedDepths) {
             final Map<String, List<Double>> accumulationBuckets = new HashMap<>();
@@ -58,7 +82,10 @@ public class SiteBasedSummaryAccumulatorImpl extends AbstractSummaryAccumulator
         Double[] timeSliceArray = timeSliceArrays.get(0);
 
         // Loop through each site.
-        for (ExtractionSite extractionSite : this.extractionSiteList) {
+        for (int siteIndex = 0; siteIndex < this.extractionSiteList.size(); siteIndex++) {
+            final ExtractionSite extractionSite = this.extractionSiteList.get(siteIndex);
+            final int[] indexes = this.neighbourIndexes[siteIndex];
+            final double[] weights = this.neighbourWeights[siteIndex];
 
             // Loop through each depth.
             for (int depthIndex = 0; depthIndex < this.selectedDepths.size(); depthIndex++) {
@@ -74,13 +101,13 @@ public class SiteBasedSummaryAccumulatorImpl extends AbstractSummaryAccumulator
                 double sum = 0.0;
                 double sumWeights = 0.0;
                 boolean hasData = false;
-                for (IndexWithDistance neighbour : extractionSite.getNeighbours()) {
+                for (int neighbourIndex = 0; neighbourIndex < indexes.length; neighbourIndex++) {
 
                     // Ignoring any NaNs, weight the value and add it to the accumulator.
-                    double value = timeSliceArray[depthOffset + neighbour.getIndex()];
+                    double value = timeSliceArray[depthOffset + indexes[neighbourIndex]];
                     if (!Double.isNaN(value)) {
-                        sum += value * neighbour.getWeight();
-                        sumWeights += neighbour.getWeight();
+                        sum += value * weights[neighbourIndex];
+                        sumWeights += weights[neighbourIndex];
                         hasData = true;
                     }
                 }
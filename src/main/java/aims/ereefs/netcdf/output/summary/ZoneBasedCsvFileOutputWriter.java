@@ -23,7 +23,14 @@ public class ZoneBasedCsvFileOutputWriter extends AbstractCsvFileOutputWriter {
     public ZoneBasedCsvFileOutputWriter(File outputFile,
                                         ApplicationContext applicationContext,
                                         String zoneNamesBindName) throws IOException {
-        super(outputFile);
+        this(outputFile, applicationContext, zoneNamesBindName, false);
+    }
+
+    public ZoneBasedCsvFileOutputWriter(File outputFile,
+                                        ApplicationContext applicationContext,
+                                        String zoneNamesBindName,
+                                        boolean append) throws IOException {
+        super(outputFile, append);
 
         // Cache the ApplicationContext for use later.
         this.applicationContext = applicationContext;
@@ -37,22 +44,24 @@ public class ZoneBasedCsvFileOutputWriter extends AbstractCsvFileOutputWriter {
             this.idToDetailsMap.put(record[0], record);
         }
 
-        // Add the header record.
-        this.fileWriter.write(
-            "\"Aggregated Date/Time\"," +
-                "\"Variable\"," +
-                "\"Depth\"," +
-                "\"Zone Id\"," +
-                "\"Zone Name\"," +
-                "\"Threshold\"," +
-                "\"mean\"," +
-                "\"median\"," +
-                "\"p5\"," +
-                "\"p95\"," +
-                "\"lowest\"," +
-                "\"highest\"" +
-                "\n"
-        );
+        // Add the header record, unless appending to an existing file.
+        if (!append) {
+            this.fileWriter.write(
+                "\"Aggregated Date/Time\"," +
+                    "\"Variable\"," +
+                    "\"Depth\"," +
+                    "\"Zone Id\"," +
+                    "\"Zone Name\"," +
+                    "\"Threshold\"," +
+                    "\"mean\"," +
+                    "\"median\"," +
+                    "\"p5\"," +
+                    "\"p95\"," +
+                    "\"lowest\"," +
+                    "\"highest\"" +
+                    "\n"
+            );
+        }
 
     }
 
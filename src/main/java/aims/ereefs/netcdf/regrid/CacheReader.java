@@ -9,6 +9,7 @@ import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -108,72 +109,78 @@ public class CacheReader {
         }
         logger.debug("Loading RegularGridMapper from \"" + cacheFilename + "\".");
 
-        // Declare the temporary map to populate.
-        Map<Point, IndexWithDistance[]> regularGridToCurvedIndex = null;
-
         try {
             try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
                 new FileInputStream(cacheFile)))) {
+                return readAsRegularGridMapper(inputStream);
+            }
+        } catch (Exception ignore) {
+            logger.warn("Failed to load cache (\"" + cacheFilename + "\").", ignore);
+            return null;
+        }
 
-                final double version = inputStream.readDouble();
-                logger.trace("version: " + version);
-                if (version != 1.0) {
-                    throw new RuntimeException(
-                        "Version not supported. Expected \"1.0\" but found \"" + version + "\".");
-                }
-
-                final int latitudeCount = inputStream.readInt();
-                logger.trace("latitudeCount: " + latitudeCount);
+    }
 
-                final int longitudeCount = inputStream.readInt();
-                logger.trace("longitudeCount: " + longitudeCount);
+    /**
+     * Read a {@link RegularGridMapper} from the specified stream.
+     */
+    static public RegularGridMapper readAsRegularGridMapper(DataInputStream inputStream)
+        throws IOException {
+
+        final double version = inputStream.readDouble();
+        logger.trace("version: " + version);
+        if (version != 1.0) {
+            throw new RuntimeException(
+                "Version not supported. Expected \"1.0\" but found \"" + version + "\".");
+        }
 
-                final Array outputLatitudeArray = new ArrayDouble.D1(latitudeCount);
-                for (int latitudeIndex = 0; latitudeIndex < latitudeCount; latitudeIndex++) {
-                    double latitude = inputStream.readDouble();
-                    outputLatitudeArray.setDouble(latitudeIndex, latitude);
-                }
+        final int latitudeCount = inputStream.readInt();
+        logger.trace("latitudeCount: " + latitudeCount);
 
-                final Array outputLongitudeArray = new ArrayDouble.D1(longitudeCount);
-                for (int longitudeIndex = 0; longitudeIndex < longitudeCount; longitudeIndex++) {
-                    double longitude = inputStream.readDouble();
-                    outputLongitudeArray.setDouble(longitudeIndex, longitude);
-                }
+        final int longitudeCount = inputStream.readInt();
+        logger.trace("longitudeCount: " + longitudeCount);
 
-                int size = inputStream.readInt();
-                regularGridToCurvedIndex = new HashMap<>(size);
-                logger.debug("size: " + size);
-                for (int entryIndex = 0; entryIndex < size; entryIndex++) {
-                    int x = inputStream.readInt();
-                    int y = inputStream.readInt();
-                    Point point = new Point(x, y);
-                    int listSize = inputStream.readInt();
-                    if (listSize > 0) {
-                        IndexWithDistance[] list = new IndexWithDistance[listSize];
-                        for (int listIndex = 0; listIndex < listSize; listIndex++) {
-                            int index = inputStream.readInt();
-                            double distance = inputStream.readDouble();
-                            list[listIndex] = new IndexWithDistance(index, distance);
-                        }
-                        regularGridToCurvedIndex.put(point, list);
-                    }
-                    if (logger.isDebugEnabled()) {
-                        if (entryIndex % 10000 == 0) {
-                            logger.debug("Count " + entryIndex + " of " + size);
-                        }
-                    }
-                }
+        final Array outputLatitudeArray = new ArrayDouble.D1(latitudeCount);
+        for (int latitudeIndex = 0; latitudeIndex < latitudeCount; latitudeIndex++) {
+            double latitude = inputStream.readDouble();
+            outputLatitudeArray.setDouble(latitudeIndex, latitude);
+        }
 
-                logger.debug("Loaded: " + regularGridToCurvedIndex.size());
+        final Array outputLongitudeArray = new ArrayDouble.D1(longitudeCount);
+        for (int longitudeIndex = 0; longitudeIndex < longitudeCount; longitudeIndex++) {
+            double longitude = inputStream.readDouble();
+            outputLongitudeArray.setDouble(longitudeIndex, longitude);
+        }
 
-                return new RegularGridMapper(latitudeCount, longitudeCount, outputLatitudeArray,
-                    outputLongitudeArray, regularGridToCurvedIndex);
+        int size = inputStream.readInt();
+        final Map<Point, IndexWithDistance[]> regularGridToCurvedIndex = new HashMap<>(size);
+        logger.debug("size: " + size);
+        for (int entryIndex = 0; entryIndex < size; entryIndex++) {
+            int x = inputStream.readInt();
+            int y = inputStream.readInt();
+            Point point = new Point(x, y);
+            int listSize = inputStream.readInt();
+            if (listSize > 0) {
+                IndexWithDistance[] list = new IndexWithDistance[listSize];
+                for (int listIndex = 0; listIndex < listSize; listIndex++) {
+                    int index = inputStream.readInt();
+                    double distance = inputStream.readDouble();
+                    list[listIndex] = new IndexWithDistance(index, distance);
+                }
+                regularGridToCurvedIndex.put(point, list);
+            }
+            if (logger.isDebugEnabled()) {
+                if (entryIndex % 10000 == 0) {
+                    logger.debug("Count " + entryIndex + " of " + size);
+                }
             }
-        } catch (Exception ignore) {
-            logger.warn("Failed to load cache (\"" + cacheFilename + "\").", ignore);
-            return null;
         }
 
+        logger.debug("Loaded: " + regularGridToCurvedIndex.size());
+
+        return new RegularGridMapper(latitudeCount, longitudeCount, outputLatitudeArray,
+            outputLongitudeArray, regularGridToCurvedIndex);
+
     }
 
-}
\ No newline at end of file
+}
@@ -64,49 +64,57 @@ public class CacheWriter {
         try {
             try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
                 new FileOutputStream(cacheFile)))) {
+                write(regularGridMapper, outputStream);
+            }
+        } catch (Exception ignore) {
+            logger.warn("Failed to write cache (\"" + cacheFilename + "\").", ignore);
+            throw new RuntimeException(ignore);
+        }
+    }
 
-                outputStream.writeDouble(CACHE_VERSION);
+    /**
+     * Write the {@link RegularGridMapper} to the specified stream.
+     */
+    static public void write(RegularGridMapper regularGridMapper,
+                             DataOutputStream outputStream) throws IOException {
 
-                final int latitudeCount = regularGridMapper.getLatitudeCount();
-                logger.debug("latitudeCount: " + latitudeCount);
-                outputStream.writeInt(latitudeCount);
+        outputStream.writeDouble(CACHE_VERSION);
 
-                final int longitudeCount = regularGridMapper.getLongitudeCount();
-                logger.debug("longitudeCount: " + longitudeCount);
-                outputStream.writeInt(longitudeCount);
+        final int latitudeCount = regularGridMapper.getLatitudeCount();
+        logger.debug("latitudeCount: " + latitudeCount);
+        outputStream.writeInt(latitudeCount);
 
-                Array outputLatitudeArray = regularGridMapper.getOutputLatitudeArray();
-                for (int latitudeIndex = 0; latitudeIndex < latitudeCount; latitudeIndex++) {
-                    outputStream.writeDouble(outputLatitudeArray.getDouble(latitudeIndex));
-                }
+        final int longitudeCount = regularGridMapper.getLongitudeCount();
+        logger.debug("longitudeCount: " + longitudeCount);
+        outputStream.writeInt(longitudeCount);
 
-                Array outputLongitudeArray = regularGridMapper.getOutputLongitudeArray();
-                for (int longitudeIndex = 0; longitudeIndex < longitudeCount; longitudeIndex++) {
-                    outputStream.writeDouble(outputLongitudeArray.getDouble(longitudeIndex));
-                }
+        Array outputLatitudeArray = regularGridMapper.getOutputLatitudeArray();
+        for (int latitudeIndex = 0; latitudeIndex < latitudeCount; latitudeIndex++) {
+            outputStream.writeDouble(outputLatitudeArray.getDouble(latitudeIndex));
+        }
 
-                final Map<Point, IndexWithDistance[]> regularGridToCurvedIndex =
-                    regularGridMapper.getRegularGridToCurvedIndex();
-                logger.debug("size: " + regularGridToCurvedIndex.size());
-                outputStream.writeInt(regularGridToCurvedIndex.size());
-                for (Map.Entry<Point, IndexWithDistance[]> entry : regularGridToCurvedIndex.entrySet()) {
-                    Point point = entry.getKey();
-                    outputStream.writeInt(point.getX());
-                    outputStream.writeInt(point.getY());
-                    IndexWithDistance[] list = entry.getValue();
-                    outputStream.writeInt(list.length);
-                    for (IndexWithDistance item : list) {
-                        outputStream.writeInt(item.getIndex());
-                        outputStream.writeDouble(item.getDistance());
-                    }
-                }
-                logger.debug("Cached.");
+        Array outputLongitudeArray = regularGridMapper.getOutputLongitudeArray();
+        for (int longitudeIndex = 0; longitudeIndex < longitudeCount; longitudeIndex++) {
+            outputStream.writeDouble(outputLongitudeArray.getDouble(longitudeIndex));
+        }
 
+        final Map<Point, IndexWithDistance[]> regularGridToCurvedIndex =
+            regularGridMapper.getRegularGridToCurvedIndex();
+        logger.debug("size: " + regularGridToCurvedIndex.size());
+        outputStream.writeInt(regularGridToCurvedIndex.size());
+        for (Map.Entry<Point, IndexWithDistance[]> entry : regularGridToCurvedIndex.entrySet()) {
+            Point point = entry.getKey();
+            outputStream.writeInt(point.getX());
+            outputStream.writeInt(point.getY());
+            IndexWithDistance[] list = entry.getValue();
+            outputStream.writeInt(list.length);
+            for (IndexWithDistance item : list) {
+                outputStream.writeInt(item.getIndex());
+                outputStream.writeDouble(item.getDistance());
             }
-        } catch (Exception ignore) {
-            logger.warn("Failed to write cache (\"" + cacheFilename + "\").", ignore);
-            throw new RuntimeException(ignore);
         }
+        logger.debug("Cached.");
+
     }
 
-}
\ No newline at end of file
+}
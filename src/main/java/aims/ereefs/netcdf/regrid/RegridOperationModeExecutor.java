@@ -6,16 +6,15 @@ import aims.ereefs.netcdf.OperationModeExecutor;
 import aims.ereefs.netcdf.input.netcdf.InputDataset;
 import aims.ereefs.netcdf.input.netcdf.InputDatasetBuilder;
 import aims.ereefs.netcdf.task.aggregation.AggregationTaskExecutor;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
 import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
 import aims.ereefs.netcdf.util.netcdf.NetcdfDateUtils;
 import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
 import au.gov.aims.ereefs.bean.metadata.netcdf.VariableMetadataBean;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
-import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
 import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
-import au.gov.aims.ereefs.pojo.task.TaskDao;
 import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.joda.time.DateTime;
@@ -37,10 +36,23 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * {@link OperationModeExecutor} implementation for regridding NetCDF files from the command-line.
+ * <p>
+ * The {@link RegularGridMapper} is loaded or built once, when regridding the first file, and is
+ * then shared by the remaining files, which are regridded concurrently ({@code --parallelism=<n>}
+ * or the {@code REGRID_PARALLELISM} environment variable, defaulting to
+ * {@link #DEFAULT_PARALLELISM}). The {@code DAO}s, {@code FileCache} and {@code ArtefactCache}
+ * are also shared by all files. The file-based {@code DAO}s are not thread-safe, so each is
+ * locked while persisting. If tracing is enabled, each file is traced separately, with the trace
+ * file published next to the regridded file.
  *
  * @author Aaron Smith
  */
@@ -53,6 +65,10 @@ public class RegridOperationModeExecutor implements OperationModeExecutor {
      */
     protected final double DEFAULT_RESOLUTION = 0.03;
 
+    final static protected int DEFAULT_PARALLELISM = 1;
+
+    final static protected String PRODUCT_DEFINITION_ID = "regriddedNetCDF";
+
     /**
      * Return {@code true} if {@code args} contains {@code --regrid}.
      */
@@ -68,15 +84,15 @@ public class RegridOperationModeExecutor implements OperationModeExecutor {
     public void execute(String[] args) {
         logger.debug("Executing");
 
-        // Declare constants that are used throughout the method.
-        final String PRODUCT_DEFINITION_ID = "regriddedNetCDF";
-
         // Capture the command line arguments.
         String inputPath = null;
         String outputPath = null;
         String cacheFilename = null;
         String[] specifiedVariableNames = new String[0];
         double tempResolution = DEFAULT_RESOLUTION;
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("REGRID_PARALLELISM");
+        int parallelism = parallelismStr != null ?
+            Integer.parseInt(parallelismStr) : DEFAULT_PARALLELISM;
         for (final String arg : args) {
 
             if (arg.startsWith("--input=")) {
@@ -99,6 +115,10 @@ public class RegridOperationModeExecutor implements OperationModeExecutor {
                 specifiedVariableNames = arg.substring("--variables=".length()).split(",");
             }
 
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+
         }
         if (inputPath == null) {
             throw new RuntimeException("Input path not specified. Use \"--input=<input path>\"");
@@ -125,6 +145,9 @@ public class RegridOperationModeExecutor implements OperationModeExecutor {
             logger.debug("variables: " +
                 Arrays.stream(specifiedVariableNames).collect(Collectors.joining(",")));
         }
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be at least 1.");
+        }
 
         // Identify the files to process.
         File path = new File(inputPath);
@@ -137,275 +160,410 @@ public class RegridOperationModeExecutor implements OperationModeExecutor {
                 return name.toUpperCase().endsWith(".NC");
             }
         });
-        logger.debug("\"" + inputPath + "\" has " + files.length + " files.");
+        Arrays.sort(files);
+        logger.info("\"" + inputPath + "\" has " + files.length + " files. Parallelism: " + parallelism + ".");
 
-        // Instantiate a MetadataDao which will be progressively populated with the metadata of the
-        // files being processed. Note that we use a file-based implementation because ncAggregate
-        // is running stand-alone.
-        String tempDir = TempDirectoryInitialiser.initialise();
+        // Instantiate the references shared by all files. The MetadataDao will be progressively
+        // populated with the metadata of the files being processed. Note that we use a file-based
+        // implementation because ncAggregate is running stand-alone.
+        final String tempDir = TempDirectoryInitialiser.initialise();
         final String daoPath = tempDir + "dao" + File.separator;
-        final MetadataDao metadataDao = new MetadataDaoFileImpl(daoPath + "metadata");
-        final TaskDao taskDao = new TaskDaoFileImpl(daoPath + "task");
+        final ApplicationContext sharedApplicationContext = new ApplicationContext("regrid");
+        sharedApplicationContext.setMetadataDao(new MetadataDaoFileImpl(daoPath + "metadata"));
+        sharedApplicationContext.setTaskDao(new TaskDaoFileImpl(daoPath + "task"));
+        sharedApplicationContext.setTempPathname(tempDir);
+        sharedApplicationContext.setFileCache(ApplicationContextBuilder.makeFileCache(tempDir));
+        sharedApplicationContext.setArtefactCache(ApplicationContextBuilder.makeArtefactCache());
+        if (files.length == 0) {
+            return;
+        }
 
-        // Process each file.
-        for (File file : files) {
-            logger.debug("Regridding file: " + file.getAbsolutePath());
-            final String outputFilename = "file:" + outputPath + "regridded-" + file.getName();
+        this.regridFiles(
+            files,
+            INPUT_ID,
+            outputPath,
+            cacheFilename,
+            resolution,
+            specifiedVariableNames,
+            parallelism,
+            sharedApplicationContext
+        );
+    }
 
-            // Open the NetCDF dataset.
-            NetcdfDataset.disableNetcdfFileCache();
-            NetcdfDataset dataset = null;
+    /**
+     * Regrid the {@code files}. The first file is regridded alone to load or build the
+     * {@link RegularGridMapper}, moving on to the next file if it fails, and the remaining files
+     * are then regridded concurrently, sharing the {@link RegularGridMapper}.
+     */
+    protected void regridFiles(File[] files,
+                               String INPUT_ID,
+                               String outputPath,
+                               String cacheFilename,
+                               double resolution,
+                               String[] specifiedVariableNames,
+                               int parallelism,
+                               ApplicationContext sharedApplicationContext) {
+
+        // Regrid the first file, which loads or builds the RegularGridMapper. The remaining files
+        // share the same grid, so they reuse the RegularGridMapper rather than loading it again.
+        // If a file fails, the RegularGridMapper is loaded or built from the next file instead.
+        final long startTime = System.currentTimeMillis();
+        final AtomicInteger failedCount = new AtomicInteger();
+        ApplicationContext tempPreProcessedApplicationContext = null;
+        int nextFileIndex = 0;
+        while ((tempPreProcessedApplicationContext == null) && (nextFileIndex < files.length)) {
+            final File file = files[nextFileIndex++];
             try {
-                dataset = NetcdfDataset.openDataset(
-
-                    // location
-                    file.getAbsolutePath(),
-
-                    // enhance
-                    true,
-
-                    // cancelTask
-                    (CancelTask) null
+                tempPreProcessedApplicationContext = this.regrid(
+                    file,
+                    INPUT_ID,
+                    outputPath,
+                    cacheFilename,
+                    resolution,
+                    specifiedVariableNames,
+                    sharedApplicationContext,
+                    null
                 );
-                NetcdfDataset.disableNetcdfFileCache();
-            } catch (IOException e) {
-                String msg = "Failed to open the dataset \"" + file.getName() + "\".";
-                this.logger.error(msg, e);
-                throw new RuntimeException(msg, e);
+            } catch (RuntimeException e) {
+                logger.error("Failed to regrid \"" + file.getName() + "\".", e);
+                failedCount.incrementAndGet();
             }
-            final DateUnit dateUnit = NetcdfDateUtils.getDateUnit(dataset);
-
-            // Wrap the NetCDF dataset as an InputDataset for additional functionality.
-            final InputDataset inputDataset = InputDatasetBuilder.build(
-                dataset,
-                new ArrayList<Double>(),
-                false
-            );
-
-            // Generate the Metadata for the file and persist it to the database.
-            NetCDFMetadataBean netcdfMetadataBean = null;
-            try {
-                netcdfMetadataBean = NetCDFMetadataBean.create(
-                    "input",
-                    file.getName(),
-                    new URI("file:" + file.getAbsolutePath()),
-                    new File(file.getAbsolutePath()),
-                    DateTime.now().getMillis(),
-                    true
-                );
-            } catch (URISyntaxException e) {
-                throw new RuntimeException(
-                    "Failed to build URI of input file \"" + file.getName() + "\".", e);
+        }
+        final ApplicationContext preProcessedApplicationContext = tempPreProcessedApplicationContext;
+
+        // Regrid the remaining files concurrently.
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            parallelism,
+            runnable -> {
+                final Thread thread = new Thread(runnable, "regrid-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
             }
-            final String metadataId = netcdfMetadataBean.getId();
-            logger.debug("metadataId: " + metadataId);
-            metadataDao.persist(netcdfMetadataBean.toJSON());
-
-            // Find the variable with the most time values. These will be used as the time values
-            // for the file.
-            VariableMetadataBean referenceVariable = null;
-            int referenceVariableTimeValuesSize = 0;
-            for (final String variableName : netcdfMetadataBean.getVariableMetadataBeanMap().keySet()) {
-                VariableMetadataBean variable = netcdfMetadataBean.getVariableMetadataBeanMap().get(variableName);
-                int timeValuesSize = 0;
-                if (variable.getTemporalDomainBean() != null) {
-                    timeValuesSize = variable.getTemporalDomainBean().getTimeValues().size();
-                }
-                if (variable.getTemporalDomainBean() != null) {
-                    if (referenceVariable == null || timeValuesSize > referenceVariableTimeValuesSize) {
-                        referenceVariable = variable;
-                        referenceVariableTimeValuesSize = referenceVariable.getTemporalDomainBean().getTimeValues().size();
+        );
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final File file : Arrays.copyOfRange(files, nextFileIndex, files.length)) {
+                futures.add(executorService.submit(() -> {
+                    try {
+                        this.regrid(
+                            file,
+                            INPUT_ID,
+                            outputPath,
+                            cacheFilename,
+                            resolution,
+                            specifiedVariableNames,
+                            sharedApplicationContext,
+                            preProcessedApplicationContext
+                        );
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to regrid \"" + file.getName() + "\".", e);
+                        failedCount.incrementAndGet();
                     }
-                }
+                }));
             }
-            if (referenceVariable == null) {
-                throw new RuntimeException("Unable to find variable with time dimension.");
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Regridding failed.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Regridding interrupted.", e);
+                }
             }
+        } finally {
+            executorService.shutdownNow();
+        }
 
-            final List<DateTime> variableTimeValues = referenceVariable.getTemporalDomainBean().getTimeValues();
-            if (variableTimeValues == null || variableTimeValues.size() == 0) {
-                throw new RuntimeException("No time values found in \"" + file.getName() + "\".");
-            }
+        logger.info("Regridded " + (files.length - failedCount.get()) + " of " + files.length +
+            " files in " + (System.currentTimeMillis() - startTime) + " ms.");
+        if (failedCount.get() > 0) {
+            throw new RuntimeException(failedCount.get() + " of " + files.length + " files failed.");
+        }
+    }
 
-            // Build a list of TimeInstant objects which are part of the Task defining the work to
-            // be done. Each time instant represents a single value from the time variable.
-            List<NcAggregateTask.TimeInstant> timeInstants = new ArrayList<>();
-            for (int index = 0; index < variableTimeValues.size(); index++) {
-                final DateTime dateTime = variableTimeValues.get(index);
-                double timeValue = NetcdfDateUtils.fromLocalDateTime(
-                    dateUnit,
-                    Instant
-                        .ofEpochMilli(dateTime.getMillis())
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDateTime()
-                );
-                int finalIndex = index;
-                timeInstants.add(
-                    new NcAggregateTask.TimeInstant(
-                        timeValue,
-                        new ArrayList<NcAggregateTask.Input>() {{
-                            add(
-                                new NcAggregateTask.Input(
-                                    INPUT_ID,
-                                    new ArrayList<NcAggregateTask.FileIndexBounds>() {{
-                                        add(
-                                            new NcAggregateTask.FileIndexBounds(
-                                                metadataId,
-                                                finalIndex,
-                                                finalIndex
-                                            )
-                                        );
-                                    }}
-                                )
-                            );
-                        }}
-                    )
-                );
-            }
+    /**
+     * Regrid a single file, returning the {@link ApplicationContext} used. If a
+     * {@code preProcessedApplicationContext} is specified, the {@code RegularGridMapper} is copied
+     * from it, otherwise it is loaded or built by the {@link RegularGridMapperCachePopulatorTask}.
+     */
+    protected ApplicationContext regrid(File file,
+                                        String INPUT_ID,
+                                        String outputPath,
+                                        String cacheFilename,
+                                        double resolution,
+                                        String[] specifiedVariableNames,
+                                        ApplicationContext sharedApplicationContext,
+                                        ApplicationContext preProcessedApplicationContext) {
+        logger.debug("Regridding file: " + file.getAbsolutePath());
+        final String outputFilename = "file:" + outputPath + "regridded-" + file.getName();
+
+        // Open the NetCDF dataset.
+        NetcdfDataset.disableNetcdfFileCache();
+        NetcdfDataset dataset = null;
+        try {
+            dataset = NetcdfDataset.openDataset(
+
+                // location
+                file.getAbsolutePath(),
+
+                // enhance
+                true,
+
+                // cancelTask
+                (CancelTask) null
+            );
+            NetcdfDataset.disableNetcdfFileCache();
+        } catch (IOException e) {
+            String msg = "Failed to open the dataset \"" + file.getName() + "\".";
+            this.logger.error(msg, e);
+            throw new RuntimeException(msg, e);
+        }
+        final DateUnit dateUnit = NetcdfDateUtils.getDateUnit(dataset);
+
+        // Wrap the NetCDF dataset as an InputDataset for additional functionality.
+        final InputDataset inputDataset = InputDatasetBuilder.build(
+            dataset,
+            new ArrayList<Double>(),
+            false
+        );
+
+        // Generate the Metadata for the file and persist it to the database.
+        NetCDFMetadataBean netcdfMetadataBean = null;
+        try {
+            netcdfMetadataBean = NetCDFMetadataBean.create(
+                "input",
+                file.getName(),
+                new URI("file:" + file.getAbsolutePath()),
+                new File(file.getAbsolutePath()),
+                DateTime.now().getMillis(),
+                true
+            );
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(
+                "Failed to build URI of input file \"" + file.getName() + "\".", e);
+        }
+        final String metadataId = netcdfMetadataBean.getId();
+        logger.debug("metadataId: " + metadataId);
+        synchronized (sharedApplicationContext.getMetadataDao()) {
+            sharedApplicationContext.getMetadataDao().persist(netcdfMetadataBean.toJSON());
+        }
 
-            // Determine the timeIncrement unit. Default is "daily". This is used when populating
-            // the ProductDefinition we will build shortly.
-            String timeIncrement = "daily";
-            if (variableTimeValues.size() > 1) {
-                final long timeDiff = variableTimeValues.get(1).getMillis() -
-                    variableTimeValues.get(0).getMillis();
-                if (timeDiff == 60 * 60 * 1000) {
-                    timeIncrement = "hourly";
-                }
-                if (timeDiff == 24 * 60 * 60 * 1000) {
-                    timeIncrement = "daily";
+        // Find the variable with the most time values. These will be used as the time values
+        // for the file.
+        VariableMetadataBean referenceVariable = null;
+        int referenceVariableTimeValuesSize = 0;
+        for (final String variableName : netcdfMetadataBean.getVariableMetadataBeanMap().keySet()) {
+            VariableMetadataBean variable = netcdfMetadataBean.getVariableMetadataBeanMap().get(variableName);
+            int timeValuesSize = 0;
+            if (variable.getTemporalDomainBean() != null) {
+                timeValuesSize = variable.getTemporalDomainBean().getTimeValues().size();
+            }
+            if (variable.getTemporalDomainBean() != null) {
+                if (referenceVariable == null || timeValuesSize > referenceVariableTimeValuesSize) {
+                    referenceVariable = variable;
+                    referenceVariableTimeValuesSize = referenceVariable.getTemporalDomainBean().getTimeValues().size();
                 }
             }
+        }
+        if (referenceVariable == null) {
+            throw new RuntimeException("Unable to find variable with time dimension.");
+        }
 
-            // Determine the file duration. Default is "monthly". This is used when populating the
-            // ProductDefinition we will build shortly.
-            String fileDuration = "monthly";
-            final long timeDiff = variableTimeValues.get(variableTimeValues.size() - 1).getMillis() -
+        final List<DateTime> variableTimeValues = referenceVariable.getTemporalDomainBean().getTimeValues();
+        if (variableTimeValues == null || variableTimeValues.size() == 0) {
+            throw new RuntimeException("No time values found in \"" + file.getName() + "\".");
+        }
+
+        // Build a list of TimeInstant objects which are part of the Task defining the work to
+        // be done. Each time instant represents a single value from the time variable.
+        List<NcAggregateTask.TimeInstant> timeInstants = new ArrayList<>();
+        for (int index = 0; index < variableTimeValues.size(); index++) {
+            final DateTime dateTime = variableTimeValues.get(index);
+            double timeValue = NetcdfDateUtils.fromLocalDateTime(
+                dateUnit,
+                Instant
+                    .ofEpochMilli(dateTime.getMillis())
+                    .atZone(ZoneId.systemDefault())
+                    .toLocalDateTime()
+            );
+            int finalIndex = index;
+            timeInstants.add(
+                new NcAggregateTask.TimeInstant(
+                    timeValue,
+                    new ArrayList<NcAggregateTask.Input>() {{
+                        add(
+                            new NcAggregateTask.Input(
+                                INPUT_ID,
+                                new ArrayList<NcAggregateTask.FileIndexBounds>() {{
+                                    add(
+                                        new NcAggregateTask.FileIndexBounds(
+                                            metadataId,
+                                            finalIndex,
+                                            finalIndex
+                                        )
+                                    );
+                                }}
+                            )
+                        );
+                    }}
+                )
+            );
+        }
+
+        // Determine the timeIncrement unit. Default is "daily". This is used when populating
+        // the ProductDefinition we will build shortly.
+        String timeIncrement = "daily";
+        if (variableTimeValues.size() > 1) {
+            final long timeDiff = variableTimeValues.get(1).getMillis() -
                 variableTimeValues.get(0).getMillis();
+            if (timeDiff == 60 * 60 * 1000) {
+                timeIncrement = "hourly";
+            }
             if (timeDiff == 24 * 60 * 60 * 1000) {
-                fileDuration = "daily";
+                timeIncrement = "daily";
             }
+        }
 
-            // Build the Product definition. Note that the variables referenced are NOT of type
-            // CoordinateAxis, which are the four (4) dimensions and will be handled separately.
-            String[] finalSpecifiedVariableNames = specifiedVariableNames;
-            final String[] variableNames =
+        // Determine the file duration. Default is "monthly". This is used when populating the
+        // ProductDefinition we will build shortly.
+        String fileDuration = "monthly";
+        final long timeDiff = variableTimeValues.get(variableTimeValues.size() - 1).getMillis() -
+            variableTimeValues.get(0).getMillis();
+        if (timeDiff == 24 * 60 * 60 * 1000) {
+            fileDuration = "daily";
+        }
 
-                // Start with all variables in the input dataset.
-                inputDataset.getVariables()
-                    .stream()
+        // Build the Product definition. Note that the variables referenced are NOT of type
+        // CoordinateAxis, which are the four (4) dimensions and will be handled separately.
+        String[] finalSpecifiedVariableNames = specifiedVariableNames;
+        final String[] variableNames =
 
-                    // Ignore the variables for the dimensions.
-                    .filter(variable -> !(variable instanceof CoordinateAxis))
+            // Start with all variables in the input dataset.
+            inputDataset.getVariables()
+                .stream()
 
-                    // Ensure the variable has a time dimension.
-                    .filter(variable -> variable.findDimensionIndex("time") != -1)
+                // Ignore the variables for the dimensions.
+                .filter(variable -> !(variable instanceof CoordinateAxis))
 
-                    // Consider only the fullname of the variable.
-                    .map(variable -> variable.getFullName())
+                // Ensure the variable has a time dimension.
+                .filter(variable -> variable.findDimensionIndex("time") != -1)
 
-                    // If variables were specified via command-line, only include those variables,
-                    // otherwise include all variables that have not been filtered previously.
-                    .filter(variableName -> finalSpecifiedVariableNames.length == 0 ||
-                            Arrays.stream(finalSpecifiedVariableNames)
-                        .filter(specifiedVariableName -> specifiedVariableName.equalsIgnoreCase(variableName))
-                        .findFirst()
-                        .isPresent()
-                    )
-                    .collect(Collectors.toList())
-                    .toArray(new String[0]);
-            if (variableNames.length == 0) {
-                throw new RuntimeException("No variables to process.");
-            }
-            logger.debug("variables: " +
-                Arrays.stream(variableNames).collect(Collectors.joining(",")));
-            ObjectMapper objectMapper = new ObjectMapper();
-            final List<NcAggregateProductDefinition.PreProcessingTaskDefn> preProcessingTaskDefns =
-                new ArrayList();
-            try {
-                preProcessingTaskDefns.add(
-                    new NcAggregateProductDefinition.PreProcessingTaskDefn(
-                        objectMapper.readTree(
-                            "{" +
-                                "\"type\": \"RegularGridMapperCachePopulatorTask\"," +
-                                "\"files\": " +
-                                "[{" +
-                                "\"url\": \"file:" + cacheFilename + "\"," +
-                                "\"bindName\": \"regularGridMapper\"," +
-                                "\"resolution\": " + resolution +
-                                "}]}"
-                        )
-                    )
-                );
-            } catch (IOException e) {
-                throw new RuntimeException(
-                    "Failed to parse JSON for RegularGridMapper definition.", e);
-            }
-            NcAggregateProductDefinition productDefinition = NcAggregateProductDefinition.make(
-                PRODUCT_DEFINITION_ID,
-                "Australia/Brisbane",
-                new ProductDefinition.Filters(new ProductDefinition.DateRange[0]),
-                new NcAggregateProductDefinition.NetCDFInput[]{
-                    NcAggregateProductDefinition.NetCDFInput.make(
-                        INPUT_ID,
-                        "netcdf",
-                        timeIncrement,
-                        fileDuration,
-                        false,
-                        new String[0]
+                // Consider only the fullname of the variable.
+                .map(variable -> variable.getFullName())
+
+                // If variables were specified via command-line, only include those variables,
+                // otherwise include all variables that have not been filtered previously.
+                .filter(variableName -> finalSpecifiedVariableNames.length == 0 ||
+                        Arrays.stream(finalSpecifiedVariableNames)
+                    .filter(specifiedVariableName -> specifiedVariableName.equalsIgnoreCase(variableName))
+                    .findFirst()
+                    .isPresent()
+                )
+                .collect(Collectors.toList())
+                .toArray(new String[0]);
+
+        // The dataset was only opened to identify the variables, so release it before the file
+        // is opened again for regridding.
+        inputDataset.close();
+        if (variableNames.length == 0) {
+            throw new RuntimeException("No variables to process.");
+        }
+        logger.debug("variables: " +
+            Arrays.stream(variableNames).collect(Collectors.joining(",")));
+        ObjectMapper objectMapper = new ObjectMapper();
+        final List<NcAggregateProductDefinition.PreProcessingTaskDefn> preProcessingTaskDefns =
+            new ArrayList();
+        try {
+            preProcessingTaskDefns.add(
+                new NcAggregateProductDefinition.PreProcessingTaskDefn(
+                    objectMapper.readTree(
+                        "{" +
+                            "\"type\": \"RegularGridMapperCachePopulatorTask\"," +
+                            "\"files\": " +
+                            "[{" +
+                            "\"url\": \"file:" + cacheFilename + "\"," +
+                            "\"bindName\": \"regularGridMapper\"," +
+                            "\"resolution\": " + resolution +
+                            "}]}"
                     )
-                },
-                preProcessingTaskDefns,
-                new NcAggregateProductDefinition.Action(
-                    "none",
-                    new double[0],
-                    variableNames,
-                    new NcAggregateProductDefinition.SummaryOperator[0]
-                ),
-                new NcAggregateProductDefinition.Outputs(
-                    NcAggregateProductDefinition.OutputsStrategy.DAILY,
-                    false,
-                    outputPath,
-                    new ArrayList<NcAggregateProductDefinition.OutputFile>() {{
-                        add(
-                            new NcAggregateProductDefinition.NetcdfOutputFile(
-                                NcAggregateProductDefinition.OutputFileType.NETCDF,
-                                "regularGridMapper",
-                                new HashMap<String, String>()
-                            )
-                        );
-                    }}
                 )
             );
-
-            NcAggregateTask task = new NcAggregateTask(
-                "jobId",
-                PRODUCT_DEFINITION_ID,
-                "regridded/" + file.getName(),
-                outputFilename,
-                timeInstants);
-            taskDao.persist(task);
-
-            // Build an ApplicationContext which can be passed to the executor for app-level
-            // references.
-            final ApplicationContext applicationContext = new ApplicationContext("regrid");
-            applicationContext.setTask(task);
-            applicationContext.setProductDefinition(productDefinition);
-            applicationContext.setMetadataDao(metadataDao);
-            applicationContext.setTaskDao(taskDao);
-            applicationContext.setTempPathname(tempDir);
-            ApplicationContextBuilder.populateApplicationContext(
-                applicationContext,
-                task,
-                productDefinition
-            );
-
-            // Execute the aggregator on the file. Aggregation will not be performed because of
-            // settings we made in the ProductDefinition, but the aggregator will perform regridding
-            // on the file.
-            AggregationTaskExecutor aggregationTaskExecutor = new AggregationTaskExecutor();
-            aggregationTaskExecutor.execute(task, applicationContext);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                "Failed to parse JSON for RegularGridMapper definition.", e);
         }
+        NcAggregateProductDefinition productDefinition = NcAggregateProductDefinition.make(
+            PRODUCT_DEFINITION_ID,
+            "Australia/Brisbane",
+            new ProductDefinition.Filters(new ProductDefinition.DateRange[0]),
+            new NcAggregateProductDefinition.NetCDFInput[]{
+                NcAggregateProductDefinition.NetCDFInput.make(
+                    INPUT_ID,
+                    "netcdf",
+                    timeIncrement,
+                    fileDuration,
+                    false,
+                    new String[0]
+                )
+            },
+            preProcessingTaskDefns,
+            new NcAggregateProductDefinition.Action(
+                "none",
+                new double[0],
+                variableNames,
+                new NcAggregateProductDefinition.SummaryOperator[0]
+            ),
+            new NcAggregateProductDefinition.Outputs(
+                NcAggregateProductDefinition.OutputsStrategy.DAILY,
+                false,
+                outputPath,
+                new ArrayList<NcAggregateProductDefinition.OutputFile>() {{
+                    add(
+                        new NcAggregateProductDefinition.NetcdfOutputFile(
+                            NcAggregateProductDefinition.OutputFileType.NETCDF,
+                            "regularGridMapper",
+                            new HashMap<String, String>()
+                        )
+                    );
+                }}
+            )
+        );
+
+        NcAggregateTask task = new NcAggregateTask(
+            "jobId",
+            PRODUCT_DEFINITION_ID,
+            "regridded/" + file.getName(),
+            outputFilename,
+            timeInstants);
+        synchronized (sharedApplicationContext.getTaskDao()) {
+            sharedApplicationContext.getTaskDao().persist(task);
+        }
+
+        // Build an ApplicationContext which can be passed to the executor for app-level
+        // references.
+        final ApplicationContext applicationContext = new ApplicationContext("regrid");
+        applicationContext.setTask(task);
+        applicationContext.setProductDefinition(productDefinition);
+        applicationContext.setMetadataDao(sharedApplicationContext.getMetadataDao());
+        applicationContext.setTaskDao(sharedApplicationContext.getTaskDao());
+        applicationContext.setTempPathname(sharedApplicationContext.getTempPathname());
+        applicationContext.setFileCache(sharedApplicationContext.getFileCache());
+        applicationContext.setArtefactCache(sharedApplicationContext.getArtefactCache());
+        ApplicationContextBuilder.populateApplicationContext(
+            applicationContext,
+            task,
+            productDefinition,
+            preProcessedApplicationContext
+        );
+
+        // Execute the aggregator on the file. Aggregation will not be performed because of
+        // settings we made in the ProductDefinition, but the aggregator will perform regridding
+        // on the file.
+        AggregationTaskExecutor aggregationTaskExecutor = new AggregationTaskExecutor();
+        aggregationTaskExecutor.execute(task, applicationContext);
+        return applicationContext;
     }
 
 }
@@ -2,15 +2,15 @@ package aims.ereefs.netcdf.regrid;
 
 
 import aims.ereefs.netcdf.ApplicationContext;
-import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.tasks.PreProcessingTask;
+import aims.ereefs.netcdf.util.file.cache.ArtefactCache;
 import aims.ereefs.netcdf.util.file.download.FileDownloadManager;
 import aims.ereefs.netcdf.util.file.upload.FileUploadManager;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ucar.nc2.Variable;
 
 import java.io.File;
 import java.util.UUID;
@@ -21,7 +21,8 @@ import java.util.UUID;
  * specified in the Product Definition. If a {@code url} is specified and the referenced file
  * exists, the {@link RegularGridMapper} will be deserialised from that file and added to the
  * cache. If the file does not exist, the {@link RegularGridMapper} will be generated and then
- * serialised to the {@code url} before being added to the cache.
+ * serialised to the {@code url} before being added to the cache. In either case, the
+ * {@link RegularGridMapper} is also stored in the {@link ArtefactCache}, which is checked first.
  *
  * @author Aaron Smith
  */
@@ -42,6 +43,11 @@ public class RegularGridMapperCachePopulatorTask implements PreProcessingTask {
      */
     private static final double DEFAULT_RESOLUTION = 0.03;
 
+    /**
+     * The type of the artefact in the {@link ArtefactCache}.
+     */
+    static final protected String ARTEFACT_TYPE = "regularGridMapper";
+
     /**
      * Cached reference to the location where files will be downloaded to.
      */
@@ -73,6 +79,22 @@ public class RegularGridMapperCachePopulatorTask implements PreProcessingTask {
             }
             logger.debug("file: " + bindName);
 
+            // Use the artefact cache if the RegularGridMapper has already been built for the grid
+            // and resolution, avoiding the download.
+            final GridGeometry gridGeometry = applicationContext.getGridGeometry();
+            final ArtefactCache artefactCache = applicationContext.getArtefactCache();
+            final String artefactKey = ArtefactCache.makeKey(
+                ARTEFACT_TYPE,
+                gridGeometry.getContentHash(),
+                resolution
+            );
+            final RegularGridMapper cachedRegularGridMapper =
+                artefactCache.retrieve(artefactKey, CacheReader::readAsRegularGridMapper);
+            if (cachedRegularGridMapper != null) {
+                applicationContext.putInCache(bindName, cachedRegularGridMapper);
+                continue;
+            }
+
             // Download the file to the local temp directory using a randomly generated filename.
             final String filename = tempPathname + UUID.randomUUID().toString() + ".ser";
             File downloadedFile = null;
@@ -86,10 +108,15 @@ public class RegularGridMapperCachePopulatorTask implements PreProcessingTask {
             if ((downloadedFile != null) && (downloadedFile.exists())) {
 
                 // Download successful, to parse the file and add it to the cache.
+                final RegularGridMapper regularGridMapper =
+                    CacheReader.readAsRegularGridMapper(downloadedFile.getAbsolutePath());
                 applicationContext.putInCache(
                     bindName,
-                    CacheReader.readAsRegularGridMapper(downloadedFile.getAbsolutePath())
+                    regularGridMapper
                 );
+                if (regularGridMapper != null) {
+                    artefactCache.store(artefactKey, regularGridMapper, CacheWriter::write);
+                }
 
                 // Delete the downloaded file.
                 FileDownloadManager.delete(url, downloadedFile);
@@ -97,38 +124,15 @@ public class RegularGridMapperCachePopulatorTask implements PreProcessingTask {
             } else {
 
                 // File could not be downloaded, so build and publish.
-                final InputDataset referenceDataset =
-                    applicationContext.getInputDatasetCache().getReferenceDataset();
-                logger.debug("Reading latitude variable.");
-                Variable latitudeVariable = null;
-                try {
-                    latitudeVariable = referenceDataset.getLatitudeVariable();
-                    logger.debug("Latitude variable size: " + latitudeVariable.getSize());
-                } catch (Throwable throwable) {
-                    throw new RuntimeException(
-                        "Failed to get reference to latitude variable from reference dataset.",
-                        throwable
-                    );
-                }
-                logger.debug("Reading longitude variable.");
-                Variable longitudeVariable = null;
-                try {
-                    longitudeVariable = referenceDataset.getLongitudeVariable();
-                    logger.debug("Longitude variable size: " + longitudeVariable.getSize());
-                } catch (Throwable throwable) {
-                    throw new RuntimeException(
-                        "Failed to reference to longitude variable from reference dataset.",
-                        throwable
-                    );
-                }
-
+                logger.debug("Latitude size: " + gridGeometry.getLatitudeCount());
+                logger.debug("Longitude size: " + gridGeometry.getLongitudeCount());
                 logger.debug("resolution: " + resolution);
 
                 RegularGridMapper regularGridMapper = null;
                 try {
                     regularGridMapper = RegularGridMapperBuilder.make(
-                        latitudeVariable.read(),
-                        longitudeVariable.read(),
+                        gridGeometry.getLatitudeArray(),
+                        gridGeometry.getLongitudeArray(),
                         resolution,
                         null
                     );
@@ -143,6 +147,7 @@ public class RegularGridMapperCachePopulatorTask implements PreProcessingTask {
                         throwable
                     );
                 }
+                artefactCache.store(artefactKey, regularGridMapper, CacheWriter::write);
 
                 // Persist the RegularGridMapper to the local file, and then archive it.
                 File localFile = new File(tempPathname + UUID.randomUUID().toString() + ".ser");
@@ -6,15 +6,19 @@ import aims.ereefs.netcdf.TerminatingException;
 import aims.ereefs.netcdf.aggregator.AggregationPeriods;
 import aims.ereefs.netcdf.aggregator.AggregationPeriodsFactory;
 import aims.ereefs.netcdf.input.extraction.ExtractionSite;
+import aims.ereefs.netcdf.input.netcdf.InputDataset;
 import aims.ereefs.netcdf.output.netcdf.OutputDataset;
 import aims.ereefs.netcdf.output.netcdf.OutputDatasetBuilder;
 import aims.ereefs.netcdf.output.netcdf.SummaryOperatorDefinitionListBuilder;
 import aims.ereefs.netcdf.output.summary.OutputWriter;
 import aims.ereefs.netcdf.output.summary.SiteBasedCsvFileOutputWriter;
 import aims.ereefs.netcdf.output.summary.ZoneBasedCsvFileOutputWriter;
+import aims.ereefs.netcdf.task.aggregation.checkpoint.CheckpointManager;
+import aims.ereefs.netcdf.task.aggregation.checkpoint.CheckpointManifest;
 import aims.ereefs.netcdf.task.aggregation.pipeline.PipelineBuilder;
 import aims.ereefs.netcdf.task.aggregation.pipeline.TimeInstantIteratorStage;
 import aims.ereefs.netcdf.util.file.upload.FileUploadManager;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
@@ -71,11 +75,41 @@ public class AggregationTaskExecutor implements TaskExecutor {
     }
 
     /**
-     * Execute the specified {@code task}.
+     * Execute the specified {@code task}. Tracing is optional. If enabled, the {@code Spans} of
+     * the {@code task} are recorded by its own {@link Tracer.Recorder}, held in the
+     * {@link ApplicationContext}, and the trace file is published next to the outputs.
      */
     protected void execute(NcAggregateTask task,
                            NcAggregateProductDefinition productDefinition,
                            ApplicationContext applicationContext) {
+        final Tracer.Recorder traceRecorder = Tracer.initialise();
+        applicationContext.setTraceRecorder(traceRecorder);
+        try (Tracer.Binding traceBinding = Tracer.bind(traceRecorder)) {
+            this.executeTask(task, productDefinition, applicationContext);
+        } finally {
+
+            // Publish the trace regardless of the outcome, as it is most useful when a Task fails
+            // or is slow. A failure to publish the trace must not hide the outcome of the Task.
+            if (traceRecorder != null) {
+                final String traceLocalFilename = applicationContext.getTempPathname() + task.getId() +
+                    "-trace.json";
+                try {
+                    traceRecorder.write(new File(traceLocalFilename));
+                    FileUploadManager.upload(traceLocalFilename, task.getBaseUrl() + "-trace.json");
+                } catch (Exception e) {
+                    this.logger.warn("Failed to publish the trace file.", e);
+                }
+            }
+            applicationContext.setTraceRecorder(null);
+        }
+    }
+
+    /**
+     * Execute the specified {@code task} once tracing has been prepared.
+     */
+    protected void executeTask(NcAggregateTask task,
+                               NcAggregateProductDefinition productDefinition,
+                               ApplicationContext applicationContext) {
 
         // Retrieve references from the ApplicationContext which are used repeatedly within this
         // method, and typecast for convenience.
@@ -89,23 +123,47 @@ public class AggregationTaskExecutor implements TaskExecutor {
         // Build the complete list of operations/actions to be performed on the input data based
         // on the defined SummaryOperators in the Product definition, and combine with default MEAN
         // definitions for each declared variable. This becomes the list we work from.
-        final List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorDefinitionList =
-            SummaryOperatorDefinitionListBuilder.build(
+        final List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorDefinitionList;
+        try (InputDataset referenceDataset = applicationContext.getInputDatasetCache().getReferenceDataset()) {
+            summaryOperatorDefinitionList = SummaryOperatorDefinitionListBuilder.build(
                 productDefinition.getAction(),
                 applicationContext.getInputDefinitionByVariableNameMap(),
                 aggregationPeriod,
-                applicationContext.getInputDatasetCache().getReferenceDataset()
+                referenceDataset
             );
+        }
 
         // Create the OutputDataset, which is a wrapper around the actual NetCDF file. The returned
-        // object includes an information value object.
+        // object includes an information value object. When resuming from a checkpoint, the
+        // restored file is opened instead.
         final String outputDatasetLocalFilename = applicationContext.getTempPathname() +
             task.getId() + "-output.nc";
         final String outputDatasetRemoteUrl = task.getBaseUrl().toLowerCase().endsWith(".nc") ?
                 task.getBaseUrl() :
                 task.getBaseUrl() + ".nc";
+        final String summaryOutputFilename = applicationContext.getTempPathname() + task.getId() +
+            "-summary.csv";
+        final String summaryOutputRemoteUrl = task.getBaseUrl() + "-summary.csv";
+        final boolean hasSummaryOutput =
+            productDefinition.getOutputs().getZoneBasedSummaryOutputFile() != null ||
+                productDefinition.getOutputs().getSiteBasedSummaryOutputFile() != null;
+
+        // Checkpointing is optional. If enabled, restore the outputs from the last checkpoint so
+        // processing can continue from the last completed TimeInstant.
+        final CheckpointManager checkpointManager = CheckpointManager.make(
+            task,
+            applicationContext.getTempPathname(),
+            productDefinition.getOutputs().getNetcdfOutputFile() != null ? outputDatasetLocalFilename : null,
+            hasSummaryOutput ? summaryOutputFilename : null
+        );
+        final CheckpointManifest checkpointManifest =
+            checkpointManager != null ? checkpointManager.restore() : null;
+        final boolean isResuming = checkpointManifest != null;
+
         OutputDataset outputDataset = null;
-        if (productDefinition.getOutputs().getNetcdfOutputFile() != null) {
+        if (productDefinition.getOutputs().getNetcdfOutputFile() != null && isResuming) {
+            outputDataset = OutputDatasetBuilder.open(outputDatasetLocalFilename);
+        } else if (productDefinition.getOutputs().getNetcdfOutputFile() != null) {
             outputDataset = OutputDatasetBuilder.build(
                 outputDatasetLocalFilename,
                 task,
@@ -114,22 +172,21 @@ public class AggregationTaskExecutor implements TaskExecutor {
                 aggregationPeriod,
                 summaryOperatorDefinitionList,
                 applicationContext.getDatasetMetadataIdsByInputIdMap(),
-                applicationContext.getMetadataDao()
+                applicationContext.getMetadataCache()
             );
         }
 
         // Create the SummaryWriter if defined. This requires a Summary Output File to be defined,
-        // and expects that the CSV Static File has been defined with the zoneNamesInputId.
-        final String summaryOutputFilename = applicationContext.getTempPathname() + task.getId() +
-            "-summary.csv";
-        final String summaryOutputRemoteUrl = task.getBaseUrl() + "-summary.csv";
+        // and expects that the CSV Static File has been defined with the zoneNamesInputId. When
+        // resuming, the restored summary file is appended to.
         OutputWriter summaryOutputWriter = null;
         if (productDefinition.getOutputs().getZoneBasedSummaryOutputFile() != null) {
             try {
                 summaryOutputWriter = new ZoneBasedCsvFileOutputWriter(
                     new File(summaryOutputFilename),
                     applicationContext,
-                    productDefinition.getOutputs().getZoneBasedSummaryOutputFile().getZoneNamesBindName()
+                    productDefinition.getOutputs().getZoneBasedSummaryOutputFile().getZoneNamesBindName(),
+                    isResuming
                 );
             } catch (IOException e) {
                 throw new RuntimeException("Failed to instantiate the SummaryOutputWriter.", e);
@@ -141,7 +198,8 @@ public class AggregationTaskExecutor implements TaskExecutor {
                     new File(summaryOutputFilename),
                     (List<ExtractionSite>) applicationContext.getFromCache(
                         "extractionSites"
-                    )
+                    ),
+                    isResuming
                 );
             } catch (IOException e) {
                 throw new RuntimeException("Failed to instantiate the SummaryOutputWriter.", e);
@@ -160,6 +218,15 @@ public class AggregationTaskExecutor implements TaskExecutor {
                     outputDataset,
                     summaryOutputWriter
                 );
+            if (checkpointManager != null) {
+                checkpointManager.start(outputDataset, summaryOutputWriter);
+                timeInstantIteratorStage.setCheckpointManager(checkpointManager);
+            }
+            if (isResuming) {
+                timeInstantIteratorStage.setStartTimeInstantIndex(
+                    checkpointManifest.getCompletedTimeInstantCount()
+                );
+            }
             timeInstantIteratorStage.execute();
 
 
@@ -199,11 +266,15 @@ public class AggregationTaskExecutor implements TaskExecutor {
                     outputDatasetRemoteUrl
                 );
 
-                // Persist the metadata to the database if it's valid.
+                // Persist the metadata to the database if it's valid. The DAOs may be shared by
+                // Tasks executed concurrently (eg: when regridding), so each is locked while
+                // persisting.
                 if (netcdfMetadataBean.getStatus().equals(NetCDFMetadataBean.Status.VALID)) {
                     JSONObject json = netcdfMetadataBean.toJSON();
                     json.put("_id", task.getMetadataId());
-                    applicationContext.getMetadataDao().persist(json);
+                    synchronized (applicationContext.getMetadataDao()) {
+                        applicationContext.getMetadataDao().persist(json);
+                    }
                 } else {
                     logger.error("NetCDF metadata reported as NOT valid.");
                     logger.debug(netcdfMetadataBean.toString());
@@ -233,7 +304,14 @@ public class AggregationTaskExecutor implements TaskExecutor {
                 hasUpdatedGeneratedFiles = true;
             }
             if (hasUpdatedGeneratedFiles) {
-                applicationContext.getTaskDao().persist(refreshedTask);
+                synchronized (applicationContext.getTaskDao()) {
+                    applicationContext.getTaskDao().persist(refreshedTask);
+                }
+            }
+
+            // The outputs are published, so the checkpoint must not be resumed from again.
+            if (checkpointManager != null) {
+                checkpointManager.complete();
             }
 
         } catch (TerminatingException e) {
@@ -241,6 +319,10 @@ public class AggregationTaskExecutor implements TaskExecutor {
         } catch (Exception e) {
             this.logger.error("Error thrown.", e);
             throw new RuntimeException("Error thrown.", e);
+        } finally {
+            if (checkpointManager != null) {
+                checkpointManager.close();
+            }
         }
     }
 
@@ -0,0 +1,387 @@
+package aims.ereefs.netcdf.task.aggregation;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.ApplicationContextBuilder;
+import aims.ereefs.netcdf.OperationModeExecutor;
+import aims.ereefs.netcdf.TaskExecutor;
+import aims.ereefs.netcdf.TerminatingException;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.ParameterStoreReader;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.file.cache.FileCache;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import io.prometheus.client.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link OperationModeExecutor} implementation for executing a batch of aggregation
+ * {@code Tasks} within a single application instance. Compared to executing each {@code Task} in
+ * its own instance, the batch shares:
+ * <ul>
+ *     <li>the connection to the database,</li>
+ *     <li>the {@link FileCache}, so input files downloaded for one {@code Task} are available to
+ *     the following {@code Tasks}, and</li>
+ *     <li>the results of the pre-processing tasks (eg: zone maps, regrid mapper, extraction
+ *     sites), which are executed once per {@code ProductDefinition}.</li>
+ * </ul>
+ * {@code Tasks} are ordered by {@code ProductDefinition} and then by their first input file, so
+ * that consecutive {@code Tasks} are most likely to reuse cached input files.
+ * <p>
+ * The {@code Tasks} to execute are identified by either {@code --tasks=<id>,<id>,...} or
+ * {@code --task-list=<filename>}, where the file contains one {@code Task} id per line. A
+ * filename of {@code -} reads the list from standard input, allowing the ids to be piped from a
+ * queue consumer. The number of {@code Tasks} executed concurrently is specified by
+ * {@code --parallelism=<n>} or the {@code BATCH_PARALLELISM} environment variable.
+ * <p>
+ * A failed {@code Task} does not halt the batch. Instead, failures are reported once all
+ * {@code Tasks} have been attempted.
+ *
+ * @author Aaron Smith
+ */
+public class BatchOperationModeExecutor implements OperationModeExecutor {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Constant identifying the default number of {@code Tasks} to execute concurrently.
+     */
+    final static protected int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * Define the metric to be reported to Prometheus.
+     */
+    protected static final Gauge apmBatchTasks = Gauge.build()
+        .name("ncaggregate_batch_tasks")
+        .help("Number of Tasks in the batch by state.")
+        .labelNames("state")
+        .register();
+
+    /**
+     * {@link ApplicationContext} of the first {@code Task} for each {@code ProductDefinition}, from
+     * which the results of the pre-processing tasks are copied by subsequent {@code Tasks}.
+     */
+    protected Map<String, ApplicationContext> preProcessedApplicationContextMap = new ConcurrentHashMap<>();
+
+    /**
+     * Locks ensuring the pre-processing tasks of a {@code ProductDefinition} are only executed
+     * once.
+     */
+    protected Map<String, Object> productDefinitionLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Return {@code true} if {@code args} contains {@code --batch}.
+     */
+    @Override
+    public boolean supports(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.equalsIgnoreCase("--batch"));
+    }
+
+    /**
+     * Coordinate the {@code Batch} operation.
+     */
+    @Override
+    public void execute(String[] args) {
+        logger.debug("Executing");
+
+        // Capture the command line arguments.
+        List<String> taskIds = new ArrayList<>();
+        String taskListFilename = null;
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("BATCH_PARALLELISM");
+        int parallelism = parallelismStr != null ?
+            Integer.parseInt(parallelismStr) : DEFAULT_PARALLELISM;
+        for (final String arg : args) {
+
+            if (arg.startsWith("--tasks=")) {
+                for (String taskId : arg.substring("--tasks=".length()).split(",")) {
+                    if (!taskId.trim().isEmpty()) {
+                        taskIds.add(taskId.trim());
+                    }
+                }
+            }
+
+            if (arg.startsWith("--task-list=")) {
+                taskListFilename = arg.substring("--task-list=".length());
+            }
+
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+
+        }
+        if (taskListFilename != null) {
+            taskIds.addAll(readTaskIds(taskListFilename));
+        }
+        if (taskIds.isEmpty()) {
+            throw new RuntimeException("No Tasks specified. Use \"--tasks=<id>,<id>\" or " +
+                "\"--task-list=<filename>\"");
+        }
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be at least 1.");
+        }
+        logger.info("Tasks: " + taskIds.size() + ", parallelism: " + parallelism);
+
+        // Identify the execution environment (eg: "PROD", "TEST", "asmith").
+        final String executionEnvironment = EnvironmentVariableReader.getInstance().getByKey("EXECUTION_ENVIRONMENT");
+        ParameterStoreReader.setExecutionEnvironment(executionEnvironment);
+
+        // The shared ApplicationContext holds the references shared by all Tasks in the batch.
+        final ApplicationContext sharedApplicationContext = new ApplicationContext(executionEnvironment);
+        ApplicationContextBuilder.populateDao(sharedApplicationContext);
+        sharedApplicationContext.setTempPathname(TempDirectoryInitialiser.initialise());
+        sharedApplicationContext.setFileCache(
+            ApplicationContextBuilder.makeFileCache(sharedApplicationContext.getTempPathname())
+        );
+        sharedApplicationContext.setArtefactCache(ApplicationContextBuilder.makeArtefactCache());
+
+        try {
+
+            // Load and order the Tasks to maximise reuse of cached input files.
+            final List<ApplicationContext> applicationContexts = new ArrayList<>();
+            for (String taskId : taskIds) {
+                final ApplicationContext applicationContext = this.makeApplicationContext(
+                    executionEnvironment,
+                    sharedApplicationContext
+                );
+                ApplicationContextBuilder.populateTask(applicationContext, taskId);
+                applicationContexts.add(applicationContext);
+            }
+            sortForCacheReuse(applicationContexts);
+
+            // Execute the Tasks.
+            this.executeTasks(applicationContexts, parallelism);
+            logger.info("Processing successful.");
+
+        } finally {
+
+            // Close the connection to the database.
+            if (sharedApplicationContext.getMongoClient() != null) {
+                sharedApplicationContext.getMongoClient().close();
+            }
+        }
+
+    }
+
+    /**
+     * Execute the {@code Tasks} in order, with up to {@code parallelism} {@code Tasks} executing
+     * concurrently. A failed {@code Task} does not halt the batch, but a
+     * {@link TerminatingException} does.
+     */
+    protected void executeTasks(List<ApplicationContext> applicationContexts, int parallelism) {
+        final AtomicInteger failedCount = new AtomicInteger();
+        apmBatchTasks.labels("pending").set(applicationContexts.size());
+        final ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final ApplicationContext applicationContext : applicationContexts) {
+                futures.add(executorService.submit(() -> {
+                    apmBatchTasks.labels("pending").dec();
+                    try {
+                        this.executeTask(applicationContext);
+                        apmBatchTasks.labels("successful").inc();
+                    } catch (TerminatingException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        logger.error("Task \"" + applicationContext.getTask().getId() +
+                            "\" failed.", e);
+                        apmBatchTasks.labels("failed").inc();
+                        failedCount.incrementAndGet();
+                    }
+                }));
+            }
+
+            // Wait for all Tasks to finish. A TerminatingException halts the batch.
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof TerminatingException) {
+                        executorService.shutdownNow();
+                        throw (TerminatingException) e.getCause();
+                    }
+                    throw new RuntimeException("Task execution failed.", e.getCause());
+                } catch (InterruptedException e) {
+                    executorService.shutdownNow();
+                    throw new TerminatingException("Batch interrupted.");
+                }
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        if (failedCount.get() > 0) {
+            throw new RuntimeException(failedCount.get() + " of " + applicationContexts.size() +
+                " Tasks failed.");
+        }
+    }
+
+    /**
+     * Populate the {@link ApplicationContext} of a single {@code Task}, reusing the results of the
+     * pre-processing tasks if already executed for the {@code ProductDefinition}, and then execute
+     * the {@code Task}.
+     */
+    protected void executeTask(ApplicationContext applicationContext) {
+        final NcAggregateTask task = applicationContext.getTask();
+        logger.info("Task \"" + task.getId() + "\" starting.");
+        this.populateApplicationContext(applicationContext);
+
+        // Execute the Task.
+        try {
+            AggregationOperationModeExecutor.apmUp.labels(task.getId()).set(1);
+            final TaskExecutor aggregationTaskExecutor = this.makeTaskExecutor();
+            if (aggregationTaskExecutor.supports(task)) {
+                aggregationTaskExecutor.execute(task, applicationContext);
+            }
+            logger.info("Task \"" + task.getId() + "\" successful.");
+        } finally {
+            AggregationOperationModeExecutor.apmUp.labels(task.getId()).set(0);
+        }
+    }
+
+    /**
+     * Instantiate the {@link TaskExecutor} used to execute each {@code Task}.
+     */
+    protected TaskExecutor makeTaskExecutor() {
+        return new AggregationTaskExecutor();
+    }
+
+    /**
+     * Populate the {@link ApplicationContext} of a single {@code Task}. The first {@code Task} of
+     * each {@code ProductDefinition} executes the pre-processing tasks, while other {@code Tasks}
+     * of the same {@code ProductDefinition} wait and then copy the results.
+     */
+    protected void populateApplicationContext(ApplicationContext applicationContext) {
+        final String productDefinitionId = applicationContext.getTask().getProductDefinitionId();
+        ApplicationContext preProcessedApplicationContext =
+            this.preProcessedApplicationContextMap.get(productDefinitionId);
+        if (preProcessedApplicationContext == null) {
+            synchronized (this.productDefinitionLocks.computeIfAbsent(productDefinitionId, key -> new Object())) {
+                preProcessedApplicationContext = this.preProcessedApplicationContextMap.get(productDefinitionId);
+                if (preProcessedApplicationContext == null) {
+                    this.preProcess(applicationContext);
+                    this.preProcessedApplicationContextMap.put(productDefinitionId, applicationContext);
+                }
+            }
+        }
+        if (preProcessedApplicationContext != null) {
+            this.reusePreProcessing(applicationContext, preProcessedApplicationContext);
+        }
+    }
+
+    /**
+     * Populate the {@link ApplicationContext}, executing the pre-processing tasks.
+     */
+    protected void preProcess(ApplicationContext applicationContext) {
+        ApplicationContextBuilder.populateApplicationContext(
+            applicationContext,
+            applicationContext.getTask(),
+            (NcAggregateProductDefinition) applicationContext.getProductDefinition()
+        );
+    }
+
+    /**
+     * Populate the {@link ApplicationContext}, copying the results of the pre-processing tasks
+     * from the {@code preProcessedApplicationContext}.
+     */
+    protected void reusePreProcessing(ApplicationContext applicationContext,
+                                      ApplicationContext preProcessedApplicationContext) {
+        ApplicationContextBuilder.populateApplicationContext(
+            applicationContext,
+            applicationContext.getTask(),
+            (NcAggregateProductDefinition) applicationContext.getProductDefinition(),
+            preProcessedApplicationContext
+        );
+    }
+
+    /**
+     * Instantiate an {@link ApplicationContext} for a single {@code Task}, populated with the
+     * references shared by all {@code Tasks} in the batch.
+     */
+    protected ApplicationContext makeApplicationContext(String executionEnvironment,
+                                                        ApplicationContext sharedApplicationContext) {
+        final ApplicationContext applicationContext = new ApplicationContext(executionEnvironment);
+        if (sharedApplicationContext.getMongoClient() != null) {
+            applicationContext.setMongoClient(sharedApplicationContext.getMongoClient());
+        }
+        applicationContext.setTaskDao(sharedApplicationContext.getTaskDao());
+        applicationContext.setProductDefinitionDao(sharedApplicationContext.getProductDefinitionDao());
+        applicationContext.setExtractionRequestDao(sharedApplicationContext.getExtractionRequestDao());
+        applicationContext.setMetadataDao(sharedApplicationContext.getMetadataDao());
+        applicationContext.setTempPathname(sharedApplicationContext.getTempPathname());
+        applicationContext.setFileCache(sharedApplicationContext.getFileCache());
+        applicationContext.setArtefactCache(sharedApplicationContext.getArtefactCache());
+        return applicationContext;
+    }
+
+    /**
+     * Order the {@link ApplicationContext}s by the {@code ProductDefinition} of their {@code Task}
+     * and then by its first input file, so consecutive {@code Tasks} are most likely to reuse
+     * cached input files.
+     */
+    static protected void sortForCacheReuse(List<ApplicationContext> applicationContexts) {
+        applicationContexts.sort(
+            Comparator
+                .comparing((ApplicationContext applicationContext) ->
+                    applicationContext.getTask().getProductDefinitionId())
+                .thenComparing(applicationContext ->
+                    getFirstInputMetadataId(applicationContext.getTask()))
+        );
+    }
+
+    /**
+     * Returns the {@code MetadataId} of the first input file referenced by the {@code Task}, or an
+     * empty string if the {@code Task} has no inputs.
+     */
+    static protected String getFirstInputMetadataId(NcAggregateTask task) {
+        for (NcAggregateTask.TimeInstant timeInstant : task.getTimeInstants()) {
+            for (NcAggregateTask.Input input : timeInstant.getInputs()) {
+                for (NcAggregateTask.FileIndexBounds fileIndexBounds : input.getFileIndexBounds()) {
+                    return fileIndexBounds.getMetadataId();
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Read the {@code Task} ids from the specified file, one (1) per line, ignoring blank lines.
+     * A filename of {@code -} reads from standard input.
+     */
+    static protected List<String> readTaskIds(String filename) {
+        final List<String> taskIds = new ArrayList<>();
+        try (Reader reader = "-".equals(filename) ?
+            new InputStreamReader(System.in, StandardCharsets.UTF_8) :
+            new FileReader(filename);
+             BufferedReader bufferedReader = new BufferedReader(reader)) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    taskIds.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the Task list \"" + filename + "\".", e);
+        }
+        return taskIds;
+    }
+
+}
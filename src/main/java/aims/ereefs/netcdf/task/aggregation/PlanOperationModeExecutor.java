@@ -0,0 +1,203 @@
+package aims.ereefs.netcdf.task.aggregation;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.ApplicationContextBuilder;
+import aims.ereefs.netcdf.OperationModeExecutor;
+import aims.ereefs.netcdf.aggregator.AggregationPeriods;
+import aims.ereefs.netcdf.aggregator.AggregationPeriodsFactory;
+import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.input.netcdf.InputDatasetCache;
+import aims.ereefs.netcdf.input.netcdf.InputDatasetCacheFactory;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
+import aims.ereefs.netcdf.output.netcdf.SummaryOperatorDefinitionListBuilder;
+import aims.ereefs.netcdf.task.aggregation.pipeline.TaskCostEstimator;
+import aims.ereefs.netcdf.util.Constants;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.ParameterStoreReader;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.file.cache.FileCache;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link OperationModeExecutor} implementation to estimate the cost of executing a {@code Task}
+ * before it is executed, so the container can be sized and the concurrency settings chosen. The
+ * {@code Task} is identified by {@code --task=<id>} or the {@code TASK_ID} environment variable.
+ * <p>
+ * The list of {@code SummaryOperators} is built in the same way as for aggregation, but the
+ * {@code PreProcessingTasks} are not executed and no data is read. Only the reference dataset of
+ * each {@code Input} is retrieved, for the layout of its variables. The {@link TaskCostEstimator}
+ * then estimates the bytes downloaded, the bytes read per variable, the peak heap per chunk of
+ * depths, the output size and the runtime. The estimate is logged, and written to
+ * {@code stdout} as {@code JSON} for schedulers.
+ *
+ * @author Aaron Smith
+ */
+public class PlanOperationModeExecutor implements OperationModeExecutor {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Return {@code true} if {@code args} contains {@code --plan}.
+     */
+    @Override
+    public boolean supports(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.equalsIgnoreCase("--plan"));
+    }
+
+    /**
+     * Coordinate the planning operation.
+     */
+    @Override
+    public void execute(String[] args) {
+        logger.debug("Executing");
+
+        // Capture the command line arguments.
+        String taskId = EnvironmentVariableReader.getInstance().optByKey("TASK_ID");
+        for (final String arg : args) {
+            if (arg.startsWith("--task=")) {
+                taskId = arg.substring("--task=".length());
+            }
+        }
+        if (taskId == null) {
+            throw new RuntimeException("Task not specified. Use \"--task=<id>\" or \"TASK_ID\".");
+        }
+        logger.info("taskId: " + taskId);
+
+        // Populate the Task and ProductDefinition in the same way as for aggregation.
+        final String executionEnvironment = EnvironmentVariableReader.getInstance().getByKey("EXECUTION_ENVIRONMENT");
+        ParameterStoreReader.setExecutionEnvironment(executionEnvironment);
+        final ApplicationContext applicationContext = new ApplicationContext(executionEnvironment);
+        try {
+            ApplicationContextBuilder.populateDao(applicationContext);
+            ApplicationContextBuilder.populateTask(applicationContext, taskId);
+
+            final TaskCostEstimator.Estimate estimate = this.plan(
+                applicationContext.getTask(),
+                (NcAggregateProductDefinition) applicationContext.getProductDefinition(),
+                applicationContext
+            );
+            this.log(estimate);
+            System.out.println(estimate.toJSON().toString(2));
+        } finally {
+
+            // Close the connection to the database.
+            if (applicationContext.getMongoClient() != null) {
+                applicationContext.getMongoClient().close();
+            }
+        }
+    }
+
+    /**
+     * Estimate the cost of the {@code task}. Only the {@code ApplicationContext} references needed
+     * to build the list of {@code SummaryOperators} are populated, so the
+     * {@code PreProcessingTasks} (eg: building the {@code RegularGridMapper}) are not executed.
+     */
+    protected TaskCostEstimator.Estimate plan(NcAggregateTask task,
+                                              NcAggregateProductDefinition productDefinition,
+                                              ApplicationContext applicationContext) {
+
+        final String tempPathname = TempDirectoryInitialiser.initialise();
+        final FileCache fileCache = ApplicationContextBuilder.makeFileCache(tempPathname);
+        final Map<String, List<String>> datasetMetadataIdsByInputIdMap =
+            DatasetMetadataIdsByInputIdBuilder.build(task, productDefinition);
+        final InputDatasetCache inputDatasetCache = InputDatasetCacheFactory.make(
+            fileCache,
+            MetadataCache.prefetch(applicationContext.getMetadataDao(), datasetMetadataIdsByInputIdMap),
+            productDefinition,
+            datasetMetadataIdsByInputIdMap
+        );
+        final Map<String, NcAggregateProductDefinition.Input> inputDefinitionByVariableNameMap =
+            InputDefinitionByVariableNameMapBuilder.build(
+                productDefinition,
+                task,
+                inputDatasetCache,
+                InputIdToInputDefinitionMapBuilder.build(productDefinition)
+            );
+
+        // Build the list of SummaryOperators exactly as the AggregationTaskExecutor does.
+        final AggregationPeriods aggregationPeriod = AggregationPeriodsFactory.make(
+            productDefinition.getAction().getPeriod()
+        );
+        final List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorList;
+        try (InputDataset referenceDataset = inputDatasetCache.getReferenceDataset()) {
+            summaryOperatorList = SummaryOperatorDefinitionListBuilder.build(
+                productDefinition.getAction(),
+                inputDefinitionByVariableNameMap,
+                aggregationPeriod,
+                referenceDataset
+            );
+        }
+
+        // Determine the layout of each variable, and the size of a dataset, from the reference
+        // dataset of each Input.
+        final Map<String, TaskCostEstimator.VariableLayout> layoutByVariableName = new HashMap<>();
+        final Map<String, Long> fileSizeByInputId = new HashMap<>();
+        for (String inputId : datasetMetadataIdsByInputIdMap.keySet()) {
+            try (InputDataset referenceDataset = inputDatasetCache.getReferenceDataset(inputId)) {
+                if (referenceDataset == null) {
+                    continue;
+                }
+                fileSizeByInputId.put(
+                    inputId,
+                    new File(referenceDataset.getDataset().getLocation()).length()
+                );
+                for (NcAggregateProductDefinition.SummaryOperator summaryOperator : summaryOperatorList) {
+                    for (String variableName : summaryOperator.getInputVariables()) {
+                        final String[] variableNameTokens = variableName.split(Constants.VARIABLE_NAME_SEPARATOR);
+                        if ((variableNameTokens.length == 2) && variableNameTokens[0].equalsIgnoreCase(inputId)) {
+                            final Variable variable = referenceDataset.findVariable(variableNameTokens[1]);
+                            if (variable != null) {
+                                layoutByVariableName.put(
+                                    variableName,
+                                    TaskCostEstimator.VariableLayout.make(referenceDataset, variable)
+                                );
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return TaskCostEstimator.make().estimate(
+            task,
+            summaryOperatorList,
+            layoutByVariableName,
+            fileSizeByInputId,
+            productDefinition.getOutputs().getNetcdfOutputFile() != null
+        );
+    }
+
+    /**
+     * Log the {@code estimate} in a readable form.
+     */
+    protected void log(TaskCostEstimator.Estimate estimate) {
+        logger.info("Time instants: " + estimate.getTimeInstantCount() + ", summary operators: " +
+            estimate.getSummaryOperatorCount());
+        logger.info(String.format("Download: %d files, %.1f MB", estimate.getDownloadFileCount(),
+            toMb(estimate.getDownloadBytes())));
+        logger.info(String.format("Read: %.1f MB", toMb(estimate.getReadBytes())));
+        for (Map.Entry<String, Long> entry : estimate.getReadBytesByVariableName().entrySet()) {
+            logger.info(String.format("- %s: %.1f MB", entry.getKey(), toMb(entry.getValue())));
+        }
+        logger.info(String.format("Peak heap: %.1f MB per chunk of %d depths, %.1f MB for %d concurrent chunks",
+            toMb(estimate.getPeakHeapBytesPerDepthChunk()), estimate.getDepthChunkSize(),
+            toMb(estimate.getPeakHeapBytes()), estimate.getConcurrentDepthChunkCount()));
+        logger.info(String.format("Output: %.1f MB", toMb(estimate.getOutputBytes())));
+        logger.info(String.format("Runtime: %.0f s", estimate.getRuntimeSeconds()));
+    }
+
+    static protected double toMb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+}
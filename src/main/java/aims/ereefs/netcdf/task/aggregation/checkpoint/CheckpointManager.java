@@ -0,0 +1,423 @@
+package aims.ereefs.netcdf.task.aggregation.checkpoint;
+
+import aims.ereefs.netcdf.TerminatingException;
+import aims.ereefs.netcdf.output.netcdf.OutputDataset;
+import aims.ereefs.netcdf.output.summary.OutputWriter;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.file.download.FileDownloadManager;
+import aims.ereefs.netcdf.util.file.upload.FileUploadManager;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages checkpoints of a partially completed {@link NcAggregateTask}, so that a {@code Task}
+ * which is interrupted (eg: spot instance termination, out of memory) can resume from the last
+ * completed {@code TimeInstant} instead of starting again.
+ *
+ * <p>
+ * A checkpoint consists of the partially written output file(s) plus a {@link CheckpointManifest},
+ * published to {@code <CHECKPOINT_URL>/<taskId>/}. The output files are published to alternating
+ * slots ({@code a} and {@code b}) and the manifest is published last, so the manifest always
+ * refers to a complete copy of the output files.
+ * </p>
+ *
+ * <p>
+ * Checkpoints are created after a {@code TimeInstant} completes, at most once every
+ * {@code CHECKPOINT_INTERVAL_MINUTES} (default: after every {@code TimeInstant}). When the
+ * application receives {@code SIGTERM}, a checkpoint is created as soon as the current
+ * {@code TimeInstant} completes, and processing then stops with a {@link TerminatingException}.
+ * The shutdown is delayed by up to {@code CHECKPOINT_SHUTDOWN_TIMEOUT_SECONDS} while waiting for
+ * this to occur.
+ * </p>
+ *
+ * @author Aaron Smith
+ */
+public class CheckpointManager {
+
+    /**
+     * Environment variable identifying the base location for checkpoints. Checkpointing is
+     * disabled if not specified.
+     */
+    static final public String CHECKPOINT_URL = "CHECKPOINT_URL";
+
+    /**
+     * Environment variable specifying the minimum time between checkpoints.
+     */
+    static final public String CHECKPOINT_INTERVAL_MINUTES = "CHECKPOINT_INTERVAL_MINUTES";
+
+    /**
+     * Environment variable specifying the maximum time to delay shutdown while waiting for a
+     * checkpoint.
+     */
+    static final public String CHECKPOINT_SHUTDOWN_TIMEOUT_SECONDS = "CHECKPOINT_SHUTDOWN_TIMEOUT_SECONDS";
+
+    static final protected int DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 25;
+
+    static final protected String MANIFEST_NAME = "manifest.json";
+    static final protected String SLOT_A = "a";
+    static final protected String SLOT_B = "b";
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Cached reference to the {@code Task} being checkpointed.
+     */
+    protected NcAggregateTask task;
+
+    /**
+     * The location to which checkpoint files for the {@link #task} are published. Ends with a
+     * separator.
+     */
+    protected String checkpointUrl;
+
+    /**
+     * The local directory used for temporary files.
+     */
+    protected String tempPathname;
+
+    /**
+     * The local filename of the NetCDF output file, or {@code null} if not generated.
+     */
+    protected String outputDatasetLocalFilename;
+
+    /**
+     * The local filename of the summary output file, or {@code null} if not generated.
+     */
+    protected String summaryOutputLocalFilename;
+
+    /**
+     * The minimum time (milliseconds) between checkpoints.
+     */
+    protected long intervalMillis;
+
+    /**
+     * The maximum time (seconds) to delay shutdown while waiting for a checkpoint.
+     */
+    protected int shutdownTimeoutSeconds;
+
+    /**
+     * Cached references to the outputs to be flushed before each checkpoint. Populated by
+     * {@link #start(OutputDataset, OutputWriter)}.
+     */
+    protected OutputDataset outputDataset;
+    protected OutputWriter summaryOutputWriter;
+
+    /**
+     * The time of the last checkpoint, or the start of processing if no checkpoint has occurred.
+     */
+    protected long lastCheckpointMillis;
+
+    /**
+     * The slot used by the last published checkpoint.
+     */
+    protected String lastSlot = null;
+
+    /**
+     * Flag set by the shutdown hook to request a checkpoint and stop.
+     */
+    protected volatile boolean isStopRequested = false;
+
+    /**
+     * Released when the shutdown hook no longer needs to delay shutdown.
+     */
+    protected final CountDownLatch stopLatch = new CountDownLatch(1);
+
+    /**
+     * The registered shutdown hook, or {@code null} if not registered.
+     */
+    protected Thread shutdownHook = null;
+
+    /**
+     * Constructor to capture the parameters.
+     */
+    public CheckpointManager(NcAggregateTask task,
+                             String checkpointBaseUrl,
+                             String tempPathname,
+                             String outputDatasetLocalFilename,
+                             String summaryOutputLocalFilename,
+                             long intervalMillis,
+                             int shutdownTimeoutSeconds) {
+        this.task = task;
+        this.checkpointUrl = (checkpointBaseUrl.endsWith("/") ? checkpointBaseUrl : checkpointBaseUrl + "/") +
+            task.getId() + "/";
+        this.tempPathname = tempPathname;
+        this.outputDatasetLocalFilename = outputDatasetLocalFilename;
+        this.summaryOutputLocalFilename = summaryOutputLocalFilename;
+        this.intervalMillis = intervalMillis;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    /**
+     * Instantiate a {@code CheckpointManager} based on the environment, returning {@code null} if
+     * checkpointing is not enabled.
+     */
+    static public CheckpointManager make(NcAggregateTask task,
+                                         String tempPathname,
+                                         String outputDatasetLocalFilename,
+                                         String summaryOutputLocalFilename) {
+        final EnvironmentVariableReader environmentVariableReader = EnvironmentVariableReader.getInstance();
+        final String checkpointBaseUrl = environmentVariableReader.optByKey(CHECKPOINT_URL);
+        if (checkpointBaseUrl == null || checkpointBaseUrl.isEmpty()) {
+            return null;
+        }
+        final String intervalMinutes = environmentVariableReader.optByKey(CHECKPOINT_INTERVAL_MINUTES);
+        final String shutdownTimeoutSeconds = environmentVariableReader.optByKey(CHECKPOINT_SHUTDOWN_TIMEOUT_SECONDS);
+        return new CheckpointManager(
+            task,
+            checkpointBaseUrl,
+            tempPathname,
+            outputDatasetLocalFilename,
+            summaryOutputLocalFilename,
+            intervalMinutes == null ? 0 : TimeUnit.MINUTES.toMillis(Long.parseLong(intervalMinutes)),
+            shutdownTimeoutSeconds == null ?
+                DEFAULT_SHUTDOWN_TIMEOUT_SECONDS :
+                Integer.parseInt(shutdownTimeoutSeconds)
+        );
+    }
+
+    /**
+     * Restore the most recent checkpoint for the {@link #task}, if one exists. The checkpointed
+     * output files are copied to their local filenames so processing can continue populating
+     * them.
+     *
+     * @return the {@link CheckpointManifest} of the restored checkpoint, or {@code null} if there
+     * is no usable checkpoint, in which case the {@code Task} should start from the beginning.
+     */
+    public CheckpointManifest restore() {
+        final String manifestUrl = this.checkpointUrl + MANIFEST_NAME;
+        try {
+
+            // Check for a manifest before attempting to download, to avoid retries.
+            long manifestSize;
+            try {
+                manifestSize = FileDownloadManager.getFileSize(manifestUrl);
+            } catch (RuntimeException e) {
+                manifestSize = -1;
+            }
+            if (manifestSize < 0) {
+                logger.info("No checkpoint found. (url: " + manifestUrl + ")");
+                return null;
+            }
+
+            final File manifestFile = this.download(manifestUrl, this.getLocalManifestFilename());
+            final CheckpointManifest manifest = CheckpointManifest.fromJSON(
+                new JSONObject(new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8))
+            );
+
+            // Confirm the checkpoint is usable.
+            if (!this.task.getId().equals(manifest.getTaskId()) ||
+                manifest.getTimeInstantCount() != this.task.getTimeInstants().size()) {
+                logger.warn("Checkpoint does not match the task. Ignoring.");
+                return null;
+            }
+            if (manifest.isComplete() || manifest.getCompletedTimeInstantCount() <= 0) {
+                logger.info("Checkpoint is not resumable. Ignoring.");
+                return null;
+            }
+
+            // Restore the output files.
+            if (this.outputDatasetLocalFilename != null) {
+                this.download(
+                    this.getOutputDatasetCheckpointUrl(manifest.getSlot()),
+                    this.outputDatasetLocalFilename
+                );
+            }
+            if (this.summaryOutputLocalFilename != null) {
+                this.download(
+                    this.getSummaryOutputCheckpointUrl(manifest.getSlot()),
+                    this.summaryOutputLocalFilename
+                );
+            }
+
+            this.lastSlot = manifest.getSlot();
+            logger.info("Resuming from checkpoint. Completed " + manifest.getCompletedTimeInstantCount() +
+                " of " + manifest.getTimeInstantCount() + " time instants.");
+            return manifest;
+
+        } catch (Exception e) {
+            logger.warn("Failed to restore checkpoint. Starting from the beginning.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Start monitoring for checkpoints, caching references to the outputs that will be flushed
+     * before each checkpoint, and registering a shutdown hook to checkpoint on {@code SIGTERM}.
+     *
+     * @param outputDataset       the NetCDF output, or {@code null} if not generated.
+     * @param summaryOutputWriter the summary output, or {@code null} if not generated.
+     */
+    public void start(OutputDataset outputDataset,
+                      OutputWriter summaryOutputWriter) {
+        this.outputDataset = outputDataset;
+        this.summaryOutputWriter = summaryOutputWriter;
+        this.lastCheckpointMillis = System.currentTimeMillis();
+
+        this.shutdownHook = new Thread(() -> {
+            logger.info("Shutdown requested. Waiting for the current time instant to be checkpointed.");
+            this.isStopRequested = true;
+            try {
+                if (!this.stopLatch.await(this.shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                    logger.warn("Timed out waiting for checkpoint.");
+                }
+            } catch (InterruptedException ignore) {
+            }
+        }, "checkpoint-shutdown-hook");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Invoked when a {@code TimeInstant} has been completed. A checkpoint is created if the
+     * interval has elapsed or a stop has been requested. If a stop has been requested, a
+     * {@link TerminatingException} is thrown after the checkpoint to halt processing.
+     *
+     * @param completedTimeInstantCount the number of {@code TimeInstants} completed so far.
+     */
+    public void onTimeInstantComplete(int completedTimeInstantCount) {
+        final int timeInstantCount = this.task.getTimeInstants().size();
+
+        // Nothing to checkpoint once all TimeInstants are complete, as the outputs are published.
+        if (completedTimeInstantCount >= timeInstantCount) {
+            return;
+        }
+
+        if (this.isStopRequested ||
+            System.currentTimeMillis() - this.lastCheckpointMillis >= this.intervalMillis) {
+            this.checkpoint(completedTimeInstantCount);
+        }
+
+        if (this.isStopRequested) {
+            this.stopLatch.countDown();
+            throw new TerminatingException("Processing stopped after checkpoint. Completed " +
+                completedTimeInstantCount + " of " + timeInstantCount + " time instants.");
+        }
+    }
+
+    /**
+     * Publish a checkpoint of the outputs and the corresponding manifest.
+     */
+    protected void checkpoint(int completedTimeInstantCount) {
+        final String slot = SLOT_A.equals(this.lastSlot) ? SLOT_B : SLOT_A;
+        logger.info("Checkpoint: " + completedTimeInstantCount + " time instants completed (slot: " +
+            slot + ").");
+        try {
+            if (this.outputDataset != null) {
+
+                // Hold the output dataset so concurrently executing TimeInstants cannot write to
+                // it while it is being copied.
+                synchronized (this.outputDataset) {
+                    this.outputDataset.flush();
+                    FileUploadManager.upload(
+                        this.outputDatasetLocalFilename,
+                        this.getOutputDatasetCheckpointUrl(slot)
+                    );
+                }
+            }
+            if (this.summaryOutputWriter != null) {
+                this.summaryOutputWriter.flush();
+                FileUploadManager.upload(
+                    this.summaryOutputLocalFilename,
+                    this.getSummaryOutputCheckpointUrl(slot)
+                );
+            }
+
+            // Publish the manifest last, so it only refers to complete output files.
+            this.publishManifest(new CheckpointManifest(
+                this.task.getId(),
+                this.task.getTimeInstants().size(),
+                completedTimeInstantCount,
+                slot,
+                false,
+                LocalDateTime.now().toString()
+            ));
+            this.lastSlot = slot;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create checkpoint.", e);
+        }
+        this.lastCheckpointMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Mark the checkpoint as complete once the outputs of the {@code Task} have been published,
+     * so the {@code Task} is not resumed if it is executed again.
+     */
+    public void complete() {
+        if (this.lastSlot == null) {
+
+            // No checkpoint has been published, so there is nothing to mark.
+            return;
+        }
+        try {
+            this.publishManifest(new CheckpointManifest(
+                this.task.getId(),
+                this.task.getTimeInstants().size(),
+                this.task.getTimeInstants().size(),
+                this.lastSlot,
+                true,
+                LocalDateTime.now().toString()
+            ));
+        } catch (IOException e) {
+            logger.warn("Failed to mark checkpoint as complete.", e);
+        }
+    }
+
+    /**
+     * Release the shutdown hook. Must be invoked when processing finishes, whether successful or
+     * not.
+     */
+    public void close() {
+        this.stopLatch.countDown();
+        if (this.shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+            } catch (IllegalStateException ignore) {
+                // Shutdown is already in progress.
+            }
+            this.shutdownHook = null;
+        }
+    }
+
+    protected void publishManifest(CheckpointManifest manifest) throws IOException {
+        final File manifestFile = new File(this.getLocalManifestFilename());
+        Files.write(manifestFile.toPath(), manifest.toJSON().toString().getBytes(StandardCharsets.UTF_8));
+        FileUploadManager.upload(manifestFile.getAbsolutePath(), this.checkpointUrl + MANIFEST_NAME);
+    }
+
+    /**
+     * Download the file, copying it to the local filename.
+     */
+    protected File download(String url, String localFilename) throws IOException {
+        final File downloadedFile = FileDownloadManager.download(url, this.tempPathname + "checkpoint");
+        if (downloadedFile == null) {
+            throw new RuntimeException("Checkpoint file not found. (url: " + url + ")");
+        }
+        final File localFile = new File(localFilename);
+        Files.copy(downloadedFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileDownloadManager.delete(url, downloadedFile);
+        return localFile;
+    }
+
+    protected String getLocalManifestFilename() {
+        return this.tempPathname + this.task.getId() + "-checkpoint.json";
+    }
+
+    protected String getOutputDatasetCheckpointUrl(String slot) {
+        return this.checkpointUrl + "output-" + slot + ".nc";
+    }
+
+    protected String getSummaryOutputCheckpointUrl(String slot) {
+        return this.checkpointUrl + "summary-" + slot + ".csv";
+    }
+
+}
@@ -0,0 +1,123 @@
+package aims.ereefs.netcdf.task.aggregation.checkpoint;
+
+import org.json.JSONObject;
+
+/**
+ * Value object describing a checkpoint of a partially completed {@code Task}. The manifest is
+ * persisted alongside the checkpointed output files and identifies which copy (slot) of those
+ * files is complete, so that a checkpoint interrupted part way through publishing never replaces
+ * the previous valid checkpoint.
+ *
+ * @author Aaron Smith
+ */
+public class CheckpointManifest {
+
+    final static protected String TASK_ID = "taskId";
+    final static protected String TIME_INSTANT_COUNT = "timeInstantCount";
+    final static protected String COMPLETED_TIME_INSTANT_COUNT = "completedTimeInstantCount";
+    final static protected String SLOT = "slot";
+    final static protected String IS_COMPLETE = "isComplete";
+    final static protected String CREATED = "created";
+
+    /**
+     * The unique id of the {@code Task} that was checkpointed.
+     */
+    protected String taskId;
+
+    /**
+     * The total number of {@code TimeInstants} in the {@code Task}. Used to confirm the
+     * {@code Task} has not changed since the checkpoint.
+     */
+    protected int timeInstantCount;
+
+    /**
+     * The number of {@code TimeInstants}, from the start of the {@code Task}, that were completed
+     * at the time of the checkpoint.
+     */
+    protected int completedTimeInstantCount;
+
+    /**
+     * Identifies the copy of the checkpointed output files that belongs to this manifest.
+     */
+    protected String slot;
+
+    /**
+     * {@code true} if the {@code Task} completed successfully, meaning the checkpoint should not be
+     * resumed from.
+     */
+    protected boolean isComplete;
+
+    /**
+     * The date/time the checkpoint was created, for information only.
+     */
+    protected String created;
+
+    /**
+     * Constructor to capture the properties.
+     */
+    public CheckpointManifest(String taskId,
+                              int timeInstantCount,
+                              int completedTimeInstantCount,
+                              String slot,
+                              boolean isComplete,
+                              String created) {
+        this.taskId = taskId;
+        this.timeInstantCount = timeInstantCount;
+        this.completedTimeInstantCount = completedTimeInstantCount;
+        this.slot = slot;
+        this.isComplete = isComplete;
+        this.created = created;
+    }
+
+    public String getTaskId() {
+        return this.taskId;
+    }
+
+    public int getTimeInstantCount() {
+        return this.timeInstantCount;
+    }
+
+    public int getCompletedTimeInstantCount() {
+        return this.completedTimeInstantCount;
+    }
+
+    public String getSlot() {
+        return this.slot;
+    }
+
+    public boolean isComplete() {
+        return this.isComplete;
+    }
+
+    public String getCreated() {
+        return this.created;
+    }
+
+    /**
+     * Returns a {@code JSON} representation of the manifest.
+     */
+    public JSONObject toJSON() {
+        return new JSONObject()
+            .put(TASK_ID, this.taskId)
+            .put(TIME_INSTANT_COUNT, this.timeInstantCount)
+            .put(COMPLETED_TIME_INSTANT_COUNT, this.completedTimeInstantCount)
+            .put(SLOT, this.slot)
+            .put(IS_COMPLETE, this.isComplete)
+            .put(CREATED, this.created);
+    }
+
+    /**
+     * Instantiate a manifest from the {@code JSON} representation created by {@link #toJSON()}.
+     */
+    static public CheckpointManifest fromJSON(JSONObject json) {
+        return new CheckpointManifest(
+            json.getString(TASK_ID),
+            json.getInt(TIME_INSTANT_COUNT),
+            json.getInt(COMPLETED_TIME_INSTANT_COUNT),
+            json.getString(SLOT),
+            json.optBoolean(IS_COMPLETE, false),
+            json.optString(CREATED, null)
+        );
+    }
+
+}
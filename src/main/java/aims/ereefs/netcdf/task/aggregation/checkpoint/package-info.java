@@ -0,0 +1,5 @@
+/**
+ * Checkpointing of partially completed aggregation {@code Tasks}, allowing a {@code Task} that was
+ * interrupted to resume from the last completed {@code TimeInstant}.
+ */
+package aims.ereefs.netcdf.task.aggregation.checkpoint;
\ No newline at end of file
@@ -4,10 +4,12 @@ import aims.ereefs.netcdf.ApplicationContext;
 import aims.ereefs.netcdf.aggregator.AggregationPeriods;
 import aims.ereefs.netcdf.aggregator.Aggregator;
 import aims.ereefs.netcdf.aggregator.AggregatorFactory;
+import aims.ereefs.netcdf.aggregator.operators.factory.DifferenceOperatorFactory;
 import aims.ereefs.netcdf.aggregator.operators.factory.MeanOperatorFactory;
 import aims.ereefs.netcdf.aggregator.operators.factory.PipelineFactoryFactory;
 import aims.ereefs.netcdf.input.extraction.ExtractionSite;
 import aims.ereefs.netcdf.input.extraction.ExtractionSitesBuilderTask;
+import aims.ereefs.netcdf.input.extraction.SiteExtractionPlan;
 import aims.ereefs.netcdf.input.netcdf.InputDataset;
 import aims.ereefs.netcdf.input.netcdf.InputDatasetCache;
 import aims.ereefs.netcdf.input.netcdf.TimeIncrementFactory;
@@ -16,18 +18,21 @@ import aims.ereefs.netcdf.output.summary.SummaryAccumulator;
 import aims.ereefs.netcdf.output.summary.SummaryStatisticsWriter;
 import aims.ereefs.netcdf.output.summary.ZoneBasedSummaryAccumulatorImpl;
 import aims.ereefs.netcdf.util.Constants;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
 import aims.ereefs.netcdf.util.netcdf.NetcdfDateUtils;
 import aims.ereefs.netcdf.util.netcdf.ReadUtils;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
 import au.gov.aims.ereefs.pojo.utils.DateTimeUtils;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.nc2.Variable;
 import ucar.nc2.units.DateUnit;
-import ucar.units.UnitException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -35,6 +40,11 @@ import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 
@@ -42,11 +52,96 @@ import java.util.stream.Collectors;
  * A {@code Pipeline} {@code Stage} that coordinates the reading, accumulation, and
  * aggregation/processing of data for a single {@link PipelineContext#summaryOperator} for a single
  * {@link PipelineContext#timeInstant}.
+ * <p>
+ * A {@code TimeInstant} for a long aggregation period (eg: {@code ANNUAL} or {@code ALL}) can span
+ * hundreds of input files. If the {@code ACCUMULATION_PARALLELISM} environment variable is greater
+ * than {@code 1}, the files are partitioned across that many {@code Threads}, each feeding its own
+ * {@link Aggregator}, and the partial results are merged before the next {@code Stage}.
+ * <p>
+ * If the {@code COMPUTE_MODE} environment variable is {@code float32}, {@code float} variables are
+ * read as primitive {@code float} arrays and passed to the {@link Aggregator} without boxing each
+ * value. The {@code Collectors} accumulate in {@code double}, so the results are unchanged, but
+ * the memory required per depth is reduced enough to process more depths at once.
+ * <p>
+ * If the {@code WET_CELL_COMPACTION} environment variable is {@code true}, only the wet cells
+ * identified by a {@link WetCellMask} are passed to the {@link Aggregator}, and fully dry depths
+ * are not read. The results are expanded back to the full shape before the next {@code Stage}.
+ * Zonal threshold operators are never compacted, as they look up the zone of each cell by its
+ * index in the full grid.
+ * <p>
+ * When only site-based summary statistics are generated, only the boxes covering the neighbours
+ * of the extraction sites are read (see {@link SiteExtractionPlan}), rather than entire time
+ * slices. This can be disabled by setting the {@code SITE_HYPERSLAB_READS} environment variable
+ * to {@code false}.
  *
  * @author Aaron Smith
  */
 public class AccumulationStage {
 
+    /**
+     * Constant identifying the default number of {@code Threads} for accumulating a single
+     * {@code TimeInstant}.
+     */
+    final static protected int DEFAULT_ACCUMULATION_PARALLELISM = 1;
+
+    /**
+     * The maximum number of depths read and accumulated at once, limiting the memory required.
+     */
+    final static protected int MAX_DEPTHS_TO_PROCESS_AT_ONCE = 4;
+
+    /**
+     * The maximum number of depths read and accumulated at once in the {@code float32}
+     * {@code COMPUTE_MODE}, where each value requires a fraction of the memory of a boxed
+     * {@code Double}.
+     */
+    final static protected int FLOAT32_MAX_DEPTHS_TO_PROCESS_AT_ONCE = 16;
+
+    /**
+     * Constant identifying the {@code COMPUTE_MODE} that reads {@code float} variables as
+     * {@code float}.
+     */
+    final static public String COMPUTE_MODE_FLOAT32 = "float32";
+
+    /**
+     * Constant identifying the default {@code COMPUTE_MODE}, where all data is read as
+     * {@code Double}.
+     */
+    final static public String COMPUTE_MODE_FLOAT64 = "float64";
+
+    /**
+     * Flag identifying if wet-cell compaction is enabled, lazily read from the environment.
+     */
+    static protected Boolean isWetCellCompactionEnabled = null;
+
+    /**
+     * Flag identifying if site-based summary statistics read only the cells of the extraction
+     * sites, lazily read from the environment.
+     */
+    static protected Boolean isSiteHyperslabReadEnabled = null;
+
+    /**
+     * Flag identifying the {@code float32} {@code COMPUTE_MODE}, lazily read from the environment.
+     */
+    static protected Boolean isFloat32ComputeMode = null;
+
+    /**
+     * The number of {@code Threads} for accumulating a single {@code TimeInstant}, lazily read
+     * from the environment.
+     */
+    static protected Integer accumulationParallelism = null;
+
+    /**
+     * The {@code ExecutorService} shared by all instances for parallel accumulation, lazily
+     * instantiated when first required.
+     */
+    static protected ExecutorService accumulationExecutorService = null;
+
+    protected static final Counter apmInputReadBytes = Counter.build()
+        .name("ncaggregate_input_read_bytes")
+        .help("Total size (bytes) of data read for each input.")
+        .labelNames("input")
+        .register();
+
     /**
      * Class-specific {@code logger}.
      */
@@ -79,6 +174,17 @@ public class AccumulationStage {
      */
     protected RegularGriddingStage regularGriddingStage;
 
+    /**
+     * Cached flag identifying if the {@code Pipeline} of the {@link PipelineContext#summaryOperator}
+     * supports merging. Lazily determined by {@link #determineWorkerCount}.
+     */
+    protected Boolean isMergeable = null;
+
+    /**
+     * The {@link SiteExtractionPlan}s built so far, by the shape of a layer of the grid.
+     */
+    protected Map<String, SiteExtractionPlan> siteExtractionPlanByLayerShape = new HashMap<>();
+
     /**
      * Constructor to cache references to static system objects/components.
      */
@@ -106,7 +212,7 @@ public class AccumulationStage {
         final NcAggregateTask.Input referenceInput = pipelineContext.getInputs().get(0);
         final String referenceInputId = referenceInput.getInputId();
 
-        ChronoUnit timeIncrements = getTimeIncrements(referenceInputId);
+        final ChronoUnit timeIncrements = getTimeIncrements(referenceInputId);
 
         // Declare objects that are lazily instantiated during processing, so we don't have to
         // specifically retrieve related objects ahead of time.
@@ -117,7 +223,6 @@ public class AccumulationStage {
             this.pipelineContext.getProductDefinition().getOutputs().getZoneBasedSummaryOutputFile();
         final NcAggregateProductDefinition.SiteBasedSummaryOutputFile siteBasedSummaryOutputFile =
             this.pipelineContext.getProductDefinition().getOutputs().getSiteBasedSummaryOutputFile();
-        boolean isAggregatorInitialised = false;
 
         // To avoid OutOfMemory errors, break depth processing into chunks.
         // ----------------------------------------------------------------
@@ -136,6 +241,11 @@ public class AccumulationStage {
         // determine the depths to be processed.
         boolean hasDepthDimension;
         List<Double> referenceSelectedDepths;
+        final boolean isCompactingWetCells = this.isCompactingWetCells(
+            zoneBasedSummaryOutputFile,
+            siteBasedSummaryOutputFile
+        );
+        Map<Double, boolean[]> layerMasksByDepth = null;
         try {
 
             // Identify the ReferenceDataset. The code purposefully does NOT check for NPE as any
@@ -161,6 +271,15 @@ public class AccumulationStage {
 
                 // Extract depths to be processed.
                 referenceSelectedDepths = referenceDataset.getSelectedDepths(variable);
+
+                // Identify the wet cells of each layer if compacting.
+                if (isCompactingWetCells) {
+                    layerMasksByDepth = this.readLayerMasks(
+                        referenceDataset,
+                        referenceInputId,
+                        hasDepthDimension ? referenceSelectedDepths : Collections.<Double>singletonList(null)
+                    );
+                }
             }
 
         } catch (Exception e) {
@@ -169,297 +288,825 @@ public class AccumulationStage {
 
         // Declare the variables that will be used to communicate which depths are being processed.
         final List<Double> selectedDepthsToProcess = new ArrayList<>();
-        final Map<Double, Integer> selectedDepthToIndexMap = new HashMap<>();
-        final int MAX_DEPTHS_TO_PROCESS_AT_ONCE = 4;
+        final int maxDepthsToProcessAtOnce =
+            ((zoneBasedSummaryOutputFile == null) && (siteBasedSummaryOutputFile == null) &&
+                this.isReadingFloat(outputDataType)) ?
+                FLOAT32_MAX_DEPTHS_TO_PROCESS_AT_ONCE :
+                MAX_DEPTHS_TO_PROCESS_AT_ONCE;
         int nextDepthToProcess = 0;
         boolean hasMoreDepths = true;
         while (hasMoreDepths) {
 
-            // If the variable has a depth dimension, populate the current depths to process.
+            // The position of the first depth of the current chunk, and the results to pass to
+            // the next Stage, if any.
             int initialDepthPos = nextDepthToProcess;
-            if (hasDepthDimension) {
-                selectedDepthsToProcess.clear();
-                for (int index = 0; index < MAX_DEPTHS_TO_PROCESS_AT_ONCE; index++) {
-                    if ((nextDepthToProcess + index) < referenceSelectedDepths.size()) {
-                        selectedDepthsToProcess.add(referenceSelectedDepths.get(nextDepthToProcess + index));
+            List<Array> arrays = null;
+
+            // Time the accumulation of the current depth chunk, excluding the downstream Stages.
+            final Histogram.Timer durationTimer = StageMetrics.startTimer(
+                StageMetrics.STAGE_ACCUMULATION,
+                this.pipelineContext
+            );
+            try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_COMPUTE, "accumulation")) {
+                span.arg("depthOffset", initialDepthPos);
+
+                // If the variable has a depth dimension, populate the current depths to process.
+                if (hasDepthDimension) {
+                    selectedDepthsToProcess.clear();
+                    for (int index = 0; index < maxDepthsToProcessAtOnce; index++) {
+                        if ((nextDepthToProcess + index) < referenceSelectedDepths.size()) {
+                            selectedDepthsToProcess.add(referenceSelectedDepths.get(nextDepthToProcess + index));
+                        }
+                    }
+                    nextDepthToProcess += maxDepthsToProcessAtOnce;
+
+                    // Add depths to log.
+                    if (this.logger.isDebugEnabled()) {
+                        logger.debug("depths: " + selectedDepthsToProcess
+                            .stream()
+                            .map(Object::toString)
+                            .collect(Collectors.joining(", "))
+                        );
                     }
                 }
-                nextDepthToProcess += MAX_DEPTHS_TO_PROCESS_AT_ONCE;
-
-                // Add depths to log.
-                if (this.logger.isDebugEnabled()) {
-                    logger.debug("depths: " + selectedDepthsToProcess
-                        .stream()
-                        .map(Object::toString)
-                        .collect(Collectors.joining(", "))
+                summaryAccumulator = null;
+
+                // Instantiate and initialise the Aggregator if not already done and a
+                // NetCDF file is being generated.
+                if (this.pipelineContext.isPopulatingOutputDataset()) {
+                    aggregator = this.makeAggregator(dateUnit);
+                }
+
+                // Instantiate the SummaryAccumulator.
+                int layerSize = outputDataShape[outputDataShape.length - 1] *
+                        outputDataShape[outputDataShape.length - 2];
+                if (zoneBasedSummaryOutputFile != null) {
+                    summaryAccumulator = new ZoneBasedSummaryAccumulatorImpl(
+                            selectedDepthsToProcess,
+                            layerSize,
+                            (List<String>) applicationContext.getFromCache(
+                                    zoneBasedSummaryOutputFile.getIndexToZoneIdMapBindName()
+                            )
                     );
                 }
-            }
-            summaryAccumulator = null;
-
-            // Instantiate and initialise the Aggregator if not already done and a
-            // NetCDF file is being generated.
-            if (this.pipelineContext.isPopulatingOutputDataset()) {
-                aggregator = AggregatorFactory.make(
-                        aggregationPeriod,
-                        dateUnit
-                );
-                aggregator.setPipelineFactory(
-                        PipelineFactoryFactory.make(
-                                summaryOperator,
-                                this.applicationContext
-                        )
+                SiteExtractionPlan siteExtractionPlan = null;
+                if (siteBasedSummaryOutputFile != null) {
+                    final List<ExtractionSite> extractionSites = (List<ExtractionSite>) applicationContext.getFromCache(
+                            ExtractionSitesBuilderTask.EXTRACTION_SITES_BIND_NAME
+                    );
+
+                    // If the time slices are not also aggregated, only read the cells used by the
+                    // sites, remapped to a compact layer.
+                    if (!this.pipelineContext.isPopulatingOutputDataset() && isSiteHyperslabReadEnabled() &&
+                        (outputDataShape.length == (hasDepthDimension ? 4 : 3))) {
+                        siteExtractionPlan = this.getSiteExtractionPlan(
+                                extractionSites,
+                                outputDataShape[outputDataShape.length - 2],
+                                outputDataShape[outputDataShape.length - 1]
+                        );
+                        span.arg("siteBoxes", siteExtractionPlan.getBoxes().size());
+                    }
+                    summaryAccumulator = new SiteBasedSummaryAccumulatorImpl(
+                            selectedDepthsToProcess,
+                            siteExtractionPlan != null ? siteExtractionPlan.getCompactLayerSize() : layerSize,
+                            siteExtractionPlan != null ? siteExtractionPlan.getExtractionSites() : extractionSites
+                    );
+                }
+
+
+                // Build the WetCellMask for the current depths if compacting, so only the depths with
+                // wet cells are read.
+                WetCellMask wetCellMask = null;
+                List<Double> depthsToRead = selectedDepthsToProcess;
+                if (layerMasksByDepth != null) {
+                    final List<Double> chunkDepths = hasDepthDimension ?
+                        new ArrayList<>(selectedDepthsToProcess) :
+                        Collections.<Double>singletonList(null);
+                    final List<boolean[]> chunkLayerMasks = new ArrayList<>();
+                    for (Double depth : chunkDepths) {
+                        chunkLayerMasks.add(layerMasksByDepth.get(depth));
+                    }
+                    wetCellMask = new WetCellMask(chunkDepths, chunkLayerMasks, layerSize);
+                    if (hasDepthDimension) {
+                        depthsToRead = wetCellMask.getWetDepths();
+                    }
+                    span.arg("wetCells", wetCellMask.getWetCellCount());
+                }
+
+                // Build the list of FileIndexBounds to read, in order, together with the Input each
+                // belongs to. Each FileIndexBounds points to a specific file that contains data for
+                // the Operator, and the start and end indexes within that file that contain the data.
+                final List<InputFileIndexBounds> inputFileIndexBoundsList = new ArrayList<>();
+                for (NcAggregateTask.Input input : pipelineContext.getInputs()) {
+                    for (NcAggregateTask.FileIndexBounds fileIndexBounds : input.getFileIndexBounds()) {
+                        inputFileIndexBoundsList.add(new InputFileIndexBounds(input, fileIndexBounds));
+                    }
+                }
+
+                // Read and accumulate the data. If supported, the FileIndexBounds are partitioned
+                // across multiple Threads, each feeding its own Aggregator, and the partial results
+                // are merged before regridding. Nothing is read if the depths are all dry.
+                final int workerCount = this.determineWorkerCount(
+                    aggregator,
+                    summaryAccumulator,
+                    inputFileIndexBoundsList.size()
                 );
+                if ((wetCellMask != null) && wetCellMask.isDry()) {
+                    this.logger.debug("Skipping dry depths: " + selectedDepthsToProcess);
+                } else if (workerCount > 1) {
+                    dateUnit = this.accumulateInParallel(
+                        inputFileIndexBoundsList,
+                        workerCount,
+                        aggregator,
+                        dateUnit,
+                        depthsToRead,
+                        wetCellMask,
+                        hasDepthDimension,
+                        timeDimensionIndex,
+                        depthDimensionIndex,
+                        timeIncrements
+                    );
+                } else if (this.isAccumulatingInLockStep(aggregator, summaryAccumulator)) {
+                    dateUnit = this.accumulateInLockStep(
+                        inputFileIndexBoundsList,
+                        aggregator,
+                        depthsToRead,
+                        wetCellMask,
+                        hasDepthDimension,
+                        timeDimensionIndex,
+                        depthDimensionIndex
+                    );
+                } else {
+                    for (InputFileIndexBounds inputFileIndexBounds : inputFileIndexBoundsList) {
+                        dateUnit = this.accumulate(
+                            inputFileIndexBounds,
+                            aggregator,
+                            summaryAccumulator,
+                            depthsToRead,
+                            wetCellMask,
+                            siteExtractionPlan,
+                            hasDepthDimension,
+                            timeDimensionIndex,
+                            depthDimensionIndex,
+                            timeIncrements
+                        );
+                    }
+                }
+
+                // Data for the entire TimeInstant has been read by now, so retrieve the results from the
+                // Aggregator and write to the output dataset.
+                if (summaryAccumulator != null) {
+                    try {
+                        SummaryStatisticsWriter.write(
+                            NetcdfDateUtils.toLocalDateTime(
+                                dateUnit,
+                                timeInstant.getValue()
+                            ),
+                            summaryOperator,
+                            summaryAccumulator,
+                            pipelineContext.getSummaryOutputWriter()
+                        );
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                    summaryAccumulator.reset();
+                }
+
+                // Has an Aggregator been instantiated? If so, then a NetCDF output file is being
+                // generated.
+                if (aggregator != null) {
+
+                    // Retrieve the results from the Aggregator and convert to NetCDF arrays for the
+                    // next stage. Force the Aggregator to release its resources immediately to limit
+                    // the chance of memory issues.
+                    List<Double[]> aggregatedDataList;
+                    if (wetCellMask == null) {
+                        aggregatedDataList = aggregator.getAggregatedData();
+                    } else {
+
+                        // Expand the wet cells to the full shape. Dry depths have no results.
+                        aggregatedDataList = new ArrayList<>();
+                        if (wetCellMask.isDry()) {
+                            for (int index = 0; index < summaryOperator.getOutputVariables().size(); index++) {
+                                aggregatedDataList.add(wetCellMask.expand(new Double[0]));
+                            }
+                        } else {
+                            for (Double[] wetData : aggregator.getAggregatedData()) {
+                                aggregatedDataList.add(wetCellMask.expand(wetData));
+                            }
+                        }
+                    }
+                    aggregator.unInitialise();
+                    aggregator = null;
+                    outputDataShape[timeDimensionIndex] = 1;
+                    if (hasDepthDimension) {
+                        outputDataShape[depthDimensionIndex] = selectedDepthsToProcess.size();
+                    }
+                    arrays = new ArrayList<>(aggregatedDataList.size());
+                    for (Double[] aggregatedData : aggregatedDataList) {
+                        Array array = Array.factory(outputDataType, outputDataShape);
+                        arrays.add(array);
+                        for (int index = 0; index < aggregatedData.length; index++) {
+                            array.setDouble(index, aggregatedData[index]);
+                        }
+                    }
+                }
+            } finally {
+                durationTimer.observeDuration();
             }
 
-            // Instantiate the SummaryAccumulator.
-            int layerSize = outputDataShape[outputDataShape.length - 1] *
-                    outputDataShape[outputDataShape.length - 2];
-            if (zoneBasedSummaryOutputFile != null) {
-                summaryAccumulator = new ZoneBasedSummaryAccumulatorImpl(
-                        selectedDepthsToProcess,
-                        layerSize,
-                        (List<String>) applicationContext.getFromCache(
-                                zoneBasedSummaryOutputFile.getIndexToZoneIdMapBindName()
-                        )
-                );
+            // Invoke the next stage.
+            if (arrays != null) {
+                this.regularGriddingStage.execute(arrays, initialDepthPos);
             }
-            if (siteBasedSummaryOutputFile != null) {
-                summaryAccumulator = new SiteBasedSummaryAccumulatorImpl(
+
+            // Determine if there are more depths to process.
+            hasMoreDepths = hasDepthDimension && nextDepthToProcess < referenceSelectedDepths.size();
+
+        }
+
+    }
+
+    /**
+     * Instantiate an {@link Aggregator} for the {@link PipelineContext#summaryOperator}.
+     */
+    protected Aggregator makeAggregator(DateUnit dateUnit) {
+        final Aggregator aggregator = AggregatorFactory.make(
+            this.aggregationPeriod,
+            dateUnit
+        );
+        aggregator.setPipelineFactory(
+            PipelineFactoryFactory.make(
+                this.pipelineContext.getSummaryOperator(),
+                this.applicationContext
+            )
+        );
+        return aggregator;
+    }
+
+    /**
+     * Determine the number of {@code Threads} to read and accumulate the data for the current
+     * {@code TimeInstant}. Parallel accumulation requires an {@link Aggregator} whose
+     * {@code Pipeline} supports merging, and is not used when summary statistics are being
+     * accumulated, or when the {@code Operator} accumulates time slices before processing, as
+     * neither of those can be merged.
+     */
+    protected int determineWorkerCount(Aggregator aggregator,
+                                       SummaryAccumulator summaryAccumulator,
+                                       int fileIndexBoundsCount) {
+        final int parallelism = getAccumulationParallelism();
+        if ((parallelism <= 1) || (fileIndexBoundsCount <= 1) || (aggregator == null) ||
+            (summaryAccumulator != null)) {
+            return 1;
+        }
+        if (this.isMergeable == null) {
+            final NcAggregateProductDefinition.SummaryOperator summaryOperator =
+                this.pipelineContext.getSummaryOperator();
+            final boolean isAccumulatingTimeSlices =
+                (summaryOperator instanceof NcAggregateProductDefinition.ThresholdSummaryOperator) &&
+                    ((NcAggregateProductDefinition.ThresholdSummaryOperator) summaryOperator)
+                        .getAccumulationTimeSlices() > 1;
+            this.isMergeable = !isAccumulatingTimeSlices &&
+                PipelineFactoryFactory.make(summaryOperator, this.applicationContext).make().isMergeable();
+        }
+        return this.isMergeable ? Math.min(parallelism, fileIndexBoundsCount) : 1;
+    }
+
+    /**
+     * Partition the {@code inputFileIndexBoundsList} into {@code workerCount} contiguous ranges,
+     * and {@link #accumulate accumulate} each range in a separate {@code Thread} with its own
+     * {@link Aggregator}. The first range uses the specified {@code aggregator}, into which the
+     * partial results of the other ranges are then merged, in order, so the results do not
+     * depend on the order in which the {@code Threads} complete.
+     *
+     * @return the {@code DateUnit} of the last dataset read.
+     */
+    protected DateUnit accumulateInParallel(List<InputFileIndexBounds> inputFileIndexBoundsList,
+                                            int workerCount,
+                                            Aggregator aggregator,
+                                            DateUnit dateUnit,
+                                            List<Double> selectedDepthsToProcess,
+                                            WetCellMask wetCellMask,
+                                            boolean hasDepthDimension,
+                                            int timeDimensionIndex,
+                                            int depthDimensionIndex,
+                                            ChronoUnit timeIncrements) {
+        final List<Aggregator> aggregators = new ArrayList<>();
+        aggregators.add(aggregator);
+        for (int workerIndex = 1; workerIndex < workerCount; workerIndex++) {
+            aggregators.add(this.makeAggregator(dateUnit));
+        }
+
+        // Submit a job for each range.
+        final int size = inputFileIndexBoundsList.size();
+        final List<Future<DateUnit>> futures = new ArrayList<>();
+        for (int workerIndex = 0; workerIndex < workerCount; workerIndex++) {
+            final List<InputFileIndexBounds> partition = inputFileIndexBoundsList.subList(
+                workerIndex * size / workerCount,
+                (workerIndex + 1) * size / workerCount
+            );
+            final Aggregator workerAggregator = aggregators.get(workerIndex);
+            futures.add(getAccumulationExecutorService().submit(Tracer.wrap(() -> {
+                DateUnit workerDateUnit = null;
+                for (InputFileIndexBounds inputFileIndexBounds : partition) {
+                    workerDateUnit = this.accumulate(
+                        inputFileIndexBounds,
+                        workerAggregator,
+                        null,
                         selectedDepthsToProcess,
-                        layerSize,
-                        (List<ExtractionSite>) applicationContext.getFromCache(
-                                ExtractionSitesBuilderTask.EXTRACTION_SITES_BIND_NAME
-                        )
+                        wetCellMask,
+                        null,
+                        hasDepthDimension,
+                        timeDimensionIndex,
+                        depthDimensionIndex,
+                        timeIncrements
+                    );
+                }
+                return workerDateUnit;
+            })));
+        }
+
+        // Wait for all jobs to complete.
+        DateUnit lastDateUnit = dateUnit;
+        for (Future<DateUnit> future : futures) {
+            try {
+                final DateUnit workerDateUnit = future.get();
+                if (workerDateUnit != null) {
+                    lastDateUnit = workerDateUnit;
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(otherFuture -> otherFuture.cancel(true));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("Parallel accumulation failed.", e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(otherFuture -> otherFuture.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Parallel accumulation interrupted.", e);
+            }
+        }
+
+        // Merge the partial results into the first Aggregator.
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_COMPUTE, "merge")) {
+            span.arg("workers", workerCount);
+            for (int workerIndex = 1; workerIndex < workerCount; workerIndex++) {
+                final Aggregator workerAggregator = aggregators.get(workerIndex);
+                if (workerAggregator.isInitialised()) {
+                    aggregator.merge(workerAggregator.getPartialState());
+                    workerAggregator.unInitialise();
+                }
+            }
+        }
+
+        return lastDateUnit;
+    }
+
+    /**
+     * Read each time slice of the data identified by the {@code inputFileIndexBounds}, and add it
+     * to the {@code aggregator} and/or {@code summaryAccumulator}. If a
+     * {@code siteExtractionPlan} is specified, only the cells of the extraction sites are read.
+     *
+     * @return the {@code DateUnit} of the dataset read.
+     */
+    protected DateUnit accumulate(InputFileIndexBounds inputFileIndexBounds,
+                                  Aggregator aggregator,
+                                  SummaryAccumulator summaryAccumulator,
+                                  List<Double> selectedDepthsToProcess,
+                                  WetCellMask wetCellMask,
+                                  SiteExtractionPlan siteExtractionPlan,
+                                  boolean hasDepthDimension,
+                                  int timeDimensionIndex,
+                                  int depthDimensionIndex,
+                                  ChronoUnit timeIncrements) {
+        final NcAggregateProductDefinition.SummaryOperator summaryOperator =
+            this.pipelineContext.getSummaryOperator();
+        final NcAggregateTask.TimeInstant timeInstant = this.pipelineContext.getTimeInstant();
+        final NcAggregateTask.Input input = inputFileIndexBounds.getInput();
+        final NcAggregateTask.FileIndexBounds fileIndexBounds = inputFileIndexBounds.getFileIndexBounds();
+
+        // Obtain a reference to the dataset.
+        try (InputDataset inputDataset = this.inputDatasetCache.retrieve(fileIndexBounds.getMetadataId())) {
+
+            // Capture the TimeVariable for the input dataset.
+            final String timeVariableName = inputDataset.getTimeDimension().getFullName();
+            final Variable timeVariable = inputDataset.findVariable(timeVariableName);
+
+            // Obtain the DateUnit of the TimeVariable, which is shared by datasets with the same
+            // units.
+            final String timeUnitsString = timeVariable.getUnitsString();
+            final DateUnit dateUnit;
+            try {
+                dateUnit = NetcdfDateUtils.getDateUnit(timeUnitsString);
+            } catch (RuntimeException e) {
+                throw new RuntimeException(
+                    "Unable to construct DateUnit from time variable. (variableName: \"" +
+                        timeVariableName + "\"; unitsString: \"" + timeUnitsString + "\".",
+                    e
                 );
             }
 
+            // Read a slice for each variable.
+            final List<Double[]> variableDataArrayList = new ArrayList<>();
+            final List<float[]> floatDataArrayList = new ArrayList<>();
 
-            for (NcAggregateTask.Input input : pipelineContext.getInputs()) {
-                
-                // Loop through each FileIndexBounds which points to specific files that contain
-                // data for the Operator, and the start and end indexes within those files that
-                // contain the data.
-                for (NcAggregateTask.FileIndexBounds fileIndexBounds : input.getFileIndexBounds()) {
-    
-                    // Obtain a reference to the dataset.
-                    try (InputDataset inputDataset = this.inputDatasetCache.retrieve(fileIndexBounds.getMetadataId())) {
-    
-                        // Capture the TimeVariable for the input dataset.
-                        final String timeVariableName = inputDataset.getTimeDimension().getFullName();
-                        final Variable timeVariable = inputDataset.findVariable(timeVariableName);
-    
-                        // Construct a DateUnit from the TimeVariable.
-                        final String timeUnitsString = timeVariable.getUnitsString();
-                        try {
-                            dateUnit = new DateUnit(timeUnitsString);
-                        } catch (UnitException e) {
-                            throw new RuntimeException(
-                                "Unable to construct DateUnit from time variable. (variableName: \"" +
-                                    timeVariableName + "\"; unitsString: \"" + timeUnitsString + "\".",
-                                e
-                            );
-                        }
+            // Compile the plan for reading the variables of the Input, and resolve the variables
+            // once for the dataset.
+            final ReadPlan readPlan = ReadPlan.compile(
+                inputDataset,
+                input.getInputId(),
+                summaryOperator.getInputVariables(),
+                selectedDepthsToProcess,
+                timeDimensionIndex,
+                hasDepthDimension ? depthDimensionIndex : -1
+            );
+            final List<Variable> variables = readPlan.resolveVariables(
+                inputDataset,
+                fileIndexBounds.getMetadataId()
+            );
 
-                        // Read a slice for each variable.
-                        final List<Double[]> variableDataArrayList = new ArrayList<>();
-                        List<String> inputVariables = summaryOperator.getInputVariables().stream()
-                                .filter(fullVariableName -> {
-                                    final String[] variableNameTokens = fullVariableName.split(
-                                            Constants.VARIABLE_NAME_SEPARATOR
-                                    );
-                                    if (variableNameTokens.length != 2) {
-                                        throw new RuntimeException("Variable \"" + fullVariableName +
-                                                "\" not fully qualified.");
-                                    }
-                                    return variableNameTokens[0].equalsIgnoreCase(input.getInputId());
-                                })
-                                .collect(Collectors.toList());
-                        
-                        selectedDepthToIndexMap.clear();
-                        for (Double depth : selectedDepthsToProcess) {
-                            final Variable variable = getVariable(inputDataset, inputVariables.get(0));
-                            selectedDepthToIndexMap.put(depth, inputDataset.getSelectedDepthToIndexMap(variable).get(depth));
-                        }
-    
-                        // Loop through each time slice of the input dataset.
-                        int startIndex = fileIndexBounds.getStartIndex();
-                        int endIndex = fileIndexBounds.getEndIndex();
-                        for (int readOffset = 0; readOffset <= (endIndex - startIndex); readOffset++) {
-                            for (String fullVariableName : inputVariables) {
-                                final Variable variable = getVariable(inputDataset, fullVariableName);
-                                if (variable == null) {
-                                    throw new RuntimeException("Variable \"" + fullVariableName +
-                                        "\" not found in dataset (\"" + fileIndexBounds.getMetadataId() + "\").");
-                                }
-    
-                                // Build a shape object for reading a single time slice, based on the shape of the original
-                                // reference variable.
-                                final int[] originalShape = variable.getShape();
-                                final int[] sliceShape = Arrays.copyOf(originalShape, originalShape.length);
-    
-                                // Modify shape to read a single time slice. We will use 'offset' to step through the time
-                                // slices.
-                                sliceShape[timeDimensionIndex] = 1;
-    
-                                // Modify the shape if there is a depth dimension.
-                                if (hasDepthDimension) {
-                                    sliceShape[depthDimensionIndex] = selectedDepthsToProcess.size();
-                                }
-    
-                                // Complete initialising the Aggregator if not completed.
-                                if (aggregator != null && !isAggregatorInitialised) {
-    
-                                    aggregator.setShape(sliceShape);
-                                    aggregator.setDataType(variable.getDataType());
-                                    aggregator.initialise();
-    
-                                    isAggregatorInitialised = true;
-    
-                                }
-    
-                                // Read the data.
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug(variable.getShortName() + " : " + (readOffset + 1) + " of " +
-                                        (endIndex - startIndex + 1));
-                                }
-    
-                                Double[] array;
-                                if (hasDepthDimension) {
-                                    array = ReadUtils.readSingleTimeSlice(
-                                        variable,
-                                        timeDimensionIndex,
-                                        depthDimensionIndex,
-                                        readOffset + startIndex,
-                                        selectedDepthsToProcess,
-                                        selectedDepthToIndexMap
-                                    );
-                                } else {
-                                    array = ReadUtils.readSingleTimeSlice(
-                                        variable,
-                                        readOffset + startIndex
-                                    );
-                                }
-                                variableDataArrayList.add(array);
-    
-                            }
-    
-                            // Add the data to the aggregators.
-                            if (aggregator != null) {
-    
-                                // Provide a workaround when performing MONTHLY aggregates to calculate
-                                // ANNUAL aggregates for MEAN operations.
-                                if (timeIncrements.equals(ChronoUnit.MONTHS) &&
-                                    (summaryOperator.getOperatorType().equalsIgnoreCase(MeanOperatorFactory.OPERATOR_TYPE)) &&
-                                    (aggregationPeriod.equals(AggregationPeriods.ANNUAL))) {
-                                    logger.debug("Performing special processing for MONTHLY input data.");
-                                    // The input data has been aggregated to MONTH from either HOUR or
-                                    // DAY. We can't simply add the values together and divide by 12
-                                    // because the calculation is wrong. So we convert back to DAY and
-                                    // execute the Aggregator that number of times.
-                                    // Determine the time instant of the current input time slice.
-                                    try {
-                                        LocalDateTime dateTime = dateUnit
-                                            .makeDate(
-                                                timeVariable.read(
-                                                    new int[]{readOffset + startIndex},
-                                                    new int[]{1}
-                                                )
-                                                    .getFloat(0)
-                                            )
-                                            .toInstant()
-                                            .atZone(
-                                                ZoneId.of(
-                                                    pipelineContext.getProductDefinition().getTargetTimeZone()
-                                                )
-                                            )
-                                            .toLocalDateTime();
-                                        final LocalDateTime startOfMonth = dateTime
-                                            .with(TemporalAdjusters.firstDayOfMonth())
-                                            .truncatedTo(ChronoUnit.DAYS);
-                                        final LocalDateTime endOfMonth = dateTime
-                                            .with(TemporalAdjusters.lastDayOfMonth())
-                                            .plus(1, ChronoUnit.DAYS)
-                                            .truncatedTo(ChronoUnit.DAYS);
-                                        final int daysInMonth = (int) DateTimeUtils.differenceInDays(startOfMonth, endOfMonth);
-                                        for (int dayCount = 0; dayCount < daysInMonth; dayCount++) {
-                                            aggregator.add(timeInstant.getValue(), variableDataArrayList);
-                                        }
-                                    } catch (Exception e) {
-                                        throw new RuntimeException(
-                                            "Failed to calculate the number of days in the input month.",
-                                            e
-                                        );
-                                    }
-    
-                                } else {
-                                    aggregator.add(timeInstant.getValue(), variableDataArrayList);
-                                }
-                            }
-                            if (summaryAccumulator != null) {
-                                summaryAccumulator.add(variableDataArrayList);
-                            }
-    
-                            variableDataArrayList.clear();
-    
+            // Read as single precision if only an Aggregator is being populated and every
+            // variable is stored as float. SummaryAccumulators only accept Double data.
+            final boolean isReadingFloat = (aggregator != null) && (summaryAccumulator == null) &&
+                readPlan.getDataTypes().stream().allMatch(this::isReadingFloat);
+
+            // Loop through each time slice of the input dataset.
+            int startIndex = fileIndexBounds.getStartIndex();
+            int endIndex = fileIndexBounds.getEndIndex();
+
+            // Determine the weight of each MONTHLY time slice when calculating ANNUAL aggregates
+            // for MEAN operations.
+            int[] daysInMonths = null;
+            if ((aggregator != null) &&
+                timeIncrements.equals(ChronoUnit.MONTHS) &&
+                (summaryOperator.getOperatorType().equalsIgnoreCase(MeanOperatorFactory.OPERATOR_TYPE)) &&
+                (aggregationPeriod.equals(AggregationPeriods.ANNUAL))) {
+                logger.debug("Performing special processing for MONTHLY input data.");
+                daysInMonths = this.determineDaysInMonths(timeVariable, dateUnit, startIndex, endIndex);
+            }
+
+            for (int readOffset = 0; readOffset <= (endIndex - startIndex); readOffset++) {
+                for (int variableIndex = 0; variableIndex < variables.size(); variableIndex++) {
+                    final Variable variable = variables.get(variableIndex);
+
+                    // Complete initialising the Aggregator if not completed.
+                    if (aggregator != null && !aggregator.isInitialised()) {
+
+                        aggregator.setShape(readPlan.getSliceShape(variableIndex));
+                        aggregator.setDataType(variable.getDataType());
+                        aggregator.initialise();
+
+                    }
+
+                    // Read the data.
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(variable.getShortName() + " : " + (readOffset + 1) + " of " +
+                            (endIndex - startIndex + 1));
+                    }
+
+                    final int readLength;
+                    if (isReadingFloat) {
+                        final float[] floatArray = readPlan.readAsFloat(
+                            variable,
+                            variableIndex,
+                            readOffset + startIndex
+                        );
+                        readLength = floatArray.length;
+                        floatDataArrayList.add(
+                            wetCellMask != null ? wetCellMask.compact(floatArray) : floatArray
+                        );
+                    } else {
+                        final Double[] array = siteExtractionPlan != null ?
+                            readPlan.readSites(variable, siteExtractionPlan, readOffset + startIndex) :
+                            readPlan.read(variable, variableIndex, readOffset + startIndex);
+                        readLength = array.length;
+                        variableDataArrayList.add(
+                            wetCellMask != null ? wetCellMask.compact(array) : array
+                        );
+                    }
+                    apmInputReadBytes
+                        .labels(input.getInputId())
+                        .inc((double) readLength * variable.getDataType().getSize());
+
+                }
+
+                // Add the data to the aggregators.
+                if (aggregator != null) {
+
+                    // Provide a workaround when performing MONTHLY aggregates to calculate
+                    // ANNUAL aggregates for MEAN operations. The input data has been aggregated
+                    // to MONTH from either HOUR or DAY. We can't simply add the values together
+                    // and divide by 12 because the calculation is wrong. So each month is
+                    // weighted by the number of days in the month.
+                    if (daysInMonths != null) {
+                        final int daysInMonth = daysInMonths[readOffset];
+                        if (isReadingFloat) {
+                            aggregator.addFloat(timeInstant.getValue(), floatDataArrayList, daysInMonth);
+                        } else {
+                            aggregator.add(timeInstant.getValue(), variableDataArrayList, daysInMonth);
                         }
-    
+                    } else if (isReadingFloat) {
+                        aggregator.addFloat(timeInstant.getValue(), floatDataArrayList);
+                    } else {
+                        aggregator.add(timeInstant.getValue(), variableDataArrayList);
                     }
                 }
+                if (summaryAccumulator != null) {
+                    summaryAccumulator.add(variableDataArrayList);
+                }
+
+                variableDataArrayList.clear();
+                floatDataArrayList.clear();
+
             }
 
-            // Data for the entire TimeInstant has been read by now, so retrieve the results from the
-            // Aggregator and write to the output dataset.
-            if (summaryAccumulator != null) {
-                try {
-                    SummaryStatisticsWriter.write(
-                        NetcdfDateUtils.toLocalDateTime(
-                            dateUnit,
-                            timeInstant.getValue()
-                        ),
-                        summaryOperator,
-                        summaryAccumulator,
-                        pipelineContext.getSummaryOutputWriter()
-                    );
-                } catch (IOException e) {
-                    e.printStackTrace();
+            return dateUnit;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the aligned time slices of the two {@code Inputs} of a {@code DIFF}
+     * operator are read together, so the {@code Operator} can difference each pair as it arrives
+     * rather than holding every time slice of both {@code Inputs}.
+     */
+    protected boolean isAccumulatingInLockStep(Aggregator aggregator,
+                                               SummaryAccumulator summaryAccumulator) {
+        return (aggregator != null) &&
+            (summaryAccumulator == null) &&
+            (this.pipelineContext.getInputs().size() == 2) &&
+            this.pipelineContext.getSummaryOperator().getOperatorType()
+                .equalsIgnoreCase(DifferenceOperatorFactory.OPERATOR_TYPE);
+    }
+
+    /**
+     * Read the time slices of the two {@code Inputs} in lock-step, adding the time slices of the
+     * first {@code Input} (the minuends) followed by the aligned time slices of the second
+     * {@code Input} (the subtrahends) to the {@code aggregator} in a single invocation. The
+     * {@code Inputs} must have the same number of time slices.
+     *
+     * @return the {@code DateUnit} of the last dataset read.
+     */
+    protected DateUnit accumulateInLockStep(List<InputFileIndexBounds> inputFileIndexBoundsList,
+                                            Aggregator aggregator,
+                                            List<Double> selectedDepthsToProcess,
+                                            WetCellMask wetCellMask,
+                                            boolean hasDepthDimension,
+                                            int timeDimensionIndex,
+                                            int depthDimensionIndex) {
+        final NcAggregateTask.TimeInstant timeInstant = this.pipelineContext.getTimeInstant();
+        final List<NcAggregateTask.Input> inputs = this.pipelineContext.getInputs();
+        final List<List<InputFileIndexBounds>> inputFileIndexBoundsByInput = new ArrayList<>();
+        for (NcAggregateTask.Input input : inputs) {
+            inputFileIndexBoundsByInput.add(
+                inputFileIndexBoundsList.stream()
+                    .filter(inputFileIndexBounds -> inputFileIndexBounds.getInput() == input)
+                    .collect(Collectors.toList())
+            );
+        }
+        final int cursorDepthDimensionIndex = hasDepthDimension ? depthDimensionIndex : -1;
+        try (InputSliceCursor minuendCursor = new InputSliceCursor(
+                 inputFileIndexBoundsByInput.get(0),
+                 selectedDepthsToProcess,
+                 timeDimensionIndex,
+                 cursorDepthDimensionIndex
+             );
+             InputSliceCursor subtrahendCursor = new InputSliceCursor(
+                 inputFileIndexBoundsByInput.get(1),
+                 selectedDepthsToProcess,
+                 timeDimensionIndex,
+                 cursorDepthDimensionIndex
+             )) {
+            while (minuendCursor.hasNext() || subtrahendCursor.hasNext()) {
+                if (!minuendCursor.hasNext() || !subtrahendCursor.hasNext()) {
+                    throw new RuntimeException("Inputs \"" + inputs.get(0).getInputId() + "\" and \"" +
+                        inputs.get(1).getInputId() + "\" have a different number of time slices.");
+                }
+                final List<Double[]> variableDataArrayList = new ArrayList<>();
+                for (InputSliceCursor cursor : Arrays.asList(minuendCursor, subtrahendCursor)) {
+                    for (Double[] array : cursor.next()) {
+                        variableDataArrayList.add(wetCellMask != null ? wetCellMask.compact(array) : array);
+                    }
                 }
-                summaryAccumulator.reset();
-            }
 
-            // Has an Aggregator been instantiated? If so, then a NetCDF output file is being
-            // generated.
-            if (aggregator != null) {
-
-                // Retrieve the results from the Aggregator and convert to NetCDF arrays for the
-                // next stage. Force the Aggregator to release its resources immediately to limit
-                // the chance of memory issues.
-                List<Double[]> aggregatedDataList = aggregator.getAggregatedData();
-                aggregator.unInitialise();
-                aggregator = null;
-                isAggregatorInitialised = false;
-                outputDataShape[timeDimensionIndex] = 1;
-                if (hasDepthDimension) {
-                    outputDataShape[depthDimensionIndex] = selectedDepthsToProcess.size();
+                // Complete initialising the Aggregator if not completed.
+                if (!aggregator.isInitialised()) {
+                    aggregator.setShape(minuendCursor.getReadPlan().getSliceShape(0));
+                    aggregator.setDataType(minuendCursor.getReadPlan().getDataTypes().get(0));
+                    aggregator.initialise();
                 }
-                List<Array> arrays = new ArrayList<>(aggregatedDataList.size());
-                for (Double[] aggregatedData : aggregatedDataList) {
-                    Array array = Array.factory(outputDataType, outputDataShape);
-                    arrays.add(array);
-                    for (int index = 0; index < aggregatedData.length; index++) {
-                        array.setDouble(index, aggregatedData[index]);
+                aggregator.add(timeInstant.getValue(), variableDataArrayList);
+            }
+            return minuendCursor.getDateUnit();
+        }
+    }
+
+    /**
+     * Determine the number of days in the month of each time slice from {@code startIndex} to
+     * {@code endIndex} (inclusive), reading the time values once.
+     */
+    protected int[] determineDaysInMonths(Variable timeVariable,
+                                          DateUnit dateUnit,
+                                          int startIndex,
+                                          int endIndex) {
+        try {
+            final Array timeArray = timeVariable.read(
+                new int[]{startIndex},
+                new int[]{endIndex - startIndex + 1}
+            );
+            final ZoneId zoneId = ZoneId.of(this.pipelineContext.getProductDefinition().getTargetTimeZone());
+            final int[] daysInMonths = new int[(int) timeArray.getSize()];
+            for (int index = 0; index < daysInMonths.length; index++) {
+                final LocalDateTime dateTime = dateUnit
+                    .makeDate(timeArray.getFloat(index))
+                    .toInstant()
+                    .atZone(zoneId)
+                    .toLocalDateTime();
+                final LocalDateTime startOfMonth = dateTime
+                    .with(TemporalAdjusters.firstDayOfMonth())
+                    .truncatedTo(ChronoUnit.DAYS);
+                final LocalDateTime endOfMonth = dateTime
+                    .with(TemporalAdjusters.lastDayOfMonth())
+                    .plus(1, ChronoUnit.DAYS)
+                    .truncatedTo(ChronoUnit.DAYS);
+                daysInMonths[index] = (int) DateTimeUtils.differenceInDays(startOfMonth, endOfMonth);
+            }
+            return daysInMonths;
+        } catch (Exception e) {
+            throw new RuntimeException(
+                "Failed to calculate the number of days in the input month.",
+                e
+            );
+        }
+    }
+
+    /**
+     * Read the wet-cell mask of each of the specified depths of the reference {@code Input}. A
+     * cell is wet if any of the variables of the {@code Input} hold a value. Masks are cached for
+     * the {@code Task} by {@link ApplicationContext#getLayerMaskCache()}, keyed by the
+     * {@code Input}, variables, layer shape and depth, so each is read only once.
+     *
+     * @param depths the depths to read, or a single {@code null} depth if the variables do not
+     *               have a depth dimension.
+     */
+    protected Map<Double, boolean[]> readLayerMasks(InputDataset referenceDataset,
+                                                    String referenceInputId,
+                                                    List<Double> depths) {
+        final List<Variable> variables = this.pipelineContext.getSummaryOperator().getInputVariables()
+            .stream()
+            .filter(fullVariableName -> fullVariableName.split(Constants.VARIABLE_NAME_SEPARATOR)[0]
+                .equalsIgnoreCase(referenceInputId))
+            .map(fullVariableName -> getVariable(referenceDataset, fullVariableName))
+            .collect(Collectors.toList());
+        final int[] shape = variables.get(0).getShape();
+        final String keyPrefix = referenceInputId + Constants.VARIABLE_NAME_SEPARATOR +
+            variables.stream().map(Variable::getShortName).collect(Collectors.joining(",")) +
+            "[" + shape[shape.length - 2] + "x" + shape[shape.length - 1] + "]";
+        final Map<String, boolean[]> layerMaskCache = this.applicationContext.getLayerMaskCache();
+        final Map<Double, boolean[]> layerMasksByDepth = new HashMap<>();
+        for (Double depth : depths) {
+            layerMasksByDepth.put(depth, layerMaskCache.computeIfAbsent(keyPrefix + "@" + depth, ignored -> {
+                boolean[] layerMask = null;
+                for (Variable variable : variables) {
+                    final int depthDimensionIndex = referenceDataset.findDepthDimensionIndex(variable);
+                    final boolean[] variableLayerMask = WetCellMask.readLayerMask(
+                        variable,
+                        referenceDataset.findTimeDimensionIndex(variable),
+                        depthDimensionIndex,
+                        depthDimensionIndex != -1 ?
+                            referenceDataset.getSelectedDepthToIndexMap(variable).get(depth) :
+                            0
+                    );
+                    if (layerMask == null) {
+                        layerMask = variableLayerMask;
+                    } else {
+                        for (int index = 0; index < layerMask.length; index++) {
+                            layerMask[index] |= variableLayerMask[index];
+                        }
                     }
                 }
+                return layerMask;
+            }));
+        }
+        return layerMasksByDepth;
+    }
 
-                // Invoke the next stage.
-                this.regularGriddingStage.execute(arrays, initialDepthPos);
+    /**
+     * Returns {@code true} if wet-cell compaction is enabled and applicable. Compaction requires a
+     * NetCDF output, and is not used when summary statistics are generated, as those are
+     * calculated from the full grid. It is also not used for zonal threshold operators, as those
+     * identify the zone of each value by its index in the full grid.
+     */
+    protected boolean isCompactingWetCells(NcAggregateProductDefinition.ZoneBasedSummaryOutputFile zoneBasedSummaryOutputFile,
+                                           NcAggregateProductDefinition.SiteBasedSummaryOutputFile siteBasedSummaryOutputFile) {
+        return isWetCellCompactionEnabled() &&
+            this.pipelineContext.isPopulatingOutputDataset() &&
+            (zoneBasedSummaryOutputFile == null) &&
+            (siteBasedSummaryOutputFile == null) &&
+            !(this.pipelineContext.getSummaryOperator() instanceof
+                NcAggregateProductDefinition.ThresholdZonalSummaryOperator);
+    }
+
+    /**
+     * Returns {@code true} if the {@code WET_CELL_COMPACTION} environment variable is
+     * {@code true}.
+     */
+    synchronized static protected boolean isWetCellCompactionEnabled() {
+        if (isWetCellCompactionEnabled == null) {
+            isWetCellCompactionEnabled = Boolean.parseBoolean(
+                EnvironmentVariableReader.getInstance().optByKey("WET_CELL_COMPACTION")
+            );
+        }
+        return isWetCellCompactionEnabled;
+    }
+
+    /**
+     * Returns {@code true} unless the {@code SITE_HYPERSLAB_READS} environment variable is
+     * {@code false}.
+     */
+    synchronized static protected boolean isSiteHyperslabReadEnabled() {
+        if (isSiteHyperslabReadEnabled == null) {
+            final String value = EnvironmentVariableReader.getInstance().optByKey("SITE_HYPERSLAB_READS");
+            isSiteHyperslabReadEnabled = (value == null) || Boolean.parseBoolean(value);
+        }
+        return isSiteHyperslabReadEnabled;
+    }
+
+    /**
+     * Returns the {@link SiteExtractionPlan} of the {@code extractionSites} for a grid with
+     * layers of {@code rowCount} x {@code columnCount} cells, building it on first use.
+     */
+    synchronized protected SiteExtractionPlan getSiteExtractionPlan(List<ExtractionSite> extractionSites,
+                                                                    int rowCount,
+                                                                    int columnCount) {
+        return this.siteExtractionPlanByLayerShape.computeIfAbsent(
+            rowCount + "x" + columnCount,
+            key -> {
+                final SiteExtractionPlan siteExtractionPlan = SiteExtractionPlan.make(
+                    extractionSites,
+                    rowCount,
+                    columnCount
+                );
+                this.logger.debug("Reading " + siteExtractionPlan.getBoxes().size() + " boxes (" +
+                    siteExtractionPlan.getCompactLayerSize() + " of " + (rowCount * columnCount) +
+                    " cells) per layer for " + extractionSites.size() + " sites.");
+                return siteExtractionPlan;
             }
+        );
+    }
 
-            // Determine if there are more depths to process.
-            hasMoreDepths = hasDepthDimension && nextDepthToProcess < referenceSelectedDepths.size();
+    /**
+     * Returns {@code true} if data of the specified type is read as single precision, being
+     * {@code float} data in the {@code float32} {@code COMPUTE_MODE}.
+     */
+    protected boolean isReadingFloat(DataType dataType) {
+        return (dataType == DataType.FLOAT) && isFloat32ComputeMode();
+    }
 
+    /**
+     * Returns {@code true} if the {@code COMPUTE_MODE} environment variable selects
+     * {@link #COMPUTE_MODE_FLOAT32}.
+     */
+    synchronized static protected boolean isFloat32ComputeMode() {
+        if (isFloat32ComputeMode == null) {
+            final String computeMode = EnvironmentVariableReader.getInstance().optByKey("COMPUTE_MODE");
+            if ((computeMode != null) && !computeMode.equalsIgnoreCase(COMPUTE_MODE_FLOAT32) &&
+                !computeMode.equalsIgnoreCase(COMPUTE_MODE_FLOAT64)) {
+                throw new RuntimeException("Unsupported COMPUTE_MODE \"" + computeMode + "\".");
+            }
+            isFloat32ComputeMode = COMPUTE_MODE_FLOAT32.equalsIgnoreCase(computeMode);
         }
+        return isFloat32ComputeMode;
+    }
+
+    /**
+     * Returns the number of {@code Threads} for accumulating a single {@code TimeInstant}.
+     */
+    synchronized static protected int getAccumulationParallelism() {
+        if (accumulationParallelism == null) {
+            final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("ACCUMULATION_PARALLELISM");
+            accumulationParallelism = parallelismStr != null ?
+                Integer.parseInt(parallelismStr) : DEFAULT_ACCUMULATION_PARALLELISM;
+        }
+        return accumulationParallelism;
+    }
 
+    /**
+     * Returns the shared {@code ExecutorService} for parallel accumulation. The {@code Threads}
+     * are daemons so they do not prevent the application from exiting.
+     */
+    synchronized static protected ExecutorService getAccumulationExecutorService() {
+        if (accumulationExecutorService == null) {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            accumulationExecutorService = Executors.newFixedThreadPool(
+                getAccumulationParallelism(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "accumulation-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+        }
+        return accumulationExecutorService;
     }
 
     private static Variable getVariable(InputDataset inputDataset, String fullVariableName) {
@@ -494,5 +1141,140 @@ public class AccumulationStage {
         return TimeIncrementFactory.make(netcdfInput.getTimeIncrement());
     }
 
+    /**
+     * Iterates over the time slices of the {@code FileIndexBounds} of a single {@code Input} in
+     * order, holding only the dataset currently being read.
+     */
+    protected class InputSliceCursor implements AutoCloseable {
+
+        protected List<InputFileIndexBounds> inputFileIndexBoundsList;
+        protected List<Double> selectedDepthsToProcess;
+        protected int timeDimensionIndex;
+        protected int depthDimensionIndex;
+
+        /**
+         * The index of the current {@code FileIndexBounds} in the
+         * {@link #inputFileIndexBoundsList}, and the index of the next time slice within its
+         * dataset.
+         */
+        protected int boundsIndex = -1;
+        protected int timeIndex = 0;
+
+        protected InputDataset inputDataset = null;
+        protected ReadPlan readPlan = null;
+        protected List<Variable> variables = null;
+        protected DateUnit dateUnit = null;
+
+        public InputSliceCursor(List<InputFileIndexBounds> inputFileIndexBoundsList,
+                                List<Double> selectedDepthsToProcess,
+                                int timeDimensionIndex,
+                                int depthDimensionIndex) {
+            this.inputFileIndexBoundsList = inputFileIndexBoundsList;
+            this.selectedDepthsToProcess = selectedDepthsToProcess;
+            this.timeDimensionIndex = timeDimensionIndex;
+            this.depthDimensionIndex = depthDimensionIndex;
+        }
+
+        /**
+         * Returns {@code true} if another time slice is available, opening the dataset of the
+         * next {@code FileIndexBounds} if the current one has been read.
+         */
+        public boolean hasNext() {
+            while ((this.boundsIndex < 0) ||
+                (this.timeIndex > this.getFileIndexBounds().getEndIndex())) {
+                this.close();
+                this.boundsIndex++;
+                if (this.boundsIndex >= this.inputFileIndexBoundsList.size()) {
+                    this.boundsIndex = this.inputFileIndexBoundsList.size() - 1;
+                    return false;
+                }
+                this.open();
+            }
+            return true;
+        }
+
+        /**
+         * Read the next time slice of each variable of the {@code Input}.
+         */
+        public List<Double[]> next() {
+            final List<Double[]> arrays = new ArrayList<>();
+            for (int variableIndex = 0; variableIndex < this.variables.size(); variableIndex++) {
+                final Variable variable = this.variables.get(variableIndex);
+                final Double[] array = this.readPlan.read(variable, variableIndex, this.timeIndex);
+                apmInputReadBytes
+                    .labels(this.inputFileIndexBoundsList.get(this.boundsIndex).getInput().getInputId())
+                    .inc((double) array.length * variable.getDataType().getSize());
+                arrays.add(array);
+            }
+            this.timeIndex++;
+            return arrays;
+        }
+
+        public ReadPlan getReadPlan() {
+            return this.readPlan;
+        }
+
+        public DateUnit getDateUnit() {
+            return this.dateUnit;
+        }
+
+        protected NcAggregateTask.FileIndexBounds getFileIndexBounds() {
+            return this.inputFileIndexBoundsList.get(this.boundsIndex).getFileIndexBounds();
+        }
+
+        protected void open() {
+            final InputFileIndexBounds inputFileIndexBounds = this.inputFileIndexBoundsList.get(this.boundsIndex);
+            final NcAggregateTask.FileIndexBounds fileIndexBounds = inputFileIndexBounds.getFileIndexBounds();
+            this.inputDataset = inputDatasetCache.retrieve(fileIndexBounds.getMetadataId());
+            final Variable timeVariable = this.inputDataset.findVariable(
+                this.inputDataset.getTimeDimension().getFullName()
+            );
+            this.dateUnit = NetcdfDateUtils.getDateUnit(timeVariable.getUnitsString());
+            this.readPlan = ReadPlan.compile(
+                this.inputDataset,
+                inputFileIndexBounds.getInput().getInputId(),
+                pipelineContext.getSummaryOperator().getInputVariables(),
+                this.selectedDepthsToProcess,
+                this.timeDimensionIndex,
+                this.depthDimensionIndex
+            );
+            this.variables = this.readPlan.resolveVariables(this.inputDataset, fileIndexBounds.getMetadataId());
+            this.timeIndex = fileIndexBounds.getStartIndex();
+        }
+
+        @Override
+        public void close() {
+            if (this.inputDataset != null) {
+                this.inputDataset.close();
+                this.inputDataset = null;
+            }
+        }
+
+    }
+
+    /**
+     * Value object pairing a {@link NcAggregateTask.FileIndexBounds} with the
+     * {@link NcAggregateTask.Input} it belongs to.
+     */
+    static protected class InputFileIndexBounds {
+
+        protected NcAggregateTask.Input input;
+        protected NcAggregateTask.FileIndexBounds fileIndexBounds;
+
+        public InputFileIndexBounds(NcAggregateTask.Input input,
+                                    NcAggregateTask.FileIndexBounds fileIndexBounds) {
+            this.input = input;
+            this.fileIndexBounds = fileIndexBounds;
+        }
+
+        public NcAggregateTask.Input getInput() {
+            return this.input;
+        }
+
+        public NcAggregateTask.FileIndexBounds getFileIndexBounds() {
+            return this.fileIndexBounds;
+        }
+
+    }
 
 }
@@ -25,7 +25,10 @@ public class InputIteratorStage extends BaseStage {
      * {@link PipelineContext#timeInstant TimeInstant}. Where the {@code Input} contains data for
      * the current {@link PipelineContext#summaryOperator}, invoke subsequent {@code Stages} (see
      * {@link #nextStage}) for the {@code Input}, setting
-     * {@link PipelineContext#inputs} accordingly to specify the operational context.
+     * {@link PipelineContext#inputs} accordingly to specify the operational context. The
+     * {@code Inputs} are listed in the order their variables appear in the operator, so the
+     * {@link AccumulationStage} can read the minuend and subtrahend {@code Inputs} of a
+     * {@code DIFF} operator in lock-step.
      */
     public void execute() {
         final NcAggregateTask.TimeInstant timeInstant = pipelineContext.getTimeInstant();
@@ -1,5 +1,7 @@
 package aims.ereefs.netcdf.task.aggregation.pipeline;
 
+import io.prometheus.client.Histogram;
+
 /**
  * A {@code Pipeline} {@code Stage} to execute a single {@link PipelineContext#summaryOperator}.
  *
@@ -24,6 +26,14 @@ public class OperatorExecutorStage extends BaseStage {
 
     public void execute() {
         this.logger.debug(this.pipelineContext.getSummaryOperator().toString());
-        this.accumulationStage.execute();
+        final Histogram.Timer durationTimer = StageMetrics.startTimer(
+            StageMetrics.STAGE_OPERATOR,
+            this.pipelineContext
+        );
+        try {
+            this.accumulationStage.execute();
+        } finally {
+            durationTimer.observeDuration();
+        }
     }
 }
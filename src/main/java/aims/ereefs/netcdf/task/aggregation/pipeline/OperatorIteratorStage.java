@@ -1,5 +1,6 @@
 package aims.ereefs.netcdf.task.aggregation.pipeline;
 
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +42,12 @@ public class OperatorIteratorStage extends BaseStage {
                 this.summaryOperatorList.get(index);
             logger.debug("operator " + (index + 1) + " of " + summaryOperatorCount);
             this.pipelineContext.setSummaryOperator(summaryOperator);
-            this.nextStage.execute();
+            try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE, summaryOperator.getOperatorType())) {
+                if (Tracer.isEnabled()) {
+                    span.arg("variables", String.join(",", summaryOperator.getInputVariables()));
+                }
+                this.nextStage.execute();
+            }
         }
         ;
     }
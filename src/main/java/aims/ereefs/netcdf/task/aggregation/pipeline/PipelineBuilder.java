@@ -2,7 +2,6 @@ package aims.ereefs.netcdf.task.aggregation.pipeline;
 
 import aims.ereefs.netcdf.ApplicationContext;
 import aims.ereefs.netcdf.aggregator.AggregationPeriods;
-import aims.ereefs.netcdf.input.netcdf.InputDataset;
 import aims.ereefs.netcdf.output.netcdf.OutputDataset;
 import aims.ereefs.netcdf.output.summary.OutputWriter;
 import aims.ereefs.netcdf.regrid.RegularGridMapper;
@@ -12,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * {@code Builder} class for instantiating and initialising the {@code Pipeline}, returning a
@@ -43,10 +43,50 @@ public class PipelineBuilder {
         final TimeInstantIteratorStage timeInstantIteratorStage = new TimeInstantIteratorStage();
         timeInstantIteratorStage.setPipelineContext(pipelineContext);
 
+        // If a NetCDF output file has been specified, has a RegularGridMapper also been specified?
+        RegularGridMapper regularGridMapper = null;
+        final NcAggregateProductDefinition.NetcdfOutputFile netcdfOutputFile =
+            productDefinition.getOutputs().getNetcdfOutputFile();
+        if (netcdfOutputFile != null) {
+            final String bindName = netcdfOutputFile.getRegularGridMapperCacheBindName();
+            if (bindName != null) {
+                regularGridMapper = (RegularGridMapper) applicationContext.getFromCache(bindName);
+            }
+        }
+
+        // The Stages from the TimeInstant Executor onwards are instantiated for a PipelineContext,
+        // so that TimeInstants can be executed concurrently, each with its own context.
+        final RegularGridMapper finalRegularGridMapper = regularGridMapper;
+        final Function<PipelineContext, BaseStage> timeInstantStageFactory =
+            context -> buildTimeInstantStages(
+                context,
+                applicationContext,
+                aggregationPeriod,
+                summaryOperatorDefinitionList,
+                outputDataset,
+                finalRegularGridMapper
+            );
+        timeInstantIteratorStage.setNextStage(timeInstantStageFactory.apply(pipelineContext));
+        timeInstantIteratorStage.setTimeInstantStageFactory(timeInstantStageFactory);
+
+        return timeInstantIteratorStage;
+
+    }
+
+    /**
+     * Instantiate and initialise the {@code Stages} that execute a single {@code TimeInstant},
+     * returning a reference to the first of those {@code Stages}.
+     */
+    final static protected BaseStage buildTimeInstantStages(PipelineContext pipelineContext,
+                                                            ApplicationContext applicationContext,
+                                                            AggregationPeriods aggregationPeriod,
+                                                            List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorDefinitionList,
+                                                            OutputDataset outputDataset,
+                                                            RegularGridMapper regularGridMapper) {
+
         // Time Instant Executor - executing a single TimeInstant.
         final TimeInstantExecutorStage timeInstantExecutorStage = new TimeInstantExecutorStage();
         timeInstantExecutorStage.setPipelineContext(pipelineContext);
-        timeInstantIteratorStage.setNextStage(timeInstantExecutorStage);
 
         // Operator Iterator - iterate through each Operator.
         final OperatorIteratorStage operatorIteratorStage = new OperatorIteratorStage(
@@ -71,27 +111,12 @@ public class PipelineBuilder {
             outputDataset
         );
 
-        // Obtain a reference dataset that will be used when information is required from a
-        // representative input dataset.
-        final InputDataset referenceDataset =
-            applicationContext.getInputDatasetCache().getReferenceDataset();
-
-        // If a NetCDF output file has been specified, has a RegularGridMapper also been specified?
-        RegularGridMapper regularGridMapper = null;
-        final NcAggregateProductDefinition.NetcdfOutputFile netcdfOutputFile =
-            productDefinition.getOutputs().getNetcdfOutputFile();
-        if (netcdfOutputFile != null) {
-            final String bindName = netcdfOutputFile.getRegularGridMapperCacheBindName();
-            if (bindName != null) {
-                regularGridMapper = (RegularGridMapper) applicationContext.getFromCache(bindName);
-            }
-        }
+        // Regridding (if a RegularGridMapper was specified).
         final RegularGriddingStage regularGriddingStage = new RegularGriddingStage(
             pipelineContext,
             regularGridMapper,
             writeTimeSliceStage
         );
-        referenceDataset.close();
 
         // Accumulation.
         final AccumulationStage accumulationStage = new AccumulationStage(
@@ -103,7 +128,7 @@ public class PipelineBuilder {
         );
         operatorExecutorStage.setAccumulationStage(accumulationStage);
 
-        return timeInstantIteratorStage;
+        return timeInstantExecutorStage;
 
     }
 }
@@ -88,4 +88,18 @@ public class PipelineContext {
         this.isPopulatingOutputDataset = isPopulatingOutputDataset;
         this.summaryOutputWriter = summaryOutputWriter;
     }
+
+    /**
+     * Constructor to instantiate a context sharing the static properties of the specified
+     * context, but with its own operational context. Used when {@code TimeInstants} are processed
+     * concurrently, as each {@code TimeInstant} requires its own context.
+     */
+    public PipelineContext(PipelineContext pipelineContext) {
+        this(
+            pipelineContext.getTask(),
+            pipelineContext.getProductDefinition(),
+            pipelineContext.isPopulatingOutputDataset(),
+            pipelineContext.getSummaryOutputWriter()
+        );
+    }
 }
@@ -0,0 +1,256 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.input.extraction.SiteExtractionPlan;
+import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.util.Constants;
+import aims.ereefs.netcdf.util.netcdf.ReadUtils;
+import ucar.ma2.DataType;
+import ucar.nc2.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resolved details required by the {@link AccumulationStage} to read each time slice of the
+ * variables of a single {@code Input} for a chunk of depths: the variable names, the shapes to
+ * read and the indexes of the depths within the depth dimension. Compiling these once per
+ * dataset, rather than for every time slice, leaves only I/O in the accumulation loop.
+ * <p>
+ * Datasets of the same {@code Input} normally share a layout, so plans are cached by a signature
+ * of the layout (see {@link #compile(InputDataset, String, List, List, int, int)}) and shared
+ * between datasets. The {@code Variable} handles are specific to a dataset and are obtained from
+ * {@link #resolveVariables(InputDataset, String)}.
+ *
+ * @author Aaron Smith
+ */
+public class ReadPlan {
+
+    /**
+     * The {@link ReadPlan}s compiled so far, by layout signature.
+     */
+    final static protected Map<String, ReadPlan> READ_PLAN_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The short names of the variables to read, in the order expected by the operator.
+     */
+    protected List<String> variableNames;
+
+    /**
+     * The type of each variable.
+     */
+    protected List<DataType> dataTypes;
+
+    /**
+     * The shape of a single time slice of each variable, as read from the dataset.
+     */
+    protected List<int[]> readShapes;
+
+    /**
+     * The shape of a single time slice of each variable, limited to the chunk of depths.
+     */
+    protected List<int[]> sliceShapes;
+
+    /**
+     * The index of each depth of the chunk within the depth dimension, in order, or {@code null}
+     * if the variables do not have a depth dimension.
+     */
+    protected int[] depthIndexes;
+
+    protected int timeDimensionIndex;
+
+    protected int depthDimensionIndex;
+
+    protected ReadPlan() {
+    }
+
+    public List<String> getVariableNames() {
+        return this.variableNames;
+    }
+
+    public List<DataType> getDataTypes() {
+        return this.dataTypes;
+    }
+
+    public int[] getSliceShape(int variableIndex) {
+        return this.sliceShapes.get(variableIndex);
+    }
+
+    public boolean hasDepthDimension() {
+        return this.depthIndexes != null;
+    }
+
+    /**
+     * Returns the {@code Variable} of the dataset corresponding to each of the
+     * {@link #variableNames}.
+     *
+     * @param datasetId the identifier of the dataset, for error reporting.
+     */
+    public List<Variable> resolveVariables(InputDataset inputDataset, String datasetId) {
+        final List<Variable> variables = new ArrayList<>();
+        for (String variableName : this.variableNames) {
+            final Variable variable = inputDataset.findVariable(variableName);
+            if (variable == null) {
+                throw new RuntimeException("Variable \"" + variableName +
+                    "\" not found in dataset (\"" + datasetId + "\").");
+            }
+            variables.add(variable);
+        }
+        return variables;
+    }
+
+    /**
+     * Read a single time slice of the specified variable.
+     *
+     * @param variable      the variable from {@link #resolveVariables(InputDataset, String)}.
+     * @param variableIndex the index of the variable in {@link #variableNames}.
+     * @param timeIndex     the index of the time slice within the dataset.
+     */
+    public Double[] read(Variable variable, int variableIndex, int timeIndex) {
+        if (this.hasDepthDimension()) {
+            return ReadUtils.readSingleTimeSlice(
+                variable,
+                this.readShapes.get(variableIndex),
+                this.timeDimensionIndex,
+                this.depthDimensionIndex,
+                timeIndex,
+                this.depthIndexes
+            );
+        }
+        return ReadUtils.readSingleTimeSlice(variable, this.readShapes.get(variableIndex), timeIndex);
+    }
+
+    /**
+     * Read only the cells of the {@code siteExtractionPlan} from a single time slice of the
+     * specified variable, in the layout of its compact layer.
+     */
+    public Double[] readSites(Variable variable, SiteExtractionPlan siteExtractionPlan, int timeIndex) {
+        return siteExtractionPlan.read(
+            variable,
+            this.timeDimensionIndex,
+            this.depthDimensionIndex,
+            timeIndex,
+            this.depthIndexes
+        );
+    }
+
+    /**
+     * Single precision equivalent of {@link #read(Variable, int, int)}.
+     */
+    public float[] readAsFloat(Variable variable, int variableIndex, int timeIndex) {
+        if (this.hasDepthDimension()) {
+            return ReadUtils.readSingleTimeSliceAsFloat(
+                variable,
+                this.readShapes.get(variableIndex),
+                this.timeDimensionIndex,
+                this.depthDimensionIndex,
+                timeIndex,
+                this.depthIndexes
+            );
+        }
+        return ReadUtils.readSingleTimeSliceAsFloat(variable, this.readShapes.get(variableIndex), timeIndex);
+    }
+
+    /**
+     * Returns the {@link ReadPlan} for the variables of the specified {@code Input} in the
+     * dataset, from the {@link #READ_PLAN_CACHE} if a dataset with the same layout has already
+     * been seen. The layout signature comprises the {@code Input}, the variables, their types and
+     * shapes, and the depths of the chunk with their resolved indexes.
+     *
+     * @param fullVariableNames       the fully qualified names of all variables of the operator.
+     *                                Only those of the specified {@code Input} are read.
+     * @param selectedDepthsToProcess the depths of the chunk, ignored if
+     *                                {@code depthDimensionIndex} is {@code -1}.
+     */
+    static public ReadPlan compile(InputDataset inputDataset,
+                                   String inputId,
+                                   List<String> fullVariableNames,
+                                   List<Double> selectedDepthsToProcess,
+                                   int timeDimensionIndex,
+                                   int depthDimensionIndex) {
+
+        // Identify the variables of the Input.
+        final List<String> variableNames = new ArrayList<>();
+        for (String fullVariableName : fullVariableNames) {
+            final String[] variableNameTokens = fullVariableName.split(Constants.VARIABLE_NAME_SEPARATOR);
+            if (variableNameTokens.length != 2) {
+                throw new RuntimeException("Variable \"" + fullVariableName + "\" not fully qualified.");
+            }
+            if (variableNameTokens[0].equalsIgnoreCase(inputId)) {
+                variableNames.add(variableNameTokens[1]);
+            }
+        }
+
+        // Build the layout signature.
+        final StringBuilder signature = new StringBuilder(inputId).append('|');
+        final List<Variable> variables = new ArrayList<>();
+        for (String variableName : variableNames) {
+            final Variable variable = inputDataset.findVariable(variableName);
+            variables.add(variable);
+            signature.append(variableName);
+            if (variable != null) {
+                signature.append(':').append(variable.getDataType())
+                    .append(Arrays.toString(variable.getShape()));
+            }
+            signature.append(',');
+        }
+        int[] depthIndexes = null;
+        if ((depthDimensionIndex != -1) && !variables.isEmpty() && (variables.get(0) != null)) {
+            final Map<Double, Integer> selectedDepthToIndexMap =
+                inputDataset.getSelectedDepthToIndexMap(variables.get(0));
+            depthIndexes = ReadUtils.toDepthIndexes(selectedDepthsToProcess, selectedDepthToIndexMap);
+            signature.append('|').append(Arrays.toString(depthIndexes));
+        }
+        signature.append('|').append(timeDimensionIndex).append('|').append(depthDimensionIndex);
+
+        // Variables that cannot be resolved are reported when reading, so do not cache the plan.
+        if (variables.contains(null)) {
+            return make(variableNames, variables, depthIndexes, timeDimensionIndex, depthDimensionIndex);
+        }
+        final int[] finalDepthIndexes = depthIndexes;
+        return READ_PLAN_CACHE.computeIfAbsent(
+            signature.toString(),
+            key -> make(variableNames, variables, finalDepthIndexes, timeDimensionIndex, depthDimensionIndex)
+        );
+    }
+
+    static protected ReadPlan make(List<String> variableNames,
+                                   List<Variable> variables,
+                                   int[] depthIndexes,
+                                   int timeDimensionIndex,
+                                   int depthDimensionIndex) {
+        final ReadPlan readPlan = new ReadPlan();
+        readPlan.variableNames = variableNames;
+        readPlan.depthIndexes = depthIndexes;
+        readPlan.timeDimensionIndex = timeDimensionIndex;
+        readPlan.depthDimensionIndex = depthDimensionIndex;
+        readPlan.dataTypes = new ArrayList<>();
+        readPlan.readShapes = new ArrayList<>();
+        readPlan.sliceShapes = new ArrayList<>();
+        for (Variable variable : variables) {
+            if (variable == null) {
+                readPlan.dataTypes.add(null);
+                readPlan.readShapes.add(null);
+                readPlan.sliceShapes.add(null);
+                continue;
+            }
+            readPlan.dataTypes.add(variable.getDataType());
+
+            // Read a single time slice, including all depths.
+            final int[] readShape = variable.getShape();
+            readShape[timeDimensionIndex] = 1;
+            readPlan.readShapes.add(readShape);
+
+            // The data passed on is limited to the depths of the chunk.
+            final int[] sliceShape = Arrays.copyOf(readShape, readShape.length);
+            if (depthIndexes != null) {
+                sliceShape[depthDimensionIndex] = depthIndexes.length;
+            }
+            readPlan.sliceShapes.add(sliceShape);
+        }
+        return readPlan;
+    }
+
+}
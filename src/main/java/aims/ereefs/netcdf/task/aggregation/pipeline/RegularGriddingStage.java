@@ -1,6 +1,8 @@
 package aims.ereefs.netcdf.task.aggregation.pipeline;
 
 import aims.ereefs.netcdf.regrid.RegularGridMapper;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.Array;
@@ -62,9 +64,18 @@ public class RegularGriddingStage {
         } else {
 
             // Perform regridding.
+            final Histogram.Timer durationTimer = StageMetrics.startTimer(
+                StageMetrics.STAGE_REGRID,
+                this.pipelineContext
+            );
             final List<Array> regriddedArrays = new ArrayList<>();
-            for (Array array : inputArrays) {
-                regriddedArrays.add(this.regularGridMapper.curvedToRegular(array));
+            try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_COMPUTE, "regrid")) {
+                span.arg("depthIndex", depthIndex);
+                for (Array array : inputArrays) {
+                    regriddedArrays.add(this.regularGridMapper.curvedToRegular(array));
+                }
+            } finally {
+                durationTimer.observeDuration();
             }
             this.writeTimeSliceStage.execute(regriddedArrays, depthIndex);
 
@@ -0,0 +1,75 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import io.prometheus.client.Histogram;
+
+/**
+ * Instrumentation shared by the {@code Stages} of a {@code Pipeline}. A single {@code Histogram}
+ * is used for all {@code Stages} so that the time spent in each {@code Stage} can be compared
+ * directly. Each observation is labelled by the {@code Stage}, the
+ * {@link PipelineContext#summaryOperator} type and the input variable(s) of the operator.
+ *
+ * <p>
+ * The {@link #STAGE_TIME_INSTANT} and {@link #STAGE_OPERATOR} observations include the time spent
+ * in downstream {@code Stages}, whereas the {@link #STAGE_ACCUMULATION},
+ * {@link #STAGE_REGRID} and {@link #STAGE_WRITE} observations only include the time spent within
+ * that {@code Stage}.
+ * </p>
+ *
+ * @author Aaron Smith
+ */
+public class StageMetrics {
+
+    final static public String STAGE_TIME_INSTANT = "time_instant";
+    final static public String STAGE_OPERATOR = "operator";
+    final static public String STAGE_ACCUMULATION = "accumulation";
+    final static public String STAGE_REGRID = "regrid";
+    final static public String STAGE_WRITE = "write";
+
+    /**
+     * Label value used when a {@code Stage} is not specific to a single operator.
+     */
+    final static protected String ALL = "all";
+
+    protected static final Histogram apmStageDuration = Histogram.build()
+        .name("ncaggregate_pipeline_stage_duration_seconds")
+        .help("Time taken (seconds) to execute a Stage of the Pipeline.")
+        .labelNames("stage", "operator_type", "variable")
+        .buckets(0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600)
+        .register();
+
+    /**
+     * Start timing the specified {@code Stage}, which is not specific to a single operator (eg:
+     * the {@link #STAGE_TIME_INSTANT} {@code Stage}). The operator labels are set to {@link #ALL}.
+     *
+     * @param stage the name of the {@code Stage} being timed.
+     * @return the timer to be observed by the caller when the {@code Stage} completes.
+     */
+    static public Histogram.Timer startTimer(String stage) {
+        return apmStageDuration.labels(stage, ALL, ALL).startTimer();
+    }
+
+    /**
+     * Start timing the specified {@code Stage} for the {@link PipelineContext#summaryOperator}
+     * currently being processed.
+     *
+     * @param stage           the name of the {@code Stage} being timed.
+     * @param pipelineContext the context of the {@code Pipeline}.
+     * @return the timer to be observed by the caller when the {@code Stage} completes.
+     */
+    static public Histogram.Timer startTimer(String stage, PipelineContext pipelineContext) {
+        final NcAggregateProductDefinition.SummaryOperator summaryOperator =
+            pipelineContext.getSummaryOperator();
+        if (summaryOperator == null) {
+            return startTimer(stage);
+        }
+        return apmStageDuration
+            .labels(
+                stage,
+                summaryOperator.getOperatorType(),
+                String.join(",", summaryOperator.getInputVariables())
+            )
+            .startTimer();
+    }
+
+}
@@ -0,0 +1,374 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.input.netcdf.InputDataset;
+import aims.ereefs.netcdf.util.Constants;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.json.JSONObject;
+import ucar.ma2.DataType;
+import ucar.nc2.Variable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Estimates the cost of executing a {@code Task} from the layout of the variables in the reference
+ * datasets and the {@code FileIndexBounds} of the {@code Task}, without reading any data. The
+ * estimate walks the {@code Task} in the same order as the {@code Pipeline}
+ * ({@code TimeInstant}, then {@code SummaryOperator}, then {@code Input}, see
+ * {@link InputIteratorStage}) and sizes the chunks of depths in the same way as the
+ * {@link AccumulationStage}, honouring the {@code COMPUTE_MODE}, {@code TIME_INSTANT_PARALLELISM}
+ * and {@code ACCUMULATION_PARALLELISM} environment variables.
+ * <p>
+ * The runtime is estimated from throughputs that should be calibrated for the deployment, for
+ * example from the bytes read and wall time reported by the {@code EndToEndBenchmark}, using the
+ * {@code PLAN_READ_MB_PER_SECOND} and {@code PLAN_DOWNLOAD_MB_PER_SECOND} environment variables.
+ * The estimates are upper bounds: wet-cell compaction and regridding are ignored.
+ *
+ * @author Aaron Smith
+ */
+public class TaskCostEstimator {
+
+    /**
+     * Default throughput (MB/s) at which data is read and accumulated by a single {@code Thread}.
+     */
+    final static protected double DEFAULT_READ_MB_PER_SECOND = 40.0;
+
+    /**
+     * Default throughput (MB/s) at which input files are downloaded.
+     */
+    final static protected double DEFAULT_DOWNLOAD_MB_PER_SECOND = 100.0;
+
+    /**
+     * The heap required for each value read as a boxed {@code Double}: the object plus the
+     * reference to it.
+     */
+    final static protected int BOXED_DOUBLE_BYTES = 24;
+
+    /**
+     * The heap required by the {@code Collectors} of an {@code Aggregator} for each cell of each
+     * input variable, being a {@code double} accumulator and a count.
+     */
+    final static protected int ACCUMULATOR_BYTES_PER_VALUE = 16;
+
+    final static protected double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    /**
+     * The layout of a single time slice of a variable, as read from a reference dataset.
+     */
+    static public class VariableLayout {
+
+        /**
+         * The number of cells in a single depth of the variable.
+         */
+        protected long cellCount;
+
+        /**
+         * The number of depths to be processed, or {@code 1} if the variable does not have a
+         * depth dimension.
+         */
+        protected int depthCount;
+
+        /**
+         * The size (bytes) of each value as stored in the dataset.
+         */
+        protected int elementSize;
+
+        /**
+         * {@code true} if the values are {@code float}, so they are not boxed in the
+         * {@code float32} {@code COMPUTE_MODE}.
+         */
+        protected boolean isFloat;
+
+        public VariableLayout(long cellCount, int depthCount, int elementSize, boolean isFloat) {
+            this.cellCount = cellCount;
+            this.depthCount = depthCount;
+            this.elementSize = elementSize;
+            this.isFloat = isFloat;
+        }
+
+        /**
+         * Factory method to determine the layout of the {@code variable} from the
+         * {@code referenceDataset}, limited to the selected depths.
+         */
+        static public VariableLayout make(InputDataset referenceDataset, Variable variable) {
+            final int[] shape = variable.getShape();
+            final int timeDimensionIndex = referenceDataset.findTimeDimensionIndex(variable);
+            final int depthDimensionIndex = referenceDataset.findDepthDimensionIndex(variable);
+            long cellCount = 1;
+            for (int index = 0; index < shape.length; index++) {
+                if ((index != timeDimensionIndex) && (index != depthDimensionIndex)) {
+                    cellCount *= shape[index];
+                }
+            }
+            int depthCount = 1;
+            if (depthDimensionIndex != -1) {
+                final List<Double> selectedDepths = referenceDataset.getSelectedDepths(variable);
+                depthCount = selectedDepths != null ? selectedDepths.size() : shape[depthDimensionIndex];
+            }
+            return new VariableLayout(
+                cellCount,
+                depthCount,
+                variable.getDataType().getSize(),
+                variable.getDataType() == DataType.FLOAT
+            );
+        }
+
+        /**
+         * Returns the size (bytes) of a single time slice of the selected depths.
+         */
+        public long getSliceBytes() {
+            return this.cellCount * this.depthCount * this.elementSize;
+        }
+
+    }
+
+    /**
+     * The estimated cost of executing a {@code Task}.
+     */
+    static public class Estimate {
+
+        protected int timeInstantCount;
+        protected int summaryOperatorCount;
+        protected int downloadFileCount;
+        protected long downloadBytes;
+
+        /**
+         * The bytes read for each fully qualified variable name, across all
+         * {@code SummaryOperators} that read the variable.
+         */
+        protected Map<String, Long> readBytesByVariableName = new TreeMap<>();
+
+        protected int depthChunkSize;
+        protected long peakHeapBytesPerDepthChunk;
+        protected int concurrentDepthChunkCount;
+        protected long outputBytes;
+        protected double runtimeSeconds;
+
+        public int getTimeInstantCount() {
+            return this.timeInstantCount;
+        }
+
+        public int getSummaryOperatorCount() {
+            return this.summaryOperatorCount;
+        }
+
+        public int getDownloadFileCount() {
+            return this.downloadFileCount;
+        }
+
+        public long getDownloadBytes() {
+            return this.downloadBytes;
+        }
+
+        public Map<String, Long> getReadBytesByVariableName() {
+            return this.readBytesByVariableName;
+        }
+
+        public long getReadBytes() {
+            return this.readBytesByVariableName.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public int getDepthChunkSize() {
+            return this.depthChunkSize;
+        }
+
+        public long getPeakHeapBytesPerDepthChunk() {
+            return this.peakHeapBytesPerDepthChunk;
+        }
+
+        /**
+         * Returns the number of depth chunks that can be held in memory at once, being the
+         * product of the {@code TimeInstant} and accumulation parallelism.
+         */
+        public int getConcurrentDepthChunkCount() {
+            return this.concurrentDepthChunkCount;
+        }
+
+        public long getPeakHeapBytes() {
+            return this.peakHeapBytesPerDepthChunk * this.concurrentDepthChunkCount;
+        }
+
+        public long getOutputBytes() {
+            return this.outputBytes;
+        }
+
+        public double getRuntimeSeconds() {
+            return this.runtimeSeconds;
+        }
+
+        public JSONObject toJSON() {
+            return new JSONObject()
+                .put("timeInstants", this.timeInstantCount)
+                .put("summaryOperators", this.summaryOperatorCount)
+                .put("downloadFiles", this.downloadFileCount)
+                .put("downloadBytes", this.downloadBytes)
+                .put("readBytes", this.getReadBytes())
+                .put("readBytesByVariable", new JSONObject(this.readBytesByVariableName))
+                .put("depthChunkSize", this.depthChunkSize)
+                .put("peakHeapBytesPerDepthChunk", this.peakHeapBytesPerDepthChunk)
+                .put("concurrentDepthChunks", this.concurrentDepthChunkCount)
+                .put("peakHeapBytes", this.getPeakHeapBytes())
+                .put("outputBytes", this.outputBytes)
+                .put("runtimeSeconds", Math.round(this.runtimeSeconds));
+        }
+
+    }
+
+    protected boolean isFloat32ComputeMode;
+    protected int timeInstantParallelism;
+    protected int accumulationParallelism;
+    protected double readBytesPerSecond;
+    protected double downloadBytesPerSecond;
+
+    /**
+     * Constructor to capture the parameters.
+     */
+    public TaskCostEstimator(boolean isFloat32ComputeMode,
+                             int timeInstantParallelism,
+                             int accumulationParallelism,
+                             double readMbPerSecond,
+                             double downloadMbPerSecond) {
+        this.isFloat32ComputeMode = isFloat32ComputeMode;
+        this.timeInstantParallelism = Math.max(1, timeInstantParallelism);
+        this.accumulationParallelism = Math.max(1, accumulationParallelism);
+        this.readBytesPerSecond = readMbPerSecond * BYTES_PER_MB;
+        this.downloadBytesPerSecond = downloadMbPerSecond * BYTES_PER_MB;
+    }
+
+    /**
+     * Factory method to instantiate a {@link TaskCostEstimator} configured from the environment.
+     */
+    static public TaskCostEstimator make() {
+        final String readMbPerSecondStr = EnvironmentVariableReader.getInstance().optByKey("PLAN_READ_MB_PER_SECOND");
+        final String downloadMbPerSecondStr = EnvironmentVariableReader.getInstance().optByKey("PLAN_DOWNLOAD_MB_PER_SECOND");
+        return new TaskCostEstimator(
+            AccumulationStage.isFloat32ComputeMode(),
+            TimeInstantIteratorStage.getTimeInstantParallelism(),
+            AccumulationStage.getAccumulationParallelism(),
+            readMbPerSecondStr != null ? Double.parseDouble(readMbPerSecondStr) : DEFAULT_READ_MB_PER_SECOND,
+            downloadMbPerSecondStr != null ? Double.parseDouble(downloadMbPerSecondStr) : DEFAULT_DOWNLOAD_MB_PER_SECOND
+        );
+    }
+
+    /**
+     * Estimate the cost of executing the {@code task}.
+     *
+     * @param task                       the {@code Task} to be executed.
+     * @param summaryOperatorList        the {@code SummaryOperators} to be executed for each
+     *                                   {@code TimeInstant}.
+     * @param layoutByVariableName       the layout of each fully qualified input variable.
+     * @param fileSizeByInputId          the size (bytes) of a dataset of each {@code Input},
+     *                                   typically the reference dataset. The {@code inputIds}
+     *                                   are matched case-insensitively.
+     * @param hasNetcdfOutput            {@code true} if a NetCDF output file is written.
+     */
+    public Estimate estimate(NcAggregateTask task,
+                             List<NcAggregateProductDefinition.SummaryOperator> summaryOperatorList,
+                             Map<String, VariableLayout> layoutByVariableName,
+                             Map<String, Long> fileSizeByInputId,
+                             boolean hasNetcdfOutput) {
+
+        final Estimate estimate = new Estimate();
+        estimate.timeInstantCount = task.getTimeInstants().size();
+        estimate.summaryOperatorCount = summaryOperatorList.size();
+        estimate.depthChunkSize = this.isFloat32ComputeMode ?
+            AccumulationStage.FLOAT32_MAX_DEPTHS_TO_PROCESS_AT_ONCE :
+            AccumulationStage.MAX_DEPTHS_TO_PROCESS_AT_ONCE;
+        estimate.concurrentDepthChunkCount =
+            Math.min(this.timeInstantParallelism, Math.max(1, estimate.timeInstantCount)) *
+                this.accumulationParallelism;
+
+        // Count the time steps read for each Input of each TimeInstant, and the distinct files.
+        // The inputIds are lower-cased, as they are matched case-insensitively.
+        final Map<String, Long> fileSizeByLowerCaseInputId = new HashMap<>();
+        for (Map.Entry<String, Long> entry : fileSizeByInputId.entrySet()) {
+            fileSizeByLowerCaseInputId.put(entry.getKey().toLowerCase(), entry.getValue());
+        }
+        final Set<String> metadataIds = new HashSet<>();
+        final Map<String, Long> fileSizeByMetadataId = new HashMap<>();
+        final List<Map<String, Integer>> timeStepCountByInputIdList = new ArrayList<>();
+        for (NcAggregateTask.TimeInstant timeInstant : task.getTimeInstants()) {
+            final Map<String, Integer> timeStepCountByInputId = new HashMap<>();
+            for (NcAggregateTask.Input input : timeInstant.getInputs()) {
+                int timeStepCount = 0;
+                for (NcAggregateTask.FileIndexBounds fileIndexBounds : input.getFileIndexBounds()) {
+                    timeStepCount += fileIndexBounds.getEndIndex() - fileIndexBounds.getStartIndex() + 1;
+                    if (metadataIds.add(fileIndexBounds.getMetadataId())) {
+                        fileSizeByMetadataId.put(
+                            fileIndexBounds.getMetadataId(),
+                            fileSizeByLowerCaseInputId.getOrDefault(input.getInputId().toLowerCase(), 0L)
+                        );
+                    }
+                }
+                timeStepCountByInputId.merge(input.getInputId().toLowerCase(), timeStepCount, Integer::sum);
+            }
+            timeStepCountByInputIdList.add(timeStepCountByInputId);
+        }
+        estimate.downloadFileCount = metadataIds.size();
+        estimate.downloadBytes = fileSizeByMetadataId.values().stream().mapToLong(Long::longValue).sum();
+
+        // Each SummaryOperator reads each of its variables for every time step of the matching
+        // Input of each TimeInstant.
+        for (NcAggregateProductDefinition.SummaryOperator summaryOperator : summaryOperatorList) {
+            long chunkBytes = 0;
+            VariableLayout referenceLayout = null;
+            for (String variableName : summaryOperator.getInputVariables()) {
+                final VariableLayout layout = layoutByVariableName.get(variableName);
+                if (layout == null) {
+                    continue;
+                }
+                if (referenceLayout == null) {
+                    referenceLayout = layout;
+                }
+                final String inputId = variableName.split(Constants.VARIABLE_NAME_SEPARATOR)[0].toLowerCase();
+                long timeStepCount = 0;
+                for (Map<String, Integer> timeStepCountByInputId : timeStepCountByInputIdList) {
+                    timeStepCount += timeStepCountByInputId.getOrDefault(inputId, 0);
+                }
+                estimate.readBytesByVariableName.merge(
+                    variableName,
+                    layout.getSliceBytes() * timeStepCount,
+                    Long::sum
+                );
+
+                // A chunk of depths of a time slice is held as read, and then as passed to the
+                // Aggregator (boxed unless float in the float32 COMPUTE_MODE), together with
+                // the Collectors of the Aggregator.
+                final int valueBytes = (this.isFloat32ComputeMode && layout.isFloat) ?
+                    Float.BYTES : BOXED_DOUBLE_BYTES;
+                chunkBytes += layout.cellCount * Math.min(estimate.depthChunkSize, layout.depthCount) *
+                    (layout.elementSize + valueBytes + ACCUMULATOR_BYTES_PER_VALUE);
+            }
+            if (referenceLayout == null) {
+                continue;
+            }
+
+            // The results of the Aggregator are boxed for each output variable.
+            final int outputVariableCount = Math.max(1, summaryOperator.getOutputVariables().size());
+            chunkBytes += referenceLayout.cellCount *
+                Math.min(estimate.depthChunkSize, referenceLayout.depthCount) *
+                outputVariableCount * BOXED_DOUBLE_BYTES;
+            estimate.peakHeapBytesPerDepthChunk = Math.max(estimate.peakHeapBytesPerDepthChunk, chunkBytes);
+
+            // Each TimeInstant writes a single time slice for each output variable, in the type
+            // of the input variable.
+            if (hasNetcdfOutput) {
+                estimate.outputBytes += referenceLayout.getSliceBytes() * outputVariableCount *
+                    estimate.timeInstantCount;
+            }
+        }
+
+        // Reading is shared across the concurrent depth chunks, while downloads are sequential.
+        estimate.runtimeSeconds = estimate.downloadBytes / this.downloadBytesPerSecond +
+            estimate.getReadBytes() / (this.readBytesPerSecond * estimate.concurrentDepthChunkCount);
+        return estimate;
+    }
+
+}
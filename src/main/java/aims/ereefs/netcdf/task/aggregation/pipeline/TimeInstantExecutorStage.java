@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf.task.aggregation.pipeline;
 
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import io.prometheus.client.Histogram;
 
 
 /**
@@ -16,7 +17,12 @@ public class TimeInstantExecutorStage extends BaseStage {
         final double aggregateTime = this.pipelineContext.getTimeInstant().getValue();
         this.logger.debug("aggregateTime: " + aggregateTime + " (" + (timeInstantIndex + 1) +
             " of " + task.getTimeInstants().size() + ")");
-        this.nextStage.execute();
+        final Histogram.Timer durationTimer = StageMetrics.startTimer(StageMetrics.STAGE_TIME_INSTANT);
+        try {
+            this.nextStage.execute();
+        } finally {
+            durationTimer.observeDuration();
+        }
     }
 
 }
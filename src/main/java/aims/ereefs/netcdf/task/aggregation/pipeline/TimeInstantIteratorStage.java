@@ -1,8 +1,20 @@
 package aims.ereefs.netcdf.task.aggregation.pipeline;
 
+import aims.ereefs.netcdf.task.aggregation.checkpoint.CheckpointManager;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 
 /**
@@ -10,11 +22,73 @@ import java.util.List;
  * {@code Task}. This {@code Stage} executes each subsequent {@code Stage} once for each
  * {@code TimeInstant} by setting {@link PipelineContext#timeInstant} and
  * {@link PipelineContext#timeInstantIndex}.
+ * <p>
+ * If the {@code TIME_INSTANT_PARALLELISM} environment variable is greater than {@code 1}, that
+ * many {@code TimeInstants} are executed concurrently, each with its own {@link PipelineContext}
+ * and {@code Stages} instantiated by the {@link #timeInstantStageFactory}. Writes to the output
+ * dataset are serialised by the {@code OutputDataset}, and the {@link #checkpointManager} is
+ * notified in {@code TimeInstant} order, so the results are identical to sequential execution.
  *
  * @author Aaron Smith
  */
 public class TimeInstantIteratorStage extends BaseStage {
 
+    /**
+     * Constant identifying the default number of {@code TimeInstants} to execute concurrently.
+     */
+    final static protected int DEFAULT_TIME_INSTANT_PARALLELISM = 1;
+
+    /**
+     * The maximum number of {@code TimeInstants} queued or executing, per {@code Thread}. Bounds
+     * memory use while allowing a {@code Thread} to start the next {@code TimeInstant} while an
+     * earlier, slower {@code TimeInstant} completes.
+     */
+    final static protected int MAX_PENDING_PER_THREAD = 2;
+
+    /**
+     * The time to wait for executing {@code TimeInstants} to stop after a failure.
+     */
+    final static protected long SHUTDOWN_TIMEOUT_MINUTES = 10;
+
+    /**
+     * The index of the first {@code TimeInstant} to process. Non-zero when resuming from a
+     * checkpoint, as the preceding {@code TimeInstants} have already been completed.
+     */
+    protected int startTimeInstantIndex = 0;
+
+    /**
+     * Setter for the {@link #startTimeInstantIndex} property.
+     */
+    public void setStartTimeInstantIndex(int startTimeInstantIndex) {
+        this.startTimeInstantIndex = startTimeInstantIndex;
+    }
+
+    /**
+     * Optional reference to the {@link CheckpointManager} to notify as each {@code TimeInstant}
+     * is completed.
+     */
+    protected CheckpointManager checkpointManager = null;
+
+    /**
+     * Setter for the {@link #checkpointManager} property.
+     */
+    public void setCheckpointManager(CheckpointManager checkpointManager) {
+        this.checkpointManager = checkpointManager;
+    }
+
+    /**
+     * Optional factory instantiating the {@code Stages} that execute a single {@code TimeInstant}
+     * for a {@link PipelineContext}. Required for concurrent execution.
+     */
+    protected Function<PipelineContext, BaseStage> timeInstantStageFactory = null;
+
+    /**
+     * Setter for the {@link #timeInstantStageFactory} property.
+     */
+    public void setTimeInstantStageFactory(Function<PipelineContext, BaseStage> timeInstantStageFactory) {
+        this.timeInstantStageFactory = timeInstantStageFactory;
+    }
+
     /**
      * Iterate through the {@code TimeInstants} specified in {@link PipelineContext#task}, invoking
      * subsequent {@code Stages} (see {@link #nextStage}) for each {@code TimeInstant} and setting
@@ -23,11 +97,137 @@ public class TimeInstantIteratorStage extends BaseStage {
      */
     public void execute() {
         final List<NcAggregateTask.TimeInstant> timeInstants = pipelineContext.getTask().getTimeInstants();
-        for (int timeInstantIndex = 0; timeInstantIndex < timeInstants.size(); timeInstantIndex++) {
-            this.pipelineContext.setTimeInstantIndex(timeInstantIndex);
-            this.pipelineContext.setTimeInstant(timeInstants.get(timeInstantIndex));
-            this.nextStage.execute();
+        if (this.startTimeInstantIndex > 0) {
+            this.logger.info("Skipping " + this.startTimeInstantIndex + " completed time instants.");
+        }
+        final int parallelism = this.determineParallelism(timeInstants.size() - this.startTimeInstantIndex);
+        if (parallelism > 1) {
+            this.executeConcurrently(timeInstants, parallelism);
+        } else {
+            for (int timeInstantIndex = this.startTimeInstantIndex; timeInstantIndex < timeInstants.size(); timeInstantIndex++) {
+                this.pipelineContext.setTimeInstantIndex(timeInstantIndex);
+                this.pipelineContext.setTimeInstant(timeInstants.get(timeInstantIndex));
+                this.executeTimeInstant(this.nextStage, timeInstantIndex, timeInstants.get(timeInstantIndex));
+                if (this.checkpointManager != null) {
+                    this.checkpointManager.onTimeInstantComplete(timeInstantIndex + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute the {@code TimeInstants} with up to {@code parallelism} executing concurrently.
+     * Each {@code TimeInstant} is executed with its own {@link PipelineContext} and
+     * {@code Stages}. Completion is processed in {@code TimeInstant} order, so the
+     * {@link #checkpointManager} only ever records a contiguous sequence of completed
+     * {@code TimeInstants}.
+     */
+    protected void executeConcurrently(List<NcAggregateTask.TimeInstant> timeInstants, int parallelism) {
+        this.logger.info("Executing " + parallelism + " time instants concurrently.");
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            parallelism,
+            runnable -> {
+                final Thread thread = new Thread(runnable, "time-instant-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        final Deque<Future<?>> pendingFutures = new ArrayDeque<>();
+        try {
+            int nextTimeInstantIndex = this.startTimeInstantIndex;
+            for (int timeInstantIndex = this.startTimeInstantIndex; timeInstantIndex < timeInstants.size(); timeInstantIndex++) {
+
+                // Queue TimeInstants up to the bound.
+                while (nextTimeInstantIndex < timeInstants.size() &&
+                    pendingFutures.size() < parallelism * MAX_PENDING_PER_THREAD) {
+                    final int index = nextTimeInstantIndex;
+                    final NcAggregateTask.TimeInstant timeInstant = timeInstants.get(index);
+                    pendingFutures.add(executorService.submit(Tracer.wrap(() -> {
+                        final PipelineContext context = new PipelineContext(this.pipelineContext);
+                        context.setTimeInstantIndex(index);
+                        context.setTimeInstant(timeInstant);
+                        this.executeTimeInstant(
+                            this.timeInstantStageFactory.apply(context),
+                            index,
+                            timeInstant
+                        );
+                        return null;
+                    })));
+                    nextTimeInstantIndex++;
+                }
+
+                // Wait for the earliest TimeInstant to complete.
+                try {
+                    pendingFutures.removeFirst().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException("Concurrent time instant execution failed.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Concurrent time instant execution interrupted.", e);
+                }
+                if (this.checkpointManager != null) {
+                    this.checkpointManager.onTimeInstantComplete(timeInstantIndex + 1);
+                }
+            }
+        } finally {
+
+            // Stop any TimeInstants still executing after a failure or a stop request, and wait
+            // for them so nothing writes to the outputs after this method returns.
+            pendingFutures.forEach(future -> future.cancel(true));
+            executorService.shutdownNow();
+            try {
+                if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    this.logger.warn("Time instants still executing after " + SHUTDOWN_TIMEOUT_MINUTES +
+                        " minutes.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
+    /**
+     * Execute a single {@code TimeInstant} via the specified {@code Stage}.
+     */
+    protected void executeTimeInstant(BaseStage stage,
+                                      int timeInstantIndex,
+                                      NcAggregateTask.TimeInstant timeInstant) {
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE, "TimeInstant")) {
+            span
+                .arg("index", timeInstantIndex)
+                .arg("value", timeInstant.getValue());
+            stage.execute();
+        }
+    }
+
+    /**
+     * Determine the number of {@code TimeInstants} to execute concurrently. Summary statistics
+     * are written as rows in {@code TimeInstant} order, so concurrent execution is not used when
+     * a summary output is being generated.
+     */
+    protected int determineParallelism(int timeInstantCount) {
+        final int parallelism = Math.min(getTimeInstantParallelism(), timeInstantCount);
+        if (parallelism <= 1 || this.timeInstantStageFactory == null) {
+            return 1;
+        }
+        if (this.pipelineContext.getSummaryOutputWriter() != null) {
+            this.logger.info("Summary output requested, so time instants are executed sequentially.");
+            return 1;
+        }
+        return parallelism;
+    }
+
+    /**
+     * Returns the number of {@code TimeInstants} to execute concurrently, read from the
+     * environment.
+     */
+    static protected int getTimeInstantParallelism() {
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("TIME_INSTANT_PARALLELISM");
+        return parallelismStr != null ? Integer.parseInt(parallelismStr) : DEFAULT_TIME_INSTANT_PARALLELISM;
+    }
+
 }
@@ -0,0 +1,219 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.util.netcdf.ReadUtils;
+import ucar.ma2.Array;
+import ucar.nc2.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Identifies the wet cells of a chunk of depths of a grid, allowing the {@link AccumulationStage}
+ * to pass only the values of wet cells to the {@code Aggregator}. On the curvilinear model grids a
+ * large fraction of cells are land or below the seabed, and are always {@code NaN}.
+ * <p>
+ * A cell is wet if it holds a value in the first time slice of the reference dataset. The data
+ * for the {@link #getWetDepths() wet depths} is {@link #compact(Double[]) compacted} to an array
+ * of wet cells after reading, and the results are {@link #expand(Double[]) expanded} back to the
+ * full shape, with {@code NaN} for dry cells and fully dry depths, before regridding or writing.
+ * Compaction fails if a dry cell holds a value, as the mask would otherwise change the results.
+ *
+ * @author Aaron Smith
+ */
+public class WetCellMask {
+
+    final static protected String EXCEPTION_MESSAGE_MISMATCH =
+        "Value found in a cell identified as dry by the wet-cell mask. Disable WET_CELL_COMPACTION " +
+            "for this product.";
+
+    /**
+     * The depths of the chunk, in order.
+     */
+    protected List<Double> depths;
+
+    /**
+     * The depths of the chunk that contain at least one wet cell, in order.
+     */
+    protected List<Double> wetDepths = new ArrayList<>();
+
+    /**
+     * The number of cells in a single layer of the grid.
+     */
+    protected int layerSize;
+
+    /**
+     * Flags identifying the wet cells of data read for the {@link #wetDepths}.
+     */
+    protected boolean[] readMask;
+
+    /**
+     * The index within the full chunk of each wet cell, in order.
+     */
+    protected int[] outputIndexes;
+
+    /**
+     * Constructor to build the mask from the masks of the individual layers.
+     *
+     * @param depths     the depths of the chunk, in order. A single {@code null} depth represents
+     *                   a variable without a depth dimension.
+     * @param layerMasks the wet-cell mask of each layer, corresponding to {@code depths}.
+     * @param layerSize  the number of cells in a single layer.
+     */
+    public WetCellMask(List<Double> depths, List<boolean[]> layerMasks, int layerSize) {
+        this.depths = depths;
+        this.layerSize = layerSize;
+
+        // Identify the depths with at least one wet cell.
+        final List<boolean[]> wetLayerMasks = new ArrayList<>();
+        final List<Integer> wetLayerIndexes = new ArrayList<>();
+        int wetCellCount = 0;
+        for (int layerIndex = 0; layerIndex < depths.size(); layerIndex++) {
+            final boolean[] layerMask = layerMasks.get(layerIndex);
+            int layerWetCellCount = 0;
+            for (boolean isWet : layerMask) {
+                if (isWet) {
+                    layerWetCellCount++;
+                }
+            }
+            if (layerWetCellCount > 0) {
+                this.wetDepths.add(depths.get(layerIndex));
+                wetLayerMasks.add(layerMask);
+                wetLayerIndexes.add(layerIndex);
+                wetCellCount += layerWetCellCount;
+            }
+        }
+
+        // Map the wet cells of the data read for the wet depths to the full chunk.
+        this.readMask = new boolean[wetLayerMasks.size() * layerSize];
+        this.outputIndexes = new int[wetCellCount];
+        int wetCellIndex = 0;
+        for (int wetLayerIndex = 0; wetLayerIndex < wetLayerMasks.size(); wetLayerIndex++) {
+            final boolean[] layerMask = wetLayerMasks.get(wetLayerIndex);
+            final int outputOffset = wetLayerIndexes.get(wetLayerIndex) * layerSize;
+            for (int cellIndex = 0; cellIndex < layerSize; cellIndex++) {
+                if (layerMask[cellIndex]) {
+                    this.readMask[wetLayerIndex * layerSize + cellIndex] = true;
+                    this.outputIndexes[wetCellIndex] = outputOffset + cellIndex;
+                    wetCellIndex++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the depths of the chunk with at least one wet cell. Only these depths need to be
+     * read.
+     */
+    public List<Double> getWetDepths() {
+        return this.wetDepths;
+    }
+
+    /**
+     * Returns {@code true} if the chunk contains no wet cells, so no data needs to be read.
+     */
+    public boolean isDry() {
+        return this.outputIndexes.length == 0;
+    }
+
+    /**
+     * Returns the number of wet cells in the chunk.
+     */
+    public int getWetCellCount() {
+        return this.outputIndexes.length;
+    }
+
+    /**
+     * Returns the number of cells in the full chunk.
+     */
+    public int getSize() {
+        return this.depths.size() * this.layerSize;
+    }
+
+    /**
+     * Compact data read for the {@link #wetDepths} to the values of the wet cells.
+     */
+    public Double[] compact(Double[] data) {
+        this.validateLength(data.length);
+        final Double[] wetData = new Double[this.outputIndexes.length];
+        int wetCellIndex = 0;
+        for (int index = 0; index < data.length; index++) {
+            if (this.readMask[index]) {
+                wetData[wetCellIndex] = data[index];
+                wetCellIndex++;
+            } else if ((data[index] != null) && !Double.isNaN(data[index])) {
+                throw new RuntimeException(EXCEPTION_MESSAGE_MISMATCH);
+            }
+        }
+        return wetData;
+    }
+
+    /**
+     * Compact single precision data read for the {@link #wetDepths} to the values of the wet
+     * cells.
+     */
+    public float[] compact(float[] data) {
+        this.validateLength(data.length);
+        final float[] wetData = new float[this.outputIndexes.length];
+        int wetCellIndex = 0;
+        for (int index = 0; index < data.length; index++) {
+            if (this.readMask[index]) {
+                wetData[wetCellIndex] = data[index];
+                wetCellIndex++;
+            } else if (!Float.isNaN(data[index])) {
+                throw new RuntimeException(EXCEPTION_MESSAGE_MISMATCH);
+            }
+        }
+        return wetData;
+    }
+
+    /**
+     * Expand the values of the wet cells to the full chunk, with {@code NaN} for dry cells.
+     */
+    public Double[] expand(Double[] wetData) {
+        if (wetData.length != this.outputIndexes.length) {
+            throw new RuntimeException("Expected " + this.outputIndexes.length + " wet cells, found " +
+                wetData.length + ".");
+        }
+        final Double[] data = new Double[this.getSize()];
+        Arrays.fill(data, Double.NaN);
+        for (int wetCellIndex = 0; wetCellIndex < wetData.length; wetCellIndex++) {
+            data[this.outputIndexes[wetCellIndex]] = wetData[wetCellIndex];
+        }
+        return data;
+    }
+
+    protected void validateLength(int length) {
+        if (length != this.readMask.length) {
+            throw new RuntimeException("Expected " + this.readMask.length + " values, found " +
+                length + ".");
+        }
+    }
+
+    /**
+     * Read the wet-cell mask of a single layer of the specified variable from its first time
+     * slice. A cell is wet if it holds a value.
+     *
+     * @param depthIndex the index of the layer in the depth dimension, ignored if
+     *                   {@code depthDimensionIndex} is {@code -1}.
+     */
+    static public boolean[] readLayerMask(Variable variable,
+                                          int timeDimensionIndex,
+                                          int depthDimensionIndex,
+                                          int depthIndex) {
+        final int[] shape = variable.getShape();
+        final int[] offset = new int[shape.length];
+        shape[timeDimensionIndex] = 1;
+        if (depthDimensionIndex != -1) {
+            shape[depthDimensionIndex] = 1;
+            offset[depthDimensionIndex] = depthIndex;
+        }
+        final Array array = ReadUtils.readData(variable, shape, offset);
+        final boolean[] layerMask = new boolean[(int) array.getSize()];
+        for (int index = 0; index < layerMask.length; index++) {
+            layerMask[index] = !Double.isNaN(array.getDouble(index));
+        }
+        return layerMask;
+    }
+
+}
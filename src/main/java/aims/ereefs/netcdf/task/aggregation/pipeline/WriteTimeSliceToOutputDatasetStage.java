@@ -2,6 +2,7 @@ package aims.ereefs.netcdf.task.aggregation.pipeline;
 
 import aims.ereefs.netcdf.output.netcdf.OutputDataset;
 import aims.ereefs.netcdf.util.netcdf.WriteUtils;
+import io.prometheus.client.Histogram;
 import ucar.ma2.Array;
 
 import java.util.List;
@@ -41,13 +42,25 @@ public class WriteTimeSliceToOutputDatasetStage implements WriteTimeSliceStage {
     public void execute(List<Array> arrays, int depthOffset) {
         // Do nothing if an output dataset is not specified.
         if (this.outputDataset != null) {
-            WriteUtils.writeSlice(
-                this.outputDataset,
-                pipelineContext.getSummaryOperator(),
-                arrays,
-                pipelineContext.getTimeInstantIndex(),
-                depthOffset
+            final Histogram.Timer durationTimer = StageMetrics.startTimer(
+                StageMetrics.STAGE_WRITE,
+                this.pipelineContext
             );
+
+            // Serialise writes, as TimeInstants may be executed concurrently.
+            try {
+                synchronized (this.outputDataset) {
+                    WriteUtils.writeSlice(
+                        this.outputDataset,
+                        pipelineContext.getSummaryOperator(),
+                        arrays,
+                        pipelineContext.getTimeInstantIndex(),
+                        depthOffset
+                    );
+                }
+            } finally {
+                durationTimer.observeDuration();
+            }
         }
     }
 
@@ -3,6 +3,9 @@ package aims.ereefs.netcdf.tasks;
 import aims.ereefs.netcdf.ApplicationContext;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Public interface for classes that are executed prior to any processing.
  *
@@ -15,4 +18,15 @@ public interface PreProcessingTask {
     public void process(NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTask,
                         ApplicationContext applicationContext);
 
+    /**
+     * Returns the types of {@code PreProcessingTask} that must complete before this
+     * {@code PreProcessingTask} is executed. Types not declared by the {@code ProductDefinition}
+     * are ignored. Defaults to no dependencies.
+     *
+     * @see PreProcessingTaskExecutor
+     */
+    default List<Class<? extends PreProcessingTask>> getDependencies() {
+        return Collections.emptyList();
+    }
+
 }
\ No newline at end of file
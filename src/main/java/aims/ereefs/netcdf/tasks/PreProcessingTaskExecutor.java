@@ -0,0 +1,222 @@
+package aims.ereefs.netcdf.tasks;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the {@link PreProcessingTask}s of a {@code ProductDefinition} as a dependency graph.
+ * Each {@link PreProcessingTask} is started once the {@link PreProcessingTask}s it
+ * {@link PreProcessingTask#getDependencies() depends on} have completed, so independent
+ * {@link PreProcessingTask}s (eg: building a {@code RegularGridMapper} and a zone map from the same
+ * reference grid) can be executed concurrently.
+ * <p>
+ * The number of concurrent {@link PreProcessingTask}s is set by the
+ * {@code PRE_PROCESSING_PARALLELISM} environment variable, defaulting to
+ * {@link #DEFAULT_PRE_PROCESSING_PARALLELISM}, which executes the {@link PreProcessingTask}s in
+ * the order they are declared, subject to their dependencies, unless specified when constructed.
+ * A summary of the duration of each {@link PreProcessingTask} is logged once all have completed.
+ *
+ * @author Aaron Smith
+ */
+public class PreProcessingTaskExecutor {
+
+    static protected Logger logger = LoggerFactory.getLogger(PreProcessingTaskExecutor.class);
+
+    final static protected int DEFAULT_PRE_PROCESSING_PARALLELISM = 1;
+
+    final static protected String EXCEPTION_MESSAGE_CYCLE = "Cyclic dependency between pre-processing tasks.";
+
+    /**
+     * A {@link PreProcessingTask} to be executed for a single
+     * {@link NcAggregateProductDefinition.PreProcessingTaskDefn}.
+     */
+    static protected class Node {
+
+        protected int index;
+        protected NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn;
+        protected PreProcessingTask preProcessingTask;
+        protected CompletableFuture<Void> future = null;
+        protected boolean isVisiting = false;
+        protected volatile long durationMillis = -1;
+
+        protected Node(int index,
+                       NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn,
+                       PreProcessingTask preProcessingTask) {
+            this.index = index;
+            this.preProcessingTaskDefn = preProcessingTaskDefn;
+            this.preProcessingTask = preProcessingTask;
+        }
+
+        protected String getName() {
+            return this.index + ":" + this.preProcessingTaskDefn.getType();
+        }
+
+    }
+
+    /**
+     * The {@link Node}s to execute, in the order declared.
+     */
+    protected List<Node> nodes = new ArrayList<>();
+
+    /**
+     * The maximum number of {@link PreProcessingTask}s to execute concurrently.
+     */
+    protected int parallelism;
+
+    /**
+     * Constructor using the {@code PRE_PROCESSING_PARALLELISM} environment variable.
+     */
+    public PreProcessingTaskExecutor() {
+        this(getPreProcessingParallelism());
+    }
+
+    /**
+     * Constructor to capture the maximum number of {@link PreProcessingTask}s to execute
+     * concurrently.
+     */
+    public PreProcessingTaskExecutor(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Add a {@link PreProcessingTask} to be executed for the
+     * {@link NcAggregateProductDefinition.PreProcessingTaskDefn}.
+     */
+    public void add(NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn,
+                    PreProcessingTask preProcessingTask) {
+        this.nodes.add(new Node(this.nodes.size(), preProcessingTaskDefn, preProcessingTask));
+    }
+
+    /**
+     * Execute the {@link PreProcessingTask}s, returning once all have completed. If a
+     * {@link PreProcessingTask} fails, the {@link PreProcessingTask}s that depend on it are not
+     * executed and the failure is re-thrown.
+     */
+    public void execute(ApplicationContext applicationContext) {
+        if (this.nodes.isEmpty()) {
+            return;
+        }
+
+        // Resolve the dependencies of each Node.
+        final Map<Node, List<Node>> dependenciesByNode = new HashMap<>();
+        for (Node node : this.nodes) {
+            final List<Node> dependencies = new ArrayList<>();
+            for (Class<? extends PreProcessingTask> dependencyClass : node.preProcessingTask.getDependencies()) {
+                for (Node otherNode : this.nodes) {
+                    if ((otherNode != node) && dependencyClass.isInstance(otherNode.preProcessingTask)) {
+                        dependencies.add(otherNode);
+                    }
+                }
+            }
+            dependenciesByNode.put(node, dependencies);
+        }
+
+        final int parallelism = Math.max(1, Math.min(this.parallelism, this.nodes.size()));
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+            parallelism,
+            runnable -> {
+                final Thread thread = new Thread(runnable, "pre-processing-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        final long startTime = System.currentTimeMillis();
+        try {
+
+            // Schedule each Node once its dependencies have completed.
+            for (Node node : this.nodes) {
+                this.schedule(node, dependenciesByNode, applicationContext, executorService);
+            }
+
+            // Wait for all Nodes to complete.
+            for (Node node : this.nodes) {
+                try {
+                    node.future.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException("Pre-processing task \"" + node.getName() + "\" failed.", e.getCause());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+            this.logSummary(System.currentTimeMillis() - startTime, parallelism);
+        }
+    }
+
+    /**
+     * Create the {@code Future} of the {@link Node}, after those of its dependencies.
+     */
+    protected CompletableFuture<Void> schedule(Node node,
+                                               Map<Node, List<Node>> dependenciesByNode,
+                                               ApplicationContext applicationContext,
+                                               ExecutorService executorService) {
+        if (node.future != null) {
+            return node.future;
+        }
+        if (node.isVisiting) {
+            throw new RuntimeException(EXCEPTION_MESSAGE_CYCLE);
+        }
+        node.isVisiting = true;
+        final List<CompletableFuture<Void>> dependencyFutures = new ArrayList<>();
+        for (Node dependency : dependenciesByNode.get(node)) {
+            dependencyFutures.add(this.schedule(dependency, dependenciesByNode, applicationContext, executorService));
+        }
+        node.isVisiting = false;
+        node.future = CompletableFuture
+            .allOf(dependencyFutures.toArray(new CompletableFuture[0]))
+            .thenRunAsync(() -> this.run(node, applicationContext), executorService);
+        return node.future;
+    }
+
+    /**
+     * Execute the {@link PreProcessingTask} of the {@link Node}, recording the duration.
+     */
+    protected void run(Node node, ApplicationContext applicationContext) {
+        logger.debug("Pre-processing task \"" + node.getName() + "\" started.");
+        final long startTime = System.currentTimeMillis();
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE, "preProcessingTask")) {
+            span.arg("type", node.preProcessingTaskDefn.getType());
+            node.preProcessingTask.process(node.preProcessingTaskDefn, applicationContext);
+        }
+        node.durationMillis = System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Log the duration of each {@link PreProcessingTask} that completed.
+     */
+    protected void logSummary(long elapsedMillis, int parallelism) {
+        final StringBuilder summary = new StringBuilder("Pre-processing completed in ")
+            .append(elapsedMillis).append(" ms (parallelism: ").append(parallelism).append(").");
+        for (Node node : this.nodes) {
+            summary.append("\n    ").append(node.getName()).append(": ")
+                .append(node.durationMillis >= 0 ? node.durationMillis + " ms" : "not completed");
+        }
+        logger.info(summary.toString());
+    }
+
+    /**
+     * Returns the number of {@link PreProcessingTask}s that can be executed concurrently.
+     */
+    static protected int getPreProcessingParallelism() {
+        final String parallelismStr = EnvironmentVariableReader.getInstance().optByKey("PRE_PROCESSING_PARALLELISM");
+        return parallelismStr != null ? Integer.parseInt(parallelismStr) : DEFAULT_PRE_PROCESSING_PARALLELISM;
+    }
+
+}
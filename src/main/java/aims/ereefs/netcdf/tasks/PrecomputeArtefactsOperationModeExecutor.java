@@ -0,0 +1,285 @@
+package aims.ereefs.netcdf.tasks;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.ApplicationContextBuilder;
+import aims.ereefs.netcdf.OperationModeExecutor;
+import aims.ereefs.netcdf.input.extraction.ExtractionSite;
+import aims.ereefs.netcdf.input.extraction.ExtractionSitesBuilderTask;
+import aims.ereefs.netcdf.input.geojson.GeoJsonCachePopulatorTask;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
+import aims.ereefs.netcdf.input.netcdf.InputDatasetCacheFactory;
+import aims.ereefs.netcdf.regrid.RegularGridMapper;
+import aims.ereefs.netcdf.regrid.RegularGridMapperCachePopulatorTask;
+import aims.ereefs.netcdf.task.aggregation.DatasetMetadataIdsByInputIdBuilder;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link OperationModeExecutor} implementation for building the artefacts derived from a grid
+ * (ie: zone maps, extraction site neighbours and {@code RegularGridMapper}s) ahead of production,
+ * so aggregation {@code Task}s only need to load them from the
+ * {@link aims.ereefs.netcdf.util.file.cache.ArtefactCache}.
+ * <p>
+ * The grid is read from a reference NetCDF file ({@code --input=<file>}) and the artefacts are
+ * those declared by the {@link PreProcessingTask}s of the product definition
+ * ({@code --definitionId=<id>}). Other {@link PreProcessingTask}s (eg: CSV datasets) are not
+ * grid artefacts and are skipped. The {@link PreProcessingTask}s are executed concurrently
+ * ({@code --parallelism=<n>}, defaulting to one (1) per {@link PreProcessingTask}), each artefact
+ * is validated against the grid, and the artefacts are published by the
+ * {@link aims.ereefs.netcdf.util.file.cache.ArtefactCache} to the {@code ARTEFACT_CACHE_URL}.
+ *
+ * @author Aaron Smith
+ */
+public class PrecomputeArtefactsOperationModeExecutor implements OperationModeExecutor {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Return {@code true} if {@code args} contains {@code --precompute-artefacts}.
+     */
+    @Override
+    public boolean supports(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.equalsIgnoreCase("--precompute-artefacts"));
+    }
+
+    /**
+     * Coordinate building, validating and publishing the artefacts.
+     */
+    @Override
+    public void execute(String[] args) {
+        logger.debug("Executing");
+
+        // Capture the command line arguments.
+        String inputFilename = null;
+        String definitionId = null;
+        int parallelism = 0;
+        for (final String arg : args) {
+
+            if (arg.startsWith("--input=")) {
+                inputFilename = arg.substring("--input=".length());
+            }
+
+            if (arg.startsWith("--definitionId=")) {
+                definitionId = arg.substring("--definitionId=".length());
+            }
+
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            }
+
+        }
+        if (inputFilename == null) {
+            throw new RuntimeException("Reference file not specified. Use \"--input=<reference file>\"");
+        }
+        final File inputFile = new File(inputFilename);
+        if (!inputFile.isFile()) {
+            throw new RuntimeException("\"" + inputFilename + "\" does not exist.");
+        }
+        if (definitionId == null) {
+            throw new RuntimeException("Product definition not specified. Use \"--definitionId=<id>\"");
+        }
+
+        // Retrieve the ProductDefinition declaring the artefacts.
+        final ApplicationContext daoApplicationContext = new ApplicationContext("precompute");
+        ApplicationContextBuilder.populateDao(daoApplicationContext);
+        final ProductDefinition tempProductDefinition =
+            daoApplicationContext.getProductDefinitionDao().getById(definitionId);
+        if (!(tempProductDefinition instanceof NcAggregateProductDefinition)) {
+            throw new RuntimeException("Unknown product (\"" + definitionId + "\").");
+        }
+        final NcAggregateProductDefinition productDefinition =
+            (NcAggregateProductDefinition) tempProductDefinition;
+        String tempInputId = null;
+        for (NcAggregateProductDefinition.Input inputDefn : productDefinition.getInputs()) {
+            if (tempInputId == null) {
+                tempInputId = inputDefn.getId();
+            }
+        }
+        if (tempInputId == null) {
+            throw new RuntimeException("Product \"" + definitionId + "\" has no inputs.");
+        }
+        final String inputId = tempInputId;
+
+        // Generate the Metadata for the reference file. Note that we use a file-based
+        // implementation so the database is not populated with the reference file.
+        final String tempDir = TempDirectoryInitialiser.initialise();
+        final MetadataDao metadataDao = new MetadataDaoFileImpl(
+            tempDir + "dao" + File.separator + "metadata"
+        );
+        final NetCDFMetadataBean netcdfMetadataBean;
+        try {
+            netcdfMetadataBean = NetCDFMetadataBean.create(
+                "input",
+                inputFile.getName(),
+                new URI("file:" + inputFile.getAbsolutePath()),
+                inputFile.getAbsoluteFile(),
+                DateTime.now().getMillis(),
+                true
+            );
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(
+                "Failed to build URI of reference file \"" + inputFile.getName() + "\".", e);
+        }
+        final String metadataId = netcdfMetadataBean.getId();
+        metadataDao.persist(netcdfMetadataBean.toJSON());
+
+        // Build a Task with a single TimeInstant bound to the reference file, so the reference
+        // dataset is resolved the same way as during aggregation.
+        final NcAggregateTask task = new NcAggregateTask(
+            "precompute",
+            definitionId,
+            metadataId,
+            "file:" + tempDir + "precompute.nc",
+            new ArrayList<NcAggregateTask.TimeInstant>() {{
+                add(
+                    new NcAggregateTask.TimeInstant(
+                        0.0,
+                        new ArrayList<NcAggregateTask.Input>() {{
+                            add(
+                                new NcAggregateTask.Input(
+                                    inputId,
+                                    new ArrayList<NcAggregateTask.FileIndexBounds>() {{
+                                        add(new NcAggregateTask.FileIndexBounds(metadataId, 0, 0));
+                                    }}
+                                )
+                            );
+                        }}
+                    )
+                );
+            }}
+        );
+
+        // Build an ApplicationContext with only the references needed by the PreProcessingTasks.
+        final ApplicationContext applicationContext = new ApplicationContext("precompute");
+        applicationContext.setTask(task);
+        applicationContext.setProductDefinition(productDefinition);
+        applicationContext.setMetadataDao(metadataDao);
+        applicationContext.setTempPathname(tempDir);
+        applicationContext.setFileCache(ApplicationContextBuilder.makeFileCache(tempDir));
+        applicationContext.setArtefactCache(ApplicationContextBuilder.makeArtefactCache());
+        applicationContext.setDatasetMetadataIdsByInputIdMap(
+            DatasetMetadataIdsByInputIdBuilder.build(task, productDefinition)
+        );
+        applicationContext.setInputDatasetCache(
+            InputDatasetCacheFactory.make(
+                applicationContext.getFileCache(),
+                metadataDao,
+                productDefinition,
+                applicationContext.getDatasetMetadataIdsByInputIdMap()
+            )
+        );
+
+        // Read the grid once, before the PreProcessingTasks share it.
+        final GridGeometry gridGeometry = applicationContext.getGridGeometry();
+        logger.info("Grid: " + gridGeometry.getCellCount() + " cells (hash: " +
+            gridGeometry.getContentHash() + ").");
+
+        // Add the PreProcessingTasks that build grid artefacts.
+        final List<PreProcessingTask> artefactPreProcessingTasks = new ArrayList<PreProcessingTask>() {{
+            add(new ExtractionSitesBuilderTask(tempDir));
+            add(new GeoJsonCachePopulatorTask(tempDir));
+            add(new RegularGridMapperCachePopulatorTask(tempDir));
+        }};
+        final List<NcAggregateProductDefinition.PreProcessingTaskDefn> artefactPreProcessingTaskDefns =
+            new ArrayList<>();
+        for (NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn : productDefinition.getPreProcessingTasks()) {
+            if (artefactPreProcessingTasks.stream().anyMatch(impl -> impl.supports(preProcessingTaskDefn))) {
+                artefactPreProcessingTaskDefns.add(preProcessingTaskDefn);
+            } else {
+                logger.info("Skipping \"" + preProcessingTaskDefn.getType() + "\" as it is not a grid artefact.");
+            }
+        }
+        if (artefactPreProcessingTaskDefns.isEmpty()) {
+            logger.warn("Product \"" + definitionId + "\" does not declare any grid artefacts.");
+            return;
+        }
+        final PreProcessingTaskExecutor preProcessingTaskExecutor = new PreProcessingTaskExecutor(
+            parallelism > 0 ? parallelism : artefactPreProcessingTaskDefns.size()
+        );
+        for (NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTaskDefn : artefactPreProcessingTaskDefns) {
+            for (PreProcessingTask preProcessingTaskImpl : artefactPreProcessingTasks) {
+                if (preProcessingTaskImpl.supports(preProcessingTaskDefn)) {
+                    preProcessingTaskExecutor.add(preProcessingTaskDefn, preProcessingTaskImpl);
+                }
+            }
+        }
+
+        // Build (or load) the artefacts.
+        preProcessingTaskExecutor.execute(applicationContext);
+
+        // Validate each artefact against the grid.
+        final List<String> errors = new ArrayList<>();
+        for (String bindName : applicationContext.getCacheKeys()) {
+            final String error = validate(bindName, applicationContext.getFromCache(bindName), gridGeometry);
+            if (error != null) {
+                errors.add(error);
+            } else {
+                logger.info("Artefact \"" + bindName + "\" is valid.");
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new RuntimeException("Invalid artefacts:\n    " + String.join("\n    ", errors));
+        }
+        if (EnvironmentVariableReader.getInstance().optByKey("ARTEFACT_CACHE_URL") == null) {
+            logger.warn("ARTEFACT_CACHE_URL not specified, so artefacts are only cached locally.");
+        }
+        logger.info(applicationContext.getCacheKeys().size() + " artefacts precomputed for product \"" +
+            definitionId + "\".");
+    }
+
+    /**
+     * Validate the artefact bound to the {@code bindName} against the {@link GridGeometry} it was
+     * built from, returning a description of the problem, or {@code null} if valid.
+     */
+    static protected String validate(String bindName, Object artefact, GridGeometry gridGeometry) {
+        if (artefact == null) {
+            return "\"" + bindName + "\" was not built.";
+        }
+        if (artefact instanceof RegularGridMapper) {
+            final RegularGridMapper regularGridMapper = (RegularGridMapper) artefact;
+            if ((regularGridMapper.getLatitudeCount() <= 0) || (regularGridMapper.getLongitudeCount() <= 0)) {
+                return "\"" + bindName + "\" has an empty regular grid.";
+            }
+            return null;
+        }
+        if (artefact instanceof List) {
+            final List<?> list = (List<?>) artefact;
+            if (ExtractionSitesBuilderTask.EXTRACTION_SITES_BIND_NAME.equals(bindName)) {
+                for (Object item : list) {
+                    if (((ExtractionSite) item).getNeighbours().isEmpty()) {
+                        return "\"" + bindName + "\" has no neighbours for site \"" +
+                            ((ExtractionSite) item).getId() + "\".";
+                    }
+                }
+                return null;
+            }
+
+            // Zone map, with a zone id (or null) for each cell of the grid.
+            if (list.size() != gridGeometry.getCellCount()) {
+                return "\"" + bindName + "\" has " + list.size() + " cells, but the grid has " +
+                    gridGeometry.getCellCount() + ".";
+            }
+            if (list.stream().allMatch(zoneId -> zoneId == null)) {
+                return "\"" + bindName + "\" does not map any cells to a zone.";
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,253 @@
+package aims.ereefs.netcdf.util.file.cache;
+
+import aims.ereefs.netcdf.util.file.download.FileDownloadManager;
+import aims.ereefs.netcdf.util.file.upload.FileUploadManager;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Persistent, content-addressed cache of artefacts derived from a grid, such as zone maps,
+ * extraction site neighbours and {@code RegularGridMapper}s. Each artefact is identified by a
+ * {@link #makeKey(String, Object...) key} built from a hash of everything the artefact is derived
+ * from (eg: the {@code GridGeometry} content hash and the checksum of the GeoJSON file), so an
+ * artefact never needs to be invalidated: a change to any input results in a different key.
+ * <p>
+ * Artefacts are stored in a compact binary format in the {@link #cachePath local directory},
+ * which is kept between executions. If a {@link #remoteUrl} is specified, artefacts are also
+ * uploaded to it when stored (write-through) and downloaded from it when not available locally,
+ * so the artefacts can be shared between hosts. This class is thread-safe.
+ *
+ * @author Aaron Smith
+ */
+public class ArtefactCache {
+
+    protected Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    final static protected String ARTEFACT_FILE_EXTENSION = ".bin";
+
+    /**
+     * Reads an artefact from its binary format.
+     */
+    @FunctionalInterface
+    public interface ArtefactReader<T> {
+        T read(DataInputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Writes an artefact in its binary format.
+     */
+    @FunctionalInterface
+    public interface ArtefactWriter<T> {
+        void write(T artefact, DataOutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * The local directory holding the artefacts.
+     */
+    protected String cachePath;
+
+    /**
+     * Optional remote location (eg: {@code s3://bucket/artefacts/}) the artefacts are written
+     * through to. {@code null} if artefacts are only cached locally.
+     */
+    protected String remoteUrl;
+
+    /**
+     * Lock objects, by key, used to ensure only one (1) {@code Thread} builds an artefact.
+     */
+    protected Map<String, Object> keyLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor to capture the parameters.
+     *
+     * @param cachePath the local directory holding the artefacts.
+     * @param remoteUrl the remote location to write artefacts through to, or {@code null}.
+     */
+    public ArtefactCache(String cachePath, String remoteUrl) {
+        this.cachePath = cachePath.endsWith(File.separator) ? cachePath : cachePath + File.separator;
+        if ((remoteUrl != null) && !remoteUrl.isEmpty() && !remoteUrl.endsWith("/")) {
+            remoteUrl = remoteUrl + "/";
+        }
+        this.remoteUrl = ((remoteUrl != null) && !remoteUrl.isEmpty()) ? remoteUrl : null;
+        new File(this.cachePath).mkdirs();
+        logger.debug("cachePath: " + this.cachePath + "; remoteUrl: " + this.remoteUrl);
+    }
+
+    /**
+     * Build the key of an artefact of the specified type, being the type followed by a
+     * {@code SHA-256} hash of the components the artefact is derived from.
+     */
+    static public String makeKey(String type, Object... components) {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to build artefact key.", e);
+        }
+        for (Object component : components) {
+            messageDigest.update(String.valueOf(component).getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+        }
+        return type + "-" + DatatypeConverter.printHexBinary(messageDigest.digest()).toLowerCase();
+    }
+
+    /**
+     * Returns the artefact bound to the key, or builds, stores and returns it if not cached.
+     */
+    public <T> T retrieveOrBuild(String key,
+                                 ArtefactReader<T> reader,
+                                 ArtefactWriter<T> writer,
+                                 Supplier<T> builder) {
+        synchronized (this.keyLocks.computeIfAbsent(key, k -> new Object())) {
+            T artefact = this.retrieve(key, reader);
+            if (artefact == null) {
+                artefact = builder.get();
+                this.store(key, artefact, writer);
+            }
+            return artefact;
+        }
+    }
+
+    /**
+     * Returns the artefact bound to the key, downloading it from the {@link #remoteUrl} if not
+     * available locally. Returns {@code null} if the artefact is not cached or can't be read.
+     */
+    public <T> T retrieve(String key, ArtefactReader<T> reader) {
+        final File file = this.getFile(key);
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "ArtefactCache.retrieve")) {
+            span.arg("key", key);
+            if (!file.exists() && !this.download(key, file)) {
+                span.arg("result", "miss");
+                return null;
+            }
+            try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+                final T artefact = reader.read(inputStream);
+                span.arg("result", "hit");
+                logger.debug("Artefact \"" + key + "\" read from cache.");
+                return artefact;
+            } catch (IOException | RuntimeException e) {
+                span.arg("result", "invalid");
+                logger.warn("Failed to read artefact \"" + key + "\". Discarding it.", e);
+                file.delete();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Store the artefact against the key, uploading it to the {@link #remoteUrl} if specified.
+     * Failure to store is logged rather than thrown, as the artefact can be rebuilt.
+     */
+    public <T> void store(String key, T artefact, ArtefactWriter<T> writer) {
+        final File file = this.getFile(key);
+        final File tempFile = new File(this.cachePath + key + "." + UUID.randomUUID().toString() + ".tmp");
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "ArtefactCache.store")) {
+            span.arg("key", key);
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempFile)))) {
+                writer.write(artefact, outputStream);
+            }
+
+            // Move into place so a partially written artefact is never visible.
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Artefact \"" + key + "\" stored (" + file.length() + " bytes).");
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to store artefact \"" + key + "\".", e);
+            tempFile.delete();
+            return;
+        }
+        if (this.remoteUrl != null) {
+            try {
+                FileUploadManager.upload(file.getAbsolutePath(), this.remoteUrl + file.getName());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to upload artefact \"" + key + "\".", e);
+            }
+        }
+    }
+
+    /**
+     * Download the artefact from the {@link #remoteUrl}, if specified, returning {@code true} if
+     * successful. The existence of the remote artefact is checked first, so a miss is neither
+     * retried nor logged as an error. The artefact is downloaded into a private temporary
+     * directory and then moved into place. If the {@link #remoteUrl} is local, the remote artefact
+     * is copied rather than moved, so it remains available to other hosts.
+     */
+    protected boolean download(String key, File file) {
+        if (this.remoteUrl == null) {
+            return false;
+        }
+        final String url = this.remoteUrl + file.getName();
+        try {
+            if (FileDownloadManager.getFileSize(url) < 0) {
+                logger.debug("Artefact \"" + key + "\" not available remotely.");
+                return false;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Artefact \"" + key + "\" not available remotely.");
+            return false;
+        }
+
+        File tempDirectory = null;
+        try {
+            tempDirectory = Files.createTempDirectory(new File(this.cachePath).toPath(), key + ".").toFile();
+            final File downloadedFile = FileDownloadManager.download(url, tempDirectory.getAbsolutePath());
+            if ((downloadedFile == null) || !downloadedFile.exists()) {
+                return false;
+            }
+
+            // A local remote file is referenced in place, so copy it into the temporary directory.
+            File tempFile = downloadedFile;
+            if (!tempDirectory.equals(downloadedFile.getParentFile())) {
+                tempFile = new File(tempDirectory, file.getName());
+                Files.copy(downloadedFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Artefact \"" + key + "\" downloaded (" + file.length() + " bytes).");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to download artefact \"" + key + "\".", e);
+            return false;
+        } finally {
+            if (tempDirectory != null) {
+                final File[] tempFiles = tempDirectory.listFiles();
+                if (tempFiles != null) {
+                    for (File tempFile : tempFiles) {
+                        tempFile.delete();
+                    }
+                }
+                tempDirectory.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the local file of the artefact bound to the key.
+     */
+    protected File getFile(String key) {
+        return new File(this.cachePath + key + ARTEFACT_FILE_EXTENSION);
+    }
+
+}
@@ -1,20 +1,29 @@
 package aims.ereefs.netcdf.util.file.cache;
 
 import aims.ereefs.netcdf.util.file.download.FileDownloadManager;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.Utils;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implements a managed file cache that coordinates available disk space, and uses
- * {@link FileDownloadManager} to retrieve files from a supported storage mechanism.
+ * {@link FileDownloadManager} to retrieve files from a supported storage mechanism. This class is
+ * thread-safe, so a single instance can be shared by {@code Tasks} executing concurrently.
+ * <p>
+ * Files that are still open should be retrieved with {@link #retrieveAndPin(String, String)} and
+ * released with {@link #unpin(String)} once closed. Pinned files are never deleted to make space,
+ * so one {@code Task} cannot delete a file another {@code Task} is still reading.
  *
  * @author Aaron Smith
  */
@@ -34,6 +43,12 @@ public class FileCache {
         .name("ncaggregate_max_file_cache_size_bytes")
         .help("Maximum size of file cache (bytes).")
         .register();
+    protected static final Histogram apmFileCacheRetrieveDuration = Histogram.build()
+        .name("ncaggregate_file_cache_retrieve_duration_seconds")
+        .help("Time taken (seconds) to retrieve a file from the cache, including any download.")
+        .labelNames("result")
+        .buckets(0.0001, 0.001, 0.01, 0.1, 1, 5, 10, 30, 60, 120, 300, 600)
+        .register();
 
     /**
      * The local file cache directory.
@@ -62,6 +77,22 @@ public class FileCache {
      */
     protected List<String> orderOfAccess = new ArrayList<>();
 
+    /**
+     * The space, in bytes, reserved for files currently being downloaded.
+     */
+    protected long reservedSize = 0;
+
+    /**
+     * The number of times each {@code url} is currently pinned, by {@code url}. Only {@code urls}
+     * that are pinned at least once are included.
+     */
+    protected Map<String, Integer> pinCountByUrl = new HashMap<>();
+
+    /**
+     * Lock objects, by {@code url}, used to ensure only one (1) {@code Thread} downloads a file.
+     */
+    protected Map<String, Object> urlLocks = new ConcurrentHashMap<>();
+
     /**
      * Constructor to capture the parameters.
      *
@@ -76,6 +107,13 @@ public class FileCache {
         logger.debug("maxFileCacheSize: " + this.maxFileCacheSize);
     }
 
+    /**
+     * Returns {@code true} if the file identified by the {@code url} is currently cached.
+     */
+    synchronized public boolean isCached(String url) {
+        return this.cachedFileMap.containsKey(url);
+    }
+
     /**
      * Returns the {@code File} reference to the caller. If the file is already in the
      * {@link #cachedFileMap cache}, the reference is simply returned. If not, the size of the
@@ -107,91 +145,215 @@ public class FileCache {
      * file does not exist.
      */
     public File retrieve(String url, String checksum) {
+        return this.retrieve(url, checksum, false);
+    }
 
-        // Is the file cached?
-        final File localFile = this.cachedFileMap.get(url);
-        if (localFile != null) {
-
-            // Mark this url as the most recently accessed.
-            this.orderOfAccess.remove(url);
-            this.orderOfAccess.add(url);
+    /**
+     * Equivalent to {@link #retrieve(String, String)}, but the file is also pinned so it is not
+     * deleted to make space until {@link #unpin(String)} is invoked. Each invocation must be
+     * matched by an invocation of {@link #unpin(String)}.
+     */
+    public File retrieveAndPin(String url, String checksum) {
+        return this.retrieve(url, checksum, true);
+    }
 
-            return localFile;
+    /**
+     * Release a pin previously obtained by {@link #retrieveAndPin(String, String)}.
+     */
+    synchronized public void unpin(String url) {
+        final Integer pinCount = this.pinCountByUrl.get(url);
+        if (pinCount == null) {
+            throw new RuntimeException("File is not pinned. (url: " + url + ")");
+        }
+        if (pinCount > 1) {
+            this.pinCountByUrl.put(url, pinCount - 1);
         } else {
+            this.pinCountByUrl.remove(url);
+        }
+    }
 
-            // Identify the size of the file to download.
-            long fileSize = FileDownloadManager.getFileSize(url);
+    /**
+     * Returns {@code true} if the file identified by the {@code url} is currently pinned.
+     */
+    synchronized public boolean isPinned(String url) {
+        return this.pinCountByUrl.containsKey(url);
+    }
 
-            // Clear space if required.
-            while ((fileSize + this.cacheSize > this.maxFileCacheSize) &&
-                !this.cachedFileMap.isEmpty()) {
+    /**
+     * Times and traces the retrieval, pinning the file if {@code pin} is {@code true}.
+     */
+    protected File retrieve(String url, String checksum, boolean pin) {
+        final long startTime = System.nanoTime();
+        final String result = this.isCached(url) ? "hit" : "miss";
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "FileCache.retrieve")) {
+            span
+                .arg("url", url)
+                .arg("result", result);
+            return this.doRetrieve(url, checksum, pin);
+        } finally {
+            apmFileCacheRetrieveDuration
+                .labels(result)
+                .observe((System.nanoTime() - startTime) / 1.0E9);
+        }
+    }
 
-                // Delete the file that was accessed longest ago.
-                final String deleteUrl = this.orderOfAccess.remove(0);
-                final File deleteFile = this.cachedFileMap.get(deleteUrl);
-                this.cacheSize -= deleteFile.length();
-                FileDownloadManager.delete(deleteUrl, deleteFile);
-                this.cachedFileMap.remove(deleteUrl);
+    /**
+     * Performs the actual retrieval for {@link #retrieve(String, String, boolean)}. Concurrent
+     * requests for the same {@code url} are serialised so the file is only downloaded once,
+     * whereas requests for different {@code urls} may download concurrently.
+     */
+    protected File doRetrieve(String url, String checksum, boolean pin) {
 
-            }
+        // Is the file cached?
+        File localFile = this.lookup(url, pin);
+        if (localFile != null) {
+            return localFile;
+        }
 
-            // Is there enough space in the cache?
-            if (fileSize + this.cacheSize > this.maxFileCacheSize) {
-                throw new RuntimeException("Not enough space available to download file. " +
-                    "cacheSize: " + this.cacheSize + "; fileSize: " + fileSize + "; url: " + url);
+        synchronized (this.urlLocks.computeIfAbsent(url, key -> new Object())) {
+
+            // Check again in case another thread downloaded the file while waiting.
+            localFile = this.lookup(url, pin);
+            if (localFile != null) {
+                return localFile;
             }
 
-            // Download the file. Up to 3 attempts will be made.
-            int retriesRemaining = 3;
-            while (retriesRemaining > 0) {
-                logger.debug("Download \"" + url + "\" to \"" + this.cachePath + "\".");
-                File downloadedFile = FileDownloadManager.download(url, this.cachePath);
-                if (downloadedFile != null) {
-
-                    // Validate the downloaded file as required.
-                    boolean isValid = true;
-
-                    // Compare the checksum if specified.
-                    if (checksum != null) {
-                        String generatedChecksum = null;
-                        try {
-                            logger.debug("Generating checksum.");
-                            generatedChecksum = String.format("%s:%s", "MD5", Utils.checksum(downloadedFile, "MD5"));
-                            logger.debug("Checksum generated.");
-                        } catch (Exception e) {
-                            throw new RuntimeException("Failed to generate checksum for downloaded file.", e);
+            // Identify the size of the file to download, and reserve space for it.
+            final long fileSize = FileDownloadManager.getFileSize(url);
+            this.reserve(url, fileSize);
+            try {
+
+                // Download the file. Up to 3 attempts will be made.
+                int retriesRemaining = 3;
+                while (retriesRemaining > 0) {
+                    logger.debug("Download \"" + url + "\" to \"" + this.cachePath + "\".");
+                    File downloadedFile = FileDownloadManager.download(url, this.cachePath);
+                    if (downloadedFile != null) {
+
+                        // Validate the downloaded file as required.
+                        boolean isValid = true;
+
+                        // Compare the checksum if specified.
+                        if (checksum != null) {
+                            String generatedChecksum = null;
+                            try {
+                                logger.debug("Generating checksum.");
+                                generatedChecksum = String.format("%s:%s", "MD5", Utils.checksum(downloadedFile, "MD5"));
+                                logger.debug("Checksum generated.");
+                            } catch (Exception e) {
+                                throw new RuntimeException("Failed to generate checksum for downloaded file.", e);
+                            }
+                            if (!checksum.equalsIgnoreCase(generatedChecksum)) {
+                                isValid = false;
+                                logger.debug("Checksum comparison failed. Expected : \"" + checksum +
+                                    "\"; found: \"" + generatedChecksum + "\".");
+                            }
                         }
-                        if (!checksum.equalsIgnoreCase(generatedChecksum)) {
-                            isValid = false;
-                            logger.debug("Checksum comparison failed. Expected : \"" + checksum +
-                                "\"; found: \"" + generatedChecksum + "\".");
+
+                        // Cache the downloaded file if valid, and return the reference.
+                        if (isValid) {
+                            this.add(url, downloadedFile, pin);
+                            return downloadedFile;
                         }
+
                     }
 
-                    // Cache the downloaded file if valid, and return the reference.
-                    if (isValid) {
-                        this.cachedFileMap.put(url, downloadedFile);
-                        this.orderOfAccess.add(url);
-                        this.cacheSize += downloadedFile.length();
+                    // File was not downloaded, or it wasn't valid, so retry.
+                    retriesRemaining--;
+                    logger.debug("Download failed. Retries remaining: " + retriesRemaining);
 
-                        apmFileCacheCount.set(this.cachedFileMap.size());
-                        apmFileCacheBytes.set(this.cacheSize);
+                }
+                throw new RuntimeException("Unable to retrieve the specified file. (url: " + url + ")");
 
-                        return downloadedFile;
+            } finally {
+                this.release(fileSize);
+            }
 
-                    }
+        }
 
-                }
+    }
 
-                // File was not downloaded, or it wasn't valid, so retry.
-                retriesRemaining--;
-                logger.debug("Download failed. Retries remaining: " + retriesRemaining);
+    /**
+     * Returns the cached {@code File} for the {@code url}, marking it as the most recently
+     * accessed and pinning it if requested, or {@code null} if not cached.
+     */
+    synchronized protected File lookup(String url, boolean pin) {
+        final File localFile = this.cachedFileMap.get(url);
+        if (localFile != null) {
 
+            // Mark this url as the most recently accessed.
+            this.orderOfAccess.remove(url);
+            this.orderOfAccess.add(url);
+            if (pin) {
+                this.pin(url);
             }
-            throw new RuntimeException("Unable to retrieve the specified file. (url: " + url + ")");
 
         }
+        return localFile;
+    }
+
+    /**
+     * Increment the pin count of the {@code url}.
+     */
+    synchronized protected void pin(String url) {
+        this.pinCountByUrl.merge(url, 1, Integer::sum);
+    }
+
+    /**
+     * Reserve space in the cache for a file about to be downloaded, deleting the least recently
+     * accessed files that are not pinned if required.
+     */
+    synchronized protected void reserve(String url, long fileSize) {
+
+        // Clear space if required, skipping files that are pinned.
+        int accessIndex = 0;
+        while ((fileSize + this.cacheSize + this.reservedSize > this.maxFileCacheSize) &&
+            (accessIndex < this.orderOfAccess.size())) {
+
+            // Delete the unpinned file that was accessed longest ago.
+            final String deleteUrl = this.orderOfAccess.get(accessIndex);
+            if (this.pinCountByUrl.containsKey(deleteUrl)) {
+                accessIndex++;
+                continue;
+            }
+            this.orderOfAccess.remove(accessIndex);
+            final File deleteFile = this.cachedFileMap.get(deleteUrl);
+            this.cacheSize -= deleteFile.length();
+            FileDownloadManager.delete(deleteUrl, deleteFile);
+            this.cachedFileMap.remove(deleteUrl);
+
+        }
+
+        // Is there enough space in the cache?
+        if (fileSize + this.cacheSize + this.reservedSize > this.maxFileCacheSize) {
+            throw new RuntimeException("Not enough space available to download file. " +
+                "cacheSize: " + this.cacheSize + "; reservedSize: " + this.reservedSize +
+                "; pinnedCount: " + this.pinCountByUrl.size() + "; fileSize: " + fileSize +
+                "; url: " + url);
+        }
+        this.reservedSize += fileSize;
+    }
+
+    /**
+     * Release space previously reserved by {@link #reserve(String, long)}.
+     */
+    synchronized protected void release(long fileSize) {
+        this.reservedSize -= fileSize;
+    }
+
+    /**
+     * Add a downloaded file to the cache, pinning it if requested.
+     */
+    synchronized protected void add(String url, File downloadedFile, boolean pin) {
+        this.cachedFileMap.put(url, downloadedFile);
+        this.orderOfAccess.add(url);
+        this.cacheSize += downloadedFile.length();
+        if (pin) {
+            this.pin(url);
+        }
 
+        apmFileCacheCount.set(this.cachedFileMap.size());
+        apmFileCacheBytes.set(this.cacheSize);
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,7 @@
 package aims.ereefs.netcdf.util.file.download;
 
 import io.prometheus.client.Counter;
-import io.prometheus.client.Gauge;
-import io.prometheus.client.Summary;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,15 +22,16 @@ abstract public class AbstractFileDownloadHandler implements FileDownloadHandler
         .help("Total number of files downloaded.")
         .labelNames("scheme")
         .register();
-    protected static final Gauge apmFileDownloadBytes = Gauge.build()
+    protected static final Counter apmFileDownloadBytes = Counter.build()
         .name("ncaggregate_file_download_bytes")
         .help("Total size (bytes) of downloaded files.")
         .labelNames("scheme")
         .register();
-    protected static final Gauge apmFileDownloadDuration = Gauge.build()
+    protected static final Histogram apmFileDownloadDuration = Histogram.build()
         .name("ncaggregate_file_download_duration_seconds")
         .help("The time (seconds) to downloaded a file.")
         .labelNames("scheme")
+        .buckets(0.1, 0.5, 1, 5, 10, 30, 60, 120, 300, 600)
         .register();
 
     /**
@@ -48,9 +48,9 @@ abstract public class AbstractFileDownloadHandler implements FileDownloadHandler
     public File download(String url, String localPath) {
         logger.debug("url: " + url);
 
-        Gauge.Timer durationTimer = apmFileDownloadDuration.labels(this.scheme).startTimer();
+        Histogram.Timer durationTimer = apmFileDownloadDuration.labels(this.scheme).startTimer();
         File localFile = this.doDownload(url, localPath);
-        durationTimer.setDuration();
+        durationTimer.observeDuration();
         if (localFile != null && localFile.exists()) {
             apmFileDownloadCount.labels(this.scheme).inc();
             apmFileDownloadBytes.labels(this.scheme).inc(localFile.length());
@@ -50,4 +50,17 @@ public class ArrayUtils {
         return output;
     }
 
+    /**
+     * Package the NetCdf {@code Array} as a Java {@code float} array, avoiding the boxing of
+     * {@link #asJavaDoubleArray(Array)}. Intended for {@code float} data.
+     */
+    static public float[] asJavaFloatArray(Array input) {
+        int size = (int) input.getSize();
+        float[] output = new float[size];
+        for (int index = 0; index < size; index++) {
+            output[index] = input.getFloat(index);
+        }
+        return output;
+    }
+
 }
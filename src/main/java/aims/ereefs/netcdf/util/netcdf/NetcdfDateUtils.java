@@ -13,6 +13,8 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by gcoleman on 7/11/2016.
@@ -20,6 +22,17 @@ import java.util.Date;
 public class NetcdfDateUtils {
     private static final String TIME_UNITS_ATTRIBUTE_NAME = "units";
 
+    /**
+     * Cache of the {@code DateUnit} for each units string, so datasets sharing units share a
+     * single {@code DateUnit}.
+     */
+    private static final Map<String, DateUnit> DATE_UNIT_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Cache of the {@code ZoneId} parsed from each {@code DateUnit} by {@link #timeZoneOf(DateUnit)}.
+     */
+    private static final Map<String, ZoneId> ZONE_ID_CACHE = new ConcurrentHashMap<>();
+
     public static DateUnit getDateUnit(NetcdfDataset dataset) {
 
         Variable timeVariable = DatasetUtils.findTimeVariable(dataset);
@@ -46,6 +59,20 @@ public class NetcdfDateUtils {
         }
     }
 
+    /**
+     * Returns the {@code DateUnit} for the specified units string, constructing it only the first
+     * time the units string is seen.
+     */
+    public static DateUnit getDateUnit(String unitsString) {
+        return DATE_UNIT_CACHE.computeIfAbsent(unitsString, key -> {
+            try {
+                return new DateUnit(key);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to instantiate the DateUnit.", e);
+            }
+        });
+    }
+
     public static LocalDateTime toLocalDateTime(DateUnit dateUnit, Double dateAsDouble) {
         final Date date = dateUnit.makeDate(dateAsDouble);
         final Instant temporalAccessor = Instant.ofEpochMilli(date.getTime());
@@ -81,12 +108,12 @@ public class NetcdfDateUtils {
     }
 
     public static ZoneId timeZoneOf(DateUnit dateUnit) {
-        String dateString = dateUnit.toString();
-        dateString = dateString.substring(dateString.indexOf("since ") + 6);
-        final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("y-M-d H:m:s X");
-        final ZonedDateTime d = dateTimeFormatter.parse(dateString, ZonedDateTime::from);
-        return d.getZone();
-
+        return ZONE_ID_CACHE.computeIfAbsent(dateUnit.toString(), key -> {
+            final String dateString = key.substring(key.indexOf("since ") + 6);
+            final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("y-M-d H:m:s X");
+            final ZonedDateTime d = dateTimeFormatter.parse(dateString, ZonedDateTime::from);
+            return d.getZone();
+        });
     }
 
 
@@ -1,8 +1,10 @@
 package aims.ereefs.netcdf.util.netcdf;
 
-import io.prometheus.client.Gauge;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import ucar.ma2.Array;
-import ucar.ma2.ArrayDouble;
+import ucar.ma2.IndexIterator;
 import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Variable;
 
@@ -18,13 +20,14 @@ import java.util.Map;
  */
 public class ReadUtils {
 
-    protected static final Gauge apmDatasetReadBytes = Gauge.build()
+    protected static final Counter apmDatasetReadBytes = Counter.build()
         .name("ncaggregate_dataset_read_bytes")
         .help("Total size (bytes) of data read from a NetCDF dataset.")
         .register();
-    protected static final Gauge apmDatasetReadDuration = Gauge.build()
+    protected static final Histogram apmDatasetReadDuration = Histogram.build()
         .name("ncaggregate_dataset_read_duration_seconds")
         .help("Time taken (seconds) to read data from a NetCDF dataset.")
+        .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10)
         .register();
 
     /**
@@ -40,10 +43,11 @@ public class ReadUtils {
                                  int[] sliceShape,
                                  int[] sliceOffset) {
         Array sliceArray = null;
-        try {
-            Gauge.Timer durationTimer = apmDatasetReadDuration.startTimer();
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "ReadUtils.readData")) {
+            span.arg("variable", variable.getShortName());
+            Histogram.Timer durationTimer = apmDatasetReadDuration.startTimer();
             sliceArray = variable.read(sliceOffset, sliceShape);
-            durationTimer.setDuration();
+            durationTimer.observeDuration();
             apmDatasetReadBytes.inc(sliceArray.getDataType().getSize() * sliceArray.getSize());
         } catch (Throwable e) {
             throw new RuntimeException(
@@ -102,6 +106,20 @@ public class ReadUtils {
 
     }
 
+    /**
+     * Equivalent to {@link #readSingleTimeSlice(Variable, int)}, with the shape of a single time
+     * slice already resolved.
+     *
+     * @param sliceShape the shape of the variable, with the time dimension set to {@code 1}.
+     */
+    static public Double[] readSingleTimeSlice(Variable variable,
+                                               int[] sliceShape,
+                                               int timeIndexOffset) {
+        int[] offset = new int[sliceShape.length];
+        offset[0] = timeIndexOffset;
+        return ArrayUtils.asJavaDoubleArray(ReadUtils.readData(variable, sliceShape, offset));
+    }
+
     /**
      * Reads a single time slice from the specified variables. If any depth slices are specified
      * (ie: {@code selectedDepthToIndexMap} is not empty), then result will be filtered for those
@@ -171,56 +189,181 @@ public class ReadUtils {
         int[] shape = variable.getShape();
         shape[timeDimensionIndex] = 1;
 
-        // Prepare the offset to read. Only the time dimension is modified.
-        int[] offset = new int[]{0, 0, 0, 0};
-        offset[timeDimensionIndex] = timeIndexOffset;
+        return ReadUtils.readSingleTimeSlice(
+            variable,
+            shape,
+            timeDimensionIndex,
+            depthDimensionIndex,
+            timeIndexOffset,
+            ReadUtils.toDepthIndexes(selectedDepthsToProcess, selectedDepthToIndexMap)
+        );
+
+    }
+
+    /**
+     * Equivalent to {@link #readSingleTimeSlice(Variable, int, int, int, List, Map)}, with the
+     * shape of a single time slice and the indexes of the depths to read already resolved. Each
+     * depth is copied directly into the result, in the order of {@code depthIndexes}.
+     *
+     * @param sliceShape   the shape of the variable, with the time dimension set to {@code 1}.
+     * @param depthIndexes the index within the depth dimension of each depth to read.
+     */
+    static public Double[] readSingleTimeSlice(Variable variable,
+                                               int[] sliceShape,
+                                               int timeDimensionIndex,
+                                               int depthDimensionIndex,
+                                               int timeIndexOffset,
+                                               int[] depthIndexes) {
 
         // Read the data.
-        Array timeSliceArray = ReadUtils.readData(variable, shape, offset);
-
-        // Filter on depths if required.
-        if (!selectedDepthToIndexMap.isEmpty()) {
-
-            int[] depthSliceShape = timeSliceArray.getShape();
-            depthSliceShape[depthDimensionIndex] = 1;
-
-            // Loop through the depths of interest, reading only those depths, and then combine
-            // the results into a single array.
-            List<Array> depthSlices = new ArrayList<>();
-            for (Double selectedDepth : selectedDepthsToProcess) {
-                int depthIndex = selectedDepthToIndexMap.get(selectedDepth);
-                int[] depthOffset = new int[]{0, 0, 0, 0};
-                depthOffset[depthDimensionIndex] = depthIndex;
-                try {
-                    Array depthSliceArray = timeSliceArray.section(depthOffset, depthSliceShape);
-                    depthSlices.add(depthSliceArray.reshape(depthSliceArray.getShape()));
-                } catch (InvalidRangeException e) {
-                    e.printStackTrace();
+        int[] offset = new int[sliceShape.length];
+        offset[timeDimensionIndex] = timeIndexOffset;
+        Array timeSliceArray = ReadUtils.readData(variable, sliceShape, offset);
+
+        // Copy the selected depths, in order, into a single array.
+        int[] depthSliceShape = timeSliceArray.getShape();
+        depthSliceShape[depthDimensionIndex] = 1;
+        final int depthSliceSize = ReadUtils.sizeOf(depthSliceShape);
+        final Double[] combinedArray = new Double[depthSliceSize * depthIndexes.length];
+        int combinedArrayIndex = 0;
+        for (int depthIndex : depthIndexes) {
+            int[] depthOffset = new int[depthSliceShape.length];
+            depthOffset[depthDimensionIndex] = depthIndex;
+            try {
+                final Array depthSliceArray = timeSliceArray.section(depthOffset, depthSliceShape);
+                final IndexIterator iterator = depthSliceArray.getIndexIterator();
+                while (iterator.hasNext()) {
+                    combinedArray[combinedArrayIndex] = iterator.getDoubleNext();
+                    combinedArrayIndex++;
                 }
+            } catch (InvalidRangeException e) {
+                throw new RuntimeException("Failed to read depth index " + depthIndex + ".", e);
             }
+        }
+        return combinedArray;
+
+    }
+
+    /**
+     * Single precision equivalent of {@link #readSingleTimeSlice(Variable, int)}.
+     */
+    static public float[] readSingleTimeSliceAsFloat(Variable variable,
+                                                     int timeIndexOffset) {
+
+        // Prepare the shape to read. This is the shape of the data for the variable, with the time
+        // dimension set to 1 so only a single time slice is read.
+        int[] shape = variable.getShape();
+        shape[0] = 1;
+
+        // Prepare the offset to read. Only the time dimension is modified.
+        int[] offset = new int[]{timeIndexOffset, 0, 0};
 
-            // Combine the retrieved slices into a single slice.
-            int[] combinedArrayShape = timeSliceArray.getShape();
-            combinedArrayShape[depthDimensionIndex] = depthSlices.size();
-            Array combinedArray = new ArrayDouble.D4(combinedArrayShape[0], combinedArrayShape[1],
-                combinedArrayShape[2], combinedArrayShape[3]);
-            int combinedArrayIndex = 0;
-            for (Array depthSliceArray : depthSlices) {
-                for (int i = 0; i < depthSliceArray.getSize(); i++) {
-                    combinedArray.setDouble(combinedArrayIndex, depthSliceArray.getDouble(i));
+        // Read the data.
+        return ArrayUtils.asJavaFloatArray(ReadUtils.readData(variable, shape, offset));
+
+    }
+
+    /**
+     * Single precision equivalent of
+     * {@link #readSingleTimeSlice(Variable, int, int, int, List, Map)}. The selected depth slices
+     * are copied directly into the result, without an intermediate {@code double} array.
+     */
+    static public float[] readSingleTimeSliceAsFloat(Variable variable,
+                                                     int timeDimensionIndex,
+                                                     int depthDimensionIndex,
+                                                     int timeIndexOffset,
+                                                     List<Double> selectedDepthsToProcess,
+                                                     Map<Double, Integer> selectedDepthToIndexMap) {
+
+        if (selectedDepthToIndexMap.isEmpty()) {
+            throw new RuntimeException("No depths defined. This method should not have been invoked.");
+        }
+
+        // Prepare the shape to read a single time slice.
+        int[] shape = variable.getShape();
+        shape[timeDimensionIndex] = 1;
+
+        return ReadUtils.readSingleTimeSliceAsFloat(
+            variable,
+            shape,
+            timeDimensionIndex,
+            depthDimensionIndex,
+            timeIndexOffset,
+            ReadUtils.toDepthIndexes(selectedDepthsToProcess, selectedDepthToIndexMap)
+        );
+
+    }
+
+    /**
+     * Single precision equivalent of
+     * {@link #readSingleTimeSlice(Variable, int[], int, int, int, int[])}.
+     */
+    static public float[] readSingleTimeSliceAsFloat(Variable variable,
+                                                     int[] sliceShape,
+                                                     int timeDimensionIndex,
+                                                     int depthDimensionIndex,
+                                                     int timeIndexOffset,
+                                                     int[] depthIndexes) {
+
+        // Read the data.
+        int[] offset = new int[sliceShape.length];
+        offset[timeDimensionIndex] = timeIndexOffset;
+        Array timeSliceArray = ReadUtils.readData(variable, sliceShape, offset);
+
+        // Copy the selected depths, in order, into a single array.
+        int[] depthSliceShape = timeSliceArray.getShape();
+        depthSliceShape[depthDimensionIndex] = 1;
+        final int depthSliceSize = ReadUtils.sizeOf(depthSliceShape);
+        final float[] combinedArray = new float[depthSliceSize * depthIndexes.length];
+        int combinedArrayIndex = 0;
+        for (int depthIndex : depthIndexes) {
+            int[] depthOffset = new int[depthSliceShape.length];
+            depthOffset[depthDimensionIndex] = depthIndex;
+            try {
+                final Array depthSliceArray = timeSliceArray.section(depthOffset, depthSliceShape);
+                final IndexIterator iterator = depthSliceArray.getIndexIterator();
+                while (iterator.hasNext()) {
+                    combinedArray[combinedArrayIndex] = iterator.getFloatNext();
                     combinedArrayIndex++;
                 }
+            } catch (InvalidRangeException e) {
+                throw new RuntimeException("Failed to read depth index " + depthIndex + ".", e);
             }
+        }
+        return combinedArray;
 
-            // Add the combined array to the list.
-            return ArrayUtils.asJavaDoubleArray(combinedArray);
-
-        } else {
+    }
 
-            return ArrayUtils.asJavaDoubleArray(timeSliceArray);
+    /**
+     * Single precision equivalent of {@link #readSingleTimeSlice(Variable, int[], int)}.
+     */
+    static public float[] readSingleTimeSliceAsFloat(Variable variable,
+                                                     int[] sliceShape,
+                                                     int timeIndexOffset) {
+        int[] offset = new int[sliceShape.length];
+        offset[0] = timeIndexOffset;
+        return ArrayUtils.asJavaFloatArray(ReadUtils.readData(variable, sliceShape, offset));
+    }
 
+    /**
+     * Resolve the index within the depth dimension of each of the {@code selectedDepthsToProcess},
+     * in order.
+     */
+    static public int[] toDepthIndexes(List<Double> selectedDepthsToProcess,
+                                       Map<Double, Integer> selectedDepthToIndexMap) {
+        final int[] depthIndexes = new int[selectedDepthsToProcess.size()];
+        for (int index = 0; index < depthIndexes.length; index++) {
+            depthIndexes[index] = selectedDepthToIndexMap.get(selectedDepthsToProcess.get(index));
         }
+        return depthIndexes;
+    }
 
+    static protected int sizeOf(int[] shape) {
+        int size = 1;
+        for (int length : shape) {
+            size *= length;
+        }
+        return size;
     }
 
     static public Double[] readSingleTimeSliceByDepth(Variable variable,
@@ -2,6 +2,7 @@ package aims.ereefs.netcdf.util.netcdf;
 
 import aims.ereefs.netcdf.output.netcdf.OutputDataset;
 import aims.ereefs.netcdf.output.netcdf.OutputDatasetInfo;
+import aims.ereefs.netcdf.util.trace.Tracer;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +28,23 @@ public class WriteUtils {
                                   List<Array> arrays,
                                   int timeOffset,
                                   int depthOffset) {
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "WriteUtils.writeSlice")) {
+            span
+                .arg("timeOffset", timeOffset)
+                .arg("depthOffset", depthOffset);
+            doWriteSlice(outputDataset, summaryOperatorDefinition, arrays, timeOffset, depthOffset);
+        }
+    }
+
+    /**
+     * Performs the actual write for
+     * {@link #writeSlice(OutputDataset, NcAggregateProductDefinition.SummaryOperator, List, int, int)}.
+     */
+    static protected void doWriteSlice(OutputDataset outputDataset,
+                                       NcAggregateProductDefinition.SummaryOperator summaryOperatorDefinition,
+                                       List<Array> arrays,
+                                       int timeOffset,
+                                       int depthOffset) {
 
         OutputDatasetInfo outputDatasetInfo = outputDataset.getOutputDatasetInfo();
 
@@ -0,0 +1,345 @@
+package aims.ereefs.netcdf.util.trace;
+
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Optional facility for recording timed {@link Span}s of execution, which can be written as a
+ * Chrome Trace Event JSON file and viewed with {@code chrome://tracing} or
+ * {@code https://ui.perfetto.dev}. Each {@code Span} records the id of the {@code Thread} that
+ * executed it, so concurrent work is displayed on separate tracks.
+ *
+ * <p>
+ * Tracing is disabled by default and is enabled by setting the environment variable
+ * {@code TRACE_ENABLED} to {@code true} (see {@link #initialise()}). {@code Spans} are recorded by
+ * a {@link Recorder} per {@code Task}, which is {@link #bind(Recorder) bound} to the
+ * {@code Threads} executing the {@code Task}, so {@code Tasks} executed concurrently (eg: in batch
+ * mode) record separate traces. Work submitted to other {@code Threads} is
+ * {@link #wrap(Callable) wrapped} so it is recorded by the same {@link Recorder}. When no
+ * {@link Recorder} is bound, {@link #begin(String, String)} returns a shared no-op {@code Span},
+ * so instrumented code does not allocate or record anything. Arguments that are costly to
+ * compute should be guarded by {@link #isEnabled()}.
+ * </p>
+ *
+ * <p>
+ * Usage:
+ * </p>
+ * <pre>
+ * try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "readData")) {
+ *     span.arg("variable", variable.getShortName());
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Aaron Smith
+ */
+public class Tracer {
+
+    static final public String CATEGORY_PIPELINE = "pipeline";
+    static final public String CATEGORY_IO = "io";
+    static final public String CATEGORY_COMPUTE = "compute";
+
+    /**
+     * The name of the environment variable used to enable tracing.
+     */
+    static final public String TRACE_ENABLED = "TRACE_ENABLED";
+
+    static private Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    /**
+     * Shared {@code Span} returned when tracing is disabled.
+     */
+    static final protected Span NOOP_SPAN = new Span(null, null, null) {
+        @Override
+        public Span arg(String key, Object value) {
+            return this;
+        }
+
+        @Override
+        public Span arg(String key, long value) {
+            return this;
+        }
+
+        @Override
+        public Span arg(String key, double value) {
+            return this;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * The {@link Recorder} bound to each {@code Thread}, if any. Checked by
+     * {@link #begin(String, String)} before any allocation occurs.
+     */
+    static final private ThreadLocal<Recorder> currentRecorder = new ThreadLocal<>();
+
+    /**
+     * Returns a new {@link Recorder} if the {@link #TRACE_ENABLED} environment variable is
+     * {@code true}, otherwise {@code null}.
+     */
+    static public Recorder initialise() {
+        final String traceEnabled = EnvironmentVariableReader.getInstance().optByKey(TRACE_ENABLED);
+        if (Boolean.parseBoolean(traceEnabled)) {
+            logger.info("Tracing enabled.");
+            return new Recorder();
+        }
+        return null;
+    }
+
+    /**
+     * Bind the {@link Recorder} to the current {@code Thread} until the returned {@link Binding}
+     * is closed, which restores the previous {@link Recorder}. A {@code null} {@link Recorder}
+     * disables tracing on the current {@code Thread}.
+     */
+    static public Binding bind(Recorder recorder) {
+        final Binding binding = new Binding(currentRecorder.get());
+        if (recorder == null) {
+            currentRecorder.remove();
+        } else {
+            currentRecorder.set(recorder);
+        }
+        return binding;
+    }
+
+    /**
+     * Returns {@code true} if tracing is enabled on the current {@code Thread}.
+     */
+    static public boolean isEnabled() {
+        return currentRecorder.get() != null;
+    }
+
+    /**
+     * Returns the {@code callable}, wrapped so it is recorded by the {@link Recorder} bound to the
+     * current {@code Thread} when executed by another {@code Thread}. The {@code callable} is
+     * returned as is if tracing is disabled.
+     */
+    static public <T> Callable<T> wrap(Callable<T> callable) {
+        final Recorder recorder = currentRecorder.get();
+        if (recorder == null) {
+            return callable;
+        }
+        return () -> {
+            try (Binding binding = bind(recorder)) {
+                return callable.call();
+            }
+        };
+    }
+
+    /**
+     * Begin a new {@code Span} on the current {@code Thread}. The {@code Span} is recorded by the
+     * bound {@link Recorder} when it is {@link Span#close() closed}.
+     *
+     * @param category the category of the {@code Span}, used for filtering in the viewer.
+     * @param name     the name of the {@code Span}.
+     * @return the {@code Span}, or a shared no-op {@code Span} if tracing is disabled.
+     */
+    static public Span begin(String category, String name) {
+        final Recorder recorder = currentRecorder.get();
+        if (recorder == null) {
+            return NOOP_SPAN;
+        }
+        return new Span(recorder, category, name);
+    }
+
+    /**
+     * Restores the {@link Recorder} bound to a {@code Thread} when closed.
+     */
+    static public class Binding implements AutoCloseable {
+
+        final protected Recorder previousRecorder;
+
+        protected Binding(Recorder previousRecorder) {
+            this.previousRecorder = previousRecorder;
+        }
+
+        @Override
+        public void close() {
+            if (this.previousRecorder == null) {
+                currentRecorder.remove();
+            } else {
+                currentRecorder.set(this.previousRecorder);
+            }
+        }
+
+    }
+
+    /**
+     * Records the completed {@code Spans} of a single {@code Task}.
+     */
+    static public class Recorder {
+
+        /**
+         * The time (nanoseconds) at which the {@code Recorder} was created. All {@code Span}
+         * timestamps are relative to this value.
+         */
+        final protected long baseNanoTime = System.nanoTime();
+
+        /**
+         * The completed {@code Spans}, in order of completion.
+         */
+        final protected Queue<Span> completedSpans = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The name of each {@code Thread} that has completed a {@code Span}, by {@code Thread} id.
+         */
+        final protected Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+        protected void record(Span span) {
+            this.threadNames.putIfAbsent(span.threadId, Thread.currentThread().getName());
+            this.completedSpans.add(span);
+        }
+
+        /**
+         * Returns the number of completed {@code Spans}.
+         */
+        public int getSpanCount() {
+            return this.completedSpans.size();
+        }
+
+        /**
+         * Write the recorded {@code Spans} to the specified file in Chrome Trace Event JSON
+         * format.
+         *
+         * @param file the file to write.
+         */
+        public void write(File file) {
+            try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+                writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+                boolean isFirst = true;
+
+                // Metadata events naming each Thread.
+                for (Map.Entry<Long, String> entry : this.threadNames.entrySet()) {
+                    if (!isFirst) {
+                        writer.write(",\n");
+                    }
+                    isFirst = false;
+                    writer.write(
+                        new JSONObject()
+                            .put("ph", "M")
+                            .put("name", "thread_name")
+                            .put("pid", 1)
+                            .put("tid", entry.getKey())
+                            .put("args", new JSONObject().put("name", entry.getValue()))
+                            .toString()
+                    );
+                }
+
+                // Complete events for each Span.
+                for (Span span : this.completedSpans) {
+                    if (!isFirst) {
+                        writer.write(",\n");
+                    }
+                    isFirst = false;
+                    writer.write(span.toJSON().toString());
+                }
+                writer.write("]}");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write trace file \"" + file + "\".", e);
+            }
+            logger.debug("Trace written to \"" + file + "\" (" + this.completedSpans.size() + " spans).");
+        }
+
+    }
+
+    /**
+     * A single timed unit of work executed by a single {@code Thread}.
+     */
+    static public class Span implements AutoCloseable {
+
+        protected final Recorder recorder;
+        protected final String category;
+        protected final String name;
+        protected final long threadId;
+        protected final long startNanoTime;
+        protected long endNanoTime;
+        protected Map<String, Object> args = null;
+
+        protected Span(Recorder recorder, String category, String name) {
+            this.recorder = recorder;
+            this.category = category;
+            this.name = name;
+            this.threadId = Thread.currentThread().getId();
+            this.startNanoTime = System.nanoTime();
+        }
+
+        /**
+         * Attach an argument to the {@code Span}, which is displayed by the viewer.
+         *
+         * @return a reference to the {@code Span} for convenience.
+         */
+        public Span arg(String key, Object value) {
+            if (this.args == null) {
+                this.args = new LinkedHashMap<>();
+            }
+            this.args.put(key, value);
+            return this;
+        }
+
+        /**
+         * Attach a numeric argument to the {@code Span}. The value is only boxed if the
+         * {@code Span} is recorded.
+         *
+         * @return a reference to the {@code Span} for convenience.
+         */
+        public Span arg(String key, long value) {
+            return this.arg(key, (Object) value);
+        }
+
+        /**
+         * Attach a numeric argument to the {@code Span}. The value is only boxed if the
+         * {@code Span} is recorded.
+         *
+         * @return a reference to the {@code Span} for convenience.
+         */
+        public Span arg(String key, double value) {
+            return this.arg(key, (Object) value);
+        }
+
+        /**
+         * Complete the {@code Span} and record it.
+         */
+        @Override
+        public void close() {
+            this.endNanoTime = System.nanoTime();
+            this.recorder.record(this);
+        }
+
+        /**
+         * Returns the Chrome Trace Event representation of the {@code Span}. Timestamps are in
+         * microseconds.
+         */
+        protected JSONObject toJSON() {
+            final JSONObject json = new JSONObject()
+                .put("ph", "X")
+                .put("cat", this.category)
+                .put("name", this.name)
+                .put("pid", 1)
+                .put("tid", this.threadId)
+                .put("ts", (this.startNanoTime - this.recorder.baseNanoTime) / 1000.0)
+                .put("dur", (this.endNanoTime - this.startNanoTime) / 1000.0);
+            if (this.args != null) {
+                json.put("args", new JSONObject(this.args));
+            }
+            return json;
+        }
+
+    }
+
+}
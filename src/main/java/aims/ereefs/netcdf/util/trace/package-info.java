@@ -0,0 +1,4 @@
+/**
+ * Utility classes for recording an execution timeline.
+ */
+package aims.ereefs.netcdf.util.trace;
\ No newline at end of file
@@ -1,6 +1,7 @@
 package aims.ereefs.netcdf;
 
 import aims.ereefs.netcdf.input.netcdf.InputDatasetCache;
+import aims.ereefs.netcdf.input.netcdf.MetadataCache;
 import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
 import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
 import org.assertj.core.api.Assertions;
@@ -92,6 +93,30 @@ public class ApplicationContextTest {
         }
     }
 
+    @Test
+    public void testMetadataCache() {
+        final ApplicationContext applicationContext = new ApplicationContext("test");
+
+        // Should initially be null.
+        Assertions.assertThat(applicationContext.getMetadataCache()).isNull();
+
+        // Set value and ensure it can be retrieved.
+        final MetadataCache metadataCache = new MetadataCache(null, new HashMap<>());
+        applicationContext.setMetadataCache(metadataCache);
+        Assertions.assertThat(applicationContext.getMetadataCache()).isSameAs(metadataCache);
+
+        // Unable to set a new value.
+        try {
+            applicationContext.setMetadataCache(new MetadataCache(null, new HashMap<>()));
+            Assertions.fail("RuntimeException expected.");
+        } catch (RuntimeException expected) {
+            Assertions
+                .assertThat(expected)
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasMessage("Immutable properties may not be modified.");
+        }
+    }
+
     @Test
     public void testInputDefinitionByVariableNameMap() {
         final ApplicationContext applicationContext = new ApplicationContext("test");
@@ -3,8 +3,13 @@ package aims.ereefs.netcdf.aggregator.operators;
 import aims.ereefs.netcdf.aggregator.operators.factory.DifferenceOperatorFactory;
 import aims.ereefs.netcdf.aggregator.operators.factory.PipelineFactory;
 import aims.ereefs.netcdf.aggregator.operators.pipeline.Pipeline;
+import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * Test the DIFF operator as implemented by the {@link Pipeline} built by
  * {@link DifferenceOperatorFactory}.
@@ -45,4 +50,36 @@ public class DiffOperatorTest {
 
     }
 
+    /**
+     * Test providing the aligned time slices of both inputs together, as read in lock-step, which
+     * must give the same results as providing the inputs one after the other.
+     */
+    @Test
+    public void testLockStep() {
+        final Pipeline sequentialPipeline = new DifferenceOperatorFactory().make();
+        final Pipeline lockStepPipeline = new DifferenceOperatorFactory().make();
+        for (Double[] data : TestData.TEST_DATA.values()) {
+            this.executeSingle(sequentialPipeline, data);
+        }
+        for (Double[] data : TestData.TEST_DATA2.values()) {
+            this.executeSingle(sequentialPipeline, data);
+        }
+        final Iterator<Double[]> subtrahendIterator = TestData.TEST_DATA2.values().iterator();
+        for (Double[] minuend : TestData.TEST_DATA.values()) {
+            final List<Double[]> inputs = new ArrayList<>();
+            inputs.add(minuend);
+            inputs.add(subtrahendIterator.next());
+            lockStepPipeline.execute(inputs);
+        }
+        Assertions.assertThat(lockStepPipeline.getResults()).hasSize(1);
+        Assertions.assertThat(lockStepPipeline.getResults().get(0))
+            .containsExactly(sequentialPipeline.getResults().get(0));
+    }
+
+    protected void executeSingle(Pipeline pipeline, Double[] data) {
+        final List<Double[]> inputs = new ArrayList<>();
+        inputs.add(data);
+        pipeline.execute(inputs);
+    }
+
 }
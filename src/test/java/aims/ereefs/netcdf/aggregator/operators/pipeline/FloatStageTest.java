@@ -0,0 +1,93 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import aims.ereefs.netcdf.TestUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Tests for the {@link FloatStage} implementations, verifying that single precision inputs
+ * produce the same results as the equivalent {@code Double} inputs.
+ *
+ * @author Aaron Smith
+ */
+public class FloatStageTest {
+
+    /**
+     * Time slices of single precision test data for a single variable.
+     */
+    final static protected List<float[]> TIME_SLICES = new ArrayList<float[]>() {{
+        add(new float[]{Float.NaN, 1.0f, 2.5f, 3.3f});
+        add(new float[]{4.1f, Float.NaN, 0.2f, -7.0f});
+        add(new float[]{0.001f, 2.0f, Float.NaN, 9.9f});
+    }};
+
+    @Test
+    public void testSum() {
+        this.assertFloatMatchesDouble(SumCollectorStage::new);
+    }
+
+    @Test
+    public void testMean() {
+        this.assertFloatMatchesDouble(MeanCollectorStage::new);
+    }
+
+    @Test
+    public void testMin() {
+        this.assertFloatMatchesDouble(MinCollectorStage::new);
+    }
+
+    @Test
+    public void testMax() {
+        this.assertFloatMatchesDouble(MaxCollectorStage::new);
+    }
+
+    @Test
+    public void testRange() {
+        this.assertFloatMatchesDouble(RangeCollectorStage::new);
+    }
+
+    /**
+     * Verify a {@link Pipeline} boxes single precision inputs for an initial {@link Stage} that
+     * does not implement {@link FloatStage}.
+     */
+    @Test
+    public void testPipelineFallback() {
+        final List<Double[]> received = new ArrayList<>();
+        final Stage initialStage = new Stage() {
+            @Override
+            public void execute(List<Double[]> inputs) {
+                received.addAll(inputs);
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+        final Pipeline pipeline = new BasicPipeline(initialStage, () -> received);
+        pipeline.executeFloat(TIME_SLICES.subList(0, 1));
+        Assertions.assertThat(pipeline.getResults()).hasSize(1);
+        Assertions.assertThat(pipeline.getResults().get(0))
+            .containsExactly(Double.NaN, 1.0, 2.5, (double) 3.3f);
+    }
+
+    /**
+     * Execute one {@code Collector} with {@link #TIME_SLICES} and another with the boxed
+     * equivalent, and compare the results.
+     */
+    protected <T extends Stage & FloatStage & Collector> void assertFloatMatchesDouble(Supplier<T> supplier) {
+        final T floatCollector = supplier.get();
+        final T doubleCollector = supplier.get();
+        for (float[] timeSlice : TIME_SLICES) {
+            final List<float[]> inputs = new ArrayList<>();
+            inputs.add(timeSlice);
+            floatCollector.executeFloat(inputs);
+            doubleCollector.execute(FloatStage.toBoxed(inputs));
+        }
+        TestUtils.assertSame(floatCollector.getResults(), doubleCollector.getResults());
+    }
+
+}
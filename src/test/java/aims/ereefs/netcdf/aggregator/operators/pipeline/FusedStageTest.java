@@ -0,0 +1,140 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import aims.ereefs.netcdf.TestUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Tests for the fused {@link Stage}s, verifying they produce the same results as the chains of
+ * generic {@link Stage}s they replace.
+ *
+ * @author Aaron Smith
+ */
+public class FusedStageTest {
+
+    final static protected List<Double[]> TEST_DATA = new ArrayList<Double[]>() {{
+        // u
+        add(new Double[]{Double.NaN, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0});
+        // v
+        add(new Double[]{7.0, 6.0, 5.0, 4.0, 3.0, 2.0, 1.0, null});
+    }};
+
+    final static protected List<String> INDEX_TO_ZONE_ID_MAP = new ArrayList<String>() {{
+        add("a");
+        add("b");
+        add(null);
+        add("a");
+    }};
+
+    final static protected Map<String, Double[]> ZONE_ID_TO_THRESHOLD_MAP = new HashMap<String, Double[]>() {{
+        put("a", new Double[]{3.2});
+        put("b", new Double[]{5.1});
+    }};
+
+    @Test
+    public void testSpeedThresholdExceedance() {
+        this.assertSameAsGeneric(true, 1, Comparators.GREATER_THAN_COMPARATOR, new MeanCollectorStage(), new MeanCollectorStage());
+        this.assertSameAsGeneric(true, 2, Comparators.LESS_THAN_COMPARATOR, new SumCollectorStage(), new SumCollectorStage());
+    }
+
+    @Test
+    public void testThresholdExceedance() {
+        this.assertSameAsGeneric(false, 2, Comparators.GREATER_THAN_COMPARATOR, new SumCollectorStage(), new SumCollectorStage());
+        this.assertSameAsGeneric(false, 3, (value, threshold) -> value >= threshold, new MeanCollectorStage(), new MeanCollectorStage());
+    }
+
+    @Test
+    public void testSpeedMean() {
+        final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        final Pipeline generic = new BasicPipeline(
+            new SpeedTransformerStage(new ArrayList<Stage>() {{
+                add(meanCollectorStage);
+            }}),
+            meanCollectorStage
+        );
+        final SpeedMeanCollectorStage speedMeanCollectorStage = new SpeedMeanCollectorStage();
+        final Pipeline fused = new BasicPipeline(speedMeanCollectorStage, speedMeanCollectorStage);
+        this.executeBoth(generic, fused, 3);
+        TestUtils.assertSame(fused.getResults(), generic.getResults());
+    }
+
+    /**
+     * Build the generic and fused {@code ThresholdExceedanceCount} {@link Pipeline}s and compare
+     * the results after a number of executions, both double and single precision.
+     */
+    protected void assertSameAsGeneric(boolean isSpeed,
+                                       int maxAccumulationCount,
+                                       BiPredicate<Double, Double> thresholdComparator,
+                                       SumCollectorStage genericCollectorStage,
+                                       SumCollectorStage fusedCollectorStage) {
+        final ThresholdExceedanceCountStage thresholdExceedanceCountStage = new ThresholdExceedanceCountStage(
+            INDEX_TO_ZONE_ID_MAP,
+            ZONE_ID_TO_THRESHOLD_MAP,
+            thresholdComparator,
+            new ArrayList<Stage>() {{
+                add(genericCollectorStage);
+            }}
+        );
+        final MeanAccumulatorStage meanAccumulatorStage = new MeanAccumulatorStage(
+            maxAccumulationCount,
+            new ArrayList<Stage>() {{
+                add(thresholdExceedanceCountStage);
+            }}
+        );
+        final Stage initialStage = isSpeed ?
+            new SpeedTransformerStage(new ArrayList<Stage>() {{
+                add(meanAccumulatorStage);
+            }}) :
+            meanAccumulatorStage;
+        final Pipeline generic = new BasicPipeline(initialStage, genericCollectorStage);
+        final Pipeline fused = new BasicPipeline(
+            new FusedThresholdExceedanceCountStage(
+                isSpeed,
+                maxAccumulationCount,
+                INDEX_TO_ZONE_ID_MAP,
+                ZONE_ID_TO_THRESHOLD_MAP,
+                thresholdComparator,
+                fusedCollectorStage
+            ),
+            fusedCollectorStage
+        );
+        this.executeBoth(generic, fused, maxAccumulationCount * 2);
+        TestUtils.assertSame(fused.getResults(), generic.getResults());
+
+        // Reset and repeat.
+        generic.reset();
+        fused.reset();
+        this.executeBoth(generic, fused, maxAccumulationCount);
+        TestUtils.assertSame(fused.getResults(), generic.getResults());
+    }
+
+    /**
+     * Execute both {@link Pipeline}s the specified number of times, alternating between the
+     * {@code Double} and single precision inputs.
+     */
+    protected void executeBoth(Pipeline generic, Pipeline fused, int count) {
+        final List<float[]> floatData = new ArrayList<>();
+        for (Double[] array : TEST_DATA) {
+            final float[] floatArray = new float[array.length];
+            for (int index = 0; index < array.length; index++) {
+                floatArray[index] = (array[index] == null) ? Float.NaN : array[index].floatValue();
+            }
+            floatData.add(floatArray);
+        }
+        for (int index = 0; index < count; index++) {
+            if (index % 2 == 0) {
+                generic.execute(TEST_DATA);
+                fused.execute(TEST_DATA);
+            } else {
+                generic.executeFloat(floatData);
+                fused.executeFloat(floatData);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import aims.ereefs.netcdf.TestUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Tests for the {@link MergeableCollector} implementations, verifying that merging the
+ * {@link PartialState}s of separate aggregations matches a single aggregation over all of the
+ * data, including after serialisation via {@link PartialStateSerialiser}.
+ *
+ * @author Aaron Smith
+ */
+public class MergeableCollectorTest {
+
+    /**
+     * Time slices of test data for a single variable.
+     */
+    final static protected List<Double[]> TIME_SLICES = new ArrayList<Double[]>() {{
+        add(new Double[]{Double.NaN, null, 1.0, 2.0, Double.NaN});
+        add(new Double[]{4.3, 3.1, null, Double.NaN, Double.NaN});
+        add(new Double[]{10.0, 3.0, 0.1, 3.2, Double.NaN});
+        add(new Double[]{-1.5, 7.25, 2.0, Double.NaN, Double.NaN});
+    }};
+
+    @Test
+    public void testSum() {
+        this.assertMergeMatchesSinglePass(SumCollectorStage::new);
+    }
+
+    @Test
+    public void testMean() {
+        this.assertMergeMatchesSinglePass(MeanCollectorStage::new);
+    }
+
+    @Test
+    public void testMin() {
+        this.assertMergeMatchesSinglePass(MinCollectorStage::new);
+    }
+
+    @Test
+    public void testMax() {
+        this.assertMergeMatchesSinglePass(MaxCollectorStage::new);
+    }
+
+    @Test
+    public void testRange() {
+        this.assertMergeMatchesSinglePass(RangeCollectorStage::new);
+    }
+
+    /**
+     * Verify that comparison-based states merge to bitwise-identical results.
+     */
+    @Test
+    public void testMaxIsExact() {
+        final MaxCollectorStage singlePass = new MaxCollectorStage();
+        final MaxCollectorStage first = new MaxCollectorStage();
+        final MaxCollectorStage second = new MaxCollectorStage();
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            singlePass.execute(this.wrap(TIME_SLICES.get(index)));
+            (index < 2 ? first : second).execute(this.wrap(TIME_SLICES.get(index)));
+        }
+        first.merge(second.getPartialState());
+        Assertions.assertThat(first.getResults().get(0))
+            .containsExactly(singlePass.getResults().get(0));
+    }
+
+    /**
+     * Verify the state of a {@link CombiningPipeline} is the combination of the states of its
+     * {@link Collector}s.
+     */
+    @Test
+    public void testCombiningPipeline() {
+        final Supplier<Pipeline> pipelineSupplier = () -> {
+            final MinCollectorStage minCollectorStage = new MinCollectorStage();
+            final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+            final List<Stage> stages = new ArrayList<Stage>() {{
+                add(minCollectorStage);
+                add(meanCollectorStage);
+            }};
+            return new CombiningPipeline(
+                new AbstractIntermediateStage(stages) {
+                    @Override
+                    public void execute(List<Double[]> inputs) {
+                        this.executeNextStages(inputs);
+                    }
+                },
+                new ArrayList<Collector>() {{
+                    add(minCollectorStage);
+                    add(meanCollectorStage);
+                }}
+            );
+        };
+        final Pipeline singlePass = pipelineSupplier.get();
+        final Pipeline first = pipelineSupplier.get();
+        final Pipeline second = pipelineSupplier.get();
+        Assertions.assertThat(singlePass.isMergeable()).isTrue();
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            singlePass.execute(this.wrap(TIME_SLICES.get(index)));
+            (index % 2 == 0 ? first : second).execute(this.wrap(TIME_SLICES.get(index)));
+        }
+        first.merge(PartialStateSerialiser.deserialise(
+            PartialStateSerialiser.serialise(second.getPartialState())
+        ));
+        TestUtils.assertSame(first.getResults(), singlePass.getResults());
+    }
+
+    /**
+     * Verify that merging states of different types fails.
+     */
+    @Test
+    public void testIncompatibleTypes() {
+        final MinCollectorStage minCollectorStage = new MinCollectorStage();
+        final MaxCollectorStage maxCollectorStage = new MaxCollectorStage();
+        maxCollectorStage.execute(this.wrap(TIME_SLICES.get(0)));
+        Assertions.assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> minCollectorStage.merge(maxCollectorStage.getPartialState()))
+            .withMessage(AbstractArrayPartialState.EXCEPTION_MESSAGE_TYPE);
+    }
+
+    /**
+     * Verify that serialisation does not alter a state.
+     */
+    @Test
+    public void testSerialisation() {
+        final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        for (Double[] timeSlice : TIME_SLICES) {
+            meanCollectorStage.execute(this.wrap(timeSlice));
+        }
+        final MeanPartialState partialState = (MeanPartialState) meanCollectorStage.getPartialState();
+        final MeanPartialState restored = (MeanPartialState) PartialStateSerialiser.deserialise(
+            PartialStateSerialiser.serialise(partialState)
+        );
+        Assertions.assertThat(restored.getCount()).isEqualTo(TIME_SLICES.size());
+        Assertions.assertThat(restored.getArrays()).hasSize(1);
+        Assertions.assertThat(restored.getArrays().get(0))
+            .containsExactly(partialState.getArrays().get(0));
+    }
+
+    /**
+     * Split {@link #TIME_SLICES} between two (2) {@code Collectors}, merge the serialised state of
+     * the second into the first, and compare with a single {@code Collector} that received all
+     * time slices.
+     */
+    protected <T extends Stage & MergeableCollector> void assertMergeMatchesSinglePass(Supplier<T> supplier) {
+        final T singlePass = supplier.get();
+        final T first = supplier.get();
+        final T second = supplier.get();
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            singlePass.execute(this.wrap(TIME_SLICES.get(index)));
+            (index < 1 ? first : second).execute(this.wrap(TIME_SLICES.get(index)));
+        }
+        first.merge(PartialStateSerialiser.deserialise(
+            PartialStateSerialiser.serialise(second.getPartialState())
+        ));
+
+        // Merging into an empty Collector replicates the state.
+        final T empty = supplier.get();
+        empty.merge(singlePass.getPartialState());
+
+        final List<Double[]> expected = singlePass.getResults();
+        TestUtils.assertSame(first.getResults(), expected);
+        TestUtils.assertSame(empty.getResults(), expected);
+    }
+
+    protected List<Double[]> wrap(Double[] timeSlice) {
+        final List<Double[]> inputs = new ArrayList<>();
+        inputs.add(timeSlice.clone());
+        return inputs;
+    }
+
+}
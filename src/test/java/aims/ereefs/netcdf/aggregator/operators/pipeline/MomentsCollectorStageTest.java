@@ -0,0 +1,184 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import aims.ereefs.netcdf.TestUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the {@link MomentsCollectorStage} class, verifying each view produces the same results
+ * and {@link PartialState} as the corresponding individual {@link Collector}.
+ *
+ * @author Aaron Smith
+ */
+public class MomentsCollectorStageTest {
+
+    final static protected List<List<Double[]>> TIME_SLICES = new ArrayList<List<Double[]>>() {{
+        add(new ArrayList<Double[]>() {{
+            add(new Double[]{Double.NaN, 1.0, 2.5, -3.3, null});
+            add(new Double[]{0.1, 0.2, 0.3, 0.4, 0.5});
+        }});
+        add(new ArrayList<Double[]>() {{
+            add(new Double[]{4.1, null, -0.2, 7.0, null});
+            add(new Double[]{Double.NaN, 2.2, 0.0, -1.4, 9.5});
+        }});
+        add(new ArrayList<Double[]>() {{
+            add(new Double[]{0.001, 2.0, Double.NaN, 9.9, null});
+            add(new Double[]{-0.1, 1.2, 3.3, 0.4, 0.0});
+        }});
+    }};
+
+    @Test
+    public void testViews() {
+        final MomentsCollectorStage momentsCollectorStage = new MomentsCollectorStage(
+            MomentsCollectorStage.Statistic.SUM,
+            MomentsCollectorStage.Statistic.MIN,
+            MomentsCollectorStage.Statistic.MAX
+        );
+        final SumCollectorStage sumCollectorStage = new SumCollectorStage();
+        final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        final MinCollectorStage minCollectorStage = new MinCollectorStage();
+        final MaxCollectorStage maxCollectorStage = new MaxCollectorStage();
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            final List<Double[]> inputs = TIME_SLICES.get(index);
+            if (index % 2 == 0) {
+                momentsCollectorStage.execute(inputs);
+                sumCollectorStage.execute(inputs);
+                meanCollectorStage.execute(inputs);
+                minCollectorStage.execute(inputs);
+                maxCollectorStage.execute(inputs);
+            } else {
+                final List<float[]> floatInputs = toFloat(inputs);
+                momentsCollectorStage.executeFloat(floatInputs);
+                sumCollectorStage.executeFloat(floatInputs);
+                meanCollectorStage.executeFloat(floatInputs);
+                minCollectorStage.executeFloat(floatInputs);
+                maxCollectorStage.executeFloat(floatInputs);
+            }
+        }
+
+        this.assertSameView(momentsCollectorStage, MomentsCollectorStage.Statistic.SUM, sumCollectorStage);
+        this.assertSameView(momentsCollectorStage, MomentsCollectorStage.Statistic.MEAN, meanCollectorStage);
+        this.assertSameView(momentsCollectorStage, MomentsCollectorStage.Statistic.MIN, minCollectorStage);
+        this.assertSameView(momentsCollectorStage, MomentsCollectorStage.Statistic.MAX, maxCollectorStage);
+    }
+
+    @Test
+    public void testRange() {
+        final MomentsCollectorStage momentsCollectorStage =
+            new MomentsCollectorStage(MomentsCollectorStage.Statistic.RANGE);
+        final MinCollectorStage minCollectorStage = new MinCollectorStage();
+        final MaxCollectorStage maxCollectorStage = new MaxCollectorStage();
+        for (List<Double[]> inputs : TIME_SLICES) {
+            momentsCollectorStage.execute(inputs.subList(0, 1));
+            minCollectorStage.execute(inputs.subList(0, 1));
+            maxCollectorStage.execute(inputs.subList(0, 1));
+        }
+        final List<Double[]> results =
+            momentsCollectorStage.getView(MomentsCollectorStage.Statistic.RANGE).getResults();
+        Assertions.assertThat(results).hasSize(3);
+        TestUtils.assertSame(results.get(0), minCollectorStage.getResults().get(0));
+        TestUtils.assertSame(results.get(1), maxCollectorStage.getResults().get(0));
+        TestUtils.assertSame(results.get(2), new Double[]{4.099, 1.0, 2.7, 13.2, Double.NaN});
+    }
+
+    @Test
+    public void testWeighted() {
+        final MomentsCollectorStage weighted = new MomentsCollectorStage(
+            MomentsCollectorStage.Statistic.MEAN,
+            MomentsCollectorStage.Statistic.RANGE
+        );
+        final MomentsCollectorStage repeated = new MomentsCollectorStage(
+            MomentsCollectorStage.Statistic.MEAN,
+            MomentsCollectorStage.Statistic.RANGE
+        );
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            final List<Double[]> inputs = TIME_SLICES.get(index).subList(0, 1);
+            weighted.executeWeighted(inputs, index + 1);
+            for (int count = 0; count <= index; count++) {
+                repeated.execute(inputs);
+            }
+        }
+        for (MomentsCollectorStage.Statistic statistic : new MomentsCollectorStage.Statistic[]{
+            MomentsCollectorStage.Statistic.MEAN,
+            MomentsCollectorStage.Statistic.RANGE
+        }) {
+            TestUtils.assertSame(
+                weighted.getView(statistic).getResults(),
+                repeated.getView(statistic).getResults()
+            );
+        }
+    }
+
+    /**
+     * Verify the views of a {@link CombiningPipeline} can be merged, as used for the
+     * {@code SPEED} operator.
+     */
+    @Test
+    public void testMerge() {
+        final Pipeline whole = this.makeMinMeanMaxPipeline();
+        final Pipeline first = this.makeMinMeanMaxPipeline();
+        final Pipeline second = this.makeMinMeanMaxPipeline();
+        for (int index = 0; index < TIME_SLICES.size(); index++) {
+            whole.execute(TIME_SLICES.get(index).subList(0, 1));
+            (index < 2 ? first : second).execute(TIME_SLICES.get(index).subList(0, 1));
+        }
+        first.merge(PartialStateSerialiser.deserialise(
+            PartialStateSerialiser.serialise(second.getPartialState())
+        ));
+        TestUtils.assertSame(first.getResults(), whole.getResults());
+    }
+
+    @Test
+    public void testNotTracked() {
+        final MomentsCollectorStage momentsCollectorStage =
+            new MomentsCollectorStage(MomentsCollectorStage.Statistic.MEAN);
+        Assertions.assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MAX))
+            .withMessage(MomentsCollectorStage.EXCEPTION_MESSAGE_NOT_TRACKED);
+    }
+
+    protected Pipeline makeMinMeanMaxPipeline() {
+        final MomentsCollectorStage momentsCollectorStage = new MomentsCollectorStage(
+            MomentsCollectorStage.Statistic.MIN,
+            MomentsCollectorStage.Statistic.MEAN,
+            MomentsCollectorStage.Statistic.MAX
+        );
+        return new CombiningPipeline(
+            momentsCollectorStage,
+            new ArrayList<Collector>() {{
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MIN));
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MEAN));
+                add(momentsCollectorStage.getView(MomentsCollectorStage.Statistic.MAX));
+            }}
+        );
+    }
+
+    /**
+     * Compare the results and serialised {@link PartialState} of the view with those of the
+     * individual {@link Collector}.
+     */
+    protected void assertSameView(MomentsCollectorStage momentsCollectorStage,
+                                  MomentsCollectorStage.Statistic statistic,
+                                  MergeableCollector collector) {
+        final MergeableCollector view = momentsCollectorStage.getView(statistic);
+        TestUtils.assertSame(view.getResults(), collector.getResults());
+        Assertions.assertThat(PartialStateSerialiser.serialise(view.getPartialState()))
+            .isEqualTo(PartialStateSerialiser.serialise(collector.getPartialState()));
+    }
+
+    static protected List<float[]> toFloat(List<Double[]> inputs) {
+        final List<float[]> floatInputs = new ArrayList<>();
+        for (Double[] input : inputs) {
+            final float[] floatInput = new float[input.length];
+            for (int index = 0; index < input.length; index++) {
+                floatInput[index] = (input[index] == null) ? Float.NaN : input[index].floatValue();
+            }
+            floatInputs.add(floatInput);
+        }
+        return floatInputs;
+    }
+
+}
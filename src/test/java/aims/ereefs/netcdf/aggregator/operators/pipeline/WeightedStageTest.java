@@ -0,0 +1,108 @@
+package aims.ereefs.netcdf.aggregator.operators.pipeline;
+
+import aims.ereefs.netcdf.TestUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the {@link WeightedStage} implementations, verifying that a weighted execution
+ * produces the same results as repeating the execution {@code weight} times.
+ *
+ * @author Aaron Smith
+ */
+public class WeightedStageTest {
+
+    /**
+     * Monthly test data for a single variable, with the number of days in each month.
+     */
+    final static protected List<Double[]> MONTHS = new ArrayList<Double[]>() {{
+        add(new Double[]{Double.NaN, 1.0, 2.5, 3.3});
+        add(new Double[]{4.1, null, 0.2, -7.0});
+        add(new Double[]{0.001, 2.0, Double.NaN, 9.9});
+    }};
+    final static protected int[] DAYS_IN_MONTHS = new int[]{31, 28, 31};
+
+    @Test
+    public void testSum() {
+        final SumCollectorStage weighted = new SumCollectorStage();
+        final SumCollectorStage repeated = new SumCollectorStage();
+        this.executeMonths(weighted, repeated);
+        TestUtils.assertSame(weighted.getResults(), repeated.getResults());
+    }
+
+    @Test
+    public void testMean() {
+        final MeanCollectorStage weighted = new MeanCollectorStage();
+        final MeanCollectorStage repeated = new MeanCollectorStage();
+        this.executeMonths(weighted, repeated);
+        TestUtils.assertSame(weighted.getResults(), repeated.getResults());
+        Assertions.assertThat(weighted.accumulationCounter).isEqualTo(90);
+    }
+
+    /**
+     * Verify the single precision path matches the {@code Double} path.
+     */
+    @Test
+    public void testMeanFloat() {
+        final MeanCollectorStage floatStage = new MeanCollectorStage();
+        final MeanCollectorStage doubleStage = new MeanCollectorStage();
+        for (int index = 0; index < MONTHS.size(); index++) {
+            final float[] month = new float[]{1.5f * index, Float.NaN, 2.25f, -index};
+            final List<float[]> inputs = new ArrayList<>();
+            inputs.add(month);
+            floatStage.executeFloatWeighted(inputs, DAYS_IN_MONTHS[index]);
+            doubleStage.executeWeighted(FloatStage.toBoxed(inputs), DAYS_IN_MONTHS[index]);
+        }
+        TestUtils.assertSame(floatStage.getResults(), doubleStage.getResults());
+    }
+
+    /**
+     * Verify a {@link Pipeline} repeats the execution of an initial {@link Stage} that does not
+     * implement {@link WeightedStage}.
+     */
+    @Test
+    public void testPipelineFallback() {
+        final List<Double[]> received = new ArrayList<>();
+        final Stage initialStage = new Stage() {
+            @Override
+            public void execute(List<Double[]> inputs) {
+                received.addAll(inputs);
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+        final Pipeline pipeline = new BasicPipeline(initialStage, () -> received);
+        pipeline.executeWeighted(MONTHS.subList(0, 1), 3);
+        Assertions.assertThat(received).hasSize(3);
+    }
+
+    @Test
+    public void testInvalidWeight() {
+        final MeanCollectorStage meanCollectorStage = new MeanCollectorStage();
+        final Pipeline pipeline = new BasicPipeline(meanCollectorStage, meanCollectorStage);
+        Assertions.assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> pipeline.executeWeighted(MONTHS.subList(0, 1), 0))
+            .withMessage(BasicPipeline.EXCEPTION_MESSAGE_WEIGHT);
+    }
+
+    /**
+     * Execute one {@link Stage} with each month weighted by its days, and another with each month
+     * repeated for its days.
+     */
+    protected void executeMonths(WeightedStage weighted, Stage repeated) {
+        for (int index = 0; index < MONTHS.size(); index++) {
+            final List<Double[]> inputs = new ArrayList<>();
+            inputs.add(MONTHS.get(index));
+            weighted.executeWeighted(inputs, DAYS_IN_MONTHS[index]);
+            for (int day = 0; day < DAYS_IN_MONTHS[index]; day++) {
+                repeated.execute(inputs);
+            }
+        }
+    }
+
+}
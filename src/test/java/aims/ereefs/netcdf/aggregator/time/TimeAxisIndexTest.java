@@ -0,0 +1,69 @@
+package aims.ereefs.netcdf.aggregator.time;
+
+import aims.ereefs.netcdf.aggregator.AggregationPeriods;
+import aims.ereefs.netcdf.config.SeasonConfig;
+import aims.ereefs.netcdf.util.DateUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import ucar.nc2.units.DateUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the {@link TimeAxisIndex} class, verifying the indexed aggregated times match those
+ * calculated for individual time values by {@link TimeAggregatorHelper#aggregateTime(double)}.
+ *
+ * @author Aaron Smith
+ */
+public class TimeAxisIndexTest {
+
+    @Test
+    public void testMonthly() {
+        this.assertMatchesAggregateTime(AggregationPeriods.MONTHLY, new ArrayList<>());
+    }
+
+    @Test
+    public void testAnnual() {
+        this.assertMatchesAggregateTime(AggregationPeriods.ANNUAL, new ArrayList<>());
+    }
+
+    @Test
+    public void testSeasonal() {
+        final List<SeasonConfig> seasonConfigs = new ArrayList<SeasonConfig>() {{
+            add(SeasonConfig.make("wet", "11-01"));
+            add(SeasonConfig.make("dry", "05-01"));
+        }};
+        this.assertMatchesAggregateTime(AggregationPeriods.SEASONAL, seasonConfigs);
+    }
+
+    @Test
+    public void testFindFloorIndex() {
+        final long[] sorted = new long[]{10, 20, 30};
+        Assertions.assertThat(TimeAxisIndex.findFloorIndex(sorted, 5)).isEqualTo(0);
+        Assertions.assertThat(TimeAxisIndex.findFloorIndex(sorted, 10)).isEqualTo(0);
+        Assertions.assertThat(TimeAxisIndex.findFloorIndex(sorted, 29)).isEqualTo(1);
+        Assertions.assertThat(TimeAxisIndex.findFloorIndex(sorted, 30)).isEqualTo(2);
+        Assertions.assertThat(TimeAxisIndex.findFloorIndex(sorted, 99)).isEqualTo(2);
+    }
+
+    /**
+     * Build a {@link TimeAxisIndex} over two years of hourly test data and compare each aggregated
+     * time with {@link TimeAggregatorHelper#aggregateTime(double)}.
+     */
+    protected void assertMatchesAggregateTime(AggregationPeriods aggregationPeriod,
+                                              List<SeasonConfig> seasonConfigs) {
+        final DateUnit dateUnit = DateUtils.getDateUnit();
+        final AbstractTimeAggregatorHelper helper = (AbstractTimeAggregatorHelper)
+            TimeAggregatorHelperFactory.make(aggregationPeriod, seasonConfigs, dateUnit);
+        final Double[] timeIndexes = DateUtils.makeTestData(DateUtils.getStartTime(), 730);
+        final TimeAxisIndex timeAxisIndex = helper.buildTimeAxisIndex(timeIndexes, timeIndexes.length);
+        Assertions.assertThat(timeAxisIndex.size()).isEqualTo(timeIndexes.length);
+        for (int index = 0; index < timeIndexes.length; index++) {
+            Assertions.assertThat(timeAxisIndex.getAggregatedTime(index))
+                .as("index: %s", index)
+                .isEqualTo(helper.aggregateTime(timeIndexes[index]));
+        }
+    }
+
+}
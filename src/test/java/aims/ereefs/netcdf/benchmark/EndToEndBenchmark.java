@@ -0,0 +1,495 @@
+package aims.ereefs.netcdf.benchmark;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.ApplicationContextBuilder;
+import aims.ereefs.netcdf.aggregator.AggregationPeriods;
+import aims.ereefs.netcdf.task.aggregation.AggregationTaskExecutor;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.NcAggregateProductDefinitionGenerator;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.netcdf.CurvilinearNetcdfFileGenerator;
+import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import io.prometheus.client.CollectorRegistry;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * End-to-end benchmark harness for the aggregation path. For each {@link Shape} in a matrix of
+ * product shapes, this class:
+ *
+ * <ol>
+ * <li>generates synthetic curvilinear input files using
+ * {@link CurvilinearNetcdfFileGenerator},</li>
+ * <li>configures the application for a file-based database ({@code DB_TYPE=file}) rooted in a
+ * temporary directory, and persists the {@code Metadata} for each input file and the
+ * {@code Task} via the file-based {@code DAO}s,</li>
+ * <li>executes the {@link AggregationTaskExecutor} end to end using {@code file:} URLs for both
+ * inputs and outputs, and</li>
+ * <li>records wall time, bytes read and written (from the application's instrumentation) and
+ * peak heap usage.</li>
+ * </ol>
+ * <p>
+ * Results are logged as a table and written as CSV to {@code benchmark-results.csv} in the root
+ * directory of the run. The harness can be executed from the command-line (see
+ * {@link #main(String[])}) with an optional list of {@link Shape} names to execute.
+ * <p>
+ * Note that the {@code ProductDefinition} is bound directly to the {@link ApplicationContext}, in
+ * the same way as the {@code RegridOperationModeExecutor}, rather than being round-tripped through
+ * the file-based {@code ProductDefinitionDao}.
+ *
+ * @author Aaron Smith
+ */
+public class EndToEndBenchmark {
+
+    static protected Logger logger = LoggerFactory.getLogger(EndToEndBenchmark.class);
+
+    /**
+     * Identifiers used when building the {@code Product} and {@code Task}.
+     */
+    static final protected String PRODUCT_ID = "benchmark__product";
+    static final protected String INPUT_ID = "benchmark__input";
+
+    /**
+     * Names of the instrumentation samples used to measure bytes read and written.
+     */
+    static final protected String READ_BYTES_SAMPLE_NAME = "ncaggregate_dataset_read_bytes";
+    static final protected String WRITE_BYTES_SAMPLE_NAME = "ncaggregate_dataset_write_bytes";
+
+    /**
+     * Date of the first time step of the first input file.
+     */
+    static final protected LocalDateTime START_DATE = LocalDateTime.of(2015, 1, 1, 0, 0);
+
+    /**
+     * The default matrix of product shapes.
+     */
+    static final public List<Shape> DEFAULT_SHAPES = new ArrayList<Shape>() {{
+        add(new Shape("small-hourly-daily", 60, 40,
+            new double[]{-1.5, -5.55, -12.75, -17.75, -35, -49}, 2, 1,
+            ChronoUnit.HOURS, 24, 2, AggregationPeriods.DAILY));
+        add(new Shape("medium-hourly-daily", 180, 120,
+            new double[]{-1.5, -3, -5.55, -8.8, -12.75, -17.75, -23.75, -35, -49, -73, -103},
+            4, 2, ChronoUnit.HOURS, 24, 2, AggregationPeriods.DAILY));
+        add(new Shape("large-hourly-daily", 510, 270,
+            new double[]{-1.5, -3, -5.55, -8.8, -12.75, -17.75, -23.75, -35, -49, -73, -103,
+                -145, -200, -315, -460, -640, -1000},
+            4, 3, ChronoUnit.HOURS, 24, 1, AggregationPeriods.DAILY));
+        add(new Shape("small-daily-monthly", 60, 40,
+            new double[]{-1.5, -5.55, -12.75, -17.75, -35, -49}, 2, 1,
+            ChronoUnit.DAYS, 31, 1, AggregationPeriods.MONTHLY));
+        add(new Shape("medium-daily-monthly", 180, 120,
+            new double[]{-1.5, -3, -5.55, -8.8, -12.75, -17.75, -23.75, -35, -49, -73, -103},
+            4, 2, ChronoUnit.DAYS, 31, 1, AggregationPeriods.MONTHLY));
+    }};
+
+    /**
+     * Execute the benchmark from the command-line. If no arguments are specified, all
+     * {@link #DEFAULT_SHAPES} are executed, otherwise only those shapes whose names are specified.
+     */
+    static public void main(String[] args) {
+        final List<Shape> shapes = new ArrayList<>();
+        for (Shape shape : DEFAULT_SHAPES) {
+            boolean isSelected = args.length == 0;
+            for (String arg : args) {
+                isSelected = isSelected || arg.equalsIgnoreCase(shape.getName());
+            }
+            if (isSelected) {
+                shapes.add(shape);
+            }
+        }
+        if (shapes.isEmpty()) {
+            throw new RuntimeException("No matching shapes to execute.");
+        }
+        new EndToEndBenchmark(new File(TempDirectoryInitialiser.initialise())).run(shapes);
+    }
+
+    /**
+     * The directory in which each {@link Shape} is executed.
+     */
+    protected File rootPath;
+
+    /**
+     * Constructor to cache the {@link #rootPath}.
+     */
+    public EndToEndBenchmark(File rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * Execute each of the specified {@code shapes}, returning the corresponding {@link Result}s.
+     */
+    public List<Result> run(List<Shape> shapes) {
+        final List<Result> results = new ArrayList<>();
+        for (Shape shape : shapes) {
+            results.add(this.run(shape));
+        }
+
+        // Report the results.
+        logger.info(Result.HEADER);
+        for (Result result : results) {
+            logger.info(result.toString());
+        }
+        final File resultsFile = new File(this.rootPath, "benchmark-results.csv");
+        try (PrintWriter writer = new PrintWriter(new FileWriter(resultsFile))) {
+            writer.println(Result.HEADER);
+            for (Result result : results) {
+                writer.println(result.toString());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write benchmark results.", e);
+        }
+        logger.info("Results written to \"" + resultsFile.getAbsolutePath() + "\".");
+
+        return results;
+    }
+
+    /**
+     * Execute a single {@link Shape}.
+     */
+    public Result run(Shape shape) {
+        logger.info("Shape: " + shape.getName());
+
+        // Prepare the directory structure for the run.
+        final File shapePath = new File(this.rootPath, shape.getName());
+        final File inputPath = new File(shapePath, "inputs");
+        final File outputPath = new File(shapePath, "outputs");
+        final File dbPath = new File(shapePath, "db");
+        final File tempPath = new File(shapePath, "temp");
+        inputPath.mkdirs();
+        outputPath.mkdirs();
+        dbPath.mkdirs();
+        tempPath.mkdirs();
+
+        // Configure the environment for a file-based database.
+        EnvironmentVariableReader.clearInstance();
+        EnvironmentVariableReader.getInstance(new HashMap<String, String>() {{
+            put("DB_TYPE", "file");
+            put("DB_PATH", dbPath.getAbsolutePath());
+            put("MAX_FILE_CACHE_SIZE_GB", "40");
+        }});
+        try {
+            final ApplicationContext applicationContext = new ApplicationContext("benchmark");
+            ApplicationContextBuilder.populateDao(applicationContext);
+
+            // Generate the input files, and persist the Metadata for each. Each input file
+            // corresponds to a single TimeInstant of the Task.
+            final List<String> variableNames = CurvilinearNetcdfFileGenerator.getVariableNames(
+                shape.getDepthVariableCount(),
+                shape.getSurfaceVariableCount()
+            );
+            final List<NcAggregateTask.TimeInstant> timeInstants = new ArrayList<>();
+            long inputBytes = 0;
+            for (int fileIndex = 0; fileIndex < shape.getFileCount(); fileIndex++) {
+                final LocalDateTime fileStartDate = START_DATE.plus(
+                    (long) fileIndex * shape.getTimeStepsPerFile(),
+                    shape.getTimeIncrement()
+                );
+                final String datasetId = "input-" + fileIndex;
+                final File inputFile;
+                final NetCDFMetadataBean metadataBean;
+                try {
+                    inputFile = CurvilinearNetcdfFileGenerator.generate(
+                        new File(inputPath, datasetId + ".nc"),
+                        fileStartDate,
+                        shape.getTimeIncrement(),
+                        shape.getTimeStepsPerFile(),
+                        shape.getJSize(),
+                        shape.getISize(),
+                        shape.getDepths(),
+                        shape.getDepthVariableCount(),
+                        shape.getSurfaceVariableCount()
+                    );
+                    metadataBean = NetCDFMetadataBean.create(
+                        INPUT_ID,
+                        datasetId,
+                        new URI("file:" + inputFile.getAbsolutePath()),
+                        inputFile,
+                        DateTime.now().getMillis()
+                    );
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to generate input file \"" + datasetId + "\".", e);
+                }
+                inputBytes += inputFile.length();
+                applicationContext.getMetadataDao().persist(metadataBean.toJSON());
+
+                final String metadataId = metadataBean.getId();
+                final int endIndex = shape.getTimeStepsPerFile() - 1;
+                timeInstants.add(
+                    new NcAggregateTask.TimeInstant(
+                        CurvilinearNetcdfFileGenerator.toTimeValue(fileStartDate),
+                        new ArrayList<NcAggregateTask.Input>() {{
+                            add(
+                                new NcAggregateTask.Input(
+                                    INPUT_ID,
+                                    new ArrayList<NcAggregateTask.FileIndexBounds>() {{
+                                        add(new NcAggregateTask.FileIndexBounds(metadataId, 0, endIndex));
+                                    }}
+                                )
+                            );
+                        }}
+                    )
+                );
+            }
+
+            // Define the Product and the Task.
+            final String[] variableNamesArray = variableNames.toArray(new String[0]);
+            final NcAggregateProductDefinition productDefinition = NcAggregateProductDefinition.make(
+                PRODUCT_ID,
+                "Australia/Brisbane",
+                new ProductDefinition.Filters(new ProductDefinition.DateRange[0]),
+                new NcAggregateProductDefinition.NetCDFInput[]{
+                    shape.getTimeIncrement().equals(ChronoUnit.HOURS) ?
+                        NcAggregateProductDefinitionGenerator.makeHourlyDailyInput(INPUT_ID, variableNamesArray) :
+                        NcAggregateProductDefinitionGenerator.makeDailyMonthlyInput(INPUT_ID, variableNamesArray)
+                },
+                new ArrayList<>(),
+                NcAggregateProductDefinitionGenerator.makeAggregationAction(
+                    shape.getAggregationPeriod(),
+                    variableNamesArray,
+                    new double[0]
+                ),
+                shape.getAggregationPeriod().equals(AggregationPeriods.DAILY) ?
+                    NcAggregateProductDefinitionGenerator.makeDailyOutputs() :
+                    NcAggregateProductDefinitionGenerator.makeMonthlyOutputs()
+            );
+            final NcAggregateTask task = new NcAggregateTask(
+                "benchmark",
+                PRODUCT_ID,
+                PRODUCT_ID + "/" + shape.getName(),
+                "file:" + outputPath.getAbsolutePath() + File.separator + shape.getName(),
+                timeInstants
+            );
+            applicationContext.getTaskDao().persist(task);
+            applicationContext.setTask(task);
+            applicationContext.setProductDefinition(productDefinition);
+            applicationContext.setTempPathname(tempPath.getAbsolutePath() + File.separator);
+
+            // Measure.
+            final double readBytesBefore = getSampleValue(READ_BYTES_SAMPLE_NAME);
+            final double writeBytesBefore = getSampleValue(WRITE_BYTES_SAMPLE_NAME);
+            System.gc();
+            resetPeakHeapUsage();
+            final long startNanos = System.nanoTime();
+
+            ApplicationContextBuilder.populateApplicationContext(applicationContext, task, productDefinition);
+            new AggregationTaskExecutor().execute(task, applicationContext);
+
+            final long wallTimeMillis = (System.nanoTime() - startNanos) / 1000000;
+            final Result result = new Result(
+                shape,
+                wallTimeMillis,
+                inputBytes,
+                (long) (getSampleValue(READ_BYTES_SAMPLE_NAME) - readBytesBefore),
+                (long) (getSampleValue(WRITE_BYTES_SAMPLE_NAME) - writeBytesBefore),
+                getPeakHeapUsage()
+            );
+            logger.info(result.toString());
+            return result;
+
+        } finally {
+            EnvironmentVariableReader.clearInstance();
+        }
+    }
+
+    /**
+     * Retrieve the current value of the named sample from the default registry, or {@code 0} if
+     * the sample has not been registered.
+     */
+    static protected double getSampleValue(String name) {
+        final Double value = CollectorRegistry.defaultRegistry.getSampleValue(name);
+        return value == null ? 0.0 : value;
+    }
+
+    /**
+     * Reset the peak usage of every heap memory pool.
+     */
+    static protected void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType().equals(MemoryType.HEAP)) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum the peak usage of every heap memory pool since the last
+     * {@link #resetPeakHeapUsage() reset}.
+     */
+    static protected long getPeakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType().equals(MemoryType.HEAP)) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Value object describing the shape of a product to benchmark.
+     */
+    static public class Shape {
+
+        protected String name;
+        protected int jSize;
+        protected int iSize;
+        protected double[] depths;
+        protected int depthVariableCount;
+        protected int surfaceVariableCount;
+        protected ChronoUnit timeIncrement;
+        protected int timeStepsPerFile;
+        protected int fileCount;
+        protected AggregationPeriods aggregationPeriod;
+
+        public Shape(String name,
+                     int jSize,
+                     int iSize,
+                     double[] depths,
+                     int depthVariableCount,
+                     int surfaceVariableCount,
+                     ChronoUnit timeIncrement,
+                     int timeStepsPerFile,
+                     int fileCount,
+                     AggregationPeriods aggregationPeriod) {
+            this.name = name;
+            this.jSize = jSize;
+            this.iSize = iSize;
+            this.depths = depths;
+            this.depthVariableCount = depthVariableCount;
+            this.surfaceVariableCount = surfaceVariableCount;
+            this.timeIncrement = timeIncrement;
+            this.timeStepsPerFile = timeStepsPerFile;
+            this.fileCount = fileCount;
+            this.aggregationPeriod = aggregationPeriod;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getJSize() {
+            return this.jSize;
+        }
+
+        public int getISize() {
+            return this.iSize;
+        }
+
+        public double[] getDepths() {
+            return this.depths;
+        }
+
+        public int getDepthVariableCount() {
+            return this.depthVariableCount;
+        }
+
+        public int getSurfaceVariableCount() {
+            return this.surfaceVariableCount;
+        }
+
+        public ChronoUnit getTimeIncrement() {
+            return this.timeIncrement;
+        }
+
+        public int getTimeStepsPerFile() {
+            return this.timeStepsPerFile;
+        }
+
+        public int getFileCount() {
+            return this.fileCount;
+        }
+
+        public AggregationPeriods getAggregationPeriod() {
+            return this.aggregationPeriod;
+        }
+
+    }
+
+    /**
+     * Value object capturing the measurements for a single {@link Shape}.
+     */
+    static public class Result {
+
+        static final public String HEADER = "shape,cells,depths,variables,timeSteps," +
+            "wallTimeMillis,inputFileBytes,bytesRead,bytesWritten,peakHeapBytes";
+
+        protected Shape shape;
+        protected long wallTimeMillis;
+        protected long inputFileBytes;
+        protected long bytesRead;
+        protected long bytesWritten;
+        protected long peakHeapBytes;
+
+        public Result(Shape shape,
+                      long wallTimeMillis,
+                      long inputFileBytes,
+                      long bytesRead,
+                      long bytesWritten,
+                      long peakHeapBytes) {
+            this.shape = shape;
+            this.wallTimeMillis = wallTimeMillis;
+            this.inputFileBytes = inputFileBytes;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public Shape getShape() {
+            return this.shape;
+        }
+
+        public long getWallTimeMillis() {
+            return this.wallTimeMillis;
+        }
+
+        public long getInputFileBytes() {
+            return this.inputFileBytes;
+        }
+
+        public long getBytesRead() {
+            return this.bytesRead;
+        }
+
+        public long getBytesWritten() {
+            return this.bytesWritten;
+        }
+
+        public long getPeakHeapBytes() {
+            return this.peakHeapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return this.shape.getName() + "," +
+                (this.shape.getJSize() * this.shape.getISize()) + "," +
+                this.shape.getDepths().length + "," +
+                (this.shape.getDepthVariableCount() + this.shape.getSurfaceVariableCount()) + "," +
+                (this.shape.getTimeStepsPerFile() * this.shape.getFileCount()) + "," +
+                this.wallTimeMillis + "," +
+                this.inputFileBytes + "," +
+                this.bytesRead + "," +
+                this.bytesWritten + "," +
+                this.peakHeapBytes;
+        }
+
+    }
+
+}
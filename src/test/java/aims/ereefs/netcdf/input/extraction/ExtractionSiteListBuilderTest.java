@@ -1,12 +1,11 @@
 package aims.ereefs.netcdf.input.extraction;
 
-import aims.ereefs.netcdf.regrid.Coordinate;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.regrid.IndexWithDistance;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Tests for the {@link ExtractionSiteListBuilder} class.
@@ -18,15 +17,14 @@ public class ExtractionSiteListBuilderTest {
     @Test
     public void testNearestNeighbours() {
 
-        // Build the coordinate map.
-        final Map<Integer, Coordinate> indexToCoordinateMap = CoordinateMapBuilder.build(
-            TestData.latitudeArray, TestData.longitudeArray, false);
+        // Build the grid geometry.
+        final GridGeometry gridGeometry = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
 
         // Build the list of extraction sites.
         final List<ExtractionSite> extractionSiteList =
             ExtractionSiteListBuilder.build(
                 TestData.EXTRACT_SITES_JSON,
-                indexToCoordinateMap,
+                gridGeometry,
                 4
             );
 
@@ -0,0 +1,142 @@
+package aims.ereefs.netcdf.input.extraction;
+
+import aims.ereefs.netcdf.regrid.IndexWithDistance;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.netcdf.CurvilinearNetcdfFileGenerator;
+import aims.ereefs.netcdf.util.netcdf.ReadUtils;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDataset;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the {@link SiteExtractionPlan} class.
+ *
+ * @author Aaron Smith
+ */
+public class SiteExtractionPlanTest {
+
+    final static protected int ROW_COUNT = 20;
+    final static protected int COLUMN_COUNT = 30;
+
+    /**
+     * Build a site whose neighbours are the specified (row, column) cells.
+     */
+    protected ExtractionSite makeSite(String id, int[]... cells) {
+        final List<IndexWithDistance> neighbours = new ArrayList<>();
+        for (int[] cell : cells) {
+            neighbours.add(new IndexWithDistance(cell[0] * COLUMN_COUNT + cell[1], 1.0 + neighbours.size()));
+        }
+        return new ExtractionSite(id, id, 0.0, 0.0, neighbours);
+    }
+
+    /**
+     * Two (2) nearby sites share a box, while a distant site has its own box and a site without
+     * neighbours has none.
+     */
+    protected List<ExtractionSite> makeSites() {
+        return new ArrayList<ExtractionSite>() {{
+            add(makeSite("a", new int[]{1, 1}, new int[]{1, 2}, new int[]{2, 1}));
+            add(makeSite("b", new int[]{2, 3}, new int[]{3, 3}));
+            add(makeSite("c", new int[]{19, 29}));
+            add(makeSite("d"));
+        }};
+    }
+
+    /**
+     * Verify nearby sites are merged into a single box, and the neighbours are remapped to the
+     * compact layer.
+     */
+    @Test
+    public void testMake() {
+        final SiteExtractionPlan siteExtractionPlan = SiteExtractionPlan.make(this.makeSites(), ROW_COUNT, COLUMN_COUNT);
+
+        // Box (1, 1) to (3, 3) for sites "a" and "b", and (19, 29) for site "c".
+        Assertions.assertThat(siteExtractionPlan.getBoxes()).hasSize(2);
+        Assertions.assertThat(siteExtractionPlan.getCompactLayerSize()).isEqualTo(9 + 1);
+
+        final List<ExtractionSite> extractionSites = siteExtractionPlan.getExtractionSites();
+        Assertions.assertThat(extractionSites).hasSize(4);
+        Assertions.assertThat(extractionSites.get(0).getNeighbours().get(0).getIndex()).isEqualTo(0);
+        Assertions.assertThat(extractionSites.get(0).getNeighbours().get(1).getIndex()).isEqualTo(1);
+        Assertions.assertThat(extractionSites.get(0).getNeighbours().get(2).getIndex()).isEqualTo(3);
+        Assertions.assertThat(extractionSites.get(1).getNeighbours().get(0).getIndex()).isEqualTo(5);
+        Assertions.assertThat(extractionSites.get(1).getNeighbours().get(1).getIndex()).isEqualTo(8);
+        Assertions.assertThat(extractionSites.get(2).getNeighbours().get(0).getIndex()).isEqualTo(9);
+        Assertions.assertThat(extractionSites.get(3).getNeighbours()).hasSize(0);
+
+        // Distances, and therefore weights, are unchanged.
+        Assertions.assertThat(extractionSites.get(0).getNeighbours().get(2).getDistance()).isEqualTo(3.0);
+    }
+
+    /**
+     * Verify the values read for each neighbour match those of a full time slice, for variables
+     * with and without a depth dimension.
+     */
+    @Test
+    public void testRead() throws Exception {
+        final File file = CurvilinearNetcdfFileGenerator.generate(
+            new File(TempDirectoryInitialiser.initialise() + "site-extraction-plan-test.nc"),
+            LocalDateTime.of(2020, 1, 1, 0, 0),
+            ChronoUnit.HOURS,
+            2,
+            ROW_COUNT,
+            COLUMN_COUNT,
+            new double[]{-1.0, -5.0, -10.0},
+            1,
+            1
+        );
+        final List<ExtractionSite> originalSites = this.makeSites();
+        final SiteExtractionPlan siteExtractionPlan = SiteExtractionPlan.make(originalSites, ROW_COUNT, COLUMN_COUNT);
+        final int layerSize = ROW_COUNT * COLUMN_COUNT;
+
+        try (NetcdfDataset dataset = NetcdfDataset.openDataset(file.getAbsolutePath())) {
+
+            // Depth variable, with the depths out of order.
+            final Variable depthVariable = dataset.findVariable(CurvilinearNetcdfFileGenerator.DEPTH_VARIABLE_NAMES[0]);
+            final int[] depthIndexes = new int[]{2, 0};
+            final int[] shape = depthVariable.getShape();
+            shape[0] = 1;
+            final Double[] fullArray = ReadUtils.readSingleTimeSlice(depthVariable, shape, 0, 1, 1, depthIndexes);
+            final Double[] compactArray = siteExtractionPlan.read(depthVariable, 0, 1, 1, depthIndexes);
+            Assertions.assertThat(compactArray.length)
+                .isEqualTo(depthIndexes.length * siteExtractionPlan.getCompactLayerSize());
+            for (int depthIndex = 0; depthIndex < depthIndexes.length; depthIndex++) {
+                for (int siteIndex = 0; siteIndex < originalSites.size(); siteIndex++) {
+                    final List<IndexWithDistance> originalNeighbours = originalSites.get(siteIndex).getNeighbours();
+                    final List<IndexWithDistance> compactNeighbours =
+                        siteExtractionPlan.getExtractionSites().get(siteIndex).getNeighbours();
+                    for (int index = 0; index < originalNeighbours.size(); index++) {
+                        Assertions.assertThat(compactArray[depthIndex * siteExtractionPlan.getCompactLayerSize() +
+                                compactNeighbours.get(index).getIndex()])
+                            .isEqualTo(fullArray[depthIndex * layerSize + originalNeighbours.get(index).getIndex()]);
+                    }
+                }
+            }
+
+            // Surface variable.
+            final Variable surfaceVariable = dataset.findVariable(CurvilinearNetcdfFileGenerator.SURFACE_VARIABLE_NAMES[0]);
+            final int[] surfaceShape = surfaceVariable.getShape();
+            surfaceShape[0] = 1;
+            final Double[] fullSurfaceArray = ReadUtils.readSingleTimeSlice(surfaceVariable, surfaceShape, 1);
+            final Double[] compactSurfaceArray = siteExtractionPlan.read(surfaceVariable, 0, -1, 1, null);
+            Assertions.assertThat(compactSurfaceArray.length).isEqualTo(siteExtractionPlan.getCompactLayerSize());
+            for (int siteIndex = 0; siteIndex < originalSites.size(); siteIndex++) {
+                final List<IndexWithDistance> originalNeighbours = originalSites.get(siteIndex).getNeighbours();
+                final List<IndexWithDistance> compactNeighbours =
+                    siteExtractionPlan.getExtractionSites().get(siteIndex).getNeighbours();
+                for (int index = 0; index < originalNeighbours.size(); index++) {
+                    Assertions.assertThat(compactSurfaceArray[compactNeighbours.get(index).getIndex()])
+                        .isEqualTo(fullSurfaceArray[originalNeighbours.get(index).getIndex()]);
+                }
+            }
+        }
+    }
+
+}
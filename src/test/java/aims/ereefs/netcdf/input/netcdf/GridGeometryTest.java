@@ -0,0 +1,137 @@
+package aims.ereefs.netcdf.input.netcdf;
+
+import aims.ereefs.netcdf.input.extraction.TestData;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests for the {@link GridGeometry} class.
+ *
+ * @author Aaron Smith
+ */
+public class GridGeometryTest {
+
+    /**
+     * Verify a curvilinear grid, where there is a coordinate for every cell.
+     */
+    @Test
+    public void testCurvilinear() {
+        final GridGeometry gridGeometry = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
+
+        Assertions.assertThat(gridGeometry.isRectilinear()).isFalse();
+        Assertions.assertThat(gridGeometry.getShape())
+            .containsExactly(TestData.LATITUDE_COUNT, TestData.LONGITUDE_COUNT);
+        Assertions.assertThat(gridGeometry.getCellCount())
+            .isEqualTo(TestData.LATITUDE_COUNT * TestData.LONGITUDE_COUNT);
+        for (int index = 0; index < gridGeometry.getCellCount(); index++) {
+            Assertions.assertThat(gridGeometry.getLatitude(index))
+                .isEqualTo(TestData.latitudeArray.getDouble(index));
+            Assertions.assertThat(gridGeometry.getLongitude(index))
+                .isEqualTo(TestData.longitudeArray.getDouble(index));
+            Assertions.assertThat(gridGeometry.isWet(index)).isTrue();
+        }
+    }
+
+    /**
+     * Verify a rectilinear grid, where the cells are the product of the axes, and that a cell
+     * with an invalid coordinate is not wet.
+     */
+    @Test
+    public void testRectilinear() {
+        final Array latitudeArray = Array.factory(DataType.DOUBLE, new int[]{2}, new double[]{-10.0, -10.5});
+        final Array longitudeArray = Array.factory(DataType.DOUBLE, new int[]{3}, new double[]{145.0, Double.NaN, 146.0});
+        final GridGeometry gridGeometry = GridGeometry.make(latitudeArray, longitudeArray);
+
+        Assertions.assertThat(gridGeometry.isRectilinear()).isTrue();
+        Assertions.assertThat(gridGeometry.getLatitudeCount()).isEqualTo(2);
+        Assertions.assertThat(gridGeometry.getLongitudeCount()).isEqualTo(3);
+        Assertions.assertThat(gridGeometry.getCellCount()).isEqualTo(6);
+        Assertions.assertThat(gridGeometry.isWet(0)).isTrue();
+        Assertions.assertThat(gridGeometry.isWet(1)).isFalse();
+        Assertions.assertThat(gridGeometry.isWet(4)).isFalse();
+        Assertions.assertThat(gridGeometry.isWet(5)).isTrue();
+        Assertions.assertThat(gridGeometry.getLongitudeArray().getShape()).containsExactly(3);
+    }
+
+    /**
+     * Verify the coordinates of each cell of a curvilinear grid. Note that the grid itself is NOT
+     * curvilinear, but it is defined as a curvilinear grid would be.
+     */
+    @Test
+    public void testCellCoordinatesCurvilinear() {
+
+        // Define the expected results.
+        final List<Double[]> results = new ArrayList<Double[]>();
+        for (int lonCount = 0; lonCount < TestData.LONGITUDE_COUNT; lonCount++) {
+            for (int latCount = 0; latCount < TestData.LATITUDE_COUNT; latCount++) {
+                results.add(
+                    new Double[]{
+                        (double) TestData.LONGITUDE_START + lonCount * TestData.RESOLUTION,
+                        (double) TestData.LATITUDE_START + latCount * TestData.RESOLUTION
+                    }
+                );
+            }
+        }
+
+        final GridGeometry gridGeometry = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
+
+        // Verify the results.
+        Assertions.assertThat(gridGeometry.getCellCount()).isEqualTo(results.size());
+        for (int index = 0; index < gridGeometry.getCellCount(); index++) {
+            final double longitude = gridGeometry.getCellLongitude(index);
+            final double latitude = gridGeometry.getCellLatitude(index);
+            final Iterator<Double[]> resultsIterator = results.iterator();
+            while (resultsIterator.hasNext()) {
+                final Double[] result = resultsIterator.next();
+                if ((result[0] == longitude) && (result[1] == latitude)) {
+                    resultsIterator.remove();
+                }
+            }
+        }
+        Assertions.assertThat(results).isEmpty();
+
+    }
+
+    /**
+     * Verify the coordinates of each cell of a rectilinear grid are ordered by latitude and then
+     * longitude.
+     */
+    @Test
+    public void testCellCoordinatesRectilinear() {
+        final Array latitudeArray = Array.factory(DataType.DOUBLE, new int[]{2}, new double[]{-10.0, -10.5});
+        final Array longitudeArray = Array.factory(DataType.DOUBLE, new int[]{3}, new double[]{145.0, Double.NaN, 146.0});
+        final GridGeometry gridGeometry = GridGeometry.make(latitudeArray, longitudeArray);
+
+        Assertions.assertThat(gridGeometry.getCellLatitude(0)).isEqualTo(-10.0);
+        Assertions.assertThat(gridGeometry.getCellLongitude(0)).isEqualTo(145.0);
+        Assertions.assertThat(gridGeometry.getCellLatitude(2)).isEqualTo(-10.0);
+        Assertions.assertThat(gridGeometry.getCellLongitude(2)).isEqualTo(146.0);
+        Assertions.assertThat(gridGeometry.getCellLatitude(4)).isEqualTo(-10.5);
+        Assertions.assertThat(gridGeometry.getCellLongitude(4)).isNaN();
+        Assertions.assertThat(gridGeometry.getCellLatitude(5)).isEqualTo(-10.5);
+        Assertions.assertThat(gridGeometry.getCellLongitude(5)).isEqualTo(146.0);
+    }
+
+    /**
+     * Verify the content hash depends on the coordinates only.
+     */
+    @Test
+    public void testContentHash() {
+        final GridGeometry gridGeometry1 = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
+        final GridGeometry gridGeometry2 = GridGeometry.make(
+            gridGeometry1.getLatitudeArray(),
+            gridGeometry1.getLongitudeArray()
+        );
+        final GridGeometry gridGeometry3 = GridGeometry.make(TestData.longitudeArray, TestData.latitudeArray);
+
+        Assertions.assertThat(gridGeometry1.getContentHash()).isEqualTo(gridGeometry2.getContentHash());
+        Assertions.assertThat(gridGeometry1.getContentHash()).isNotEqualTo(gridGeometry3.getContentHash());
+    }
+
+}
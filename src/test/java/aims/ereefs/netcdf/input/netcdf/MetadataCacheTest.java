@@ -0,0 +1,113 @@
+package aims.ereefs.netcdf.input.netcdf;
+
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import au.gov.aims.ereefs.pojo.metadata.Metadata;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the {@link MetadataCache} class.
+ *
+ * @author Aaron Smith
+ */
+public class MetadataCacheTest {
+
+    /**
+     * File-based {@link MetadataDao} that counts the number of times each {@code metadataId} is
+     * retrieved.
+     */
+    static protected class CountingMetadataDao extends MetadataDaoFileImpl {
+
+        protected Map<String, AtomicInteger> countById = new ConcurrentHashMap<>();
+
+        public CountingMetadataDao(String path) {
+            super(path);
+        }
+
+        @Override
+        public Metadata getById(String id) {
+            this.countById.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+            return super.getById(id);
+        }
+
+    }
+
+    protected CountingMetadataDao makeMetadataDao() {
+        return new CountingMetadataDao(
+            TempDirectoryInitialiser.initialise() + "metadata-cache-test" + File.separator
+        );
+    }
+
+    /**
+     * Verify each distinct {@code metadataId} is retrieved once, even when referenced by several
+     * inputs, and that retrieval is not repeated when used.
+     */
+    @Test
+    public void testPrefetch() {
+        final CountingMetadataDao metadataDao = this.makeMetadataDao();
+        final Map<String, List<String>> datasetMetadataIdsByInputIdMap = new HashMap<>();
+        datasetMetadataIdsByInputIdMap.put("input1", new ArrayList<String>() {{
+            add("a");
+            add("b");
+        }});
+        datasetMetadataIdsByInputIdMap.put("input2", new ArrayList<String>() {{
+            add("b");
+            add("c");
+        }});
+
+        final MetadataCache metadataCache = MetadataCache.prefetch(metadataDao, datasetMetadataIdsByInputIdMap);
+        Assertions.assertThat(metadataCache.size()).isEqualTo(3);
+        for (String metadataId : new String[]{"a", "b", "c"}) {
+            Assertions.assertThat(metadataCache.contains(metadataId)).isTrue();
+            metadataCache.getById(metadataId);
+            metadataCache.getById(metadataId);
+            Assertions.assertThat(metadataDao.countById.get(metadataId).get()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Verify the batches retrieved concurrently cover every {@code metadataId}.
+     */
+    @Test
+    public void testPrefetchParallel() {
+        final CountingMetadataDao metadataDao = this.makeMetadataDao();
+        final List<String> metadataIds = new ArrayList<>();
+        for (int index = 0; index < 25; index++) {
+            metadataIds.add("id" + index);
+        }
+
+        final MetadataCache metadataCache = MetadataCache.prefetch(metadataDao, metadataIds, 4);
+        Assertions.assertThat(metadataCache.size()).isEqualTo(metadataIds.size());
+        for (String metadataId : metadataIds) {
+            Assertions.assertThat(metadataCache.contains(metadataId)).isTrue();
+            Assertions.assertThat(metadataDao.countById.get(metadataId).get()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Verify a {@code metadataId} that was not prefetched is retrieved from the
+     * {@link MetadataDao} without being added to the cache.
+     */
+    @Test
+    public void testNotPrefetched() {
+        final CountingMetadataDao metadataDao = this.makeMetadataDao();
+        final MetadataCache metadataCache = MetadataCache.prefetch(metadataDao, new HashMap<>());
+        Assertions.assertThat(metadataCache.size()).isEqualTo(0);
+
+        metadataCache.getById("x");
+        metadataCache.getById("x");
+        Assertions.assertThat(metadataDao.countById.get("x").get()).isEqualTo(2);
+        Assertions.assertThat(metadataCache.contains("x")).isFalse();
+    }
+
+}
@@ -0,0 +1,88 @@
+package aims.ereefs.netcdf.metadata.populate;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.netcdf.NetcdfFileGenerator;
+import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
+import au.gov.aims.ereefs.pojo.metadata.NetCDFMetadata;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the {@link PopulateMetadataOperationModeExecutor} class.
+ *
+ * @author Aaron Smith
+ */
+public class PopulateMetadataOperationModeExecutorTest {
+
+    final static protected double[] DEPTHS = new double[]{-1.5, -17.75};
+    final static protected float[] LATS = {10f, 11f};
+    final static protected float[] LONS = {20f, 21f};
+
+    /**
+     * Verify a file whose existing {@code Metadata} has a matching checksum is not rewritten, and
+     * that a changed file is.
+     */
+    @Test
+    public void testSkipUnchanged() throws Exception {
+        final File inputPath = Files.createTempDirectory("populate-metadata-input").toFile();
+        final File file = NetcdfFileGenerator.generateHourlyDaily(inputPath, false, LATS, LONS, DEPTHS);
+        final List<File> files = Collections.singletonList(file);
+        final MetadataDao metadataDao = new MetadataDaoFileImpl(
+            Files.createTempDirectory("populate-metadata-db").toFile().getAbsolutePath() + File.separator
+        );
+        final String metadataId = NetCDFMetadataBean.getUniqueDatasetId("test", file.getName());
+        final ApplicationContext applicationContext = new ApplicationContext("test");
+        applicationContext.setMetadataDao(metadataDao);
+        final PopulateMetadataOperationModeExecutor executor = new PopulateMetadataOperationModeExecutor();
+
+        // First population.
+        PopulateMetadataOperationModeExecutor.Summary summary = executor.populate(applicationContext, "test", files, 1, 1);
+        Assertions.assertThat(summary.persistedCount).isEqualTo(1);
+        final String checksum = ((NetCDFMetadata) metadataDao.getById(metadataId)).getChecksum();
+
+        // Unchanged file.
+        summary = executor.populate(applicationContext, "test", files, 1, 1);
+        Assertions.assertThat(summary.persistedCount).isEqualTo(0);
+        Assertions.assertThat(summary.skippedCount).isEqualTo(1);
+
+        // Changed file, replaced by a file with different (random) values.
+        final File otherFile = NetcdfFileGenerator.generateHourlyDaily(
+            Files.createTempDirectory("populate-metadata-other").toFile(), false, LATS, LONS, DEPTHS
+        );
+        Files.copy(otherFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        summary = executor.populate(applicationContext, "test", files, 1, 1);
+        Assertions.assertThat(summary.persistedCount).isEqualTo(1);
+        Assertions.assertThat(summary.skippedCount).isEqualTo(0);
+        Assertions.assertThat(((NetCDFMetadata) metadataDao.getById(metadataId)).getChecksum())
+            .isNotEqualTo(checksum);
+    }
+
+    /**
+     * Verify a file that is not a NetCDF file is reported as failed, rather than stopping the
+     * other files from being processed.
+     */
+    @Test
+    public void testScanInvalidFile() throws IOException {
+        final File file = new File(TempDirectoryInitialiser.initialise() + "not-netcdf.nc");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("not a NetCDF file");
+        }
+
+        final PopulateMetadataOperationModeExecutor.Result result =
+            new PopulateMetadataOperationModeExecutor().scan("test", file, null);
+        Assertions.assertThat(result.isSkipped).isFalse();
+        Assertions.assertThat(result.metadata).isNull();
+    }
+
+}
@@ -1,8 +1,7 @@
 package aims.ereefs.netcdf.output.summary;
 
-import aims.ereefs.netcdf.regrid.Coordinate;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
 import aims.ereefs.netcdf.regrid.IndexWithDistance;
-import aims.ereefs.netcdf.input.extraction.CoordinateMapBuilder;
 import aims.ereefs.netcdf.input.extraction.ExtractionSite;
 import aims.ereefs.netcdf.input.extraction.ExtractionSiteListBuilder;
 import aims.ereefs.netcdf.input.extraction.TestData;
@@ -29,15 +28,14 @@ public class SiteBasedSummaryAccumulatorImplTest {
             add(-17.75);
         }};
 
-        // Build the coordinate map.
-        final Map<Integer, Coordinate> indexToCoordinateMap = CoordinateMapBuilder.build(
-            TestData.latitudeArray, TestData.longitudeArray, false);
+        // Build the grid geometry.
+        final GridGeometry gridGeometry = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
 
         // Build the list of extraction sites.
         final List<ExtractionSite> extractionSiteList =
             ExtractionSiteListBuilder.build(
                 TestData.EXTRACT_SITES_JSON,
-                indexToCoordinateMap
+                gridGeometry
             );
 
         // Instantiate the accumulator.
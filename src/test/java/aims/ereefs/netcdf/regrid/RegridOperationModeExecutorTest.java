@@ -0,0 +1,224 @@
+package aims.ereefs.netcdf.regrid;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.util.netcdf.NetcdfFileGenerator;
+import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.TaskDaoFileImpl;
+import org.assertj.core.api.Assertions;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the {@link RegridOperationModeExecutor} class. Aggregation of each file is replaced
+ * by persisting its metadata to the shared file-based {@code MetadataDao}, so the tests verify
+ * how the files are scheduled rather than the regridded output.
+ *
+ * @author Aaron Smith
+ */
+public class RegridOperationModeExecutorTest {
+
+    final static protected double[] DEPTHS = new double[]{-1.5, -17.75};
+    final static protected float[] LATS = {10f, 11f};
+    final static protected float[] LONS = {20f, 21f};
+
+    /**
+     * {@link RegridOperationModeExecutor} that records each file regridded, and the
+     * {@link ApplicationContext} it reused. Files named {@code invalid*} are regridded for real, so
+     * they fail to open.
+     */
+    static protected class RecordingRegridOperationModeExecutor extends RegridOperationModeExecutor {
+
+        final protected List<String> regriddedFilenames = Collections.synchronizedList(new ArrayList<>());
+        final protected Map<String, ApplicationContext> preProcessedApplicationContextByFilename =
+            new ConcurrentHashMap<>();
+        final protected Map<String, ApplicationContext> applicationContextByFilename =
+            new ConcurrentHashMap<>();
+        final protected List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Released once the specified number of files are regridded concurrently.
+         */
+        final protected CountDownLatch concurrentLatch;
+
+        public RecordingRegridOperationModeExecutor(int concurrentCount) {
+            this.concurrentLatch = new CountDownLatch(concurrentCount);
+        }
+
+        @Override
+        protected ApplicationContext regrid(File file,
+                                            String INPUT_ID,
+                                            String outputPath,
+                                            String cacheFilename,
+                                            double resolution,
+                                            String[] specifiedVariableNames,
+                                            ApplicationContext sharedApplicationContext,
+                                            ApplicationContext preProcessedApplicationContext) {
+            if (file.getName().startsWith("invalid")) {
+                return super.regrid(file, INPUT_ID, outputPath, cacheFilename, resolution,
+                    specifiedVariableNames, sharedApplicationContext, preProcessedApplicationContext);
+            }
+            this.regriddedFilenames.add(file.getName());
+            this.threadNames.add(Thread.currentThread().getName());
+            if (preProcessedApplicationContext != null) {
+                this.preProcessedApplicationContextByFilename.put(file.getName(), preProcessedApplicationContext);
+
+                // Wait for the other files, which should be regridded concurrently.
+                this.concurrentLatch.countDown();
+                try {
+                    Assertions.assertThat(this.concurrentLatch.await(10, TimeUnit.SECONDS)).isTrue();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            try {
+                final NetCDFMetadataBean netcdfMetadataBean = NetCDFMetadataBean.create(
+                    "input",
+                    file.getName(),
+                    new URI("file:" + file.getAbsolutePath()),
+                    file,
+                    DateTime.now().getMillis(),
+                    true
+                );
+                synchronized (sharedApplicationContext.getMetadataDao()) {
+                    sharedApplicationContext.getMetadataDao().persist(netcdfMetadataBean.toJSON());
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            final ApplicationContext applicationContext = new ApplicationContext("regrid");
+            this.applicationContextByFilename.put(file.getName(), applicationContext);
+            return applicationContext;
+        }
+
+    }
+
+    /**
+     * Instantiate the {@link ApplicationContext} shared by all files, with file-based
+     * {@code DAO}s.
+     */
+    protected ApplicationContext makeSharedApplicationContext() throws Exception {
+        final String daoPath = Files.createTempDirectory("regrid-dao").toFile().getAbsolutePath() +
+            File.separator;
+        final ApplicationContext sharedApplicationContext = new ApplicationContext("regrid");
+        sharedApplicationContext.setMetadataDao(new MetadataDaoFileImpl(daoPath + "metadata"));
+        sharedApplicationContext.setTaskDao(new TaskDaoFileImpl(daoPath + "task"));
+        sharedApplicationContext.setTempPathname(daoPath);
+        return sharedApplicationContext;
+    }
+
+    /**
+     * Generate the specified number of daily files of hourly data, sorted by name.
+     */
+    protected List<File> generateFiles(File inputPath, int count) throws Exception {
+        final List<File> files = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            files.add(NetcdfFileGenerator.generateHourlyDaily(
+                inputPath,
+                false,
+                NetcdfFileGenerator.DEFAULT_START_DATE.plusDays(index),
+                LATS,
+                LONS,
+                DEPTHS
+            ));
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Verify the first file is regridded alone, and the remaining files are then regridded
+     * concurrently, reusing the {@link ApplicationContext} of the first file.
+     */
+    @Test
+    public void testRegridFilesConcurrently() throws Exception {
+        final File inputPath = Files.createTempDirectory("regrid-input").toFile();
+        final List<File> files = this.generateFiles(inputPath, 3);
+        final RecordingRegridOperationModeExecutor executor = new RecordingRegridOperationModeExecutor(2);
+
+        executor.regridFiles(
+            files.toArray(new File[0]),
+            inputPath.getAbsolutePath() + File.separator,
+            inputPath.getAbsolutePath() + File.separator,
+            null,
+            0.5,
+            new String[0],
+            2,
+            this.makeSharedApplicationContext()
+        );
+
+        Assertions.assertThat(executor.regriddedFilenames).hasSize(3);
+        Assertions.assertThat(executor.regriddedFilenames.get(0)).isEqualTo(files.get(0).getName());
+        final ApplicationContext firstApplicationContext =
+            executor.applicationContextByFilename.get(files.get(0).getName());
+        Assertions.assertThat(executor.preProcessedApplicationContextByFilename).hasSize(2);
+        for (File file : files.subList(1, files.size())) {
+            Assertions.assertThat(executor.preProcessedApplicationContextByFilename.get(file.getName()))
+                .isSameAs(firstApplicationContext);
+        }
+
+        // The first file is regridded by the calling Thread, and the others by the pool.
+        Assertions.assertThat(executor.threadNames.get(0)).isEqualTo(Thread.currentThread().getName());
+        Assertions.assertThat(executor.threadNames.subList(1, 3)).allMatch(name -> name.startsWith("regrid-"));
+    }
+
+    /**
+     * Verify that if the first file fails, the next file is regridded alone instead, the
+     * remaining files reuse its {@link ApplicationContext}, and the failure is reported once all
+     * files have been attempted.
+     */
+    @Test
+    public void testRegridFilesFirstFileFails() throws Exception {
+        final File inputPath = Files.createTempDirectory("regrid-input").toFile();
+        final File invalidFile = new File(inputPath, "invalid.nc");
+        try (FileWriter writer = new FileWriter(invalidFile)) {
+            writer.write("Not a NetCDF file.");
+        }
+        final List<File> files = new ArrayList<File>() {{
+            add(invalidFile);
+        }};
+        files.addAll(this.generateFiles(inputPath, 3));
+        final RecordingRegridOperationModeExecutor executor = new RecordingRegridOperationModeExecutor(2);
+
+        try {
+            executor.regridFiles(
+                files.toArray(new File[0]),
+                inputPath.getAbsolutePath() + File.separator,
+                inputPath.getAbsolutePath() + File.separator,
+                null,
+                0.5,
+                new String[0],
+                2,
+                this.makeSharedApplicationContext()
+            );
+            Assertions.fail("RuntimeException expected.");
+        } catch (RuntimeException expected) {
+            Assertions.assertThat(expected).hasMessage("1 of 4 files failed.");
+        }
+
+        Assertions.assertThat(executor.regriddedFilenames).hasSize(3);
+        Assertions.assertThat(executor.regriddedFilenames).doesNotContain(invalidFile.getName());
+        Assertions.assertThat(executor.regriddedFilenames.get(0)).isEqualTo(files.get(1).getName());
+        final ApplicationContext firstApplicationContext =
+            executor.applicationContextByFilename.get(files.get(1).getName());
+        Assertions.assertThat(executor.preProcessedApplicationContextByFilename).hasSize(2);
+        for (File file : Arrays.asList(files.get(2), files.get(3))) {
+            Assertions.assertThat(executor.preProcessedApplicationContextByFilename.get(file.getName()))
+                .isSameAs(firstApplicationContext);
+        }
+    }
+
+}
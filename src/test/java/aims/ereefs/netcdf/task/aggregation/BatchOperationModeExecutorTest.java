@@ -0,0 +1,255 @@
+package aims.ereefs.netcdf.task.aggregation;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.TaskExecutor;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.NcAggregateTaskGenerator;
+import aims.ereefs.netcdf.util.TempDirectoryInitialiser;
+import aims.ereefs.netcdf.util.trace.Tracer;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the {@link BatchOperationModeExecutor} class.
+ *
+ * @author Aaron Smith
+ */
+public class BatchOperationModeExecutorTest {
+
+    final static protected String INPUT_ID = "input";
+
+    /**
+     * Instantiate an {@link ApplicationContext} for a {@code Task} of the specified
+     * {@code ProductDefinition} reading a single input file, or none if {@code filename} is
+     * {@code null}.
+     */
+    protected ApplicationContext makeApplicationContext(String productDefinitionId, String filename) {
+        final Map<String, Integer> inputMetadataIdToEndIndexMap = new HashMap<>();
+        if (filename != null) {
+            inputMetadataIdToEndIndexMap.put(INPUT_ID + "/" + filename, 23);
+        }
+        final NcAggregateTask task = NcAggregateTaskGenerator.generate(
+            productDefinitionId,
+            filename == null ?
+                new ArrayList<>() :
+                NcAggregateTaskGenerator.makeTimeInstants(
+                    INPUT_ID,
+                    new TreeMap<Double, Map<String, Integer>>() {{
+                        put(1.0, inputMetadataIdToEndIndexMap);
+                    }}
+                )
+        );
+        final ApplicationContext applicationContext = new ApplicationContext("test");
+        applicationContext.setTask(task);
+        return applicationContext;
+    }
+
+    /**
+     * Verify {@code Tasks} are ordered by {@code ProductDefinition}, and then by their first input
+     * file.
+     */
+    @Test
+    public void testSortForCacheReuse() {
+        final ApplicationContext b2 = this.makeApplicationContext("b", "day2.nc");
+        final ApplicationContext a2 = this.makeApplicationContext("a", "day2.nc");
+        final ApplicationContext b1 = this.makeApplicationContext("b", "day1.nc");
+        final ApplicationContext a1 = this.makeApplicationContext("a", "day1.nc");
+        final ApplicationContext aNone = this.makeApplicationContext("a", null);
+        final List<ApplicationContext> applicationContexts = new ArrayList<ApplicationContext>() {{
+            add(b2);
+            add(a2);
+            add(b1);
+            add(a1);
+            add(aNone);
+        }};
+
+        BatchOperationModeExecutor.sortForCacheReuse(applicationContexts);
+
+        Assertions.assertThat(applicationContexts).containsExactly(aNone, a1, a2, b1, b2);
+    }
+
+    /**
+     * Verify the {@code Task} ids are read one (1) per line, trimmed, with blank lines ignored.
+     */
+    @Test
+    public void testReadTaskIds() throws Exception {
+        final File file = new File(TempDirectoryInitialiser.initialise() + "batch-task-list.txt");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("task-1\n\n  task-2  \r\n\ntask-3");
+        }
+
+        Assertions.assertThat(BatchOperationModeExecutor.readTaskIds(file.getAbsolutePath()))
+            .containsExactly("task-1", "task-2", "task-3");
+    }
+
+    /**
+     * Verify a missing {@code Task} list fails.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testReadTaskIdsMissingFile() {
+        BatchOperationModeExecutor.readTaskIds(
+            TempDirectoryInitialiser.initialise() + "batch-task-list-missing.txt"
+        );
+    }
+
+    /**
+     * Verify the pre-processing tasks are executed once per {@code ProductDefinition} when
+     * {@code Tasks} are populated concurrently, and every other {@code Task} reuses the results
+     * of the same {@code ProductDefinition}.
+     */
+    @Test
+    public void testPreProcessingReuse() throws Exception {
+        final List<ApplicationContext> preProcessed = Collections.synchronizedList(new ArrayList<>());
+        final Map<ApplicationContext, ApplicationContext> reusedFrom = Collections.synchronizedMap(new HashMap<>());
+        final AtomicInteger concurrentPreProcessing = new AtomicInteger();
+        final BatchOperationModeExecutor executor = new BatchOperationModeExecutor() {
+
+            @Override
+            protected void preProcess(ApplicationContext applicationContext) {
+                Assertions.assertThat(concurrentPreProcessing.incrementAndGet()).isLessThanOrEqualTo(2);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    concurrentPreProcessing.decrementAndGet();
+                }
+                preProcessed.add(applicationContext);
+            }
+
+            @Override
+            protected void reusePreProcessing(ApplicationContext applicationContext,
+                                              ApplicationContext preProcessedApplicationContext) {
+                reusedFrom.put(applicationContext, preProcessedApplicationContext);
+            }
+
+        };
+
+        final List<ApplicationContext> applicationContexts = new ArrayList<>();
+        for (int index = 0; index < 4; index++) {
+            applicationContexts.add(this.makeApplicationContext("a", "day" + index + ".nc"));
+            applicationContexts.add(this.makeApplicationContext("b", "day" + index + ".nc"));
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (ApplicationContext applicationContext : applicationContexts) {
+                futures.add(executorService.submit(() -> executor.populateApplicationContext(applicationContext)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        // One Task per ProductDefinition was pre-processed, and all others reused its results.
+        Assertions.assertThat(preProcessed).hasSize(2);
+        Assertions.assertThat(preProcessed.get(0).getTask().getProductDefinitionId())
+            .isNotEqualTo(preProcessed.get(1).getTask().getProductDefinitionId());
+        Assertions.assertThat(reusedFrom).hasSize(applicationContexts.size() - 2);
+        for (Map.Entry<ApplicationContext, ApplicationContext> entry : reusedFrom.entrySet()) {
+            Assertions.assertThat(preProcessed).contains(entry.getValue());
+            Assertions.assertThat(entry.getValue().getTask().getProductDefinitionId())
+                .isEqualTo(entry.getKey().getTask().getProductDefinitionId());
+        }
+    }
+
+    /**
+     * Verify each {@code Task} of a batch executed with a parallelism of two (2) and tracing
+     * enabled writes a trace file holding only its own {@code Spans}, even though the
+     * {@code Spans} of both {@code Tasks} are interleaved.
+     */
+    @Test
+    public void testTracingPerTask() throws Exception {
+        EnvironmentVariableReader.clearInstance();
+        EnvironmentVariableReader.getInstance(new HashMap<String, String>() {{
+            put(Tracer.TRACE_ENABLED, "true");
+        }});
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final BatchOperationModeExecutor executor = new BatchOperationModeExecutor() {
+
+                @Override
+                protected void populateApplicationContext(ApplicationContext applicationContext) {
+                }
+
+                @Override
+                protected TaskExecutor makeTaskExecutor() {
+                    return new AggregationTaskExecutor() {
+                        @Override
+                        protected void executeTask(NcAggregateTask task,
+                                                   NcAggregateProductDefinition productDefinition,
+                                                   ApplicationContext applicationContext) {
+
+                            // Each Span is held open until the other Task reaches the same point.
+                            for (int index = 0; index < 3; index++) {
+                                try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE,
+                                    task.getId() + "-" + index)) {
+                                    barrier.await(10, TimeUnit.SECONDS);
+                                } catch (Exception e) {
+                                    throw new RuntimeException(e);
+                                }
+                            }
+                        }
+                    };
+                }
+
+            };
+
+            final String tempPathname = TempDirectoryInitialiser.initialise();
+            final List<String> taskIds = new ArrayList<String>() {{
+                add("batch-trace-task-1");
+                add("batch-trace-task-2");
+            }};
+            final List<ApplicationContext> applicationContexts = new ArrayList<>();
+            for (String taskId : taskIds) {
+                new File(tempPathname + taskId + "-trace.json").delete();
+                final ApplicationContext applicationContext = new ApplicationContext("test");
+                applicationContext.setTask(new NcAggregateTask(taskId));
+                applicationContext.setTempPathname(tempPathname);
+                applicationContexts.add(applicationContext);
+            }
+
+            executor.executeTasks(applicationContexts, 2);
+
+            for (String taskId : taskIds) {
+                final File traceFile = new File(tempPathname + taskId + "-trace.json");
+                Assertions.assertThat(traceFile.exists()).isTrue();
+                final String content = new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8);
+                for (String otherTaskId : taskIds) {
+                    for (int index = 0; index < 3; index++) {
+                        final String spanName = "\"" + otherTaskId + "-" + index + "\"";
+                        if (otherTaskId.equals(taskId)) {
+                            Assertions.assertThat(content).contains(spanName);
+                        } else {
+                            Assertions.assertThat(content).doesNotContain(spanName);
+                        }
+                    }
+                }
+            }
+        } finally {
+            EnvironmentVariableReader.clearInstance();
+        }
+    }
+
+}
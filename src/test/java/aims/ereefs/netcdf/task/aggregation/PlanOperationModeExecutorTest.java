@@ -0,0 +1,116 @@
+package aims.ereefs.netcdf.task.aggregation;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.aggregator.AggregationPeriods;
+import aims.ereefs.netcdf.task.aggregation.pipeline.TaskCostEstimator;
+import aims.ereefs.netcdf.util.NcAggregateProductDefinitionGenerator;
+import aims.ereefs.netcdf.util.NcAggregateTaskGenerator;
+import aims.ereefs.netcdf.util.netcdf.NetcdfFileGenerator;
+import au.gov.aims.ereefs.bean.metadata.netcdf.NetCDFMetadataBean;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.definition.product.ProductDefinition;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDao;
+import au.gov.aims.ereefs.pojo.metadata.MetadataDaoFileImpl;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.assertj.core.api.Assertions;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests for the {@link PlanOperationModeExecutor} class.
+ *
+ * @author Aaron Smith
+ */
+public class PlanOperationModeExecutorTest {
+
+    final static protected double[] DEPTHS = new double[]{-1.5, -17.75, -49, -103, -200, -315};
+    final static protected float[] LATS = {10f, 11f};
+    final static protected float[] LONS = {20f, 21f};
+
+    final static protected String PRODUCT_ID = "test__product";
+    final static protected String INPUT_ID = "singleInputId";
+    final static protected String DATASET_ID = "day__1";
+
+    /**
+     * Verify a {@code Task} aggregating a single daily file of hourly data is planned from the
+     * reference dataset, without executing the {@code Task}.
+     */
+    @Test
+    public void testPlan() throws Exception {
+        final File inputPath = Files.createTempDirectory("plan-input").toFile();
+        final MetadataDao metadataDao = new MetadataDaoFileImpl(
+            Files.createTempDirectory("plan-db").toFile().getAbsolutePath()
+        );
+        final File inputDatasetFile = NetcdfFileGenerator.generateHourlyDaily(
+            inputPath,
+            false,
+            LATS,
+            LONS,
+            DEPTHS
+        );
+        metadataDao.persist(NetCDFMetadataBean.create(
+            INPUT_ID,
+            DATASET_ID,
+            new URI("file:" + inputDatasetFile.getAbsolutePath()),
+            inputDatasetFile,
+            DateTime.now().getMillis()
+        ).toJSON());
+
+        final NcAggregateProductDefinition productDefinition = NcAggregateProductDefinition.make(
+            PRODUCT_ID,
+            "Australia/Brisbane",
+            new ProductDefinition.Filters(new ProductDefinition.DateRange[0]),
+            new NcAggregateProductDefinition.NetCDFInput[]{
+                NcAggregateProductDefinitionGenerator.makeHourlyDailyInput(
+                    INPUT_ID,
+                    NetcdfFileGenerator.VARIABLE_NAMES
+                )
+            },
+            new ArrayList<>(),
+            NcAggregateProductDefinitionGenerator.makeAggregationAction(
+                AggregationPeriods.DAILY,
+                NetcdfFileGenerator.VARIABLE_NAMES,
+                DEPTHS
+            ),
+            NcAggregateProductDefinitionGenerator.makeDailyOutputs()
+        );
+        final NcAggregateTask task = NcAggregateTaskGenerator.generate(
+            PRODUCT_ID,
+            NcAggregateTaskGenerator.makeTimeInstants(
+                INPUT_ID,
+                new TreeMap<Double, Map<String, Integer>>() {{
+                    put(1.0, new HashMap<String, Integer>() {{
+                        put(INPUT_ID + "/" + DATASET_ID, 23);  // 24 hours in a day.
+                    }});
+                }}
+            )
+        );
+        final ApplicationContext applicationContext = new ApplicationContext("test");
+        applicationContext.setMetadataDao(metadataDao);
+
+        final TaskCostEstimator.Estimate estimate = new PlanOperationModeExecutor().plan(
+            task,
+            productDefinition,
+            applicationContext
+        );
+
+        Assertions.assertThat(estimate.getTimeInstantCount()).isEqualTo(1);
+        Assertions.assertThat(estimate.getSummaryOperatorCount()).isGreaterThan(0);
+        Assertions.assertThat(estimate.getDownloadFileCount()).isEqualTo(1);
+        Assertions.assertThat(estimate.getDownloadBytes()).isEqualTo(inputDatasetFile.length());
+        Assertions.assertThat(estimate.getReadBytesByVariableName()).isNotEmpty();
+        Assertions.assertThat(estimate.getReadBytes()).isGreaterThan(0L);
+        Assertions.assertThat(estimate.getPeakHeapBytes()).isGreaterThan(0L);
+        Assertions.assertThat(estimate.getOutputBytes()).isGreaterThan(0L);
+        Assertions.assertThat(estimate.getRuntimeSeconds()).isGreaterThan(0.0);
+    }
+
+}
@@ -0,0 +1,302 @@
+package aims.ereefs.netcdf.task.aggregation.checkpoint;
+
+import aims.ereefs.netcdf.TerminatingException;
+import aims.ereefs.netcdf.output.summary.OutputWriter;
+import aims.ereefs.netcdf.output.summary.SummaryStatistics;
+import aims.ereefs.netcdf.task.aggregation.pipeline.BaseStage;
+import aims.ereefs.netcdf.task.aggregation.pipeline.PipelineContext;
+import aims.ereefs.netcdf.task.aggregation.pipeline.TimeInstantIteratorStage;
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.NcAggregateTaskGenerator;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.assertj.core.api.Assertions;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the {@link CheckpointManager} class, publishing checkpoints to a local
+ * ({@code file:}) location. Only a summary output is checkpointed, as its content is easily
+ * verified.
+ *
+ * @author Aaron Smith
+ */
+public class CheckpointManagerTest {
+
+    final static protected int TIME_INSTANT_COUNT = 5;
+
+    protected NcAggregateTask task;
+    protected String checkpointBaseUrl;
+    protected String tempPathname;
+    protected String summaryOutputLocalFilename;
+
+    /**
+     * {@link OutputWriter} which writes the number of times it has been flushed to the summary
+     * output file, so each checkpoint has distinct content.
+     */
+    protected class CountingOutputWriter implements OutputWriter {
+
+        protected int flushCount = 0;
+
+        /**
+         * The flush which fails, simulating a checkpoint that does not complete.
+         */
+        protected int failingFlushCount = -1;
+
+        @Override
+        public void write(String dateTimeStamp, NcAggregateProductDefinition.SummaryOperator summaryOperator,
+                          double depth, String zoneId, SummaryStatistics summaryStatistics) {
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.flushCount++;
+            writeSummaryOutput("flush-" + this.flushCount);
+            if (this.flushCount == this.failingFlushCount) {
+                throw new IOException("Failed flush.");
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final List<NcAggregateTask.TimeInstant> timeInstants = new ArrayList<>();
+        for (int index = 0; index < TIME_INSTANT_COUNT; index++) {
+            timeInstants.add(new NcAggregateTask.TimeInstant(
+                1000.0 + index,
+                new ArrayList<NcAggregateTask.Input>()
+            ));
+        }
+        this.task = NcAggregateTaskGenerator.generate("productId", timeInstants);
+        this.checkpointBaseUrl = "file:" + Files.createTempDirectory("checkpoint").toFile().getAbsolutePath();
+        this.tempPathname = Files.createTempDirectory("checkpoint-temp").toFile().getAbsolutePath() +
+            File.separator;
+        this.summaryOutputLocalFilename = this.tempPathname + "summary.csv";
+    }
+
+    @After
+    public void tearDown() {
+        EnvironmentVariableReader.clearInstance();
+    }
+
+    protected CheckpointManager makeCheckpointManager(long intervalMillis) {
+        return new CheckpointManager(
+            this.task,
+            this.checkpointBaseUrl,
+            this.tempPathname,
+            null,
+            this.summaryOutputLocalFilename,
+            intervalMillis,
+            5
+        );
+    }
+
+    protected void writeSummaryOutput(String content) throws IOException {
+        Files.write(new File(this.summaryOutputLocalFilename).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected String read(String filename) throws IOException {
+        return new String(Files.readAllBytes(new File(filename).toPath()), StandardCharsets.UTF_8);
+    }
+
+    protected String readCheckpointFile(String url) throws IOException {
+        return this.read(url.substring("file:".length()));
+    }
+
+    protected CheckpointManifest readManifest(CheckpointManager checkpointManager) throws IOException {
+        return CheckpointManifest.fromJSON(new JSONObject(
+            this.readCheckpointFile(checkpointManager.checkpointUrl + CheckpointManager.MANIFEST_NAME)
+        ));
+    }
+
+    /**
+     * Verify there is nothing to restore before the first checkpoint, and that a checkpoint is
+     * restored to the local output file, with processing resuming at the first
+     * {@code TimeInstant} not yet completed.
+     */
+    @Test
+    public void testRestoreAndResume() throws Exception {
+        final CheckpointManager firstCheckpointManager = this.makeCheckpointManager(0);
+        Assertions.assertThat(firstCheckpointManager.restore()).isNull();
+        firstCheckpointManager.start(null, new CountingOutputWriter());
+        try {
+            firstCheckpointManager.onTimeInstantComplete(1);
+            firstCheckpointManager.onTimeInstantComplete(2);
+        } finally {
+            firstCheckpointManager.close();
+        }
+
+        // The Task is interrupted, losing the local output file.
+        this.writeSummaryOutput("lost");
+
+        final CheckpointManager checkpointManager = this.makeCheckpointManager(0);
+        final CheckpointManifest manifest = checkpointManager.restore();
+        Assertions.assertThat(manifest).isNotNull();
+        Assertions.assertThat(manifest.getCompletedTimeInstantCount()).isEqualTo(2);
+        Assertions.assertThat(manifest.getSlot()).isEqualTo(CheckpointManager.SLOT_B);
+        Assertions.assertThat(this.read(this.summaryOutputLocalFilename)).isEqualTo("flush-2");
+
+        // Resume from the checkpoint.
+        EnvironmentVariableReader.clearInstance();
+        EnvironmentVariableReader.getInstance(new HashMap<String, String>() {{
+            put("TIME_INSTANT_PARALLELISM", "2");
+        }});
+        final List<Integer> executedIndexes = Collections.synchronizedList(new ArrayList<>());
+        final TimeInstantIteratorStage timeInstantIteratorStage = new TimeInstantIteratorStage();
+        timeInstantIteratorStage.setPipelineContext(new PipelineContext(this.task, null, false, null));
+        timeInstantIteratorStage.setTimeInstantStageFactory(context -> new BaseStage() {
+            @Override
+            public void execute() {
+                executedIndexes.add(context.getTimeInstantIndex());
+            }
+        });
+        timeInstantIteratorStage.setCheckpointManager(checkpointManager);
+        timeInstantIteratorStage.setStartTimeInstantIndex(manifest.getCompletedTimeInstantCount());
+        checkpointManager.start(null, new CountingOutputWriter());
+        try {
+            timeInstantIteratorStage.execute();
+        } finally {
+            checkpointManager.close();
+        }
+
+        Assertions.assertThat(executedIndexes).containsExactlyInAnyOrder(2, 3, 4);
+        final CheckpointManifest resumedManifest = this.readManifest(checkpointManager);
+        Assertions.assertThat(resumedManifest.getCompletedTimeInstantCount()).isEqualTo(TIME_INSTANT_COUNT - 1);
+        Assertions.assertThat(resumedManifest.getSlot()).isEqualTo(CheckpointManager.SLOT_B);
+    }
+
+    /**
+     * Verify checkpoints alternate between the slots, so a checkpoint that does not complete
+     * (eg: a torn write of the output files) never overwrites the last good checkpoint.
+     */
+    @Test
+    public void testSlotAlternation() throws Exception {
+        final CheckpointManager checkpointManager = this.makeCheckpointManager(0);
+        final CountingOutputWriter outputWriter = new CountingOutputWriter();
+        outputWriter.failingFlushCount = 3;
+        checkpointManager.start(null, outputWriter);
+        try {
+            checkpointManager.onTimeInstantComplete(1);
+            Assertions.assertThat(this.readManifest(checkpointManager).getSlot()).isEqualTo(CheckpointManager.SLOT_A);
+            checkpointManager.onTimeInstantComplete(2);
+            Assertions.assertThat(this.readManifest(checkpointManager).getSlot()).isEqualTo(CheckpointManager.SLOT_B);
+
+            // The third checkpoint fails, after partially writing to the next slot.
+            try {
+                checkpointManager.onTimeInstantComplete(3);
+                Assertions.fail("RuntimeException expected.");
+            } catch (RuntimeException expected) {
+                Assertions.assertThat(expected).hasMessage("Failed to create checkpoint.");
+            }
+            Files.write(
+                new File(checkpointManager.getSummaryOutputCheckpointUrl(CheckpointManager.SLOT_A)
+                    .substring("file:".length())).toPath(),
+                "torn".getBytes(StandardCharsets.UTF_8)
+            );
+        } finally {
+            checkpointManager.close();
+        }
+
+        // The last good checkpoint is intact and restored.
+        Assertions.assertThat(this.readCheckpointFile(checkpointManager.getSummaryOutputCheckpointUrl(CheckpointManager.SLOT_B)))
+            .isEqualTo("flush-2");
+        final CheckpointManifest manifest = this.makeCheckpointManager(0).restore();
+        Assertions.assertThat(manifest.getCompletedTimeInstantCount()).isEqualTo(2);
+        Assertions.assertThat(manifest.getSlot()).isEqualTo(CheckpointManager.SLOT_B);
+        Assertions.assertThat(this.read(this.summaryOutputLocalFilename)).isEqualTo("flush-2");
+    }
+
+    /**
+     * Verify the manifest is marked complete by {@link CheckpointManager#complete()}, so the
+     * {@code Task} is not resumed if executed again, and that nothing is published if no
+     * checkpoint was created.
+     */
+    @Test
+    public void testComplete() throws Exception {
+        final CheckpointManager uncheckpointedManager = this.makeCheckpointManager(TimeUnit.HOURS.toMillis(1));
+        uncheckpointedManager.start(null, new CountingOutputWriter());
+        try {
+            uncheckpointedManager.onTimeInstantComplete(1);
+            uncheckpointedManager.complete();
+        } finally {
+            uncheckpointedManager.close();
+        }
+        Assertions.assertThat(new File(
+            (uncheckpointedManager.checkpointUrl + CheckpointManager.MANIFEST_NAME).substring("file:".length())
+        ).exists()).isFalse();
+
+        final CheckpointManager checkpointManager = this.makeCheckpointManager(0);
+        checkpointManager.start(null, new CountingOutputWriter());
+        try {
+            checkpointManager.onTimeInstantComplete(2);
+            Assertions.assertThat(this.readManifest(checkpointManager).isComplete()).isFalse();
+            checkpointManager.complete();
+        } finally {
+            checkpointManager.close();
+        }
+
+        final CheckpointManifest manifest = this.readManifest(checkpointManager);
+        Assertions.assertThat(manifest.isComplete()).isTrue();
+        Assertions.assertThat(manifest.getCompletedTimeInstantCount()).isEqualTo(TIME_INSTANT_COUNT);
+        Assertions.assertThat(manifest.getSlot()).isEqualTo(CheckpointManager.SLOT_A);
+        Assertions.assertThat(this.makeCheckpointManager(0).restore()).isNull();
+    }
+
+    /**
+     * Verify that once shutdown is requested (ie: {@code SIGTERM}), a checkpoint is created when
+     * the current {@code TimeInstant} completes, regardless of the interval, and processing is
+     * then stopped with a {@link TerminatingException}, releasing the shutdown hook.
+     */
+    @Test
+    public void testShutdownRequested() throws Exception {
+        final CheckpointManager checkpointManager = this.makeCheckpointManager(TimeUnit.HOURS.toMillis(1));
+        checkpointManager.start(null, new CountingOutputWriter());
+        try {
+
+            // The interval has not elapsed, so no checkpoint is created.
+            checkpointManager.onTimeInstantComplete(1);
+            Assertions.assertThat(checkpointManager.lastSlot).isNull();
+
+            // Run the shutdown hook as the JVM would on SIGTERM.
+            final Thread shutdownHook = checkpointManager.shutdownHook;
+            shutdownHook.start();
+            while (!checkpointManager.isStopRequested) {
+                Thread.sleep(10);
+            }
+            Assertions.assertThat(shutdownHook.isAlive()).isTrue();
+
+            try {
+                checkpointManager.onTimeInstantComplete(2);
+                Assertions.fail("TerminatingException expected.");
+            } catch (TerminatingException expected) {
+                Assertions.assertThat(expected.getMessage()).contains("Completed 2 of " + TIME_INSTANT_COUNT);
+            }
+            shutdownHook.join(TimeUnit.SECONDS.toMillis(5));
+            Assertions.assertThat(shutdownHook.isAlive()).isFalse();
+        } finally {
+            checkpointManager.close();
+        }
+
+        final CheckpointManifest manifest = this.readManifest(checkpointManager);
+        Assertions.assertThat(manifest.getCompletedTimeInstantCount()).isEqualTo(2);
+        Assertions.assertThat(manifest.isComplete()).isFalse();
+    }
+
+}
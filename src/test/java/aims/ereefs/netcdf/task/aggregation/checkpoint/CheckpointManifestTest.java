@@ -0,0 +1,55 @@
+package aims.ereefs.netcdf.task.aggregation.checkpoint;
+
+import org.assertj.core.api.Assertions;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CheckpointManifest} class.
+ *
+ * @author Aaron Smith
+ */
+public class CheckpointManifestTest {
+
+    /**
+     * Verify a manifest is unchanged after conversion to and from {@code JSON}.
+     */
+    @Test
+    public void testRoundTrip() {
+        final CheckpointManifest manifest = new CheckpointManifest(
+            "taskId",
+            24,
+            10,
+            "b",
+            false,
+            "2020-01-01T00:00"
+        );
+
+        final CheckpointManifest restored = CheckpointManifest.fromJSON(
+            new JSONObject(manifest.toJSON().toString())
+        );
+        Assertions.assertThat(restored.getTaskId()).isEqualTo("taskId");
+        Assertions.assertThat(restored.getTimeInstantCount()).isEqualTo(24);
+        Assertions.assertThat(restored.getCompletedTimeInstantCount()).isEqualTo(10);
+        Assertions.assertThat(restored.getSlot()).isEqualTo("b");
+        Assertions.assertThat(restored.isComplete()).isFalse();
+        Assertions.assertThat(restored.getCreated()).isEqualTo("2020-01-01T00:00");
+    }
+
+    /**
+     * Verify optional properties default when absent.
+     */
+    @Test
+    public void testDefaults() {
+        final CheckpointManifest restored = CheckpointManifest.fromJSON(
+            new JSONObject()
+                .put("taskId", "taskId")
+                .put("timeInstantCount", 5)
+                .put("completedTimeInstantCount", 2)
+                .put("slot", "a")
+        );
+        Assertions.assertThat(restored.isComplete()).isFalse();
+        Assertions.assertThat(restored.getCreated()).isNull();
+    }
+
+}
@@ -0,0 +1,101 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import aims.ereefs.netcdf.aggregator.operators.factory.threshold.ThresholdExceedanceCountFactoryAdaptor;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for the conditions under which the {@link AccumulationStage} compacts data to the wet
+ * cells of the grid.
+ *
+ * @author Aaron Smith
+ */
+public class AccumulationStageWetCellCompactionTest {
+
+    @Before
+    public void setUp() {
+        AccumulationStage.isWetCellCompactionEnabled = true;
+    }
+
+    @After
+    public void tearDown() {
+        AccumulationStage.isWetCellCompactionEnabled = null;
+    }
+
+    protected AccumulationStage makeAccumulationStage(NcAggregateProductDefinition.SummaryOperator summaryOperator,
+                                                      boolean isPopulatingOutputDataset) {
+        final PipelineContext pipelineContext = new PipelineContext(null, null, isPopulatingOutputDataset, null);
+        pipelineContext.setSummaryOperator(summaryOperator);
+        return new AccumulationStage(new ApplicationContext("test"), pipelineContext, null, null, null);
+    }
+
+    /**
+     * Verify a single threshold, which is applied to every cell, is compacted.
+     */
+    @Test
+    public void testThresholdValueCompacted() {
+        final AccumulationStage accumulationStage = this.makeAccumulationStage(
+            new NcAggregateProductDefinition.ThresholdValueSummaryOperator(
+                "SingleZone",
+                ThresholdExceedanceCountFactoryAdaptor.VALUE_OPERATOR_TYPE,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                "greater",
+                24,
+                25.0
+            ),
+            true
+        );
+        Assertions.assertThat(accumulationStage.isCompactingWetCells(null, null)).isTrue();
+    }
+
+    /**
+     * Verify zonal thresholds, which identify the zone of each value by its index in the full
+     * grid, are not compacted.
+     */
+    @Test
+    public void testThresholdZonalNotCompacted() {
+        final AccumulationStage accumulationStage = this.makeAccumulationStage(
+            new NcAggregateProductDefinition.ThresholdZonalSummaryOperator(
+                "MultiZone",
+                ThresholdExceedanceCountFactoryAdaptor.ZONAL_OPERATOR_TYPE,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                "greater",
+                24,
+                "indexToZoneIdMap",
+                "zoneIdToThresholdBindKey",
+                false
+            ),
+            true
+        );
+        Assertions.assertThat(accumulationStage.isCompactingWetCells(null, null)).isFalse();
+    }
+
+    /**
+     * Verify nothing is compacted without a NetCDF output.
+     */
+    @Test
+    public void testNoOutputDatasetNotCompacted() {
+        final AccumulationStage accumulationStage = this.makeAccumulationStage(
+            new NcAggregateProductDefinition.ThresholdValueSummaryOperator(
+                "SingleZone",
+                ThresholdExceedanceCountFactoryAdaptor.VALUE_OPERATOR_TYPE,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                "greater",
+                24,
+                25.0
+            ),
+            false
+        );
+        Assertions.assertThat(accumulationStage.isCompactingWetCells(null, null)).isFalse();
+    }
+
+}
@@ -0,0 +1,149 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.util.NcAggregateTaskGenerator;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests for the {@link TaskCostEstimator} class.
+ *
+ * @author Aaron Smith
+ */
+public class TaskCostEstimatorTest {
+
+    final static protected String INPUT_ID = "input";
+    final static protected String VARIABLE_NAME = INPUT_ID + "::temp";
+    final static protected double MB = 1024.0 * 1024.0;
+
+    /**
+     * Two (2) daily {@code TimeInstants}, each reading 24 hourly time steps from its own file.
+     */
+    protected NcAggregateTask makeTask() {
+        return NcAggregateTaskGenerator.generate(
+            "product",
+            NcAggregateTaskGenerator.makeTimeInstants(
+                INPUT_ID,
+                new TreeMap<Double, Map<String, Integer>>() {{
+                    put(1.0, new HashMap<String, Integer>() {{
+                        put(INPUT_ID + "/day1.nc", 23);
+                    }});
+                    put(2.0, new HashMap<String, Integer>() {{
+                        put(INPUT_ID + "/day2.nc", 23);
+                    }});
+                }}
+            )
+        );
+    }
+
+    protected List<NcAggregateProductDefinition.SummaryOperator> makeSummaryOperatorList() {
+        return new ArrayList<NcAggregateProductDefinition.SummaryOperator>() {{
+            add(new NcAggregateProductDefinition.SummaryOperator(
+                "MEAN",
+                "MEAN",
+                Arrays.asList(VARIABLE_NAME),
+                new ArrayList<NcAggregateProductDefinition.OutputVariable>() {{
+                    add(new NcAggregateProductDefinition.OutputVariable());
+                }}
+            ));
+        }};
+    }
+
+    /**
+     * A {@code float} variable of 100 cells and 8 depths.
+     */
+    protected Map<String, TaskCostEstimator.VariableLayout> makeLayoutByVariableName() {
+        return new HashMap<String, TaskCostEstimator.VariableLayout>() {{
+            put(VARIABLE_NAME, new TaskCostEstimator.VariableLayout(100, 8, 4, true));
+        }};
+    }
+
+    protected Map<String, Long> makeFileSizeByInputId() {
+        return new HashMap<String, Long>() {{
+            put(INPUT_ID, 1000L);
+        }};
+    }
+
+    /**
+     * Verify the bytes downloaded, read and written, and the runtime, are derived from the
+     * {@code FileIndexBounds} of the {@code Task} and the layout of the variable.
+     */
+    @Test
+    public void testEstimate() {
+        final TaskCostEstimator.Estimate estimate = new TaskCostEstimator(false, 1, 1, 1.0, 1.0)
+            .estimate(
+                this.makeTask(),
+                this.makeSummaryOperatorList(),
+                this.makeLayoutByVariableName(),
+                this.makeFileSizeByInputId(),
+                true
+            );
+
+        Assertions.assertThat(estimate.getTimeInstantCount()).isEqualTo(2);
+        Assertions.assertThat(estimate.getDownloadFileCount()).isEqualTo(2);
+        Assertions.assertThat(estimate.getDownloadBytes()).isEqualTo(2000L);
+
+        // 100 cells x 8 depths x 4 bytes, for 48 time steps.
+        Assertions.assertThat(estimate.getReadBytesByVariableName()).containsEntry(VARIABLE_NAME, 3200L * 48);
+        Assertions.assertThat(estimate.getOutputBytes()).isEqualTo(3200L * 2);
+
+        // 4 depths at once: each value read, boxed and accumulated, plus the boxed results.
+        Assertions.assertThat(estimate.getDepthChunkSize()).isEqualTo(4);
+        Assertions.assertThat(estimate.getPeakHeapBytesPerDepthChunk()).isEqualTo(100 * 4 * (4 + 24 + 16) + 100 * 4 * 24);
+        Assertions.assertThat(estimate.getPeakHeapBytes()).isEqualTo(estimate.getPeakHeapBytesPerDepthChunk());
+
+        Assertions.assertThat(estimate.getRuntimeSeconds()).isCloseTo((2000 + 3200 * 48) / MB, Assertions.within(1e-9));
+    }
+
+    /**
+     * Verify the {@code float32} {@code COMPUTE_MODE} processes more depths at once without
+     * boxing, and that the heap scales with the number of concurrent chunks.
+     */
+    @Test
+    public void testEstimateFloat32Parallel() {
+        final TaskCostEstimator.Estimate estimate = new TaskCostEstimator(true, 4, 3, 1.0, 1.0)
+            .estimate(
+                this.makeTask(),
+                this.makeSummaryOperatorList(),
+                this.makeLayoutByVariableName(),
+                this.makeFileSizeByInputId(),
+                false
+            );
+
+        Assertions.assertThat(estimate.getDepthChunkSize()).isEqualTo(16);
+        Assertions.assertThat(estimate.getPeakHeapBytesPerDepthChunk()).isEqualTo(100 * 8 * (4 + 4 + 16) + 100 * 8 * 24);
+
+        // Only two (2) TimeInstants can be executed concurrently.
+        Assertions.assertThat(estimate.getConcurrentDepthChunkCount()).isEqualTo(2 * 3);
+        Assertions.assertThat(estimate.getOutputBytes()).isEqualTo(0L);
+    }
+
+    /**
+     * Verify the size of the files of an {@code Input} is found regardless of the case of the
+     * {@code inputId}.
+     */
+    @Test
+    public void testEstimateInputIdCase() {
+        final TaskCostEstimator.Estimate estimate = new TaskCostEstimator(false, 1, 1, 1.0, 1.0)
+            .estimate(
+                this.makeTask(),
+                this.makeSummaryOperatorList(),
+                this.makeLayoutByVariableName(),
+                new HashMap<String, Long>() {{
+                    put(INPUT_ID.toUpperCase(), 1000L);
+                }},
+                true
+            );
+
+        Assertions.assertThat(estimate.getDownloadBytes()).isEqualTo(2000L);
+    }
+
+}
@@ -0,0 +1,113 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import aims.ereefs.netcdf.util.EnvironmentVariableReader;
+import aims.ereefs.netcdf.util.NcAggregateTaskGenerator;
+import au.gov.aims.ereefs.pojo.task.NcAggregateTask;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tests for the concurrent execution of {@code TimeInstants} by the
+ * {@link TimeInstantIteratorStage} class.
+ *
+ * @author Aaron Smith
+ */
+public class TimeInstantIteratorStageTest {
+
+    final static protected int TIME_INSTANT_COUNT = 20;
+
+    protected NcAggregateTask task;
+
+    @Before
+    public void setUp() {
+        EnvironmentVariableReader.clearInstance();
+        EnvironmentVariableReader.getInstance(new HashMap<String, String>() {{
+            put("TIME_INSTANT_PARALLELISM", "4");
+        }});
+        final List<NcAggregateTask.TimeInstant> timeInstants = new ArrayList<>();
+        for (int index = 0; index < TIME_INSTANT_COUNT; index++) {
+            timeInstants.add(new NcAggregateTask.TimeInstant(
+                1000.0 + index,
+                new ArrayList<NcAggregateTask.Input>()
+            ));
+        }
+        this.task = NcAggregateTaskGenerator.generate("productId", timeInstants);
+    }
+
+    @After
+    public void tearDown() {
+        EnvironmentVariableReader.clearInstance();
+    }
+
+    /**
+     * Verify each {@code TimeInstant} is executed exactly once, with its own
+     * {@link PipelineContext}.
+     */
+    @Test
+    public void testConcurrentExecution() {
+        final PipelineContext pipelineContext = new PipelineContext(this.task, null, false, null);
+        final Map<Integer, PipelineContext> contextByIndex = new ConcurrentHashMap<>();
+        final TimeInstantIteratorStage timeInstantIteratorStage = this.makeStage(
+            pipelineContext,
+            context -> {
+                Assertions.assertThat(contextByIndex.put(context.getTimeInstantIndex(), context)).isNull();
+            }
+        );
+        timeInstantIteratorStage.setStartTimeInstantIndex(2);
+        timeInstantIteratorStage.execute();
+
+        Assertions.assertThat(contextByIndex).hasSize(TIME_INSTANT_COUNT - 2);
+        for (int index = 2; index < TIME_INSTANT_COUNT; index++) {
+            final PipelineContext context = contextByIndex.get(index);
+            Assertions.assertThat(context).isNotSameAs(pipelineContext);
+            Assertions.assertThat(context.getTimeInstant().getValue()).isEqualTo(1000.0 + index);
+        }
+    }
+
+    /**
+     * Verify a failure of a {@code TimeInstant} stops execution and is propagated.
+     */
+    @Test
+    public void testFailure() {
+        final TimeInstantIteratorStage timeInstantIteratorStage = this.makeStage(
+            new PipelineContext(this.task, null, false, null),
+            context -> {
+                if (context.getTimeInstantIndex() == 5) {
+                    throw new RuntimeException("Failed time instant.");
+                }
+            }
+        );
+        Assertions.assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(timeInstantIteratorStage::execute)
+            .withMessage("Failed time instant.");
+    }
+
+    /**
+     * Interface for the action performed by the test {@code Stage} for each {@code TimeInstant}.
+     */
+    protected interface TimeInstantAction {
+        void execute(PipelineContext context);
+    }
+
+    protected TimeInstantIteratorStage makeStage(PipelineContext pipelineContext,
+                                                 TimeInstantAction action) {
+        final TimeInstantIteratorStage timeInstantIteratorStage = new TimeInstantIteratorStage();
+        timeInstantIteratorStage.setPipelineContext(pipelineContext);
+        timeInstantIteratorStage.setTimeInstantStageFactory(context -> new BaseStage() {
+            @Override
+            public void execute() {
+                action.execute(context);
+            }
+        });
+        return timeInstantIteratorStage;
+    }
+
+}
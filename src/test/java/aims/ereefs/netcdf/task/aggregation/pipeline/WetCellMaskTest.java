@@ -0,0 +1,93 @@
+package aims.ereefs.netcdf.task.aggregation.pipeline;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the {@link WetCellMask} class.
+ *
+ * @author Aaron Smith
+ */
+public class WetCellMaskTest {
+
+    /**
+     * Three (3) layers of four (4) cells, where the middle layer is dry.
+     */
+    protected WetCellMask makeMask() {
+        final List<Double> depths = new ArrayList<Double>() {{
+            add(-1.5);
+            add(-17.75);
+            add(-49.0);
+        }};
+        final List<boolean[]> layerMasks = new ArrayList<boolean[]>() {{
+            add(new boolean[]{true, false, true, true});
+            add(new boolean[]{false, false, false, false});
+            add(new boolean[]{false, false, true, false});
+        }};
+        return new WetCellMask(depths, layerMasks, 4);
+    }
+
+    /**
+     * Verify dry layers are excluded from the depths to read.
+     */
+    @Test
+    public void testWetDepths() {
+        final WetCellMask wetCellMask = this.makeMask();
+        Assertions.assertThat(wetCellMask.getWetDepths()).containsExactly(-1.5, -49.0);
+        Assertions.assertThat(wetCellMask.getWetCellCount()).isEqualTo(4);
+        Assertions.assertThat(wetCellMask.getSize()).isEqualTo(12);
+        Assertions.assertThat(wetCellMask.isDry()).isFalse();
+    }
+
+    /**
+     * Verify compacting data read for the wet depths, and expanding back to the full chunk.
+     */
+    @Test
+    public void testCompactAndExpand() {
+        final WetCellMask wetCellMask = this.makeMask();
+        final Double[] wetData = wetCellMask.compact(
+            new Double[]{1.0, Double.NaN, 2.0, 3.0, null, Double.NaN, 4.0, Double.NaN}
+        );
+        Assertions.assertThat(wetData).containsExactly(1.0, 2.0, 3.0, 4.0);
+        Assertions.assertThat(wetCellMask.compact(
+            new float[]{1.0f, Float.NaN, 2.0f, 3.0f, Float.NaN, Float.NaN, 4.0f, Float.NaN}
+        )).containsExactly(1.0f, 2.0f, 3.0f, 4.0f);
+        Assertions.assertThat(wetCellMask.expand(wetData)).containsExactly(
+            1.0, Double.NaN, 2.0, 3.0,
+            Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+            Double.NaN, Double.NaN, 4.0, Double.NaN
+        );
+    }
+
+    /**
+     * Verify a value in a dry cell fails compaction, rather than being silently dropped.
+     */
+    @Test
+    public void testMismatch() {
+        final WetCellMask wetCellMask = this.makeMask();
+        Assertions.assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> wetCellMask.compact(
+                new Double[]{1.0, 5.0, 2.0, 3.0, Double.NaN, Double.NaN, 4.0, Double.NaN}
+            ))
+            .withMessage(WetCellMask.EXCEPTION_MESSAGE_MISMATCH);
+    }
+
+    /**
+     * Verify a fully dry chunk expands to {@code NaN}.
+     */
+    @Test
+    public void testDry() {
+        final WetCellMask wetCellMask = new WetCellMask(
+            Collections.<Double>singletonList(null),
+            Collections.singletonList(new boolean[]{false, false}),
+            2
+        );
+        Assertions.assertThat(wetCellMask.isDry()).isTrue();
+        Assertions.assertThat(wetCellMask.expand(new Double[0])).containsExactly(Double.NaN, Double.NaN);
+    }
+
+}
@@ -0,0 +1,138 @@
+package aims.ereefs.netcdf.tasks;
+
+import aims.ereefs.netcdf.ApplicationContext;
+import au.gov.aims.ereefs.pojo.definition.product.NcAggregateProductDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test cases for the {@link PreProcessingTaskExecutor} class.
+ *
+ * @author Aaron Smith
+ */
+public class PreProcessingTaskExecutorTest {
+
+    /**
+     * Stub {@link PreProcessingTask} recording the order of execution.
+     */
+    static protected class RecordingTask implements PreProcessingTask {
+
+        protected String name;
+        protected List<String> executionOrder;
+        protected boolean isFailing = false;
+        protected long delayMillis = 0;
+
+        public RecordingTask(String name, List<String> executionOrder) {
+            this.name = name;
+            this.executionOrder = executionOrder;
+        }
+
+        @Override
+        public boolean supports(NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTask) {
+            return true;
+        }
+
+        @Override
+        public void process(NcAggregateProductDefinition.PreProcessingTaskDefn preProcessingTask,
+                            ApplicationContext applicationContext) {
+            if (this.isFailing) {
+                throw new RuntimeException("Failed: " + this.name);
+            }
+            if (this.delayMillis > 0) {
+                try {
+                    Thread.sleep(this.delayMillis);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            synchronized (this.executionOrder) {
+                this.executionOrder.add(this.name);
+            }
+        }
+
+    }
+
+    /**
+     * Stub {@link PreProcessingTask} that depends on {@link RecordingTask}.
+     */
+    static protected class DependentTask extends RecordingTask {
+
+        public DependentTask(String name, List<String> executionOrder) {
+            super(name, executionOrder);
+        }
+
+        @Override
+        public List<Class<? extends PreProcessingTask>> getDependencies() {
+            return Collections.singletonList(RecordingTask.class);
+        }
+
+    }
+
+    static protected NcAggregateProductDefinition.PreProcessingTaskDefn makeDefn(String type) {
+        try {
+            return new NcAggregateProductDefinition.PreProcessingTaskDefn(
+                new ObjectMapper().readTree("{\"type\": \"" + type + "\", \"files\": []}")
+            );
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Verify that a dependent task is executed after its dependency, even when declared first.
+     */
+    @Test
+    public void testDependencyOrder() {
+        final List<String> executionOrder = new ArrayList<>();
+        final PreProcessingTaskExecutor executor = new PreProcessingTaskExecutor();
+        executor.add(makeDefn("dependent"), new DependentTask("dependent", executionOrder));
+        executor.add(makeDefn("recording"), new RecordingTask("recording", executionOrder));
+        executor.execute(new ApplicationContext("test"));
+
+        Assertions.assertThat(executionOrder).containsExactly("recording", "dependent");
+    }
+
+    /**
+     * Verify that a dependent task waits for a slower dependency when both could otherwise be
+     * executed concurrently.
+     */
+    @Test
+    public void testDependencyOrderConcurrent() {
+        final List<String> executionOrder = new ArrayList<>();
+        final PreProcessingTaskExecutor executor = new PreProcessingTaskExecutor(2);
+        final RecordingTask slowTask = new RecordingTask("recording", executionOrder);
+        slowTask.delayMillis = 100;
+        executor.add(makeDefn("dependent"), new DependentTask("dependent", executionOrder));
+        executor.add(makeDefn("recording"), slowTask);
+        executor.execute(new ApplicationContext("test"));
+
+        Assertions.assertThat(executionOrder).containsExactly("recording", "dependent");
+    }
+
+    /**
+     * Verify that a failure is re-thrown and that dependent tasks are not executed.
+     */
+    @Test
+    public void testFailure() {
+        final List<String> executionOrder = new ArrayList<>();
+        final PreProcessingTaskExecutor executor = new PreProcessingTaskExecutor();
+        final RecordingTask failingTask = new RecordingTask("recording", executionOrder);
+        failingTask.isFailing = true;
+        executor.add(makeDefn("recording"), failingTask);
+        executor.add(makeDefn("dependent"), new DependentTask("dependent", executionOrder));
+        try {
+            executor.execute(new ApplicationContext("test"));
+            Assertions.fail("RuntimeException expected.");
+        } catch (RuntimeException expected) {
+            Assertions.assertThat(expected).hasMessage("Failed: recording");
+        }
+        Assertions.assertThat(executionOrder).isEmpty();
+    }
+
+}
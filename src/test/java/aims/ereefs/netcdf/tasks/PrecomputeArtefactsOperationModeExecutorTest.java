@@ -0,0 +1,55 @@
+package aims.ereefs.netcdf.tasks;
+
+import aims.ereefs.netcdf.input.extraction.TestData;
+import aims.ereefs.netcdf.input.netcdf.GridGeometry;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the {@link PrecomputeArtefactsOperationModeExecutor} class.
+ *
+ * @author Aaron Smith
+ */
+public class PrecomputeArtefactsOperationModeExecutorTest {
+
+    /**
+     * Verify the operation mode is only selected by {@code --precompute-artefacts}.
+     */
+    @Test
+    public void testSupports() {
+        final PrecomputeArtefactsOperationModeExecutor executor = new PrecomputeArtefactsOperationModeExecutor();
+        Assertions.assertThat(executor.supports(new String[]{"--precompute-artefacts", "--input=ref.nc"})).isTrue();
+        Assertions.assertThat(executor.supports(new String[]{"--regrid", "--input=ref.nc"})).isFalse();
+    }
+
+    /**
+     * Verify a zone map is only valid if it has a zone id (or {@code null}) for each cell of the
+     * grid, and maps at least one cell to a zone.
+     */
+    @Test
+    public void testValidateZoneMap() {
+        final GridGeometry gridGeometry = GridGeometry.make(TestData.latitudeArray, TestData.longitudeArray);
+
+        final List<String> indexToZoneIdMap = new ArrayList<>(
+            Collections.nCopies(gridGeometry.getCellCount(), (String) null)
+        );
+        Assertions.assertThat(PrecomputeArtefactsOperationModeExecutor.validate("zones", indexToZoneIdMap, gridGeometry))
+            .isNotNull();
+
+        indexToZoneIdMap.set(0, "zone1");
+        Assertions.assertThat(PrecomputeArtefactsOperationModeExecutor.validate("zones", indexToZoneIdMap, gridGeometry))
+            .isNull();
+
+        indexToZoneIdMap.remove(1);
+        Assertions.assertThat(PrecomputeArtefactsOperationModeExecutor.validate("zones", indexToZoneIdMap, gridGeometry))
+            .isNotNull();
+
+        Assertions.assertThat(PrecomputeArtefactsOperationModeExecutor.validate("zones", null, gridGeometry))
+            .isNotNull();
+    }
+
+}
@@ -0,0 +1,155 @@
+package aims.ereefs.netcdf.util.file.cache;
+
+import aims.ereefs.netcdf.input.extraction.ExtractionSite;
+import aims.ereefs.netcdf.input.extraction.ExtractionSiteListSerialiser;
+import aims.ereefs.netcdf.input.geojson.IndexToZoneIdMapSerialiser;
+import aims.ereefs.netcdf.regrid.IndexWithDistance;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the {@link ArtefactCache} class, and the serialisers of the artefacts it holds.
+ *
+ * @author Aaron Smith
+ */
+public class ArtefactCacheTest {
+
+    /**
+     * Verify keys depend on the type and every component.
+     */
+    @Test
+    public void testMakeKey() {
+        final String key = ArtefactCache.makeKey("zones", "hash", true, "{}");
+        Assertions.assertThat(key).startsWith("zones-");
+        Assertions.assertThat(ArtefactCache.makeKey("zones", "hash", true, "{}")).isEqualTo(key);
+        Assertions.assertThat(ArtefactCache.makeKey("zones", "hash", false, "{}")).isNotEqualTo(key);
+        Assertions.assertThat(ArtefactCache.makeKey("sites", "hash", true, "{}")).isNotEqualTo(key);
+    }
+
+    /**
+     * Verify an artefact is only built once, and is read from disk by a new cache instance.
+     */
+    @Test
+    public void testRetrieveOrBuild() throws Exception {
+        final File cachePath = Files.createTempDirectory("artefacts").toFile();
+        final List<String> indexToZoneIdMap = new ArrayList<String>() {{
+            add("0");
+            add(null);
+            add("1");
+            add("0");
+        }};
+        final AtomicInteger buildCount = new AtomicInteger();
+        final String key = ArtefactCache.makeKey("zones", "hash");
+
+        final ArtefactCache artefactCache = new ArtefactCache(cachePath.getAbsolutePath(), null);
+        Assertions.assertThat(artefactCache.retrieve(key, IndexToZoneIdMapSerialiser::read)).isNull();
+        final List<String> built = artefactCache.retrieveOrBuild(
+            key,
+            IndexToZoneIdMapSerialiser::read,
+            IndexToZoneIdMapSerialiser::write,
+            () -> {
+                buildCount.incrementAndGet();
+                return indexToZoneIdMap;
+            }
+        );
+        Assertions.assertThat(built).isSameAs(indexToZoneIdMap);
+
+        // A new instance, as for a later Task, reads the artefact from disk.
+        final List<String> retrieved = new ArtefactCache(cachePath.getAbsolutePath(), null).retrieveOrBuild(
+            key,
+            IndexToZoneIdMapSerialiser::read,
+            IndexToZoneIdMapSerialiser::write,
+            () -> {
+                buildCount.incrementAndGet();
+                return null;
+            }
+        );
+        Assertions.assertThat(retrieved).containsExactly("0", null, "1", "0");
+        Assertions.assertThat(buildCount.get()).isEqualTo(1);
+    }
+
+    /**
+     * Verify an artefact stored by one host is downloaded from a {@code file:} remote by another,
+     * leaving the remote artefact in place, and that a remote miss returns {@code null}.
+     */
+    @Test
+    public void testRemoteRoundTrip() throws Exception {
+        final File remotePath = Files.createTempDirectory("artefacts-remote").toFile();
+        final String remoteUrl = "file:" + remotePath.getAbsolutePath();
+        final String key = ArtefactCache.makeKey("zones", "hash");
+        final List<String> indexToZoneIdMap = new ArrayList<String>() {{
+            add("0");
+            add("1");
+        }};
+
+        // The first host writes the artefact through to the remote.
+        final File firstCachePath = Files.createTempDirectory("artefacts").toFile();
+        new ArtefactCache(firstCachePath.getAbsolutePath(), remoteUrl)
+            .store(key, indexToZoneIdMap, IndexToZoneIdMapSerialiser::write);
+        final File remoteFile = new File(remotePath, key + ".bin");
+        Assertions.assertThat(remoteFile).exists();
+
+        // The second host downloads it, without removing it from the remote.
+        final File secondCachePath = Files.createTempDirectory("artefacts").toFile();
+        final ArtefactCache artefactCache = new ArtefactCache(secondCachePath.getAbsolutePath(), remoteUrl);
+        Assertions.assertThat(artefactCache.retrieve(key, IndexToZoneIdMapSerialiser::read))
+            .containsExactly("0", "1");
+        Assertions.assertThat(new File(secondCachePath, key + ".bin")).exists();
+        Assertions.assertThat(remoteFile).exists();
+
+        // A miss leaves nothing behind in the local directory.
+        Assertions.assertThat(artefactCache.retrieve(ArtefactCache.makeKey("zones", "other"),
+            IndexToZoneIdMapSerialiser::read)).isNull();
+        Assertions.assertThat(secondCachePath.listFiles()).hasSize(1);
+    }
+
+    /**
+     * Verify a corrupt artefact is discarded rather than returned.
+     */
+    @Test
+    public void testCorruptArtefact() throws Exception {
+        final File cachePath = Files.createTempDirectory("artefacts").toFile();
+        final String key = ArtefactCache.makeKey("zones", "hash");
+        Files.write(new File(cachePath, key + ".bin").toPath(), new byte[]{1, 2});
+
+        final ArtefactCache artefactCache = new ArtefactCache(cachePath.getAbsolutePath(), null);
+        Assertions.assertThat(artefactCache.retrieve(key, IndexToZoneIdMapSerialiser::read)).isNull();
+        Assertions.assertThat(new File(cachePath, key + ".bin")).doesNotExist();
+    }
+
+    /**
+     * Verify the {@link ExtractionSiteListSerialiser} round trip.
+     */
+    @Test
+    public void testExtractionSites() throws Exception {
+        final File cachePath = Files.createTempDirectory("artefacts").toFile();
+        final List<ExtractionSite> extractionSites = new ArrayList<ExtractionSite>() {{
+            add(new ExtractionSite("0", "site", -19.5, 147.5, new ArrayList<IndexWithDistance>() {{
+                add(new IndexWithDistance(12, 0.01));
+                add(new IndexWithDistance(13, 0.02));
+            }}));
+        }};
+        final String key = ArtefactCache.makeKey("extractionSites", "hash");
+
+        final ArtefactCache artefactCache = new ArtefactCache(cachePath.getAbsolutePath(), null);
+        artefactCache.store(key, extractionSites, ExtractionSiteListSerialiser::write);
+        final List<ExtractionSite> retrieved = artefactCache.retrieve(key, ExtractionSiteListSerialiser::read);
+
+        Assertions.assertThat(retrieved).hasSize(1);
+        final ExtractionSite extractionSite = retrieved.get(0);
+        Assertions.assertThat(extractionSite.getId()).isEqualTo("0");
+        Assertions.assertThat(extractionSite.getSiteName()).isEqualTo("site");
+        Assertions.assertThat(extractionSite.getLatitude()).isEqualTo(-19.5);
+        Assertions.assertThat(extractionSite.getLongitude()).isEqualTo(147.5);
+        Assertions.assertThat(extractionSite.getNeighbours()).hasSize(2);
+        Assertions.assertThat(extractionSite.getNeighbours().get(1).getIndex()).isEqualTo(13);
+        Assertions.assertThat(extractionSite.getNeighbours().get(1).getDistance()).isEqualTo(0.02);
+    }
+
+}
@@ -0,0 +1,72 @@
+package aims.ereefs.netcdf.util.file.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Tests for the {@link FileCache} class.
+ *
+ * @author Aaron Smith
+ */
+public class FileCacheTest {
+
+    /**
+     * Create a file of {@code size} bytes in the {@code directory}, returning its {@code url}.
+     */
+    protected String makeFile(File directory, String name, int size) throws Exception {
+        final File file = new File(directory, name);
+        Files.write(file.toPath(), new byte[size]);
+        return "file:" + file.getAbsolutePath();
+    }
+
+    /**
+     * Verify a pinned file is not deleted to make space, and becomes eligible once unpinned.
+     */
+    @Test
+    public void testPinnedFileNotDeleted() throws Exception {
+        final File directory = Files.createTempDirectory("file-cache").toFile();
+        final String firstUrl = this.makeFile(directory, "first.nc", 10);
+        final String secondUrl = this.makeFile(directory, "second.nc", 10);
+
+        // Space for only one (1) of the files.
+        final FileCache fileCache = new FileCache(directory.getAbsolutePath(), 1);
+        fileCache.maxFileCacheSize = 15;
+
+        Assertions.assertThat(fileCache.retrieveAndPin(firstUrl, null)).exists();
+        Assertions.assertThat(fileCache.isPinned(firstUrl)).isTrue();
+        Assertions.assertThatThrownBy(() -> fileCache.retrieve(secondUrl))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("Not enough space");
+        Assertions.assertThat(fileCache.isCached(firstUrl)).isTrue();
+
+        // Once unpinned, the first file is deleted from the cache to make space.
+        fileCache.unpin(firstUrl);
+        Assertions.assertThat(fileCache.isPinned(firstUrl)).isFalse();
+        Assertions.assertThat(fileCache.retrieve(secondUrl)).exists();
+        Assertions.assertThat(fileCache.isCached(firstUrl)).isFalse();
+        Assertions.assertThat(fileCache.isCached(secondUrl)).isTrue();
+    }
+
+    /**
+     * Verify a file pinned several times remains pinned until every pin is released.
+     */
+    @Test
+    public void testPinCount() throws Exception {
+        final File directory = Files.createTempDirectory("file-cache").toFile();
+        final String url = this.makeFile(directory, "file.nc", 10);
+        final FileCache fileCache = new FileCache(directory.getAbsolutePath(), 1);
+
+        fileCache.retrieveAndPin(url, null);
+        fileCache.retrieveAndPin(url, null);
+        fileCache.unpin(url);
+        Assertions.assertThat(fileCache.isPinned(url)).isTrue();
+        fileCache.unpin(url);
+        Assertions.assertThat(fileCache.isPinned(url)).isFalse();
+        Assertions.assertThatThrownBy(() -> fileCache.unpin(url))
+            .isInstanceOf(RuntimeException.class);
+    }
+
+}
@@ -0,0 +1,329 @@
+package aims.ereefs.netcdf.util.netcdf;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility for generating NetCDF files that resemble the structure of the eReefs model outputs.
+ * Unlike {@link NetcdfFileGenerator}, which produces small rectilinear files for verifying
+ * calculations, this class produces curvilinear files ({@code time}, {@code k}, {@code j},
+ * {@code i}) of arbitrary size for measuring performance. Each file includes:
+ *
+ * <ul>
+ * <li>two dimensional {@code latitude}/{@code longitude} coordinate variables describing a
+ * rotated, slightly curved grid,</li>
+ * <li>a depth coordinate variable ({@code zc}) with {@code positive="up"},</li>
+ * <li>a sea-bed depth variable ({@code botz}) which, combined with a coastline, defines a land
+ * mask. Cells on land, and layers below the sea-bed, are populated with {@code NaN},</li>
+ * <li>the requested number of {@code time}/{@code k}/{@code j}/{@code i} and {@code time}/
+ * {@code j}/{@code i} data variables, populated with deterministic values.</li>
+ * </ul>
+ *
+ * @author Aaron Smith
+ */
+public class CurvilinearNetcdfFileGenerator {
+
+    /**
+     * Units of the {@code time} variable, matching the eReefs model outputs.
+     */
+    final static public String TIME_UNITS = "days since 1990-01-01 00:00:00 +10";
+
+    /**
+     * Reference date for {@link #TIME_UNITS}.
+     */
+    final static public LocalDateTime TIME_EPOCH = LocalDateTime.of(1990, 1, 1, 0, 0);
+
+    /**
+     * Names of the {@code time}/{@code k}/{@code j}/{@code i} variables available for generation,
+     * in the order they are included.
+     */
+    final static public String[] DEPTH_VARIABLE_NAMES = new String[]{
+        "temp", "salt", "u", "v", "NO3", "DIN", "Chl_a_sum", "PAR"
+    };
+
+    /**
+     * Names of the {@code time}/{@code j}/{@code i} variables available for generation, in the
+     * order they are included.
+     */
+    final static public String[] SURFACE_VARIABLE_NAMES = new String[]{
+        "eta", "wspeed_u", "wspeed_v"
+    };
+
+    /**
+     * Value written to cells on land or below the sea-bed.
+     */
+    final static protected float FILL_VALUE = Float.NaN;
+
+    /**
+     * Generate a single file.
+     *
+     * @param file                  the file to create.
+     * @param startDate             the date/time of the first time step.
+     * @param timeIncrement         the interval between consecutive time steps.
+     * @param timeSteps             the number of time steps in the file.
+     * @param jSize                 the size of the {@code j} (row) dimension.
+     * @param iSize                 the size of the {@code i} (column) dimension.
+     * @param depths                the depths of the {@code k} dimension (negative values).
+     * @param depthVariableCount    the number of {@link #DEPTH_VARIABLE_NAMES} to include.
+     * @param surfaceVariableCount  the number of {@link #SURFACE_VARIABLE_NAMES} to include.
+     * @return the generated {@code file}.
+     */
+    static public File generate(File file,
+                                LocalDateTime startDate,
+                                ChronoUnit timeIncrement,
+                                int timeSteps,
+                                int jSize,
+                                int iSize,
+                                double[] depths,
+                                int depthVariableCount,
+                                int surfaceVariableCount)
+        throws IOException, InvalidRangeException {
+
+        if (depthVariableCount > DEPTH_VARIABLE_NAMES.length) {
+            throw new RuntimeException("A maximum of " + DEPTH_VARIABLE_NAMES.length +
+                " depth variables is supported.");
+        }
+        if (surfaceVariableCount > SURFACE_VARIABLE_NAMES.length) {
+            throw new RuntimeException("A maximum of " + SURFACE_VARIABLE_NAMES.length +
+                " surface variables is supported.");
+        }
+        file.getParentFile().mkdirs();
+
+        final NetcdfFileWriter writer = NetcdfFileWriter.createNew(
+            NetcdfFileWriter.Version.netcdf3,
+            file.getAbsolutePath()
+        );
+        writer.setFill(true);
+        writer.setLargeFile(true);
+
+        // Global attributes.
+        writer.addGroupAttribute(null, new Attribute("Conventions", "CF-1.0"));
+        writer.addGroupAttribute(null, new Attribute("title", "Synthetic curvilinear benchmark file"));
+
+        // Dimensions.
+        writer.addUnlimitedDimension("time");
+        writer.addDimension(null, "k", depths.length);
+        writer.addDimension(null, "j", jSize);
+        writer.addDimension(null, "i", iSize);
+
+        // Coordinate variables.
+        final Variable timeVariable = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+        writer.addVariableAttribute(timeVariable, new Attribute("long_name", "Time"));
+        writer.addVariableAttribute(timeVariable, new Attribute("standard_name", "time"));
+        writer.addVariableAttribute(timeVariable, new Attribute("units", TIME_UNITS));
+        writer.addVariableAttribute(timeVariable, new Attribute("axis", "T"));
+
+        final Variable zcVariable = writer.addVariable(null, "zc", DataType.DOUBLE, "k");
+        writer.addVariableAttribute(zcVariable, new Attribute("long_name", "Z coordinate"));
+        writer.addVariableAttribute(zcVariable, new Attribute("units", "m"));
+        writer.addVariableAttribute(zcVariable, new Attribute("positive", "up"));
+        writer.addVariableAttribute(zcVariable, new Attribute("axis", "Z"));
+        writer.addVariableAttribute(zcVariable, new Attribute("coordinate_type", "Z"));
+
+        final Variable latitudeVariable = writer.addVariable(null, "latitude", DataType.DOUBLE, "j i");
+        writer.addVariableAttribute(latitudeVariable, new Attribute("long_name", "Latitude"));
+        writer.addVariableAttribute(latitudeVariable, new Attribute("standard_name", "latitude"));
+        writer.addVariableAttribute(latitudeVariable, new Attribute("units", "degrees_north"));
+
+        final Variable longitudeVariable = writer.addVariable(null, "longitude", DataType.DOUBLE, "j i");
+        writer.addVariableAttribute(longitudeVariable, new Attribute("long_name", "Longitude"));
+        writer.addVariableAttribute(longitudeVariable, new Attribute("standard_name", "longitude"));
+        writer.addVariableAttribute(longitudeVariable, new Attribute("units", "degrees_east"));
+
+        final Variable botzVariable = writer.addVariable(null, "botz", DataType.FLOAT, "j i");
+        writer.addVariableAttribute(botzVariable, new Attribute("long_name", "Depth of sea-bed"));
+        writer.addVariableAttribute(botzVariable, new Attribute("units", "metre"));
+        writer.addVariableAttribute(botzVariable, new Attribute("coordinates", "latitude longitude"));
+        writer.addVariableAttribute(botzVariable, new Attribute("_FillValue", FILL_VALUE));
+
+        // Data variables.
+        final Map<String, Variable> depthVariables = new LinkedHashMap<>();
+        for (int index = 0; index < depthVariableCount; index++) {
+            final String name = DEPTH_VARIABLE_NAMES[index];
+            final Variable variable = writer.addVariable(null, name, DataType.FLOAT, "time k j i");
+            writer.addVariableAttribute(variable, new Attribute("long_name", name));
+            writer.addVariableAttribute(variable, new Attribute("units", "1"));
+            writer.addVariableAttribute(variable,
+                new Attribute("coordinates", "time zc latitude longitude"));
+            writer.addVariableAttribute(variable, new Attribute("_FillValue", FILL_VALUE));
+            depthVariables.put(name, variable);
+        }
+        final Map<String, Variable> surfaceVariables = new LinkedHashMap<>();
+        for (int index = 0; index < surfaceVariableCount; index++) {
+            final String name = SURFACE_VARIABLE_NAMES[index];
+            final Variable variable = writer.addVariable(null, name, DataType.FLOAT, "time j i");
+            writer.addVariableAttribute(variable, new Attribute("long_name", name));
+            writer.addVariableAttribute(variable, new Attribute("units", "1"));
+            writer.addVariableAttribute(variable,
+                new Attribute("coordinates", "time latitude longitude"));
+            writer.addVariableAttribute(variable, new Attribute("_FillValue", FILL_VALUE));
+            surfaceVariables.put(name, variable);
+        }
+
+        writer.create();
+
+        try {
+
+            // Depths.
+            final Array zcArray = Array.factory(DataType.DOUBLE, new int[]{depths.length});
+            for (int k = 0; k < depths.length; k++) {
+                zcArray.setDouble(k, depths[k]);
+            }
+            writer.write(zcVariable, zcArray);
+
+            // Grid geometry and land mask.
+            final Array latitudeArray = Array.factory(DataType.DOUBLE, new int[]{jSize, iSize});
+            final Array longitudeArray = Array.factory(DataType.DOUBLE, new int[]{jSize, iSize});
+            final Array botzArray = Array.factory(DataType.FLOAT, new int[]{jSize, iSize});
+            final Index gridIndex = latitudeArray.getIndex();
+            for (int j = 0; j < jSize; j++) {
+                for (int i = 0; i < iSize; i++) {
+                    gridIndex.set(j, i);
+                    latitudeArray.setDouble(gridIndex, latitude(j, i));
+                    longitudeArray.setDouble(gridIndex, longitude(j, i));
+                    botzArray.setFloat(gridIndex, (float) seaBedDepth(j, i, jSize, iSize, depths));
+                }
+            }
+            writer.write(latitudeVariable, latitudeArray);
+            writer.write(longitudeVariable, longitudeArray);
+            writer.write(botzVariable, botzArray);
+
+            // Time steps. Each time step is written individually to keep memory usage constant
+            // irrespective of the size of the file being generated.
+            final Array timeArray = Array.factory(DataType.DOUBLE, new int[]{1});
+            final Array depthSliceArray =
+                Array.factory(DataType.FLOAT, new int[]{1, depths.length, jSize, iSize});
+            final Array surfaceSliceArray =
+                Array.factory(DataType.FLOAT, new int[]{1, jSize, iSize});
+            for (int t = 0; t < timeSteps; t++) {
+                final LocalDateTime dateTime = startDate.plus(t, timeIncrement);
+                timeArray.setDouble(0, toTimeValue(dateTime));
+                writer.write(timeVariable, new int[]{t}, timeArray);
+
+                int variableIndex = 0;
+                for (Variable variable : depthVariables.values()) {
+                    final Index index = depthSliceArray.getIndex();
+                    for (int k = 0; k < depths.length; k++) {
+                        for (int j = 0; j < jSize; j++) {
+                            for (int i = 0; i < iSize; i++) {
+                                index.set(0, k, j, i);
+                                final float botz = botzArray.getFloat(botzArray.getIndex().set(j, i));
+                                if (Float.isNaN(botz) || depths[k] < botz) {
+                                    depthSliceArray.setFloat(index, FILL_VALUE);
+                                } else {
+                                    depthSliceArray.setFloat(index,
+                                        (float) value(variableIndex, t, depths[k], j, i));
+                                }
+                            }
+                        }
+                    }
+                    writer.write(variable, new int[]{t, 0, 0, 0}, depthSliceArray);
+                    variableIndex++;
+                }
+
+                for (Variable variable : surfaceVariables.values()) {
+                    final Index index = surfaceSliceArray.getIndex();
+                    for (int j = 0; j < jSize; j++) {
+                        for (int i = 0; i < iSize; i++) {
+                            index.set(0, j, i);
+                            final float botz = botzArray.getFloat(botzArray.getIndex().set(j, i));
+                            if (Float.isNaN(botz)) {
+                                surfaceSliceArray.setFloat(index, FILL_VALUE);
+                            } else {
+                                surfaceSliceArray.setFloat(index,
+                                    (float) value(variableIndex, t, 0.0, j, i));
+                            }
+                        }
+                    }
+                    writer.write(variable, new int[]{t, 0, 0}, surfaceSliceArray);
+                    variableIndex++;
+                }
+            }
+
+        } finally {
+            writer.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Convert the specified {@code dateTime} to a value based on {@link #TIME_UNITS}.
+     */
+    static public double toTimeValue(LocalDateTime dateTime) {
+        return ChronoUnit.MINUTES.between(TIME_EPOCH, dateTime) / (24.0 * 60.0);
+    }
+
+    /**
+     * Build the list of variable names included in a file generated with the specified counts.
+     */
+    static public List<String> getVariableNames(int depthVariableCount,
+                                                int surfaceVariableCount) {
+        final List<String> variableNames = new ArrayList<>();
+        for (int index = 0; index < depthVariableCount; index++) {
+            variableNames.add(DEPTH_VARIABLE_NAMES[index]);
+        }
+        for (int index = 0; index < surfaceVariableCount; index++) {
+            variableNames.add(SURFACE_VARIABLE_NAMES[index]);
+        }
+        return variableNames;
+    }
+
+    /**
+     * Latitude of the cell. The grid is rotated and slightly curved so that neither latitude nor
+     * longitude is constant along a row or column.
+     */
+    static protected double latitude(int j, int i) {
+        return -24.0 + (j * 0.01) - (i * 0.004) + (0.00001 * i * i);
+    }
+
+    /**
+     * Longitude of the cell. See {@link #latitude(int, int)}.
+     */
+    static protected double longitude(int j, int i) {
+        return 150.0 + (i * 0.01) + (j * 0.004) - (0.00001 * j * j);
+    }
+
+    /**
+     * Depth of the sea-bed for the cell, or {@code NaN} if the cell is on land. The coastline
+     * meanders across the last quarter of the {@code i} dimension, and the sea-bed deepens
+     * linearly away from the coastline, so every depth layer has a mix of wet and dry cells.
+     */
+    static protected double seaBedDepth(int j, int i, int jSize, int iSize, double[] depths) {
+        final double coastline = iSize * (0.75 + 0.15 * Math.sin(j * 4.0 * Math.PI / jSize));
+        if (i >= coastline) {
+            return Double.NaN;
+        }
+        double deepest = 0.0;
+        for (double depth : depths) {
+            deepest = Math.min(deepest, depth);
+        }
+        final double distanceFromCoast = (coastline - i) / coastline;
+        return Math.min(-1.0, deepest * distanceFromCoast * 1.1);
+    }
+
+    /**
+     * Deterministic value for a cell, varying smoothly with time, depth and location.
+     */
+    static protected double value(int variableIndex, int t, double depth, int j, int i) {
+        return (variableIndex + 1) * 10.0 +
+            Math.sin((t + variableIndex) * 0.25) +
+            (depth * 0.01) +
+            Math.cos(j * 0.05) * Math.sin(i * 0.05);
+    }
+
+}
@@ -0,0 +1,136 @@
+package aims.ereefs.netcdf.util.trace;
+
+import org.assertj.core.api.Assertions;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for the {@link Tracer} class.
+ *
+ * @author Aaron Smith
+ */
+public class TracerTest {
+
+    @After
+    public void tearDown() {
+        Tracer.bind(null);
+    }
+
+    /**
+     * Verify that no {@code Spans} are recorded when tracing is disabled.
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        final Tracer.Recorder recorder = new Tracer.Recorder();
+        Assertions.assertThat(Tracer.isEnabled()).isFalse();
+        try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "disabled")) {
+            Assertions.assertThat(span).isSameAs(Tracer.NOOP_SPAN);
+            Assertions.assertThat(span.arg("key", "value").arg("count", 1).arg("value", 1.5))
+                .isSameAs(Tracer.NOOP_SPAN);
+        }
+
+        final JSONArray events = this.writeAndRead(recorder);
+        Assertions.assertThat(events.length()).isEqualTo(0);
+    }
+
+    /**
+     * Verify that nested {@code Spans} are written as Chrome Trace Event complete events, with a
+     * metadata event naming the {@code Thread}.
+     */
+    @Test
+    public void testEnabled() throws Exception {
+        final Tracer.Recorder recorder = new Tracer.Recorder();
+        try (Tracer.Binding binding = Tracer.bind(recorder);
+             Tracer.Span outer = Tracer.begin(Tracer.CATEGORY_PIPELINE, "outer")) {
+            outer.arg("index", 3);
+            try (Tracer.Span inner = Tracer.begin(Tracer.CATEGORY_IO, "inner")) {
+                inner.arg("variable", "temp");
+            }
+        }
+
+        Assertions.assertThat(Tracer.isEnabled()).isFalse();
+
+        final JSONArray events = this.writeAndRead(recorder);
+        Assertions.assertThat(events.length()).isEqualTo(3);
+
+        final JSONObject threadName = events.getJSONObject(0);
+        Assertions.assertThat(threadName.getString("ph")).isEqualTo("M");
+        Assertions.assertThat(threadName.getLong("tid")).isEqualTo(Thread.currentThread().getId());
+
+        // Spans are recorded in order of completion.
+        final JSONObject inner = events.getJSONObject(1);
+        final JSONObject outer = events.getJSONObject(2);
+        Assertions.assertThat(inner.getString("name")).isEqualTo("inner");
+        Assertions.assertThat(inner.getString("ph")).isEqualTo("X");
+        Assertions.assertThat(inner.getJSONObject("args").getString("variable")).isEqualTo("temp");
+        Assertions.assertThat(outer.getString("name")).isEqualTo("outer");
+        Assertions.assertThat(outer.getString("cat")).isEqualTo(Tracer.CATEGORY_PIPELINE);
+        Assertions.assertThat(outer.getJSONObject("args").getInt("index")).isEqualTo(3);
+
+        // The outer Span encloses the inner Span.
+        Assertions.assertThat(outer.getDouble("ts")).isLessThanOrEqualTo(inner.getDouble("ts"));
+        Assertions.assertThat(outer.getDouble("ts") + outer.getDouble("dur"))
+            .isGreaterThanOrEqualTo(inner.getDouble("ts") + inner.getDouble("dur"));
+    }
+
+    /**
+     * Verify that {@code Spans} are recorded by the {@link Tracer.Recorder} bound to the current
+     * {@code Thread}, so concurrent {@code Tasks} record separate traces, and that work wrapped
+     * for another {@code Thread} is recorded by the submitting {@code Task}.
+     */
+    @Test
+    public void testRecorderPerTask() throws Exception {
+        final Tracer.Recorder recorder1 = new Tracer.Recorder();
+        final Tracer.Recorder recorder2 = new Tracer.Recorder();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            try (Tracer.Binding binding = Tracer.bind(recorder1)) {
+                try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE, "task1")) {
+                    executorService.submit(Tracer.wrap(() -> {
+                        try (Tracer.Span workerSpan = Tracer.begin(Tracer.CATEGORY_IO, "task1-worker")) {
+                            return null;
+                        }
+                    })).get();
+                }
+
+                // Binding another Recorder replaces, and then restores, the current Recorder.
+                try (Tracer.Binding nestedBinding = Tracer.bind(recorder2);
+                     Tracer.Span span = Tracer.begin(Tracer.CATEGORY_PIPELINE, "task2")) {
+                }
+            }
+
+            // Work that is not wrapped is not recorded.
+            executorService.submit(() -> {
+                try (Tracer.Span span = Tracer.begin(Tracer.CATEGORY_IO, "unwrapped")) {
+                    Assertions.assertThat(span).isSameAs(Tracer.NOOP_SPAN);
+                }
+            }).get();
+        } finally {
+            executorService.shutdown();
+        }
+
+        Assertions.assertThat(recorder1.getSpanCount()).isEqualTo(2);
+        Assertions.assertThat(recorder2.getSpanCount()).isEqualTo(1);
+        final String content1 = this.writeAndRead(recorder1).toString();
+        Assertions.assertThat(content1).contains("\"task1\"", "\"task1-worker\"");
+        Assertions.assertThat(content1).doesNotContain("\"task2\"");
+        Assertions.assertThat(this.writeAndRead(recorder2).toString()).doesNotContain("task1");
+    }
+
+    protected JSONArray writeAndRead(Tracer.Recorder recorder) throws Exception {
+        final File file = File.createTempFile("trace", ".json");
+        file.deleteOnExit();
+        recorder.write(file);
+        final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        return new JSONObject(content).getJSONArray("traceEvents");
+    }
+
+}